@@ -0,0 +1,89 @@
+import tesis.tesisenvios.entitites.TrackingEventEntity;
+import tesis.tesisenvios.utils.EpochSeconds;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Benchmark de memoria del historial de eventos: formato anterior (fechas LocalDateTime y
+ * textos repetidos por fila, como los materializa Hibernate) contra TrackingEventEntity compacto.
+ * No forma parte de la suite de tests; se corre con scripts/event-footprint-benchmark.sh.
+ */
+public class EventFootprintBenchmark {
+
+    private static final String[] STATUSES = {"Pendiente de ingreso", "En tránsito", "En distribución", "Entregado"};
+    private static final String[] LOCATIONS = {"Centro de Distribución Córdoba", "Sucursal Rosario Centro",
+            "Centro de Distribución Benavídez", "Sucursal Mendoza"};
+    private static final String[] DESCRIPTIONS = {"El envío fue ingresado al sistema",
+            "El envío se encuentra en viaje hacia la sucursal de destino",
+            "El envío salió a reparto", "El envío fue entregado al destinatario"};
+
+    public static void main(String[] args) {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 8, 0);
+
+        IntFunction<Object> legacy = i -> new LegacyEvent((long) i,
+                base.plusMinutes(i),
+                new String(STATUSES[i % 4]),
+                new String(DESCRIPTIONS[i % 4]),
+                new String(LOCATIONS[i % 4]),
+                "AND" + (i / 4) + "-" + (i % 4),
+                base.plusMinutes(i + 5));
+
+        // Los códigos del diccionario son enteros; los términos se guardan una sola vez
+        IntFunction<Object> compact = i -> new TrackingEventEntity((long) i, null,
+                EpochSeconds.of(base.plusMinutes(i)),
+                1 + i % 4, 5 + i % 4, 9 + i % 4,
+                "AND" + (i / 4) + "-" + (i % 4),
+                EpochSeconds.of(base.plusMinutes(i + 5)));
+
+        // Primera corrida de calentamiento, se descarta
+        retainedBytes(legacy, events);
+        retainedBytes(compact, events);
+
+        long legacyMin = Long.MAX_VALUE;
+        long compactMin = Long.MAX_VALUE;
+        for (int r = 0; r < runs; r++) {
+            legacyMin = Math.min(legacyMin, retainedBytes(legacy, events));
+            compactMin = Math.min(compactMin, retainedBytes(compact, events));
+        }
+
+        System.out.printf("eventos=%d corridas=%d%n", events, runs);
+        System.out.printf("%-10s %14s%n", "formato", "bytes/evento");
+        System.out.printf("%-10s %14d%n", "anterior", legacyMin / events);
+        System.out.printf("%-10s %14d%n", "compacto", compactMin / events);
+        System.out.printf("reducción: %.1f%%%n", 100.0 * (legacyMin - compactMin) / legacyMin);
+    }
+
+    private static long retainedBytes(IntFunction<Object> factory, int events) {
+        long before = usedHeap();
+        List<Object> retained = new ArrayList<>(events);
+        for (int i = 0; i < events; i++) {
+            retained.add(factory.apply(i));
+        }
+        long after = usedHeap();
+        // Mantener la lista viva hasta después de medir
+        if (retained.size() != events) {
+            throw new IllegalStateException();
+        }
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Forma del evento antes de la codificación compacta
+     */
+    private record LegacyEvent(Long id, LocalDateTime eventDate, String status, String description,
+                               String location, String providerEventId, LocalDateTime createdAt) {
+    }
+}
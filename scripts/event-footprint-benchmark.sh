@@ -0,0 +1,28 @@
+#!/usr/bin/env bash
+# ================================
+# Benchmark de memoria del historial de tracking: eventos con el formato anterior
+# (LocalDateTime + textos por fila) contra TrackingEventEntity compacto.
+# Mide heap retenido por evento con SerialGC y heap fijo; se queda con el mínimo de las corridas.
+#
+# Uso: scripts/event-footprint-benchmark.sh [eventos] [corridas]
+#   eventos:  cantidad de eventos por medición (por defecto 1000000)
+#   corridas: mediciones por formato, después de una de calentamiento (por defecto 5)
+# Resultado: tabla por consola y en target/event-footprint-benchmark.txt
+# ================================
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+EVENTS="${1:-1000000}"
+RUNS="${2:-5}"
+OUT="target/event-footprint-benchmark.txt"
+
+echo "==> Compilando"
+./mvnw -q -B -DskipTests compile
+
+echo "==> Midiendo"
+{
+    echo "Benchmark de eventos $(date -Iseconds) $(java -version 2>&1 | head -1)"
+    java -Dfile.encoding=UTF-8 -XX:+UseSerialGC -Xms1g -Xmx1g -cp target/classes \
+         scripts/EventFootprintBenchmark.java "${EVENTS}" "${RUNS}"
+} | tee -a "${OUT}"
@@ -0,0 +1,88 @@
+#!/usr/bin/env bash
+# ================================
+# Benchmark de arranque: jar normal vs perfil startup (AOT + CDS + lazy init)
+# Mide tiempo hasta el primer pedido OK y RSS del proceso después de ese pedido.
+#
+# Uso: scripts/startup-benchmark.sh [perfiles]
+#   perfiles: perfiles de Spring para ambas corridas (por defecto vacío = H2 en memoria).
+#             Con "prod" hacen falta las variables DB_* y la base accesible, también para
+#             la corrida de entrenamiento del archivo CDS.
+# Resultado: tabla por consola y en target/startup-benchmark.txt
+# ================================
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+PROFILES="${1:-}"
+PORT="${PORT:-18084}"
+RUNS="${RUNS:-3}"
+HEALTH_URL="http://localhost:${PORT}/api/shipping/health"
+JAR_NAME="Tesis-Envios-0.0.1-SNAPSHOT.jar"
+OUT="target/startup-benchmark.txt"
+
+join_profiles() {
+    if [ -z "$1" ]; then echo "$2"; else echo "$1,$2"; fi
+}
+
+# Arranca el proceso, espera el primer 200 y devuelve "ms rss_kb"
+measure() {
+    local start end pid rss
+    start=$(date +%s%N)
+    "$@" --server.port="${PORT}" > target/startup-run.log 2>&1 &
+    pid=$!
+
+    until curl -sf -o /dev/null "${HEALTH_URL}"; do
+        if ! kill -0 "${pid}" 2>/dev/null; then
+            echo "El proceso terminó antes de responder, ver target/startup-run.log" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+    end=$(date +%s%N)
+
+    rss=$(awk '/VmRSS/ {print $2}' "/proc/${pid}/status")
+    kill "${pid}"
+    wait "${pid}" 2>/dev/null || true
+
+    echo "$(( (end - start) / 1000000 )) ${rss}"
+}
+
+# Promedio de RUNS corridas
+measure_avg() {
+    local total_ms=0 total_rss=0 ms rss
+    for _ in $(seq "${RUNS}"); do
+        read -r ms rss < <(measure "$@")
+        total_ms=$((total_ms + ms))
+        total_rss=$((total_rss + rss))
+    done
+    echo "$((total_ms / RUNS)) $((total_rss / RUNS / 1024))"
+}
+
+echo "==> Build normal"
+./mvnw -q -B -DskipTests package
+cp "target/${JAR_NAME}" target/baseline.jar
+
+echo "==> Build startup (AOT)"
+./mvnw -q -B -DskipTests -Pstartup -Daot.profiles="$(join_profiles "${PROFILES}" startup)" package
+
+echo "==> Extrayendo jar y entrenando archivo CDS"
+rm -rf target/extracted
+java -Djarmode=tools -jar "target/${JAR_NAME}" extract --destination target/extracted
+java -XX:ArchiveClassesAtExit=target/extracted/app.jsa \
+     -Dspring.aot.enabled=true -Dspring.context.exit=onRefresh \
+     -jar "target/extracted/${JAR_NAME}" \
+     --spring.profiles.active="$(join_profiles "${PROFILES}" startup)" > target/cds-training.log 2>&1
+
+echo "==> Midiendo (${RUNS} corridas cada uno)"
+read -r base_ms base_rss < <(measure_avg java -jar target/baseline.jar \
+     --spring.profiles.active="${PROFILES}")
+read -r opt_ms opt_rss < <(measure_avg java -XX:SharedArchiveFile=target/extracted/app.jsa \
+     -Dspring.aot.enabled=true -jar "target/extracted/${JAR_NAME}" \
+     --spring.profiles.active="$(join_profiles "${PROFILES}" startup)")
+
+{
+    echo "Benchmark de arranque $(date -Iseconds) perfiles='${PROFILES}' corridas=${RUNS}"
+    printf "%-12s %22s %10s\n" "variante" "primer pedido (ms)" "RSS (MB)"
+    printf "%-12s %22s %10s\n" "normal" "${base_ms}" "${base_rss}"
+    printf "%-12s %22s %10s\n" "startup" "${opt_ms}" "${opt_rss}"
+} | tee -a "${OUT}"
@@ -0,0 +1,102 @@
+package tesis.tesisenvios.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import tesis.tesisenvios.dtos.RequestPriority;
+import tesis.tesisenvios.services.AdmissionController;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Aplica el control de admisión a la API antes de llegar al controller.
+ * Los pedidos rechazados responden 429 con Retry-After sin tocar la base ni los proveedores.
+ */
+@Component
+@Slf4j
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final String API_PREFIX = "/api/";
+
+    @Autowired
+    private AdmissionController admissionController;
+
+    @Value("${admission.trust-forwarded-for:false}")
+    private boolean trustForwardedFor;
+
+    // API keys de clientes conocidos; una clave que no está en la lista no cuenta como identidad
+    @Value("${admission.api-keys:}")
+    private Set<String> apiKeys;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        return !path.startsWith(API_PREFIX)
+                || path.endsWith("/health")
+                || "OPTIONS".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestPriority priority = classify(request.getMethod(), request.getRequestURI());
+        AdmissionController.Admission admission = admissionController.admit(priority, clientKey(request));
+
+        if (!admission.admitted()) {
+            log.debug("Pedido rechazado ({}, {}): {} {}", admission.reason(), priority,
+                    request.getMethod(), request.getRequestURI());
+            response.setStatus(429);
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(admission.retryAfterSeconds()));
+            return;
+        }
+
+        // En pedidos asíncronos (feed de cambios) el lugar se libera al soltar el hilo, no al responder
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            admissionController.release();
+        }
+    }
+
+    /**
+     * Clase de prioridad según el endpoint: el checkout primero, los reportes al final
+     */
+    static RequestPriority classify(String method, String path) {
+        if (path.contains("/quotes/prewarm") || path.endsWith("/stats") || path.endsWith("/sla")
+                || path.endsWith("/export") || path.endsWith("/changes") || path.endsWith("/labels/merge")) {
+            return RequestPriority.LOW;
+        }
+        if (path.contains("/quotes") || path.endsWith("/create")
+                || ("DELETE".equals(method) && path.contains("/order/"))) {
+            return RequestPriority.CRITICAL;
+        }
+        return RequestPriority.NORMAL;
+    }
+
+    /**
+     * Clave del rate limit: la API key solo si es una de las configuradas (si no, cada pedido
+     * podría traer una clave inventada y estrenar bucket); si no, la IP
+     */
+    private String clientKey(HttpServletRequest request) {
+        String apiKey = request.getHeader("X-Api-Key");
+        if (apiKey != null && !apiKey.isBlank() && apiKeys.contains(apiKey)) {
+            return "k:" + apiKey;
+        }
+        if (trustForwardedFor) {
+            String forwarded = request.getHeader("X-Forwarded-For");
+            if (forwarded != null && !forwarded.isBlank()) {
+                int comma = forwarded.indexOf(',');
+                return "ip:" + (comma < 0 ? forwarded : forwarded.substring(0, comma)).trim();
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
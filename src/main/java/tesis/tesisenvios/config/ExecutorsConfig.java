@@ -0,0 +1,75 @@
+package tesis.tesisenvios.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class ExecutorsConfig {
+
+    /**
+     * Pool para consultar proveedores en paralelo (cotizaciones)
+     */
+    @Bean
+    public ThreadPoolTaskExecutor carrierExecutor(@Value("${carriers.executor.pool-size:8}") int poolSize,
+                                                  @Value("${carriers.executor.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("carrier-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Pool para enviar lotes de notificaciones (mail y webhook); el tope por canal lo pone el dispatcher
+     */
+    @Bean
+    public ThreadPoolTaskExecutor notificationExecutor(@Value("${notifications.executor.pool-size:6}") int poolSize,
+                                                       @Value("${notifications.executor.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("notification-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Pool acotado para descargar y generar etiquetas; si se llena, el barrido de etiquetas retoma lo pendiente
+     */
+    @Bean
+    public ThreadPoolTaskExecutor labelExecutor(@Value("${labels.executor.pool-size:2}") int poolSize,
+                                                @Value("${labels.executor.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("label-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Pool para los trabajos de refresco manual de tracking, fuera del pool de tareas programadas
+     * (un trabajo puede tardar minutos). El worker solo toma trabajos si hay un hilo libre.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor trackingJobExecutor(@Value("${tracking.refresh-jobs.executor.pool-size:1}") int poolSize) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(poolSize);
+        executor.setThreadNamePrefix("tracking-job-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -3,10 +3,15 @@ package tesis.tesisenvios.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
 @Configuration
 public class MappersConfig {
 
@@ -23,7 +28,17 @@ public class MappersConfig {
     }
 
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(@Value("${carriers.http.connect-timeout-ms:2000}") int connectTimeoutMs,
+                                     @Value("${carriers.http.read-timeout-ms:5000}") int readTimeoutMs) {
+        // Un solo HttpClient: reutiliza conexiones (keep-alive) entre hilos, así un lote de cotizaciones
+        // en paralelo no abre una conexión TLS por consulta.
+        // Timeouts para que un proveedor colgado no retenga hilos del pool de cotización
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        return new RestTemplate(requestFactory);
     }
 }
\ No newline at end of file
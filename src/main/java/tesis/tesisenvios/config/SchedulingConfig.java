@@ -0,0 +1,48 @@
+package tesis.tesisenvios.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.ThreadPoolTaskSchedulerBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+    /**
+     * Scheduler de las tareas @Scheduled sin "scheduler" (spring.task.scheduling.*). Se declara
+     * acá porque con otro TaskScheduler en el contexto Boot deja de crear el suyo.
+     */
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(ThreadPoolTaskSchedulerBuilder builder) {
+        return builder.build();
+    }
+
+    /**
+     * Hilo propio para el secuenciador del log de cambios y el aviso a los long-poll: corre cada
+     * 250 ms y no puede quedar en cola detrás de barridos que tardan minutos en el pool general
+     */
+    @Bean
+    public ThreadPoolTaskScheduler changeFeedScheduler(@Value("${changes.scheduler.pool-size:1}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("change-feed-");
+        scheduler.setWaitForTasksToCompleteOnShutdown(false);
+        return scheduler;
+    }
+
+    /**
+     * Hilo propio para la cosecha de la tabla de tarifas: con la pausa entre consultas puede
+     * tardar varios minutos por hora y no debe demorar los barridos del pool general
+     */
+    @Bean
+    public ThreadPoolTaskScheduler rateTableScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("rate-table-");
+        scheduler.setWaitForTasksToCompleteOnShutdown(false);
+        return scheduler;
+    }
+}
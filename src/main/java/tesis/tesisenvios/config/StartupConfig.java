@@ -0,0 +1,21 @@
+package tesis.tesisenvios.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class StartupConfig {
+
+    /**
+     * Con spring.main.lazy-initialization=true (perfil startup) los beans propios se siguen creando
+     * al arrancar: los @Scheduled y los listeners de eventos no corren si el bean nunca se crea,
+     * y así el primer pedido no paga la inicialización del servicio. Lo perezoso queda para
+     * la infraestructura no crítica (springdoc, consola H2, etc.)
+     */
+    @Bean
+    static LazyInitializationExcludeFilter eagerServiceBeans() {
+        return (beanName, beanDefinition, beanType) ->
+                beanType != null && beanType.getName().startsWith("tesis.tesisenvios.");
+    }
+}
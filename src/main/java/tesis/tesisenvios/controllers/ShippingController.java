@@ -1,22 +1,66 @@
 package tesis.tesisenvios.controllers;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import tesis.tesisenvios.dtos.BatchQuoteRequest;
 import tesis.tesisenvios.dtos.CreateShipmentRequest;
+import tesis.tesisenvios.dtos.LabelMergeRequest;
 import tesis.tesisenvios.dtos.QuoteRequest;
+import tesis.tesisenvios.dtos.ShipmentChangeFeedResponse;
 import tesis.tesisenvios.dtos.ShipmentResponse;
+import tesis.tesisenvios.dtos.ShipmentStatsResponse;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.dtos.ShipmentVersion;
+import tesis.tesisenvios.dtos.ShipmentView;
 import tesis.tesisenvios.dtos.ShippingQuoteResponse;
+import tesis.tesisenvios.dtos.SlaReportResponse;
+import tesis.tesisenvios.dtos.SlaState;
+import tesis.tesisenvios.dtos.TrackingRefreshJobResponse;
+import tesis.tesisenvios.dtos.TrackingRefreshRequest;
+import tesis.tesisenvios.entitites.ShipmentLabelEntity;
+import tesis.tesisenvios.exceptions.IdempotencyConflictException;
+import tesis.tesisenvios.exceptions.InvalidAddressException;
+import tesis.tesisenvios.services.IdempotencyService;
+import tesis.tesisenvios.services.LabelService;
+import tesis.tesisenvios.services.ShipmentChangeLogService;
+import tesis.tesisenvios.services.ShipmentExportService;
+import tesis.tesisenvios.services.ShipmentStatsService;
 import tesis.tesisenvios.services.ShippingService;
+import tesis.tesisenvios.services.SlaMonitorService;
+import tesis.tesisenvios.services.TrackingRefreshJobService;
+import tesis.tesisenvios.utils.ShipmentViews;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/shipping")
@@ -24,9 +68,52 @@ import java.util.Map;
 @Slf4j
 public class ShippingController {
 
+    // Atributos de Tomcat para delegar el cuerpo de la respuesta a sendfile
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     @Autowired
     private ShippingService shippingService;
 
+    @Autowired
+    private TrackingRefreshJobService trackingRefreshJobService;
+
+    @Autowired
+    private ShipmentStatsService shipmentStatsService;
+
+    @Autowired
+    private SlaMonitorService slaMonitorService;
+
+    @Autowired
+    private ShipmentExportService shipmentExportService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private ShipmentChangeLogService shipmentChangeLogService;
+
+    @Autowired
+    private LabelService labelService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private ObjectMapper compactMapper;
+
+    @Value("${shipping.http-cache.active-max-age-seconds:30}")
+    private long activeMaxAgeSeconds;
+
+    @Value("${shipping.http-cache.terminal-max-age-seconds:86400}")
+    private long terminalMaxAgeSeconds;
+
+    @PostConstruct
+    void initCompactMapper() {
+        compactMapper = ShipmentViews.compactMapper(objectMapper);
+    }
+
     /**
      * Obtener cotizaciones de envío
      */
@@ -35,6 +122,9 @@ public class ShippingController {
         try {
             List<ShippingQuoteResponse> quotes = shippingService.getShippingQuotes(request);
             return ResponseEntity.ok(quotes);
+        } catch (InvalidAddressException e) {
+            log.warn("Dirección inválida al cotizar: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.error("Error obteniendo cotizaciones: {}", e.getMessage());
             return ResponseEntity.internalServerError().build();
@@ -42,13 +132,55 @@ public class ShippingController {
     }
 
     /**
-     * Crear un envío
+     * Cotizar varios carritos o destinos en una sola llamada; las consultas a proveedores salen en paralelo
+     */
+    @PostMapping("/quotes/batch")
+    public ResponseEntity<List<List<ShippingQuoteResponse>>> getShippingQuotesBatch(
+            @Valid @RequestBody BatchQuoteRequest request) {
+        try {
+            return ResponseEntity.ok(shippingService.getShippingQuotesBatch(request.getRequests()));
+        } catch (IllegalArgumentException e) {
+            log.warn("Lote de cotizaciones inválido: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error obteniendo lote de cotizaciones: {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Precalentar cotizaciones al cargar la dirección en el checkout; responde sin esperar a los proveedores
+     */
+    @PostMapping("/quotes/prewarm")
+    public ResponseEntity<Void> prewarmQuotes(@Valid @RequestBody QuoteRequest request) {
+        try {
+            shippingService.prewarmQuotes(request);
+        } catch (Exception e) {
+            // Es solo una optimización: el checkout sigue igual aunque falle
+            log.debug("Error en prewarm de cotizaciones: {}", e.getMessage());
+        }
+        return ResponseEntity.accepted().build();
+    }
+
+    /**
+     * Crear un envío. Con Idempotency-Key (o el mismo código de orden) los reintentos
+     * reciben la misma respuesta sin crear otra orden en el proveedor.
      */
     @PostMapping("/create")
-    public ResponseEntity<ShipmentResponse> createShipment(@Valid @RequestBody CreateShipmentRequest request) {
+    public ResponseEntity<ShipmentResponse> createShipment(
+            @Valid @RequestBody CreateShipmentRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         try {
-            ShipmentResponse shipment = shippingService.createShipment(request);
+            ShipmentResponse shipment = idempotencyService.execute(idempotencyKey, request.getOrderCode(), request,
+                    ShipmentResponse.class, () -> shippingService.createShipment(request));
             return ResponseEntity.ok(shipment);
+        } catch (IdempotencyConflictException e) {
+            log.warn("Conflicto de idempotencia para orden {}: {}", request.getOrderCode(), e.getMessage());
+            return ResponseEntity.status(e.isRequestMismatch() ? HttpStatus.UNPROCESSABLE_ENTITY : HttpStatus.CONFLICT)
+                    .build();
+        } catch (InvalidAddressException e) {
+            log.warn("Dirección inválida para orden {}: {}", request.getOrderCode(), e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.error("Error creando envío: {}", e.getMessage());
             return ResponseEntity.badRequest().body(null);
@@ -56,13 +188,29 @@ public class ShippingController {
     }
 
     /**
-     * Obtener envío por código de orden
+     * Obtener envío por código de orden. Con If-None-Match / If-Modified-Since responde 304
+     * sin armar la respuesta ni leer los eventos.
+     * view=summary|detail|full (full por defecto) y fields=a,b,c recortan la respuesta.
      */
     @GetMapping("/order/{orderCode}")
-    public ResponseEntity<ShipmentResponse> getShipmentByOrder(@PathVariable String orderCode) {
+    public ResponseEntity<Object> getShipmentByOrder(@PathVariable String orderCode,
+                                                     @RequestParam(required = false) String view,
+                                                     @RequestParam(required = false) String fields,
+                                                     @RequestHeader HttpHeaders requestHeaders) {
         try {
-            ShipmentResponse shipment = shippingService.getShipmentByOrderCode(orderCode);
-            return ResponseEntity.ok(shipment);
+            ShipmentView shipmentView = ShipmentView.from(view);
+            Set<String> selectedFields = ShipmentViews.parseFields(fields);
+
+            ShipmentVersion version = shippingService.getShipmentVersionByOrderCode(orderCode);
+            if (isNotModified(requestHeaders, version)) {
+                return notModified(version);
+            }
+
+            return withCacheHeaders(ResponseEntity.ok(), version)
+                    .body(renderShipment(orderCode, shipmentView, selectedFields));
+        } catch (IllegalArgumentException e) {
+            log.warn("Pedido de envío inválido para orden {}: {}", orderCode, e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             log.error("Error obteniendo envío por orden {}: {}", orderCode, e.getMessage());
             return ResponseEntity.notFound().build();
@@ -70,13 +218,28 @@ public class ShippingController {
     }
 
     /**
-     * Obtener seguimiento por número de tracking
+     * Obtener seguimiento por número de tracking. Consulta al proveedor solo si le toca
+     * (next_poll_at vencido) y admite GET condicional y vistas igual que /order.
      */
     @GetMapping("/track/{trackingNumber}")
-    public ResponseEntity<ShipmentResponse> trackShipment(@PathVariable String trackingNumber) {
+    public ResponseEntity<Object> trackShipment(@PathVariable String trackingNumber,
+                                                @RequestParam(required = false) String view,
+                                                @RequestParam(required = false) String fields,
+                                                @RequestHeader HttpHeaders requestHeaders) {
         try {
-            ShipmentResponse shipment = shippingService.getShipmentByTrackingNumber(trackingNumber);
-            return ResponseEntity.ok(shipment);
+            ShipmentView shipmentView = ShipmentView.from(view);
+            Set<String> selectedFields = ShipmentViews.parseFields(fields);
+
+            ShipmentVersion version = shippingService.getShipmentVersionByTrackingNumber(trackingNumber);
+            if (isNotModified(requestHeaders, version)) {
+                return notModified(version);
+            }
+
+            return withCacheHeaders(ResponseEntity.ok(), version)
+                    .body(renderShipment(version.getOrderCode(), shipmentView, selectedFields));
+        } catch (IllegalArgumentException e) {
+            log.warn("Pedido de tracking inválido {}: {}", trackingNumber, e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             log.error("Error obteniendo tracking {}: {}", trackingNumber, e.getMessage());
             return ResponseEntity.notFound().build();
@@ -112,24 +275,283 @@ public class ShippingController {
     }
 
     /**
-     * Actualizar tracking manualmente
+     * Encolar actualización manual de tracking (opcionalmente filtrada)
      */
     @PostMapping("/update-tracking")
-    public ResponseEntity<Map<String, String>> updateTracking() {
+    public ResponseEntity<TrackingRefreshJobResponse> updateTracking(
+            @RequestBody(required = false) TrackingRefreshRequest request) {
         try {
-            shippingService.updateAllActiveShipments();
-            return ResponseEntity.ok(Map.of(
-                    "success", "true",
-                    "message", "Tracking actualizado"
-            ));
+            TrackingRefreshJobResponse job = trackingRefreshJobService.enqueue(request);
+            return ResponseEntity.accepted().body(job);
+        } catch (IllegalArgumentException e) {
+            log.warn("Pedido de actualización de tracking inválido: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
-            return ResponseEntity.internalServerError().body(Map.of(
-                    "success", "false",
-                    "message", "Error actualizando tracking"
-            ));
+            log.error("Error encolando actualización de tracking: {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Estado y progreso de una actualización de tracking
+     */
+    @GetMapping("/update-tracking/{jobId}")
+    public ResponseEntity<TrackingRefreshJobResponse> getTrackingUpdateJob(@PathVariable String jobId) {
+        try {
+            return ResponseEntity.ok(trackingRefreshJobService.getJob(jobId));
+        } catch (Exception e) {
+            log.error("Error obteniendo trabajo de tracking {}: {}", jobId, e.getMessage());
+            return ResponseEntity.notFound().build();
         }
     }
 
+    /**
+     * Estadísticas de envíos (contadores precalculados; por defecto los últimos 30 días)
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<ShipmentStatsResponse> getStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String region,
+            @RequestParam(required = false) String serviceType) {
+        try {
+            LocalDate end = to != null ? to : LocalDate.now();
+            LocalDate start = from != null ? from : end.minusDays(29);
+            return ResponseEntity.ok(shipmentStatsService.getStats(start, end, region, serviceType));
+        } catch (IllegalArgumentException e) {
+            log.warn("Pedido de estadísticas inválido: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error obteniendo estadísticas: {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Envíos en riesgo o atrasados respecto de la fecha estimada (por defecto ambos)
+     */
+    @GetMapping("/sla")
+    public ResponseEntity<SlaReportResponse> getSla(@RequestParam(required = false) SlaState state,
+                                                    @RequestParam(defaultValue = "100") int limit) {
+        try {
+            return ResponseEntity.ok(slaMonitorService.getReport(state, limit));
+        } catch (IllegalArgumentException e) {
+            log.warn("Pedido de SLA inválido: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error obteniendo envíos fuera de SLA: {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Exportar envíos y eventos del rango de fechas de creación (CSV o NDJSON, opcionalmente gzip),
+     * incluidos los ya archivados
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportShipments(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) List<ShipmentStatus> status,
+            @RequestParam(required = false) String provider,
+            @RequestParam(defaultValue = "CSV") ShipmentExportService.Format format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        if (from.isAfter(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        // Rechazo rápido; si otra exportación gana el último lugar, export lanza ExportBusyException (503)
+        if (shipmentExportService.isBusy()) {
+            log.warn("Exportación rechazada: demasiadas exportaciones en curso");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+
+        String fileName = "envios-" + from + "-" + to + (format == ShipmentExportService.Format.CSV ? ".csv" : ".ndjson")
+                + (gzip ? ".gz" : "");
+        MediaType contentType = gzip ? MediaType.parseMediaType("application/gzip")
+                : format == ShipmentExportService.Format.CSV ? MediaType.parseMediaType("text/csv;charset=UTF-8")
+                : MediaType.parseMediaType("application/x-ndjson");
+
+        StreamingResponseBody body = out -> shipmentExportService.export(
+                from, to, status, provider, format, gzip, out);
+
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
+    }
+
+    /**
+     * Etiqueta PDF de un envío. 202 mientras se descarga o genera; el archivo nunca cambia
+     * (su ETag es el hash del contenido) y se envía con sendfile cuando el conector lo soporta.
+     */
+    @GetMapping("/labels/{orderCode}")
+    public ResponseEntity<Resource> getLabel(@PathVariable String orderCode,
+                                             @RequestHeader HttpHeaders requestHeaders,
+                                             HttpServletRequest request,
+                                             HttpServletResponse response) {
+        Optional<ShipmentLabelEntity> label = labelService.findByOrderCode(orderCode);
+        if (label.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        switch (label.get().getStatus()) {
+            case PENDING:
+                return ResponseEntity.accepted().header(HttpHeaders.RETRY_AFTER, "2").build();
+            case FAILED:
+                log.error("Etiqueta de {} no disponible: {}", orderCode, label.get().getLastError());
+                return ResponseEntity.internalServerError().build();
+            default:
+                // Si falta el archivo la etiqueta vuelve a PENDING y se descarga de nuevo
+                Optional<Path> file = labelService.readyFile(label.get());
+                if (file.isEmpty()) {
+                    return ResponseEntity.accepted().header(HttpHeaders.RETRY_AFTER, "2").build();
+                }
+                return sendPdf(file.get(), label.get().getContentHash(),
+                        "etiqueta-" + orderCode + ".pdf", requestHeaders, request, response);
+        }
+    }
+
+    /**
+     * Unir las etiquetas de una ola de picking en un solo PDF (en el orden pedido).
+     * 409 con las órdenes faltantes si alguna etiqueta todavía no está lista.
+     */
+    @PostMapping("/labels/merge")
+    public ResponseEntity<?> mergeLabels(@Valid @RequestBody LabelMergeRequest mergeRequest,
+                                         @RequestHeader HttpHeaders requestHeaders,
+                                         HttpServletRequest request,
+                                         HttpServletResponse response) {
+        try {
+            LabelService.MergeResult result = labelService.merge(mergeRequest.getOrderCodes());
+            if (!result.isComplete()) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(Map.of("pendingOrderCodes", result.missingOrderCodes()));
+            }
+
+            String wave = mergeRequest.getWave() != null ? mergeRequest.getWave().replaceAll("[^A-Za-z0-9_-]", "") : "";
+            String fileName = "etiquetas-" + (wave.isEmpty() ? result.key().substring(0, 12) : wave) + ".pdf";
+            return sendPdf(result.file(), result.key(), fileName, requestHeaders, request, response);
+        } catch (IllegalArgumentException e) {
+            log.warn("Merge de etiquetas inválido: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error uniendo etiquetas: {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Feed de cambios de envíos a partir de un offset. Con waitMs > 0 espera (long-poll)
+     * hasta que haya cambios nuevos; la respuesta trae el "since" para el próximo pedido.
+     */
+    @GetMapping("/changes")
+    public DeferredResult<ShipmentChangeFeedResponse> getChanges(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(defaultValue = "0") long waitMs) {
+        return shipmentChangeLogService.poll(since, limit, waitMs);
+    }
+
+    // ================================
+    // MÉTODOS AUXILIARES
+    // ================================
+
+    /**
+     * GET condicional (RFC 9110): If-None-Match con comparación débil; If-Modified-Since solo si no vino ETag
+     */
+    private static boolean isNotModified(HttpHeaders requestHeaders, ShipmentVersion version) {
+        List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            ETag current = ETag.create(version.eTag());
+            return ifNoneMatch.stream()
+                    .map(ETag::create)
+                    .anyMatch(tag -> tag.isWildcard() || tag.compare(current, false));
+        }
+
+        long ifModifiedSince = requestHeaders.getIfModifiedSince();
+        return ifModifiedSince >= 0 && version.lastModifiedMillis() / 1000 <= ifModifiedSince / 1000;
+    }
+
+    /**
+     * Armar la vista pedida; el resumen no lee el historial de eventos
+     */
+    private Object renderShipment(String orderCode, ShipmentView view, Set<String> fields) {
+        Object body = switch (view) {
+            case SUMMARY -> shippingService.getShipmentSummaryByOrderCode(orderCode);
+            case DETAIL -> ShipmentViews.detail(shippingService.getShipmentByOrderCode(orderCode));
+            case FULL -> shippingService.getShipmentByOrderCode(orderCode);
+        };
+        // La vista completa sin filtro sale como siempre (con los null); el resto, compacta
+        if (view == ShipmentView.FULL && fields.isEmpty()) return body;
+        return ShipmentViews.compact(compactMapper, body, fields);
+    }
+
+    private ResponseEntity<Object> notModified(ShipmentVersion version) {
+        return withCacheHeaders(ResponseEntity.status(HttpStatus.NOT_MODIFIED), version).build();
+    }
+
+    /**
+     * Cache-Control según el estado: los terminados ya no cambian, los activos se revalidan seguido
+     * y los que todavía no tienen tracking no se cachean. Siempre privado (datos del destinatario).
+     */
+    private ResponseEntity.BodyBuilder withCacheHeaders(ResponseEntity.BodyBuilder builder, ShipmentVersion version) {
+        CacheControl cacheControl;
+        if (version.isArchived() || version.getStatus().isTerminal()) {
+            cacheControl = CacheControl.maxAge(Duration.ofSeconds(terminalMaxAgeSeconds)).cachePrivate();
+        } else if (version.getTrackingNumber() != null) {
+            cacheControl = CacheControl.maxAge(Duration.ofSeconds(activeMaxAgeSeconds)).cachePrivate().mustRevalidate();
+        } else {
+            cacheControl = CacheControl.noCache().cachePrivate();
+        }
+
+        return builder
+                .eTag(version.eTag())
+                .lastModified(version.lastModifiedMillis())
+                .cacheControl(cacheControl);
+    }
+
+    /**
+     * Enviar un PDF del almacén. Con Tomcat (NIO) se delega al conector vía sendfile: el kernel copia
+     * del archivo al socket sin pasar por el heap. Si no está disponible se copia con un Resource.
+     */
+    private ResponseEntity<Resource> sendPdf(Path file, String contentHash, String fileName,
+                                             HttpHeaders requestHeaders,
+                                             HttpServletRequest request, HttpServletResponse response) {
+        String eTag = "\"" + contentHash + "\"";
+        CacheControl cacheControl = CacheControl.maxAge(Duration.ofDays(365)).cachePrivate().immutable();
+        if (requestHeaders.getIfNoneMatch().contains(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(cacheControl).build();
+        }
+
+        long size;
+        try {
+            size = Files.size(file);
+        } catch (IOException e) {
+            log.error("Archivo de etiqueta inaccesible {}: {}", file, e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+            response.setContentLengthLong(size);
+            response.setHeader(HttpHeaders.ETAG, eTag);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + fileName + "\"");
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, size);
+            return null; // Respuesta ya resuelta: el cuerpo lo escribe el conector
+        }
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_PDF)
+                .contentLength(size)
+                .eTag(eTag)
+                .cacheControl(cacheControl)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + fileName + "\"")
+                .body(new FileSystemResource(file));
+    }
+
     /**
      * Health check
      */
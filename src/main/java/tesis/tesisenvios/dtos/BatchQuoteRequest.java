@@ -0,0 +1,19 @@
+package tesis.tesisenvios.dtos;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchQuoteRequest {
+    // Un elemento por carrito o destino a cotizar
+    @NotEmpty
+    @Valid
+    private List<QuoteRequest> requests;
+}
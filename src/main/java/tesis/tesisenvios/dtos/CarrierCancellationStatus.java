@@ -0,0 +1,8 @@
+package tesis.tesisenvios.dtos;
+
+public enum CarrierCancellationStatus {
+    PENDING,    // Esperando envío o reintento
+    CONFIRMED,  // El proveedor aceptó la cancelación
+    REJECTED,   // El proveedor la rechazó (ya retirado); la conciliación corrige el estado local
+    FAILED      // Se agotaron los reintentos sin respuesta del proveedor
+}
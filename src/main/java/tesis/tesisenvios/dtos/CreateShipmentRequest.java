@@ -27,6 +27,8 @@ public class CreateShipmentRequest {
 
     private String recipientPhone;
 
+    private String provider = "ANDREANI";
+
     private String serviceType = "STANDARD";
 
     private BigDecimal declaredValue;
@@ -0,0 +1,7 @@
+package tesis.tesisenvios.dtos;
+
+public enum IdempotencyStatus {
+    IN_PROGRESS,  // Reservada por un nodo, ejecutando
+    COMPLETED,    // Terminada, la respuesta se reproduce en los reintentos
+    FAILED        // Falló; un reintento puede volver a tomarla
+}
@@ -0,0 +1,18 @@
+package tesis.tesisenvios.dtos;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LabelMergeRequest {
+    @NotEmpty(message = "Debe indicar al menos un código de orden")
+    private List<String> orderCodes;
+
+    private String wave; // Identificador de la ola de picking (solo para el nombre del archivo)
+}
@@ -0,0 +1,7 @@
+package tesis.tesisenvios.dtos;
+
+public enum LabelStatus {
+    PENDING,  // Esperando descarga o render (o reintento)
+    READY,    // Guardada en el almacén, lista para imprimir
+    FAILED    // Se agotaron los reintentos
+}
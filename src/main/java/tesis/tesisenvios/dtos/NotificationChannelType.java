@@ -0,0 +1,6 @@
+package tesis.tesisenvios.dtos;
+
+public enum NotificationChannelType {
+    EMAIL,    // Mail al destinatario (recipientEmail)
+    WEBHOOK   // POST a la URL configurada, en lotes
+}
@@ -0,0 +1,7 @@
+package tesis.tesisenvios.dtos;
+
+public enum NotificationStatus {
+    PENDING,  // En el outbox, esperando envío o reintento
+    SENT,     // Enviada
+    FAILED    // Se agotaron los reintentos
+}
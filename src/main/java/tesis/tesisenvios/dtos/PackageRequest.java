@@ -0,0 +1,38 @@
+package tesis.tesisenvios.dtos;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PackageRequest {
+    @NotNull
+    @Positive
+    private BigDecimal weightKg;
+
+    // Medidas opcionales; sin ellas el volumen se estima por el peso
+    @Positive
+    private BigDecimal lengthCm;
+
+    @Positive
+    private BigDecimal widthCm;
+
+    @Positive
+    private BigDecimal heightCm;
+
+    private BigDecimal declaredValue;
+
+    /**
+     * Volumen en cm³ si vienen las tres medidas, si no null
+     */
+    public BigDecimal volumeCm3() {
+        if (lengthCm == null || widthCm == null || heightCm == null) return null;
+        return lengthCm.multiply(widthCm).multiply(heightCm);
+    }
+}
@@ -1,11 +1,14 @@
 package tesis.tesisenvios.dtos;
 
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 @Data
 @AllArgsConstructor
@@ -20,4 +23,13 @@ public class QuoteRequest {
     private BigDecimal weightKg = BigDecimal.valueOf(1.0);
 
     private BigDecimal declaredValue;
+
+    // Carrito con varios bultos; si viene, reemplaza a weightKg/declaredValue
+    @Valid
+    @Size(max = 20)
+    private List<PackageRequest> packages;
+
+    public boolean hasPackages() {
+        return packages != null && !packages.isEmpty();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+package tesis.tesisenvios.dtos;
+
+public enum RequestPriority {
+    CRITICAL,   // Checkout: cotizar, crear y cancelar envíos
+    NORMAL,     // Consultas de seguimiento
+    LOW         // Estadísticas, SLA, exportaciones, feed de cambios, prewarm y merge de etiquetas
+}
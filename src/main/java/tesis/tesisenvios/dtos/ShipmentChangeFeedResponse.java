@@ -0,0 +1,15 @@
+package tesis.tesisenvios.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShipmentChangeFeedResponse {
+    private List<ShipmentChangeResponse> changes;
+    private long nextSince;   // pasar como "since" en el próximo pedido
+}
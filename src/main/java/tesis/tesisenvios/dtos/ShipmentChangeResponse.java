@@ -0,0 +1,22 @@
+package tesis.tesisenvios.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShipmentChangeResponse {
+    private long seq;
+    private ShipmentChangeType changeType;
+    private String shipmentId;
+    private String orderCode;
+    private String trackingNumber;
+    private ShipmentStatus status;          // estado del envío después del cambio
+    private ShipmentStatus previousStatus;  // solo STATUS_CHANGED
+    private TrackingEventResponse trackingEvent; // solo TRACKING_EVENT
+    private LocalDateTime changedAt;
+}
@@ -0,0 +1,7 @@
+package tesis.tesisenvios.dtos;
+
+public enum ShipmentChangeType {
+    CREATED,          // Alta del envío (CREATED o ERROR)
+    STATUS_CHANGED,   // Transición de estado
+    TRACKING_EVENT    // Evento nuevo informado por el proveedor
+}
@@ -0,0 +1,19 @@
+package tesis.tesisenvios.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Datos mínimos de un envío activo para el detector de SLA (usado por la consulta JPQL)
+ */
+@Getter
+@AllArgsConstructor
+public class ShipmentDeadline {
+    private final String id;
+    private final String orderCode;
+    private final String trackingNumber;
+    private final ShipmentStatus status;
+    private final LocalDateTime estimatedDeliveryDate;
+}
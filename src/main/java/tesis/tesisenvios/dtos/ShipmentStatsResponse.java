@@ -0,0 +1,31 @@
+package tesis.tesisenvios.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShipmentStatsResponse {
+    private LocalDate from;
+    private LocalDate to;
+    private String regionCode;
+    private String serviceType;
+    private long created;
+    private long delivered;
+    private long failedDeliveries;
+    private long cancelled;
+    private long returned;
+    private Double onTimeRate;              // entregas a tiempo / entregas con fecha estimada
+    private BigDecimal averageShippingCost;
+    private Double averageDeliveryHours;
+    private Map<String, Long> deliveryDaysHistogram;
+    private Map<String, Long> createdByRegion;
+    private Map<String, Long> createdByServiceType;
+    private Map<String, Long> shipmentsByStatus;  // totales actuales, sin filtro de fechas
+}
@@ -1,6 +1,12 @@
 package tesis.tesisenvios.dtos;
 
 
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 public enum ShipmentStatus {
     PENDING,           // Pendiente de crear
     QUOTE_REQUESTED,   // Cotización solicitada
@@ -13,5 +19,44 @@ public enum ShipmentStatus {
     FAILED_DELIVERY,  // Falló la entrega
     RETURNED,         // Devuelto
     CANCELLED,        // Cancelado
-    ERROR             // Error
-}
\ No newline at end of file
+    ERROR;            // Error
+
+    // Tabla de transiciones permitidas: solo se avanza, nunca se vuelve atrás.
+    // La única vuelta es FAILED_DELIVERY -> OUT_FOR_DELIVERY (reintento de entrega).
+    private static final Map<ShipmentStatus, Set<ShipmentStatus>> TRANSITIONS = new EnumMap<>(ShipmentStatus.class);
+
+    static {
+        allow(PENDING, QUOTE_REQUESTED, QUOTED, CREATED, CANCELLED, ERROR);
+        allow(QUOTE_REQUESTED, QUOTED, CREATED, CANCELLED, ERROR);
+        allow(QUOTED, CREATED, CANCELLED, ERROR);
+        allow(CREATED, PICKED_UP, IN_TRANSIT, OUT_FOR_DELIVERY, DELIVERED, FAILED_DELIVERY, RETURNED, CANCELLED);
+        allow(PICKED_UP, IN_TRANSIT, OUT_FOR_DELIVERY, DELIVERED, FAILED_DELIVERY, RETURNED);
+        allow(IN_TRANSIT, OUT_FOR_DELIVERY, DELIVERED, FAILED_DELIVERY, RETURNED);
+        allow(OUT_FOR_DELIVERY, DELIVERED, FAILED_DELIVERY, RETURNED);
+        allow(FAILED_DELIVERY, OUT_FOR_DELIVERY, DELIVERED, RETURNED);
+        allow(ERROR, CREATED, CANCELLED);
+        allow(DELIVERED);
+        allow(RETURNED);
+        allow(CANCELLED);
+    }
+
+    private static void allow(ShipmentStatus from, ShipmentStatus... targets) {
+        EnumSet<ShipmentStatus> allowed = EnumSet.noneOf(ShipmentStatus.class);
+        Collections.addAll(allowed, targets);
+        TRANSITIONS.put(from, Collections.unmodifiableSet(allowed));
+    }
+
+    /**
+     * Indica si se puede pasar de este estado al indicado
+     */
+    public boolean canTransitionTo(ShipmentStatus target) {
+        return TRANSITIONS.get(this).contains(target);
+    }
+
+    /**
+     * Estados finales: ya no hay transiciones posibles
+     */
+    public boolean isTerminal() {
+        return TRANSITIONS.get(this).isEmpty();
+    }
+}
@@ -0,0 +1,22 @@
+package tesis.tesisenvios.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ShipmentSummaryResponse {
+    private String orderCode;
+    private String trackingNumber;
+    private String provider;
+    private String status;
+    private LocalDateTime estimatedDeliveryDate;
+    private LocalDateTime actualDeliveryDate;
+    private TrackingEventResponse lastEvent;
+}
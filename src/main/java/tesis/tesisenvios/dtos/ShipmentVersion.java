@@ -0,0 +1,85 @@
+package tesis.tesisenvios.dtos;
+
+import lombok.Getter;
+import tesis.tesisenvios.utils.EpochSeconds;
+
+import java.time.LocalDateTime;
+
+/**
+ * Metadatos mínimos de un envío para GET condicional: alcanzan para calcular ETag y
+ * Last-Modified sin armar la respuesta ni leer los eventos.
+ * La versión solo cambia con el estado; los eventos nuevos se detectan por la cantidad.
+ */
+@Getter
+public class ShipmentVersion {
+    private final String id;
+    private final String orderCode;
+    private final String trackingNumber;
+    private final ShipmentStatus status;
+    private final Long version;
+    private final LocalDateTime updatedAt;
+    private final LocalDateTime nextPollAt;
+    private final long eventCount;
+    private final long lastEventEpoch;
+    private final boolean archived;
+
+    /**
+     * Envío activo (usado por la consulta JPQL)
+     */
+    public ShipmentVersion(String id, String orderCode, String trackingNumber, ShipmentStatus status, Long version,
+                           LocalDateTime updatedAt, LocalDateTime nextPollAt, Long eventCount, Long lastEventEpoch) {
+        this.id = id;
+        this.orderCode = orderCode;
+        this.trackingNumber = trackingNumber;
+        this.status = status;
+        this.version = version;
+        this.updatedAt = updatedAt;
+        this.nextPollAt = nextPollAt;
+        this.eventCount = eventCount != null ? eventCount : 0L;
+        this.lastEventEpoch = lastEventEpoch != null ? lastEventEpoch : 0L;
+        this.archived = false;
+    }
+
+    /**
+     * Envío archivado: inmutable, la fecha de archivo alcanza como versión
+     */
+    public ShipmentVersion(String id, String orderCode, String trackingNumber, ShipmentStatus status,
+                           LocalDateTime archivedAt) {
+        this.id = id;
+        this.orderCode = orderCode;
+        this.trackingNumber = trackingNumber;
+        this.status = status;
+        this.version = null;
+        this.updatedAt = archivedAt;
+        this.nextPollAt = null;
+        this.eventCount = 0L;
+        this.lastEventEpoch = 0L;
+        this.archived = true;
+    }
+
+    /**
+     * ETag débil: la respuesta puede ir comprimida y el JSON no es byte a byte estable entre versiones
+     */
+    public String eTag() {
+        return archived
+                ? "W/\"a" + EpochSeconds.of(updatedAt) + "\""
+                : "W/\"" + version + "-" + eventCount + "\"";
+    }
+
+    /**
+     * Último cambio en millis: el del envío o el del evento más reciente (un evento sin cambio de estado
+     * no toca updated_at)
+     */
+    public long lastModifiedMillis() {
+        long seconds = Math.max(EpochSeconds.of(updatedAt), lastEventEpoch);
+        return seconds * 1000;
+    }
+
+    /**
+     * Indica si corresponde consultar al proveedor antes de responder un seguimiento
+     */
+    public boolean isTrackingDue(LocalDateTime now) {
+        return !archived && trackingNumber != null && !status.isTerminal()
+                && (nextPollAt == null || !nextPollAt.isAfter(now));
+    }
+}
@@ -0,0 +1,21 @@
+package tesis.tesisenvios.dtos;
+
+import java.util.Locale;
+
+public enum ShipmentView {
+    SUMMARY,   // Estado, fecha estimada y último evento (pantallas de seguimiento, apps)
+    DETAIL,    // Envío con eventos, sin datos personales del destinatario ni la calle
+    FULL;      // Respuesta completa (backoffice)
+
+    /**
+     * Vista pedida por query param; sin valor es FULL para no cambiar a los clientes actuales
+     */
+    public static ShipmentView from(String value) {
+        if (value == null || value.isBlank()) return FULL;
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Vista inválida: " + value + " (summary, detail o full)");
+        }
+    }
+}
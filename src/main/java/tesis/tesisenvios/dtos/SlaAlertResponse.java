@@ -0,0 +1,20 @@
+package tesis.tesisenvios.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SlaAlertResponse {
+    private String orderCode;
+    private String trackingNumber;
+    private ShipmentStatus status;
+    private SlaState slaState;
+    private LocalDateTime estimatedDeliveryDate;
+    private LocalDateTime deadline;     // final del día estimado: después de esto el envío está atrasado
+    private LocalDateTime flaggedAt;    // cuándo entró en el estado actual
+}
@@ -0,0 +1,18 @@
+package tesis.tesisenvios.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SlaReportResponse {
+    private long tracked;
+    private long atRisk;
+    private long late;
+    private long watermark;     // último offset del log de cambios aplicado (-1 si todavía no cargó)
+    private List<SlaAlertResponse> shipments;
+}
@@ -0,0 +1,7 @@
+package tesis.tesisenvios.dtos;
+
+public enum SlaState {
+    ON_TRACK,   // Dentro del plazo
+    AT_RISK,    // Cerca del vencimiento sin haber salido a reparto, o con una entrega fallida
+    LATE        // Pasó el final del día estimado de entrega sin entregarse
+}
@@ -14,4 +14,5 @@ public class TrackingEventResponse {
     private String status;
     private String description;
     private String location;
+    private String providerEventId;
 }
@@ -0,0 +1,25 @@
+package tesis.tesisenvios.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TrackingRefreshJobResponse {
+    private String jobId;
+    private TrackingRefreshJobStatus status;
+    private String filter;
+    private boolean coalesced;
+    private int processed;
+    private int updated;
+    private int failed;
+    private double ratePerSecond;
+    private LocalDateTime requestedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String errorMessage;
+}
@@ -0,0 +1,8 @@
+package tesis.tesisenvios.dtos;
+
+public enum TrackingRefreshJobStatus {
+    QUEUED,     // En cola
+    RUNNING,    // Ejecutándose
+    COMPLETED,  // Terminado
+    FAILED      // Terminado con error
+}
@@ -0,0 +1,18 @@
+package tesis.tesisenvios.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TrackingRefreshRequest {
+    // Refrescar solo estos números de tracking
+    private List<String> trackingNumbers;
+
+    // Refrescar solo envíos en este estado
+    private ShipmentStatus status;
+}
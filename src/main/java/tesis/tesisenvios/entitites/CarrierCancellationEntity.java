@@ -0,0 +1,54 @@
+package tesis.tesisenvios.entitites;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tesis.tesisenvios.dtos.CarrierCancellationStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cancelación pendiente de informar al proveedor. Se guarda en la misma transacción que
+ * pasa el envío a CANCELLED, así la cancelación local y el pedido al proveedor no se separan.
+ */
+@Entity
+@Table(name = "carrier_cancellations", indexes = {
+        @Index(name = "idx_carrier_cancellations_due", columnList = "status, next_attempt_at"),
+        @Index(name = "idx_carrier_cancellations_shipment", columnList = "shipment_id")
+})
+@Data
+@NoArgsConstructor
+public class CarrierCancellationEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "carrier_cancellations_seq")
+    @SequenceGenerator(name = "carrier_cancellations_seq", sequenceName = "carrier_cancellations_seq", allocationSize = 20)
+    private Long id;
+
+    @Column(name = "shipment_id", length = 36, nullable = false)
+    private String shipmentId;
+
+    @Column(name = "provider", length = 50, nullable = false)
+    private String provider;
+
+    @Column(name = "tracking_number", length = 64, nullable = false)
+    private String trackingNumber;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 20, nullable = false)
+    private CarrierCancellationStatus status;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,51 @@
+package tesis.tesisenvios.entitites;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tesis.tesisenvios.dtos.IdempotencyStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Reserva de una clave de idempotencia. La PK garantiza que un solo pedido en todo el cluster
+ * ejecuta la operación; los demás esperan o reproducen la respuesta guardada.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+        @Index(name = "idx_idempotency_keys_created_at", columnList = "created_at")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class IdempotencyKeyEntity {
+    @Id
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+
+    @Column(name = "order_code")
+    private String orderCode;
+
+    @Column(name = "request_hash", length = 64)
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 20)
+    private IdempotencyStatus status;
+
+    @Column(name = "response_body", columnDefinition = "TEXT")
+    private String responseBody;
+
+    @Column(name = "locked_by")
+    private String lockedBy;
+
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,79 @@
+package tesis.tesisenvios.entitites;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tesis.tesisenvios.dtos.NotificationChannelType;
+import tesis.tesisenvios.dtos.NotificationStatus;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Notificación pendiente o enviada. Se guarda antes de enviar, así los reintentos
+ * sobreviven a un reinicio y el envío nunca corre dentro del barrido de tracking.
+ */
+@Entity
+@Table(name = "notification_outbox", indexes = {
+        @Index(name = "idx_notification_outbox_due", columnList = "status, channel, next_attempt_at")
+})
+@Data
+@NoArgsConstructor
+public class NotificationOutboxEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_outbox_seq")
+    @SequenceGenerator(name = "notification_outbox_seq", sequenceName = "notification_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "channel", length = 20, nullable = false)
+    private NotificationChannelType channel;
+
+    @Column(name = "recipient")
+    private String recipient;
+
+    @Column(name = "shipment_id", length = 36, nullable = false)
+    private String shipmentId;
+
+    @Column(name = "order_code", length = 100)
+    private String orderCode;
+
+    @Column(name = "tracking_number", length = 64)
+    private String trackingNumber;
+
+    @Column(name = "recipient_name")
+    private String recipientName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "previous_status", length = 20)
+    private ShipmentStatus previousStatus;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "shipment_status", length = 20, nullable = false)
+    private ShipmentStatus shipmentStatus;
+
+    @Column(name = "transitions", nullable = false)
+    private int transitions; // cuántas transiciones se agruparon en esta notificación
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 20, nullable = false)
+    private NotificationStatus status;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+}
@@ -0,0 +1,28 @@
+package tesis.tesisenvios.entitites;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "scheduler_locks")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SchedulerLockEntity {
+    @Id
+    @Column(name = "name", length = 64)
+    private String name;
+
+    @Column(name = "locked_by")
+    private String lockedBy;
+
+    @Column(name = "locked_at")
+    private LocalDateTime lockedAt;
+
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+}
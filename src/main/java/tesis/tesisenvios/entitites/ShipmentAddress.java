@@ -0,0 +1,60 @@
+package tesis.tesisenvios.entitites;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tesis.tesisenvios.dtos.ShippingAddressRequest;
+import tesis.tesisenvios.utils.AddressKeys;
+
+/**
+ * Dirección de destino en columnas tipadas (antes era un JSON en una columna TEXT)
+ */
+@Embeddable
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShipmentAddress {
+    @Column(name = "dest_street")
+    private String street;
+
+    @Column(name = "dest_street_number", length = 20)
+    private String streetNumber;
+
+    @Column(name = "dest_apartment", length = 50)
+    private String apartment;
+
+    @Column(name = "dest_city", length = 100)
+    private String city;
+
+    @Column(name = "dest_province", length = 100)
+    private String province;
+
+    @Column(name = "dest_postal_code", length = 20)
+    private String postalCode;
+
+    @Column(name = "dest_additional_info")
+    private String additionalInfo;
+
+    // Claves normalizadas para consultas regionales y tabla de tarifas
+    @Column(name = "dest_postal_key", length = 4)
+    private String postalKey;
+
+    @Column(name = "dest_region_code", length = 4)
+    private String regionCode;
+
+    public static ShipmentAddress from(ShippingAddressRequest request) {
+        ShipmentAddress address = new ShipmentAddress();
+        address.setStreet(request.getStreet());
+        address.setStreetNumber(request.getStreetNumber());
+        address.setApartment(request.getApartment());
+        address.setCity(request.getCity());
+        address.setProvince(request.getProvince());
+        address.setPostalCode(request.getPostalCode());
+        address.setAdditionalInfo(request.getAdditionalInfo());
+        address.setPostalKey(AddressKeys.postalKey(request.getPostalCode()));
+        address.setRegionCode(AddressKeys.regionCode(request.getProvince()));
+        return address;
+    }
+}
@@ -0,0 +1,50 @@
+package tesis.tesisenvios.entitites;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Envío terminado (entregado, cancelado o devuelto) movido fuera de las tablas activas.
+ * Se guarda la respuesta completa con sus eventos en un JSON; archive_month (yyyyMM)
+ * es la clave de partición para purgar o mover el histórico por mes.
+ */
+@Entity
+@Table(name = "shipment_archive", indexes = {
+        @Index(name = "idx_shipment_archive_tracking_number", columnList = "tracking_number"),
+        @Index(name = "idx_shipment_archive_month", columnList = "archive_month")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShipmentArchiveEntity {
+    @Id
+    @Column(name = "id", length = 36)
+    private String id;
+
+    @Column(name = "order_code", nullable = false, unique = true)
+    private String orderCode;
+
+    @Column(name = "tracking_number")
+    private String trackingNumber;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    private ShipmentStatus status;
+
+    @Column(name = "archive_month", nullable = false)
+    private Integer archiveMonth;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @Column(name = "archived_at")
+    private LocalDateTime archivedAt;
+
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload; // JSON de ShipmentResponse con eventos
+}
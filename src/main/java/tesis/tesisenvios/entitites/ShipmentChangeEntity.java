@@ -0,0 +1,81 @@
+package tesis.tesisenvios.entitites;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tesis.tesisenvios.dtos.ShipmentChangeType;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entrada del log de cambios de envíos. Se inserta en la misma transacción que el cambio;
+ * el secuenciador le asigna después "seq", el offset monótono que ven los consumidores del feed.
+ * Los eventos de tracking se guardan con los mismos códigos compactos que TrackingEventEntity.
+ */
+@Entity
+@Table(name = "shipment_changes", indexes = {
+        @Index(name = "uk_shipment_changes_seq", columnList = "seq", unique = true),
+        @Index(name = "idx_shipment_changes_shipment", columnList = "shipment_id, seq"),
+        @Index(name = "idx_shipment_changes_pending", columnList = "seq, created_at")
+})
+@Data
+@NoArgsConstructor
+public class ShipmentChangeEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "shipment_changes_seq")
+    @SequenceGenerator(name = "shipment_changes_seq", sequenceName = "shipment_changes_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "seq")
+    private Long seq;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type", length = 20, nullable = false)
+    private ShipmentChangeType changeType;
+
+    @Column(name = "shipment_id", length = 36, nullable = false)
+    private String shipmentId;
+
+    @Column(name = "order_code", length = 100)
+    private String orderCode;
+
+    @Column(name = "tracking_number", length = 64)
+    private String trackingNumber;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 20)
+    private ShipmentStatus status;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "previous_status", length = 20)
+    private ShipmentStatus previousStatus;
+
+    @Column(name = "tracking_event_id")
+    private Long trackingEventId;
+
+    @Column(name = "event_epoch", nullable = false)
+    private long eventEpoch;
+
+    @Column(name = "event_status_code", nullable = false)
+    private int eventStatusCode;
+
+    @Column(name = "description_code", nullable = false)
+    private int descriptionCode;
+
+    @Column(name = "location_code", nullable = false)
+    private int locationCode;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public ShipmentChangeEntity(ShipmentChangeType changeType, String shipmentId, String orderCode,
+                                String trackingNumber, ShipmentStatus status, LocalDateTime createdAt) {
+        this.changeType = changeType;
+        this.shipmentId = shipmentId;
+        this.orderCode = orderCode;
+        this.trackingNumber = trackingNumber;
+        this.status = status;
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,71 @@
+package tesis.tesisenvios.entitites;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Contadores diarios por región y servicio, mantenidos en forma incremental.
+ * Los envíos se cuentan el día en que se crean; entregas, cancelaciones y devoluciones
+ * el día en que ocurren.
+ */
+@Entity
+@Table(name = "shipment_daily_stats")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShipmentDailyStatsEntity {
+    @EmbeddedId
+    private ShipmentDailyStatsKey id;
+
+    @Column(name = "created_count", nullable = false)
+    private long createdCount;
+
+    @Column(name = "delivered_count", nullable = false)
+    private long deliveredCount;
+
+    @Column(name = "on_time_count", nullable = false)
+    private long onTimeCount;
+
+    @Column(name = "late_count", nullable = false)
+    private long lateCount;
+
+    @Column(name = "failed_delivery_count", nullable = false)
+    private long failedDeliveryCount;
+
+    @Column(name = "cancelled_count", nullable = false)
+    private long cancelledCount;
+
+    @Column(name = "returned_count", nullable = false)
+    private long returnedCount;
+
+    // Costo de envío: suma en centavos y cantidad de envíos con costo
+    @Column(name = "cost_cents_sum", nullable = false)
+    private long costCentsSum;
+
+    @Column(name = "cost_count", nullable = false)
+    private long costCount;
+
+    // Tiempo de entrega (desde la creación): suma en horas e histograma por días
+    @Column(name = "delivery_hours_sum", nullable = false)
+    private long deliveryHoursSum;
+
+    @Column(name = "delivered_le_1d", nullable = false)
+    private long deliveredWithin1Day;
+
+    @Column(name = "delivered_le_2d", nullable = false)
+    private long deliveredWithin2Days;
+
+    @Column(name = "delivered_le_3d", nullable = false)
+    private long deliveredWithin3Days;
+
+    @Column(name = "delivered_le_5d", nullable = false)
+    private long deliveredWithin5Days;
+
+    @Column(name = "delivered_le_7d", nullable = false)
+    private long deliveredWithin7Days;
+
+    @Column(name = "delivered_gt_7d", nullable = false)
+    private long deliveredAfter7Days;
+}
@@ -0,0 +1,25 @@
+package tesis.tesisenvios.entitites;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Embeddable
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShipmentDailyStatsKey implements Serializable {
+    @Column(name = "stat_date", nullable = false)
+    private LocalDate statDate;
+
+    @Column(name = "region_code", length = 4, nullable = false)
+    private String regionCode;
+
+    @Column(name = "service_type", length = 30, nullable = false)
+    private String serviceType;
+}
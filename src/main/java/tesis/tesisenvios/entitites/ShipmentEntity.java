@@ -12,7 +12,16 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "shipments")
+@Table(name = "shipments", indexes = {
+        @Index(name = "idx_shipments_status_next_poll", columnList = "status, next_poll_at"),
+        @Index(name = "idx_shipments_status_updated", columnList = "status, updated_at"),
+        @Index(name = "idx_shipments_created_at", columnList = "created_at"),
+        @Index(name = "idx_shipments_tracking_number", columnList = "tracking_number"),
+        @Index(name = "idx_shipments_recipient_email", columnList = "recipient_email"),
+        @Index(name = "idx_shipments_lease_owner", columnList = "lease_owner"),
+        @Index(name = "idx_shipments_dest_postal_key", columnList = "dest_postal_key"),
+        @Index(name = "idx_shipments_dest_region_status", columnList = "dest_region_code, status")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -36,9 +45,9 @@ public class ShipmentEntity {
     @Enumerated(EnumType.STRING)
     private ShipmentStatus status = ShipmentStatus.PENDING;
 
-    // Dirección de envío (JSON)
-    @Column(name = "shipping_address", columnDefinition = "TEXT")
-    private String shippingAddress;
+    // Dirección de envío
+    @Embedded
+    private ShipmentAddress shippingAddress;
 
     // Datos del destinatario
     @Column(name = "recipient_name")
@@ -74,6 +83,21 @@ public class ShipmentEntity {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Reparto del barrido de tracking entre réplicas
+    @Column(name = "next_poll_at")
+    private LocalDateTime nextPollAt;
+
+    @Column(name = "lease_owner")
+    private String leaseOwner;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    // Bloqueo optimista: evita que actualizaciones concurrentes se pisen
+    @Version
+    @Column(name = "version")
+    private Long version;
+
     @Column(name = "external_data", columnDefinition = "TEXT")
     private String externalData; // JSON con datos del proveedor
 
@@ -0,0 +1,66 @@
+package tesis.tesisenvios.entitites;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tesis.tesisenvios.dtos.LabelStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Etiqueta de un envío. El PDF no se guarda en la base: vive en el almacén de archivos
+ * direccionado por contenido y acá queda solo su hash (SHA-256).
+ */
+@Entity
+@Table(name = "shipment_labels", indexes = {
+        @Index(name = "idx_shipment_labels_due", columnList = "status, next_attempt_at"),
+        @Index(name = "idx_shipment_labels_order_code", columnList = "order_code")
+})
+@Data
+@NoArgsConstructor
+public class ShipmentLabelEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "shipment_labels_seq")
+    @SequenceGenerator(name = "shipment_labels_seq", sequenceName = "shipment_labels_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "shipment_id", length = 36, nullable = false, unique = true)
+    private String shipmentId;
+
+    @Column(name = "order_code", length = 100, nullable = false)
+    private String orderCode;
+
+    @Column(name = "tracking_number", length = 64, nullable = false)
+    private String trackingNumber;
+
+    @Column(name = "provider", length = 50, nullable = false)
+    private String provider;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 20, nullable = false)
+    private LabelStatus status;
+
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "size_bytes")
+    private Long sizeBytes;
+
+    @Column(name = "rendered_locally", nullable = false)
+    private boolean renderedLocally; // el proveedor no emite etiquetas y se armó una propia
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "ready_at")
+    private LocalDateTime readyAt;
+}
@@ -0,0 +1,25 @@
+package tesis.tesisenvios.entitites;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+
+/**
+ * Cantidad de envíos en cada estado (incluye los archivados)
+ */
+@Entity
+@Table(name = "shipment_status_counts")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShipmentStatusCountEntity {
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 30)
+    private ShipmentStatus status;
+
+    @Column(name = "shipment_count", nullable = false)
+    private long shipmentCount;
+}
@@ -0,0 +1,28 @@
+package tesis.tesisenvios.entitites;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Término del diccionario de tracking (estado, ubicación o descripción) y su código
+ */
+@Entity
+@Table(name = "tracking_dictionary", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_tracking_dictionary_term", columnNames = {"kind", "term"})
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TrackingDictionaryEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "kind", length = 1, nullable = false)
+    private String kind;
+
+    @Column(name = "term", length = 400, nullable = false)
+    private String term;
+}
@@ -4,43 +4,53 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-
-import java.time.LocalDateTime;
-
+import lombok.ToString;
+import tesis.tesisenvios.utils.EpochSeconds;
+
+/**
+ * Evento de tracking en formato compacto: fechas en segundos epoch y estado, ubicación y
+ * descripción como códigos de TrackingDictionary (0 = sin valor). Los textos se resuelven
+ * recién al armar la respuesta, compartiendo una sola instancia por término.
+ */
 @Entity
-@Table(name = "tracking_events")
+@Table(name = "tracking_events", indexes = {
+        @Index(name = "idx_tracking_events_shipment_epoch", columnList = "shipment_id, event_epoch")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 public class TrackingEventEntity {
+    // Secuencia con pool (allocationSize) para que Hibernate pueda agrupar los INSERT en batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tracking_events_seq")
+    @SequenceGenerator(name = "tracking_events_seq", sequenceName = "tracking_events_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "shipment_id")
+    @ToString.Exclude
     private ShipmentEntity shipment;
 
-    @Column(name = "event_date")
-    private LocalDateTime eventDate;
+    @Column(name = "event_epoch", nullable = false)
+    private long eventEpoch;
 
-    @Column(name = "status")
-    private String status;
+    @Column(name = "status_code", nullable = false)
+    private int statusCode;
 
-    @Column(name = "description")
-    private String description;
+    @Column(name = "description_code", nullable = false)
+    private int descriptionCode;
 
-    @Column(name = "location")
-    private String location;
+    @Column(name = "location_code", nullable = false)
+    private int locationCode;
 
     @Column(name = "provider_event_id")
     private String providerEventId;
 
-    @Column(name = "created_at")
-    private LocalDateTime createdAt;
+    @Column(name = "created_epoch", nullable = false)
+    private long createdEpoch;
 
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
+        createdEpoch = EpochSeconds.now();
     }
-}
\ No newline at end of file
+}
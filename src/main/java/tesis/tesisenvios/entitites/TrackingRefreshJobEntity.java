@@ -0,0 +1,74 @@
+package tesis.tesisenvios.entitites;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tesis.tesisenvios.dtos.TrackingRefreshJobStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Trabajo de refresco manual de tracking. En SQL Server un índice único filtrado
+ * (uk_refresh_jobs_open_filter, V12) admite un solo trabajo abierto por filter_key.
+ */
+@Entity
+@Table(name = "tracking_refresh_jobs", indexes = {
+        @Index(name = "idx_refresh_jobs_status_requested", columnList = "status, requested_at"),
+        @Index(name = "idx_refresh_jobs_filter_status", columnList = "filter_key, status")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TrackingRefreshJobEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 20)
+    private TrackingRefreshJobStatus status = TrackingRefreshJobStatus.QUEUED;
+
+    // Clave normalizada del filtro para unificar pedidos equivalentes
+    @Column(name = "filter_key", length = 512)
+    private String filterKey;
+
+    // Números de tracking separados por coma (null = sin filtro)
+    @Column(name = "tracking_numbers", columnDefinition = "TEXT")
+    private String trackingNumbers;
+
+    @Column(name = "status_filter", length = 30)
+    private String statusFilter;
+
+    @Column(name = "processed")
+    private int processed;
+
+    @Column(name = "updated")
+    private int updated;
+
+    @Column(name = "failed")
+    private int failed;
+
+    @Column(name = "runner_node")
+    private String runnerNode;
+
+    @Column(name = "error_message")
+    private String errorMessage;
+
+    @Column(name = "requested_at")
+    private LocalDateTime requestedAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        requestedAt = LocalDateTime.now();
+    }
+}
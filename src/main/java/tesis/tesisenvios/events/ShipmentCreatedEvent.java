@@ -0,0 +1,26 @@
+package tesis.tesisenvios.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Se publica al terminar createShipment (el envío queda CREATED o ERROR)
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class ShipmentCreatedEvent {
+    private final String shipmentId;
+    private final String orderCode;
+    private final String trackingNumber;
+    private final ShipmentStatus status;
+    private final String regionCode;
+    private final String serviceType;
+    private final BigDecimal shippingCost;
+    private final LocalDateTime createdAt;
+}
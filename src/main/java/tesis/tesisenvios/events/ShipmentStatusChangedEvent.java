@@ -0,0 +1,27 @@
+package tesis.tesisenvios.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Se publica cuando una transición de estado se aplicó en la base
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class ShipmentStatusChangedEvent {
+    private final String shipmentId;
+    private final String orderCode;
+    private final String trackingNumber;
+    private final ShipmentStatus fromStatus;
+    private final ShipmentStatus toStatus;
+    private final LocalDateTime changedAt;
+    private final String regionCode;
+    private final String serviceType;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime estimatedDeliveryDate;
+}
@@ -0,0 +1,24 @@
+package tesis.tesisenvios.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+
+/**
+ * Se publica al guardar un evento de tracking nuevo (con el estado del envío ya actualizado)
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class TrackingEventRecordedEvent {
+    private final String shipmentId;
+    private final String orderCode;
+    private final String trackingNumber;
+    private final ShipmentStatus shipmentStatus;
+    private final Long trackingEventId;
+    private final long eventEpoch;
+    private final int statusCode;
+    private final int descriptionCode;
+    private final int locationCode;
+}
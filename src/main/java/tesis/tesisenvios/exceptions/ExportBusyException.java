@@ -0,0 +1,16 @@
+package tesis.tesisenvios.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * No hay lugar para otra exportación: ya están en curso las permitidas por export.max-concurrent.
+ * Se lanza antes de escribir nada, así que todavía se puede responder 503.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ExportBusyException extends RuntimeException {
+
+    public ExportBusyException(String message) {
+        super(message);
+    }
+}
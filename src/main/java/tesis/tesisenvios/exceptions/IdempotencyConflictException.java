@@ -0,0 +1,19 @@
+package tesis.tesisenvios.exceptions;
+
+/**
+ * Pedido con una clave de idempotencia que no se puede resolver: otro pedido con la misma clave
+ * sigue en curso, o la clave ya se usó con un pedido distinto.
+ */
+public class IdempotencyConflictException extends RuntimeException {
+
+    private final boolean requestMismatch;
+
+    public IdempotencyConflictException(String message, boolean requestMismatch) {
+        super(message);
+        this.requestMismatch = requestMismatch;
+    }
+
+    public boolean isRequestMismatch() {
+        return requestMismatch;
+    }
+}
@@ -0,0 +1,13 @@
+package tesis.tesisenvios.exceptions;
+
+/**
+ * Dirección imposible de resolver antes de ir al proveedor: provincia desconocida, código postal
+ * mal formado o que no corresponde a la provincia indicada.
+ * Extiende IllegalArgumentException para que los endpoints la respondan como 400.
+ */
+public class InvalidAddressException extends IllegalArgumentException {
+
+    public InvalidAddressException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,43 @@
+package tesis.tesisenvios.repositories;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tesis.tesisenvios.dtos.CarrierCancellationStatus;
+import tesis.tesisenvios.entitites.CarrierCancellationEntity;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CarrierCancellationRepository extends JpaRepository<CarrierCancellationEntity, Long> {
+
+    @Query("select c from CarrierCancellationEntity c where c.status = tesis.tesisenvios.dtos.CarrierCancellationStatus.PENDING " +
+            "and c.nextAttemptAt <= :now order by c.nextAttemptAt, c.id")
+    List<CarrierCancellationEntity> findDue(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Modifying
+    @Query("delete from CarrierCancellationEntity c where c.status in :statuses and c.createdAt < :before")
+    int deleteFinishedBefore(@Param("statuses") Collection<CarrierCancellationStatus> statuses,
+                             @Param("before") LocalDateTime before);
+
+    long countByStatus(CarrierCancellationStatus status);
+
+    boolean existsByShipmentIdAndStatus(String shipmentId, CarrierCancellationStatus status);
+
+    /**
+     * Dar por rechazadas las cancelaciones sin confirmar de un envío que la conciliación reabrió
+     */
+    @Modifying
+    @Query("update CarrierCancellationEntity c set c.status = tesis.tesisenvios.dtos.CarrierCancellationStatus.REJECTED, " +
+            "c.completedAt = :now, c.lastError = :reason where c.shipmentId = :shipmentId " +
+            "and c.status in (tesis.tesisenvios.dtos.CarrierCancellationStatus.PENDING, " +
+            "tesis.tesisenvios.dtos.CarrierCancellationStatus.FAILED)")
+    int rejectOpen(@Param("shipmentId") String shipmentId,
+                   @Param("reason") String reason,
+                   @Param("now") LocalDateTime now);
+}
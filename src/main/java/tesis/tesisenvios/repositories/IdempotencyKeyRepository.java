@@ -0,0 +1,67 @@
+package tesis.tesisenvios.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import tesis.tesisenvios.dtos.IdempotencyStatus;
+import tesis.tesisenvios.entitites.IdempotencyKeyEntity;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKeyEntity, String> {
+
+    /**
+     * INSERT explícito (no merge): si la clave ya existe falla por PK en vez de pisar la fila
+     */
+    @Transactional
+    @Modifying
+    @Query("insert into IdempotencyKeyEntity (idempotencyKey, orderCode, requestHash, status, lockedBy, lockedUntil, createdAt) " +
+            "values (:key, :orderCode, :requestHash, :status, :node, :until, :now)")
+    int reserve(@Param("key") String key,
+                @Param("orderCode") String orderCode,
+                @Param("requestHash") String requestHash,
+                @Param("status") IdempotencyStatus status,
+                @Param("node") String node,
+                @Param("until") LocalDateTime until,
+                @Param("now") LocalDateTime now);
+
+    /**
+     * Tomar una clave que falló o cuya reserva venció (el nodo que la tenía se cayó)
+     */
+    @Transactional
+    @Modifying
+    @Query("update IdempotencyKeyEntity k set k.status = tesis.tesisenvios.dtos.IdempotencyStatus.IN_PROGRESS, " +
+            "k.lockedBy = :node, k.lockedUntil = :until " +
+            "where k.idempotencyKey = :key and (k.status = tesis.tesisenvios.dtos.IdempotencyStatus.FAILED " +
+            "or (k.status = tesis.tesisenvios.dtos.IdempotencyStatus.IN_PROGRESS and k.lockedUntil < :now))")
+    int takeOver(@Param("key") String key,
+                 @Param("node") String node,
+                 @Param("now") LocalDateTime now,
+                 @Param("until") LocalDateTime until);
+
+    @Transactional
+    @Modifying
+    @Query("update IdempotencyKeyEntity k set k.status = :status, k.responseBody = :responseBody, " +
+            "k.completedAt = :now, k.lockedUntil = null " +
+            "where k.idempotencyKey = :key and k.lockedBy = :node " +
+            "and k.status = tesis.tesisenvios.dtos.IdempotencyStatus.IN_PROGRESS")
+    int finish(@Param("key") String key,
+               @Param("node") String node,
+               @Param("status") IdempotencyStatus status,
+               @Param("responseBody") String responseBody,
+               @Param("now") LocalDateTime now);
+
+    /**
+     * Borrar claves viejas. Las IN_PROGRESS solo si la reserva también venció antes del corte
+     * (el nodo que la tenía se cayó y nadie volvió a reintentar)
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyKeyEntity k where k.createdAt < :cutoff " +
+            "and (k.status <> tesis.tesisenvios.dtos.IdempotencyStatus.IN_PROGRESS or k.lockedUntil < :cutoff)")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
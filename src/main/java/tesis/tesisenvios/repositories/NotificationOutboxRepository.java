@@ -0,0 +1,37 @@
+package tesis.tesisenvios.repositories;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tesis.tesisenvios.dtos.NotificationChannelType;
+import tesis.tesisenvios.dtos.NotificationStatus;
+import tesis.tesisenvios.entitites.NotificationOutboxEntity;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutboxEntity, Long> {
+
+    @Query("select n from NotificationOutboxEntity n where n.status = tesis.tesisenvios.dtos.NotificationStatus.PENDING " +
+            "and n.channel = :channel and n.nextAttemptAt <= :now order by n.nextAttemptAt, n.id")
+    List<NotificationOutboxEntity> findDue(@Param("channel") NotificationChannelType channel,
+                                           @Param("now") LocalDateTime now,
+                                           Pageable pageable);
+
+    @Modifying
+    @Query("update NotificationOutboxEntity n set n.status = tesis.tesisenvios.dtos.NotificationStatus.SENT, " +
+            "n.sentAt = :now, n.attempts = n.attempts + 1, n.lastError = null where n.id in :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("delete from NotificationOutboxEntity n where n.status in :statuses and n.createdAt < :before")
+    int deleteFinishedBefore(@Param("statuses") Collection<NotificationStatus> statuses,
+                             @Param("before") LocalDateTime before);
+
+    long countByStatus(NotificationStatus status);
+}
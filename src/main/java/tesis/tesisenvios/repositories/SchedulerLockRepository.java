@@ -0,0 +1,32 @@
+package tesis.tesisenvios.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import tesis.tesisenvios.entitites.SchedulerLockEntity;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface SchedulerLockRepository extends JpaRepository<SchedulerLockEntity, String> {
+
+    /**
+     * Toma o renueva el lock si está vencido o ya es de este nodo
+     */
+    @Transactional
+    @Modifying
+    @Query("update SchedulerLockEntity l set l.lockedBy = :node, l.lockedAt = :now, l.lockedUntil = :until " +
+            "where l.name = :name and (l.lockedUntil < :now or l.lockedBy = :node)")
+    int tryAcquire(@Param("name") String name,
+                   @Param("node") String node,
+                   @Param("now") LocalDateTime now,
+                   @Param("until") LocalDateTime until);
+
+    @Transactional
+    @Modifying
+    @Query("update SchedulerLockEntity l set l.lockedUntil = :now where l.name = :name and l.lockedBy = :node")
+    int release(@Param("name") String name, @Param("node") String node, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,50 @@
+package tesis.tesisenvios.repositories;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.dtos.ShipmentVersion;
+import tesis.tesisenvios.entitites.ShipmentArchiveEntity;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Repository
+public interface ShipmentArchiveRepository extends JpaRepository<ShipmentArchiveEntity, String> {
+    Optional<ShipmentArchiveEntity> findByOrderCode(String orderCode);
+    Optional<ShipmentArchiveEntity> findFirstByTrackingNumber(String trackingNumber);
+
+    /**
+     * Metadatos del archivo sin leer el payload JSON
+     */
+    @Query("select new tesis.tesisenvios.dtos.ShipmentVersion(a.id, a.orderCode, a.trackingNumber, a.status, a.archivedAt) " +
+            "from ShipmentArchiveEntity a where a.orderCode = :orderCode")
+    Optional<ShipmentVersion> findVersionByOrderCode(@Param("orderCode") String orderCode);
+
+    @Query("select new tesis.tesisenvios.dtos.ShipmentVersion(a.id, a.orderCode, a.trackingNumber, a.status, a.archivedAt) " +
+            "from ShipmentArchiveEntity a where a.trackingNumber = :trackingNumber order by a.archivedAt desc")
+    List<ShipmentVersion> findVersionsByTrackingNumber(@Param("trackingNumber") String trackingNumber, Pageable pageable);
+
+    /**
+     * Payloads para la exportación: un envío creado desde "from" no pudo terminar antes de esa
+     * fecha, así que alcanza con recorrer lo completado desde ahí (el resto se filtra al leer el JSON)
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "200"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select a.payload from ShipmentArchiveEntity a " +
+            "where a.completedAt >= :from and a.status in :statuses " +
+            "order by a.completedAt, a.id")
+    Stream<String> streamPayloadsForExport(@Param("from") LocalDateTime from,
+                                           @Param("statuses") Collection<ShipmentStatus> statuses);
+}
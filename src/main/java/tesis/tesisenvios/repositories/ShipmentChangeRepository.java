@@ -0,0 +1,49 @@
+package tesis.tesisenvios.repositories;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tesis.tesisenvios.entitites.ShipmentChangeEntity;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ShipmentChangeRepository extends JpaRepository<ShipmentChangeEntity, Long> {
+
+    /**
+     * Cambios ya confirmados que todavía no tienen offset, en orden de llegada
+     */
+    @Query("select c from ShipmentChangeEntity c where c.seq is null order by c.createdAt, c.id")
+    List<ShipmentChangeEntity> findPending(Pageable pageable);
+
+    @Query("select coalesce(max(c.seq), 0) from ShipmentChangeEntity c")
+    long findHeadSeq();
+
+    @Query("select c from ShipmentChangeEntity c where c.seq > :since order by c.seq")
+    List<ShipmentChangeEntity> findSince(@Param("since") long since, Pageable pageable);
+
+    /**
+     * Solo offset, envío y estado vigente (detector de SLA), sin hidratar entradas
+     */
+    @Query("select c.seq, c.shipmentId, c.status from ShipmentChangeEntity c where c.seq > :since order by c.seq")
+    List<Object[]> findStatusSince(@Param("since") long since, Pageable pageable);
+
+    /**
+     * Compactación: entradas viejas que ya tienen una posterior del mismo envío
+     */
+    @Query("select c.id from ShipmentChangeEntity c where c.seq is not null and c.createdAt < :before " +
+            "and exists (select 1 from ShipmentChangeEntity n where n.shipmentId = c.shipmentId and n.seq > c.seq)")
+    List<Long> findSupersededIds(@Param("before") LocalDateTime before, Pageable pageable);
+
+    @Query("select c.id from ShipmentChangeEntity c where c.seq is not null and c.createdAt < :before")
+    List<Long> findExpiredIds(@Param("before") LocalDateTime before, Pageable pageable);
+
+    @Modifying
+    @Query("delete from ShipmentChangeEntity c where c.id in :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+}
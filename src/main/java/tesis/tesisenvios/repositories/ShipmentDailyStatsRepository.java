@@ -0,0 +1,27 @@
+package tesis.tesisenvios.repositories;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tesis.tesisenvios.entitites.ShipmentDailyStatsEntity;
+import tesis.tesisenvios.entitites.ShipmentDailyStatsKey;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ShipmentDailyStatsRepository extends JpaRepository<ShipmentDailyStatsEntity, ShipmentDailyStatsKey> {
+
+    /**
+     * Fila bloqueada para sumarle los contadores acumulados (varias réplicas vuelcan a la misma fila)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from ShipmentDailyStatsEntity s where s.id = :id")
+    Optional<ShipmentDailyStatsEntity> findForUpdate(@Param("id") ShipmentDailyStatsKey id);
+
+    List<ShipmentDailyStatsEntity> findByIdStatDateBetween(LocalDate from, LocalDate to);
+}
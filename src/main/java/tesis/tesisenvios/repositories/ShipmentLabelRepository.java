@@ -0,0 +1,43 @@
+package tesis.tesisenvios.repositories;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tesis.tesisenvios.entitites.ShipmentLabelEntity;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ShipmentLabelRepository extends JpaRepository<ShipmentLabelEntity, Long> {
+
+    Optional<ShipmentLabelEntity> findByOrderCode(String orderCode);
+
+    List<ShipmentLabelEntity> findByOrderCodeIn(Collection<String> orderCodes);
+
+    @Query("select l.id from ShipmentLabelEntity l where l.status = tesis.tesisenvios.dtos.LabelStatus.PENDING " +
+            "and l.nextAttemptAt <= :now order by l.nextAttemptAt, l.id")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Reclamar una etiqueta pendiente corriendo su próximo intento: si dos nodos la toman, solo uno la procesa
+     */
+    @Modifying
+    @Query("update ShipmentLabelEntity l set l.nextAttemptAt = :until " +
+            "where l.id = :id and l.status = tesis.tesisenvios.dtos.LabelStatus.PENDING and l.nextAttemptAt <= :now")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    /**
+     * Volver a PENDING una etiqueta READY cuyo archivo no está en el almacén (una sola vez por hash)
+     */
+    @Modifying
+    @Query("update ShipmentLabelEntity l set l.status = tesis.tesisenvios.dtos.LabelStatus.PENDING, " +
+            "l.nextAttemptAt = :now, l.readyAt = null " +
+            "where l.id = :id and l.status = tesis.tesisenvios.dtos.LabelStatus.READY and l.contentHash = :hash")
+    int requeueMissing(@Param("id") Long id, @Param("hash") String hash, @Param("now") LocalDateTime now);
+}
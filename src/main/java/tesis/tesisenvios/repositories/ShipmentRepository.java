@@ -1,13 +1,25 @@
 package tesis.tesisenvios.repositories;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import tesis.tesisenvios.dtos.ShipmentDeadline;
 import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.dtos.ShipmentVersion;
 import tesis.tesisenvios.entitites.ShipmentEntity;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ShipmentRepository extends JpaRepository<tesis.tesisenvios.entitites.ShipmentEntity, String> {
@@ -16,4 +28,166 @@ public interface ShipmentRepository extends JpaRepository<tesis.tesisenvios.enti
     Optional<tesis.tesisenvios.entitites.ShipmentEntity> findByTrackingNumber(String trackingNumber);
     List<tesis.tesisenvios.entitites.ShipmentEntity> findByStatusIn(List<ShipmentStatus> statuses);
     List<tesis.tesisenvios.entitites.ShipmentEntity> findByRecipientEmail(String email);
-}
\ No newline at end of file
+
+    /**
+     * Consultas regionales sobre las claves normalizadas de la dirección (columnas indexadas)
+     */
+    List<ShipmentEntity> findByShippingAddressPostalKey(String postalKey);
+    List<ShipmentEntity> findByShippingAddressRegionCodeAndStatusIn(String regionCode, Collection<ShipmentStatus> statuses);
+
+    /**
+     * Envíos terminados sin cambios desde antes de la fecha indicada (candidatos a archivar)
+     */
+    @Query("select s.id from ShipmentEntity s where s.status in :statuses and s.updatedAt < :before " +
+            "order by s.updatedAt")
+    List<String> findIdsForArchive(@Param("statuses") Collection<ShipmentStatus> statuses,
+                                   @Param("before") LocalDateTime before,
+                                   Pageable pageable);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from ShipmentEntity s where s.id in :ids")
+    int deleteByIds(@Param("ids") Collection<String> ids);
+
+    /**
+     * Exportación: una fila por evento (o una sola fila si el envío no tiene eventos), solo columnas escalares
+     * para no hidratar entidades. Ordenado por envío para poder agrupar al recorrer el cursor.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select s.id, s.orderCode, s.trackingNumber, s.provider, s.serviceType, s.status, " +
+            "s.recipientName, s.recipientEmail, s.shippingAddress.city, s.shippingAddress.province, " +
+            "s.shippingAddress.postalCode, s.shippingCost, s.createdAt, s.estimatedDeliveryDate, s.actualDeliveryDate, " +
+            "e.eventEpoch, e.statusCode, e.descriptionCode, e.locationCode " +
+            "from ShipmentEntity s left join s.trackingEvents e " +
+            "where s.createdAt >= :from and s.createdAt < :to and s.status in :statuses " +
+            "and (:provider is null or s.provider = :provider) " +
+            "order by s.createdAt, s.id, e.eventEpoch")
+    Stream<Object[]> streamForExport(@Param("from") LocalDateTime from,
+                                     @Param("to") LocalDateTime to,
+                                     @Param("statuses") Collection<ShipmentStatus> statuses,
+                                     @Param("provider") String provider);
+
+    /**
+     * Transición condicional: solo aplica si el estado actual sigue siendo uno de los permitidos
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("update ShipmentEntity s set s.status = :newStatus, s.updatedAt = :now, s.version = s.version + 1 " +
+            "where s.id = :id and s.status in :fromStatuses")
+    int transitionStatus(@Param("id") String id,
+                         @Param("fromStatuses") Collection<ShipmentStatus> fromStatuses,
+                         @Param("newStatus") ShipmentStatus newStatus,
+                         @Param("now") LocalDateTime now);
+
+    /**
+     * Igual que transitionStatus pero registrando la fecha de entrega
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("update ShipmentEntity s set s.status = tesis.tesisenvios.dtos.ShipmentStatus.DELIVERED, " +
+            "s.actualDeliveryDate = :now, s.updatedAt = :now, s.version = s.version + 1 " +
+            "where s.id = :id and s.status in :fromStatuses")
+    int transitionToDelivered(@Param("id") String id,
+                              @Param("fromStatuses") Collection<ShipmentStatus> fromStatuses,
+                              @Param("now") LocalDateTime now);
+
+    /**
+     * Reabrir una cancelación que el proveedor no aplicó; next_poll_at = ahora para que el barrido lo retome
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("update ShipmentEntity s set s.status = :newStatus, s.updatedAt = :now, s.nextPollAt = :now, " +
+            "s.version = s.version + 1 " +
+            "where s.id = :id and s.status = tesis.tesisenvios.dtos.ShipmentStatus.CANCELLED")
+    int reopenCancelled(@Param("id") String id,
+                        @Param("newStatus") ShipmentStatus newStatus,
+                        @Param("now") LocalDateTime now);
+
+    /**
+     * Envíos terminados para conciliar con el proveedor, en orden (updated_at, id) a partir de un cursor
+     */
+    @Query("select s.id, s.updatedAt from ShipmentEntity s where s.status in :statuses and s.trackingNumber is not null " +
+            "and (s.updatedAt > :afterUpdatedAt or (s.updatedAt = :afterUpdatedAt and s.id > :afterId)) " +
+            "order by s.updatedAt, s.id")
+    List<Object[]> findForReconciliation(@Param("statuses") Collection<ShipmentStatus> statuses,
+                                         @Param("afterUpdatedAt") LocalDateTime afterUpdatedAt,
+                                         @Param("afterId") String afterId,
+                                         Pageable pageable);
+
+    /**
+     * Detector de SLA: envíos activos con fecha estimada, recorridos por id a partir de un cursor
+     */
+    @Query("select new tesis.tesisenvios.dtos.ShipmentDeadline(s.id, s.orderCode, s.trackingNumber, s.status, " +
+            "s.estimatedDeliveryDate) from ShipmentEntity s " +
+            "where s.status in :statuses and s.estimatedDeliveryDate is not null and s.id > :afterId order by s.id")
+    List<ShipmentDeadline> findDeadlinesAfter(@Param("statuses") Collection<ShipmentStatus> statuses,
+                                              @Param("afterId") String afterId,
+                                              Pageable pageable);
+
+    @Query("select new tesis.tesisenvios.dtos.ShipmentDeadline(s.id, s.orderCode, s.trackingNumber, s.status, " +
+            "s.estimatedDeliveryDate) from ShipmentEntity s " +
+            "where s.id in :ids and s.status in :statuses and s.estimatedDeliveryDate is not null")
+    List<ShipmentDeadline> findDeadlinesByIdIn(@Param("ids") Collection<String> ids,
+                                               @Param("statuses") Collection<ShipmentStatus> statuses);
+
+    /**
+     * Envíos activos con próxima consulta hasta dueBefore y sin un lease vigente
+     */
+    @Query("select s.id from ShipmentEntity s where s.status in :statuses and s.trackingNumber is not null " +
+            "and (s.nextPollAt is null or s.nextPollAt <= :dueBefore) " +
+            "and (s.leaseUntil is null or s.leaseUntil < :now) " +
+            "order by s.nextPollAt asc")
+    List<String> findDueForPolling(@Param("statuses") Collection<ShipmentStatus> statuses,
+                                   @Param("dueBefore") LocalDateTime dueBefore,
+                                   @Param("now") LocalDateTime now,
+                                   Pageable pageable);
+
+    /**
+     * Metadatos para GET condicional: versión, cantidad y fecha del último evento, sin hidratar la entidad
+     */
+    @Query("select new tesis.tesisenvios.dtos.ShipmentVersion(s.id, s.orderCode, s.trackingNumber, s.status, " +
+            "s.version, s.updatedAt, s.nextPollAt, " +
+            "(select count(e) from TrackingEventEntity e where e.shipment = s), " +
+            "(select max(e.createdEpoch) from TrackingEventEntity e where e.shipment = s)) " +
+            "from ShipmentEntity s where s.orderCode = :orderCode")
+    Optional<ShipmentVersion> findVersionByOrderCode(@Param("orderCode") String orderCode);
+
+    @Query("select new tesis.tesisenvios.dtos.ShipmentVersion(s.id, s.orderCode, s.trackingNumber, s.status, " +
+            "s.version, s.updatedAt, s.nextPollAt, " +
+            "(select count(e) from TrackingEventEntity e where e.shipment = s), " +
+            "(select max(e.createdEpoch) from TrackingEventEntity e where e.shipment = s)) " +
+            "from ShipmentEntity s where s.trackingNumber = :trackingNumber")
+    Optional<ShipmentVersion> findVersionByTrackingNumber(@Param("trackingNumber") String trackingNumber);
+
+    @Query("select s.id from ShipmentEntity s where s.trackingNumber in :trackingNumbers")
+    List<String> findIdsByTrackingNumberIn(@Param("trackingNumbers") Collection<String> trackingNumbers);
+
+    /**
+     * Toma el lease de los candidatos que sigan libres; el token identifica este reclamo
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update ShipmentEntity s set s.leaseOwner = :token, s.leaseUntil = :until " +
+            "where s.id in :ids and (s.leaseUntil is null or s.leaseUntil < :now)")
+    int claimLeases(@Param("ids") Collection<String> ids,
+                    @Param("token") String token,
+                    @Param("now") LocalDateTime now,
+                    @Param("until") LocalDateTime until);
+
+    @Query("select s.id from ShipmentEntity s where s.leaseOwner = :token")
+    List<String> findIdsByLeaseOwner(@Param("token") String token);
+
+    /**
+     * Libera el lease y programa la próxima consulta (no cambia la versión: no es un cambio de negocio)
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("update ShipmentEntity s set s.leaseOwner = null, s.leaseUntil = null, s.nextPollAt = :nextPollAt " +
+            "where s.id = :id")
+    int releaseLease(@Param("id") String id, @Param("nextPollAt") LocalDateTime nextPollAt);
+
+    /**
+     * Limpia leases vencidos (nodos caídos) para que vuelvan a estar disponibles
+     */
+    @Modifying
+    @Query("update ShipmentEntity s set s.leaseOwner = null, s.leaseUntil = null " +
+            "where s.leaseUntil is not null and s.leaseUntil < :now")
+    int releaseExpiredLeases(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,17 @@
+package tesis.tesisenvios.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.entitites.ShipmentStatusCountEntity;
+
+@Repository
+public interface ShipmentStatusCountRepository extends JpaRepository<ShipmentStatusCountEntity, ShipmentStatus> {
+
+    @Modifying
+    @Query("update ShipmentStatusCountEntity c set c.shipmentCount = c.shipmentCount + :delta where c.status = :status")
+    int increment(@Param("status") ShipmentStatus status, @Param("delta") long delta);
+}
@@ -0,0 +1,12 @@
+package tesis.tesisenvios.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import tesis.tesisenvios.entitites.TrackingDictionaryEntity;
+
+import java.util.Optional;
+
+@Repository
+public interface TrackingDictionaryRepository extends JpaRepository<TrackingDictionaryEntity, Integer> {
+    Optional<TrackingDictionaryEntity> findByKindAndTerm(String kind, String term);
+}
@@ -2,12 +2,25 @@ package tesis.tesisenvios.repositories;
 
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import tesis.tesisenvios.entitites.TrackingEventEntity;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface TrackingEventRepository extends JpaRepository<TrackingEventEntity, Long> {
-    List<TrackingEventEntity> findByShipmentIdOrderByEventDateDesc(String shipmentId);
+    List<TrackingEventEntity> findByShipmentIdOrderByEventEpochDesc(String shipmentId);
+
+    Optional<TrackingEventEntity> findFirstByShipmentIdOrderByEventEpochDesc(String shipmentId);
+
+    List<TrackingEventEntity> findByShipmentIdInOrderByEventEpochDesc(Collection<String> shipmentIds);
+
+    @Modifying(flushAutomatically = true)
+    @Query("delete from TrackingEventEntity e where e.shipment.id in :shipmentIds")
+    int deleteByShipmentIds(@Param("shipmentIds") Collection<String> shipmentIds);
 }
\ No newline at end of file
@@ -0,0 +1,81 @@
+package tesis.tesisenvios.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import tesis.tesisenvios.dtos.TrackingRefreshJobStatus;
+import tesis.tesisenvios.entitites.TrackingRefreshJobEntity;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+
+@Repository
+public interface TrackingRefreshJobRepository extends JpaRepository<TrackingRefreshJobEntity, String> {
+
+    Optional<TrackingRefreshJobEntity> findFirstByFilterKeyAndStatusInOrderByRequestedAtAsc(
+            String filterKey, Collection<TrackingRefreshJobStatus> statuses);
+
+    Optional<TrackingRefreshJobEntity> findFirstByStatusOrderByRequestedAtAsc(TrackingRefreshJobStatus status);
+
+    /**
+     * Tomar un trabajo en cola; solo un nodo logra pasarlo a RUNNING
+     */
+    @Transactional
+    @Modifying
+    @Query("update TrackingRefreshJobEntity j set j.status = tesis.tesisenvios.dtos.TrackingRefreshJobStatus.RUNNING, " +
+            "j.runnerNode = :node, j.startedAt = :now, j.heartbeatAt = :now " +
+            "where j.id = :id and j.status = tesis.tesisenvios.dtos.TrackingRefreshJobStatus.QUEUED")
+    int claim(@Param("id") String id, @Param("node") String node, @Param("now") LocalDateTime now);
+
+    /**
+     * Devolver a la cola un trabajo recién tomado que este nodo no pudo ejecutar
+     */
+    @Transactional
+    @Modifying
+    @Query("update TrackingRefreshJobEntity j set j.status = tesis.tesisenvios.dtos.TrackingRefreshJobStatus.QUEUED, " +
+            "j.runnerNode = null, j.startedAt = null where j.id = :id " +
+            "and j.status = tesis.tesisenvios.dtos.TrackingRefreshJobStatus.RUNNING")
+    int unclaim(@Param("id") String id);
+
+    @Transactional
+    @Modifying
+    @Query("update TrackingRefreshJobEntity j set j.processed = :processed, j.updated = :updated, " +
+            "j.failed = :failed, j.heartbeatAt = :now where j.id = :id")
+    int updateProgress(@Param("id") String id,
+                       @Param("processed") int processed,
+                       @Param("updated") int updated,
+                       @Param("failed") int failed,
+                       @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("update TrackingRefreshJobEntity j set j.status = :status, j.processed = :processed, " +
+            "j.updated = :updated, j.failed = :failed, j.errorMessage = :error, " +
+            "j.heartbeatAt = :now, j.finishedAt = :now where j.id = :id")
+    int finish(@Param("id") String id,
+               @Param("status") TrackingRefreshJobStatus status,
+               @Param("processed") int processed,
+               @Param("updated") int updated,
+               @Param("failed") int failed,
+               @Param("error") String error,
+               @Param("now") LocalDateTime now);
+
+    /**
+     * Volver a encolar trabajos de nodos que dejaron de reportar progreso
+     */
+    @Transactional
+    @Modifying
+    @Query("update TrackingRefreshJobEntity j set j.status = tesis.tesisenvios.dtos.TrackingRefreshJobStatus.QUEUED, " +
+            "j.runnerNode = null where j.status = tesis.tesisenvios.dtos.TrackingRefreshJobStatus.RUNNING " +
+            "and j.heartbeatAt < :cutoff")
+    int requeueStale(@Param("cutoff") LocalDateTime cutoff);
+
+    @Transactional
+    @Modifying
+    @Query("delete from TrackingRefreshJobEntity j where j.finishedAt < :cutoff")
+    int deleteFinishedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,66 @@
+package tesis.tesisenvios.services;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import tesis.tesisenvios.dtos.QuoteRequest;
+import tesis.tesisenvios.dtos.ShippingAddressRequest;
+import tesis.tesisenvios.utils.AddressKeys;
+import tesis.tesisenvios.utils.LocalityIndex;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Normaliza las direcciones de destino antes de cotizar y crear envíos: provincia, localidad y
+ * código postal canónicos (misma clave de caché para "Cordoba" y "Córdoba") y rechazo temprano
+ * de combinaciones imposibles, sin llegar al proveedor.
+ */
+@Service
+@Slf4j
+public class AddressNormalizer {
+
+    @Value("${addresses.enabled:true}")
+    private boolean enabled;
+
+    @Value("${addresses.localities-file:classpath:data/localidades-ar.csv}")
+    private Resource localitiesFile;
+
+    private volatile LocalityIndex index = LocalityIndex.EMPTY;
+
+    @PostConstruct
+    void load() {
+        if (!enabled) return;
+
+        try (Reader reader = new InputStreamReader(localitiesFile.getInputStream(), StandardCharsets.UTF_8)) {
+            index = LocalityIndex.load(reader);
+            log.info("Índice de localidades cargado: {} localidades desde {}", index.size(), localitiesFile);
+        } catch (Exception e) {
+            // Sin archivo se siguen validando provincia y código postal; las localidades quedan como vienen
+            log.warn("No se pudo cargar el archivo de localidades {}: {}", localitiesFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Dirección normalizada (una copia); lanza InvalidAddressException si es imposible
+     */
+    public ShippingAddressRequest normalize(ShippingAddressRequest address) {
+        if (!enabled || address == null) return address;
+        return index.normalize(address);
+    }
+
+    /**
+     * Reemplazar el destino de la cotización por su versión normalizada; la cotización lleva el
+     * código postal de 4 dígitos que esperan los proveedores (el envío guarda el CPA completo)
+     */
+    public void normalizeDestination(QuoteRequest request) {
+        ShippingAddressRequest destination = normalize(request.getDestinationAddress());
+        if (enabled && destination != null) {
+            destination.setPostalCode(AddressKeys.postalKey(destination.getPostalCode()));
+        }
+        request.setDestinationAddress(destination);
+    }
+}
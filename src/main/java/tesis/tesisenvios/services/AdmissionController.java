@@ -0,0 +1,261 @@
+package tesis.tesisenvios.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import tesis.tesisenvios.dtos.RequestPriority;
+import tesis.tesisenvios.utils.GcraLimiter;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Control de admisión de la API pública.
+ * <ol>
+ *   <li>Rate limit por cliente (API key o IP) y clase de prioridad, con GCRA sin locks.</li>
+ *   <li>Tope de pedidos en curso: cada clase puede ocupar solo una parte de los lugares
+ *   (el checkout siempre tiene reserva) y espera como mucho su tiempo máximo por un lugar.</li>
+ *   <li>Descarte por latencia de cola: si el promedio móvil de espera supera el umbral se
+ *   rechazan de entrada los pedidos LOW, y con el doble también los NORMAL. El promedio decae
+ *   a la mitad por cada media vida sin muestras, así el descarte se levanta solo cuando deja
+ *   de entrar tráfico que lo actualice.</li>
+ * </ol>
+ * Los rechazos vuelven como 429 con Retry-After; un pedido descartado no consume su rate limit.
+ */
+@Service
+@Slf4j
+public class AdmissionController {
+
+    public static final Admission ADMITTED = new Admission(true, 0, null);
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${admission.max-concurrent:150}")
+    private int maxConcurrent;
+
+    @Value("${admission.shed-queue-ms:50}")
+    private long shedQueueMs;
+
+    @Value("${admission.max-clients:100000}")
+    private int maxClients;
+
+    @Value("${admission.queue-ewma-half-life-ms:1000}")
+    private long ewmaHalfLifeMs;
+
+    private final long origin = System.nanoTime();
+    private final Map<RequestPriority, GcraLimiter> limiters = new EnumMap<>(RequestPriority.class);
+    private final Map<RequestPriority, Integer> concurrencyLimit = new EnumMap<>(RequestPriority.class);
+    private final Map<RequestPriority, Long> maxWaitNanos = new EnumMap<>(RequestPriority.class);
+    private final Map<RequestPriority, Counter> rateLimited = new EnumMap<>(RequestPriority.class);
+    private final Map<RequestPriority, Counter> shed = new EnumMap<>(RequestPriority.class);
+
+    private Semaphore slots;
+
+    // Promedio móvil exponencial (alfa 1/8) de la espera por un lugar, en nanos, y cuándo se tomó la última muestra
+    private final AtomicLong queueEwmaNanos = new AtomicLong();
+    private volatile long lastSampleNanos;
+    private long ewmaHalfLifeNanos;
+
+    @PostConstruct
+    void init() {
+        slots = new Semaphore(maxConcurrent);
+        ewmaHalfLifeNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, ewmaHalfLifeMs));
+        for (RequestPriority priority : RequestPriority.values()) {
+            String prefix = "admission." + priority.name().toLowerCase() + ".";
+            limiters.put(priority, new GcraLimiter(
+                    environment.getProperty(prefix + "per-second", Double.class, defaultRate(priority)),
+                    environment.getProperty(prefix + "burst", Integer.class, defaultBurst(priority)),
+                    maxClients));
+            double share = environment.getProperty(prefix + "concurrency-share", Double.class, defaultShare(priority));
+            concurrencyLimit.put(priority, (int) Math.ceil(maxConcurrent * share));
+            maxWaitNanos.put(priority, TimeUnit.MILLISECONDS.toNanos(
+                    environment.getProperty(prefix + "max-wait-ms", Long.class, defaultMaxWaitMs(priority))));
+
+            rateLimited.put(priority, Counter.builder("http.admission.rejected")
+                    .tag("reason", "rate_limit").tag("priority", priority.name()).register(meterRegistry));
+            shed.put(priority, Counter.builder("http.admission.rejected")
+                    .tag("reason", "shed").tag("priority", priority.name()).register(meterRegistry));
+        }
+
+        Gauge.builder("http.admission.in_flight", () -> maxConcurrent - slots.availablePermits()).register(meterRegistry);
+        Gauge.builder("http.admission.queue_ewma_ms", () -> queueEwma(System.nanoTime() - origin) / 1_000_000.0).register(meterRegistry);
+    }
+
+    /**
+     * Decidir si el pedido entra. Si se admite hay que llamar a release() al terminar.
+     */
+    public Admission admit(RequestPriority priority, String clientKey) {
+        if (!enabled) return ADMITTED;
+
+        // El descarte va antes del rate limit: un pedido que no se atiende no gasta cupo del cliente
+        long now = System.nanoTime() - origin;
+        long ewma = queueEwma(now);
+        long shedNanos = TimeUnit.MILLISECONDS.toNanos(shedQueueMs);
+        if ((priority == RequestPriority.LOW && ewma > shedNanos)
+                || (priority == RequestPriority.NORMAL && ewma > 2 * shedNanos)) {
+            shed.get(priority).increment();
+            return new Admission(false, 1, "overloaded");
+        }
+
+        GcraLimiter limiter = limiters.get(priority);
+        long waitNanos = limiter.tryAcquire(clientKey, now);
+        if (waitNanos > 0) {
+            rateLimited.get(priority).increment();
+            return new Admission(false, retryAfterSeconds(waitNanos), "rate_limit");
+        }
+
+        if (!acquireSlot(priority)) {
+            limiter.refund(clientKey, System.nanoTime() - origin);
+            shed.get(priority).increment();
+            return new Admission(false, 1, "overloaded");
+        }
+        return ADMITTED;
+    }
+
+    /**
+     * Permiso para un paso de un trabajo en segundo plano (conciliación, etc.): usa el bucket LOW del
+     * trabajo y se niega mientras se estén descartando pedidos LOW, así nunca compite con el checkout.
+     * No ocupa lugar de concurrencia.
+     */
+    public boolean admitBackground(String job) {
+        if (!enabled) return true;
+        long now = System.nanoTime() - origin;
+        if (queueEwma(now) > TimeUnit.MILLISECONDS.toNanos(shedQueueMs)) return false;
+        return limiters.get(RequestPriority.LOW).tryAcquire("job:" + job, now) == 0;
+    }
+
+    public void release() {
+        if (enabled) {
+            slots.release();
+        }
+    }
+
+    /**
+     * Limpiar clientes inactivos (los que ya recuperaron la ráfaga completa)
+     */
+    @Scheduled(fixedDelayString = "${admission.cleanup-interval-ms:60000}")
+    public void evictIdleClients() {
+        long now = System.nanoTime() - origin;
+        int evicted = 0;
+        for (GcraLimiter limiter : limiters.values()) {
+            evicted += limiter.evictIdle(now);
+        }
+        if (evicted > 0) {
+            log.debug("Rate limit: {} clientes inactivos eliminados", evicted);
+        }
+    }
+
+    // ================================
+    // MÉTODOS AUXILIARES
+    // ================================
+
+    private boolean acquireSlot(RequestPriority priority) {
+        // Cada clase entra solo mientras queden más lugares libres que la reserva de las superiores
+        int reserved = maxConcurrent - concurrencyLimit.get(priority);
+        if (slots.availablePermits() > reserved && slots.tryAcquire()) {
+            recordWait(0);
+            return true;
+        }
+
+        long maxWait = maxWaitNanos.get(priority);
+        if (maxWait <= 0) return false;
+
+        long startedAt = System.nanoTime();
+        try {
+            long deadline = startedAt + maxWait;
+            while (true) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    recordWait(maxWait);
+                    return false;
+                }
+                if (slots.tryAcquire(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(10)), TimeUnit.NANOSECONDS)) {
+                    if (slots.availablePermits() >= reserved) {
+                        recordWait(System.nanoTime() - startedAt);
+                        return true;
+                    }
+                    // Se liberó un lugar de la reserva de una clase superior: devolverlo
+                    slots.release();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void recordWait(long nanos) {
+        long now = System.nanoTime() - origin;
+        long raw = queueEwmaNanos.get();
+        long current = queueEwma(now);
+        // Actualización sin reintentar: perder una muestra bajo contención no cambia el promedio
+        if (queueEwmaNanos.compareAndSet(raw, current + (nanos - current) / 8)) {
+            lastSampleNanos = now;
+        }
+    }
+
+    /**
+     * Promedio de espera con el decaimiento por el tiempo sin muestras (a la mitad por media vida)
+     */
+    private long queueEwma(long nowNanos) {
+        long halvings = (nowNanos - lastSampleNanos) / ewmaHalfLifeNanos;
+        long ewma = queueEwmaNanos.get();
+        return halvings <= 0 ? ewma : halvings >= 63 ? 0 : ewma >> halvings;
+    }
+
+    private static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+    }
+
+    private static double defaultRate(RequestPriority priority) {
+        return switch (priority) {
+            case CRITICAL -> 20;
+            case NORMAL -> 10;
+            case LOW -> 2;
+        };
+    }
+
+    private static int defaultBurst(RequestPriority priority) {
+        return switch (priority) {
+            case CRITICAL -> 40;
+            case NORMAL -> 20;
+            case LOW -> 5;
+        };
+    }
+
+    private static double defaultShare(RequestPriority priority) {
+        return switch (priority) {
+            case CRITICAL -> 1.0;
+            case NORMAL -> 0.8;
+            case LOW -> 0.5;
+        };
+    }
+
+    private static long defaultMaxWaitMs(RequestPriority priority) {
+        return switch (priority) {
+            case CRITICAL -> 2000;
+            case NORMAL -> 500;
+            case LOW -> 0;
+        };
+    }
+
+    public record Admission(boolean admitted, long retryAfterSeconds, String reason) {
+    }
+}
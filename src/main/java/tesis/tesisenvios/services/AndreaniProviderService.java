@@ -6,24 +6,30 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 import tesis.tesisenvios.dtos.CreateShipmentRequest;
+import tesis.tesisenvios.dtos.PackageRequest;
 import tesis.tesisenvios.dtos.QuoteRequest;
 import tesis.tesisenvios.dtos.ShippingQuoteResponse;
 import tesis.tesisenvios.dtos.TrackingEventResponse;
 import tesis.tesisenvios.entitites.ShipmentEntity;
+import tesis.tesisenvios.utils.AddressKeys;
 
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 
 @Service
 @ConditionalOnProperty(name = "andreani.mock.enabled", havingValue = "false")
 @Slf4j
-public class AndreaniProviderService {
+public class AndreaniProviderService implements CarrierProvider {
+
+    public static final String CARRIER_CODE = "ANDREANI";
 
     @Value("${andreani.api.url}")
     private String andreaniApiUrl;
@@ -61,17 +67,41 @@ public class AndreaniProviderService {
     @Autowired
     private ObjectMapper objectMapper;
 
-    private String cachedToken;
-    private LocalDateTime tokenExpiry;
+    @Autowired
+    private RetryExecutor retryExecutor;
+
+    // Mismo deadline que espera CarrierQuoteAggregator: los reintentos de cotización no lo pasan
+    @Value("${shipping.quotes.deadline-ms:1500}")
+    private long quoteDeadlineMs;
+
+    // Token compartido por todos los hilos; volatile para leerlo sin tomar el lock
+    private volatile AuthToken cachedToken;
+
+    @Override
+    public String getCarrierCode() {
+        return CARRIER_CODE;
+    }
 
     /**
-     * Obtener token de autenticación
+     * Obtener token de autenticación. Un lote de cotizaciones en paralelo usa el mismo token;
+     * si venció, lo pide un solo hilo y el resto espera ese resultado.
      */
     public String getAuthToken() {
-        if (cachedToken != null && tokenExpiry != null && LocalDateTime.now().isBefore(tokenExpiry)) {
-            return cachedToken;
+        AuthToken current = cachedToken;
+        if (current != null && current.isValid()) {
+            return current.value();
+        }
+
+        synchronized (this) {
+            current = cachedToken;
+            if (current != null && current.isValid()) {
+                return current.value();
+            }
+            return requestAuthToken();
         }
+    }
 
+    private String requestAuthToken() {
         try {
             String url = andreaniApiUrl + "/auth";
 
@@ -86,14 +116,15 @@ public class AndreaniProviderService {
             HttpEntity<Map<String, String>> entity = new HttpEntity<>(authRequest, headers);
 
             log.info("Solicitando token a Andreani...");
-            ResponseEntity<Map> response = restTemplate.postForEntity(url, entity, Map.class);
+            ResponseEntity<Map> response = retryExecutor.execute("andreani.auth",
+                    () -> restTemplate.postForEntity(url, entity, Map.class));
 
             if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                cachedToken = (String) response.getBody().get("token");
-                tokenExpiry = LocalDateTime.now().plusMinutes(50); // Token válido por ~1 hora, renovar antes
+                String token = (String) response.getBody().get("token");
+                cachedToken = new AuthToken(token, LocalDateTime.now().plusMinutes(50)); // Token válido por ~1 hora, renovar antes
 
                 log.info("Token obtenido exitosamente");
-                return cachedToken;
+                return token;
             }
 
         } catch (Exception e) {
@@ -106,7 +137,9 @@ public class AndreaniProviderService {
     /**
      * Obtener cotizaciones
      */
+    @Override
     public List<ShippingQuoteResponse> getQuotes(QuoteRequest request) {
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(quoteDeadlineMs);
         try {
             String url = andreaniApiUrl + "/cotizaciones";
             String token = getAuthToken();
@@ -123,7 +156,8 @@ public class AndreaniProviderService {
             log.info("Solicitando cotización a Andreani para {}",
                     request.getDestinationAddress().getCity());
 
-            ResponseEntity<List> response = restTemplate.postForEntity(url, entity, List.class);
+            ResponseEntity<List> response = retryExecutor.execute("andreani.quotes", true, deadlineNanos,
+                    () -> restTemplate.postForEntity(url, entity, List.class));
 
             if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
                 List<Map<String, Object>> andreaniQuotes = response.getBody();
@@ -135,15 +169,24 @@ public class AndreaniProviderService {
 
         } catch (Exception e) {
             log.error("Error obteniendo cotizaciones de Andreani: {}", e.getMessage());
+            throw new RuntimeException("Error obteniendo cotizaciones de Andreani: " + e.getMessage(), e);
         }
 
-        // Si falla, retornar cotización por defecto
+        throw new RuntimeException("Andreani no devolvió cotizaciones");
+    }
+
+    /**
+     * Cotización por defecto si falla Andreani
+     */
+    @Override
+    public List<ShippingQuoteResponse> getFallbackQuotes(QuoteRequest request) {
         return getDefaultQuotes();
     }
 
     /**
      * Crear envío en Andreani
      */
+    @Override
     public String createShipment(ShipmentEntity shipment, CreateShipmentRequest request) {
         try {
             String url = andreaniApiUrl + "/ordenes";
@@ -160,7 +203,9 @@ public class AndreaniProviderService {
 
             log.info("Creando orden en Andreani para: {}", request.getOrderCode());
 
-            ResponseEntity<Map> response = restTemplate.postForEntity(url, entity, Map.class);
+            // Crear orden no es idempotente: solo se reintenta si el pedido seguro no llegó
+            ResponseEntity<Map> response = retryExecutor.execute("andreani.create-order", false,
+                    () -> restTemplate.postForEntity(url, entity, Map.class));
 
             if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
                 Map<String, Object> responseBody = response.getBody();
@@ -185,6 +230,7 @@ public class AndreaniProviderService {
     /**
      * Obtener eventos de tracking
      */
+    @Override
     public List<TrackingEventResponse> getTrackingEvents(String trackingNumber) {
         try {
             String url = andreaniApiUrl + "/trazabilidad/" + trackingNumber;
@@ -195,7 +241,8 @@ public class AndreaniProviderService {
 
             HttpEntity<?> entity = new HttpEntity<>(headers);
 
-            ResponseEntity<Map> response = restTemplate.exchange(url, HttpMethod.GET, entity, Map.class);
+            ResponseEntity<Map> response = retryExecutor.execute("andreani.tracking",
+                    () -> restTemplate.exchange(url, HttpMethod.GET, entity, Map.class));
 
             if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
                 Map<String, Object> responseBody = response.getBody();
@@ -215,6 +262,62 @@ public class AndreaniProviderService {
         return new ArrayList<>();
     }
 
+    /**
+     * Cancelar orden en Andreani
+     */
+    @Override
+    public boolean cancelShipment(String trackingNumber) {
+        try {
+            String url = andreaniApiUrl + "/ordenes/" + trackingNumber;
+            String token = getAuthToken();
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setBearerAuth(token);
+
+            HttpEntity<?> entity = new HttpEntity<>(headers);
+
+            log.info("Cancelando orden en Andreani: {}", trackingNumber);
+
+            ResponseEntity<Map> response = retryExecutor.execute("andreani.cancel",
+                    () -> restTemplate.exchange(url, HttpMethod.DELETE, entity, Map.class));
+            return response.getStatusCode().is2xxSuccessful();
+
+        } catch (HttpClientErrorException e) {
+            if (e.getStatusCode().value() == 429) {
+                throw new RuntimeException("Andreani limitó la cancelación de " + trackingNumber, e);
+            }
+            // Otro 4xx: Andreani no acepta la cancelación (ya retirada, inexistente); reintentar no cambia nada
+            log.warn("Andreani rechazó la cancelación de {}: {}", trackingNumber, e.getStatusCode());
+            return false;
+        } catch (Exception e) {
+            log.error("Error cancelando orden en Andreani {}: {}", trackingNumber, e.getMessage());
+            throw new RuntimeException("Error cancelando orden en Andreani: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Descargar la etiqueta PDF de la orden
+     */
+    @Override
+    public byte[] getLabel(ShipmentEntity shipment) {
+        String url = andreaniApiUrl + "/ordenes/" + shipment.getTrackingNumber() + "/etiquetas";
+        String token = getAuthToken();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        headers.setAccept(List.of(MediaType.APPLICATION_PDF));
+
+        HttpEntity<?> entity = new HttpEntity<>(headers);
+
+        ResponseEntity<byte[]> response = retryExecutor.execute("andreani.label",
+                () -> restTemplate.exchange(url, HttpMethod.GET, entity, byte[].class));
+
+        if (response.getBody() == null || response.getBody().length == 0) {
+            throw new IllegalStateException("Andreani devolvió una etiqueta vacía para " + shipment.getTrackingNumber());
+        }
+        return response.getBody();
+    }
+
     // ================================
     // MÉTODOS PRIVADOS DE MAPEO
     // ================================
@@ -247,16 +350,15 @@ public class AndreaniProviderService {
         destino.put("postal", destinoPostal);
         cotizacion.put("destino", destino);
 
-        // Paquetes
+        // Paquetes: uno por bulto del carrito, o el paquete único de weightKg
         List<Map<String, Object>> paquetes = new ArrayList<>();
-        Map<String, Object> paquete = new HashMap<>();
-        paquete.put("pesoKilogramos", request.getWeightKg().doubleValue());
-        paquete.put("volumenCentimetrosCubicos", calculateVolume(request.getWeightKg()));
-        paquete.put("categoria", "Productos varios");
-        if (request.getDeclaredValue() != null) {
-            paquete.put("valorDeclaradoConIva", request.getDeclaredValue().doubleValue());
+        if (request.hasPackages()) {
+            for (PackageRequest bulto : request.getPackages()) {
+                paquetes.add(buildPaquete(bulto.getWeightKg(), bulto.volumeCm3(), bulto.getDeclaredValue()));
+            }
+        } else {
+            paquetes.add(buildPaquete(request.getWeightKg(), null, request.getDeclaredValue()));
         }
-        paquetes.add(paquete);
         cotizacion.put("paquetes", paquetes);
 
         return cotizacion;
@@ -294,7 +396,7 @@ public class AndreaniProviderService {
 
     private ShippingQuoteResponse mapToShippingQuote(Map<String, Object> andreaniQuote) {
         ShippingQuoteResponse quote = new ShippingQuoteResponse();
-        quote.setProvider("ANDREANI");
+        quote.setProvider(CARRIER_CODE);
         quote.setServiceType((String) andreaniQuote.get("modalidad"));
         quote.setServiceName("Andreani - " + andreaniQuote.get("modalidad"));
 
@@ -326,13 +428,18 @@ public class AndreaniProviderService {
         event.setDescription((String) andreaniEvent.get("motivo"));
         event.setLocation((String) andreaniEvent.get("sucursal"));
 
+        Object id = andreaniEvent.get("id");
+        if (id != null) {
+            event.setProviderEventId(id.toString());
+        }
+
         return event;
     }
 
     private List<ShippingQuoteResponse> getDefaultQuotes() {
         // Cotización por defecto si falla Andreani
         ShippingQuoteResponse defaultQuote = new ShippingQuoteResponse();
-        defaultQuote.setProvider("ANDREANI");
+        defaultQuote.setProvider(CARRIER_CODE);
         defaultQuote.setServiceType("STANDARD");
         defaultQuote.setServiceName("Andreani Standard");
         defaultQuote.setPrice(BigDecimal.valueOf(1500.0));
@@ -343,34 +450,20 @@ public class AndreaniProviderService {
     }
 
     private String mapProvinceToRegion(String province) {
-        // Mapeo de provincias argentinas a códigos de región
-        Map<String, String> provinceMap = new HashMap<>();
-        provinceMap.put("Buenos Aires", "AR-B");
-        provinceMap.put("CABA", "AR-C");
-        provinceMap.put("Córdoba", "AR-X");
-        provinceMap.put("Santa Fe", "AR-S");
-        provinceMap.put("Mendoza", "AR-M");
-        provinceMap.put("Tucumán", "AR-T");
-        provinceMap.put("Entre Ríos", "AR-E");
-        provinceMap.put("Salta", "AR-A");
-        provinceMap.put("Misiones", "AR-N");
-        provinceMap.put("Chaco", "AR-H");
-        provinceMap.put("Corrientes", "AR-W");
-        provinceMap.put("Santiago del Estero", "AR-G");
-        provinceMap.put("San Juan", "AR-J");
-        provinceMap.put("Jujuy", "AR-Y");
-        provinceMap.put("Río Negro", "AR-R");
-        provinceMap.put("Formosa", "AR-P");
-        provinceMap.put("Neuquén", "AR-Q");
-        provinceMap.put("Chubut", "AR-U");
-        provinceMap.put("San Luis", "AR-D");
-        provinceMap.put("Catamarca", "AR-K");
-        provinceMap.put("La Rioja", "AR-F");
-        provinceMap.put("La Pampa", "AR-L");
-        provinceMap.put("Santa Cruz", "AR-Z");
-        provinceMap.put("Tierra del Fuego", "AR-V");
-
-        return provinceMap.getOrDefault(province, "AR-B");
+        // Provincia no reconocida: Andreani exige región, se usa Buenos Aires como antes
+        String region = AddressKeys.regionCode(province);
+        return region != null ? region : "AR-B";
+    }
+
+    private Map<String, Object> buildPaquete(BigDecimal weightKg, BigDecimal volumeCm3, BigDecimal declaredValue) {
+        Map<String, Object> paquete = new HashMap<>();
+        paquete.put("pesoKilogramos", weightKg.doubleValue());
+        paquete.put("volumenCentimetrosCubicos", volumeCm3 != null ? volumeCm3.doubleValue() : calculateVolume(weightKg));
+        paquete.put("categoria", "Productos varios");
+        if (declaredValue != null) {
+            paquete.put("valorDeclaradoConIva", declaredValue.doubleValue());
+        }
+        return paquete;
     }
 
     private Double calculateVolume(BigDecimal weight) {
@@ -390,4 +483,10 @@ public class AndreaniProviderService {
 
         return 3; // Default
     }
-}
\ No newline at end of file
+
+    private record AuthToken(String value, LocalDateTime expiresAt) {
+        boolean isValid() {
+            return LocalDateTime.now().isBefore(expiresAt);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package tesis.tesisenvios.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import tesis.tesisenvios.dtos.CarrierCancellationStatus;
+import tesis.tesisenvios.entitites.CarrierCancellationEntity;
+import tesis.tesisenvios.entitites.ShipmentEntity;
+import tesis.tesisenvios.repositories.CarrierCancellationRepository;
+import tesis.tesisenvios.services.impl.ShipmentTrackingUpdater;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Propagación de cancelaciones al proveedor (outbox).
+ * La cancelación local deja una fila pendiente en la misma transacción; el líder las envía
+ * fuera del pedido HTTP, con reintentos y backoff. Si el proveedor la rechaza (el paquete ya
+ * fue retirado) se concilia el envío en el momento para reabrirlo con el estado real.
+ */
+@Service
+@Slf4j
+public class CarrierCancellationService {
+
+    private static final String DISPATCH_LOCK = "carrier-cancellation";
+
+    @Autowired
+    private CarrierCancellationRepository cancellationRepository;
+
+    @Autowired
+    private CarrierRegistry carrierRegistry;
+
+    @Autowired
+    private ShipmentTrackingUpdater shipmentTrackingUpdater;
+
+    @Autowired
+    private SchedulerLockService schedulerLockService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${cancellations.batch-size:50}")
+    private int batchSize;
+
+    @Value("${cancellations.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${cancellations.retry-base-ms:30000}")
+    private long retryBaseMs;
+
+    @Value("${cancellations.retry-max-ms:1800000}")
+    private long retryMaxMs;
+
+    @Value("${cancellations.retention-days:30}")
+    private long retentionDays;
+
+    /**
+     * Registrar la cancelación para el proveedor. Debe llamarse dentro de la transacción que cancela el envío.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(ShipmentEntity shipment) {
+        if (shipment.getTrackingNumber() == null) return; // Nunca llegó al proveedor
+
+        LocalDateTime now = LocalDateTime.now();
+        CarrierCancellationEntity cancellation = new CarrierCancellationEntity();
+        cancellation.setShipmentId(shipment.getId());
+        cancellation.setProvider(shipment.getProvider());
+        cancellation.setTrackingNumber(shipment.getTrackingNumber());
+        cancellation.setStatus(CarrierCancellationStatus.PENDING);
+        cancellation.setNextAttemptAt(now);
+        cancellation.setCreatedAt(now);
+        cancellationRepository.save(cancellation);
+    }
+
+    @Scheduled(fixedDelayString = "${cancellations.dispatch-interval-ms:5000}")
+    public void scheduledDispatch() {
+        if (!schedulerLockService.tryAcquire(DISPATCH_LOCK, Duration.ofMinutes(5))) return;
+        dispatch();
+    }
+
+    /**
+     * Enviar las cancelaciones vencidas. Retorna cuántas confirmó el proveedor.
+     */
+    public int dispatch() {
+        List<CarrierCancellationEntity> due = cancellationRepository.findDue(LocalDateTime.now(),
+                PageRequest.of(0, batchSize));
+
+        int confirmed = 0;
+        for (CarrierCancellationEntity cancellation : due) {
+            if (send(cancellation)) confirmed++;
+        }
+        return confirmed;
+    }
+
+    @Scheduled(fixedDelayString = "${cancellations.cleanup-interval-ms:3600000}",
+            initialDelayString = "${cancellations.cleanup-initial-delay-ms:600000}")
+    public void cleanup() {
+        if (!schedulerLockService.tryAcquire(DISPATCH_LOCK, Duration.ofMinutes(5))) return;
+
+        Integer deleted = transactionTemplate.execute(status -> cancellationRepository.deleteFinishedBefore(
+                List.of(CarrierCancellationStatus.CONFIRMED, CarrierCancellationStatus.REJECTED),
+                LocalDateTime.now().minusDays(retentionDays)));
+        if (deleted != null && deleted > 0) {
+            log.info("Outbox de cancelaciones: {} filas terminadas eliminadas", deleted);
+        }
+    }
+
+    // ================================
+    // MÉTODOS AUXILIARES
+    // ================================
+
+    private boolean send(CarrierCancellationEntity cancellation) {
+        LocalDateTime now = LocalDateTime.now();
+        boolean accepted;
+        try {
+            accepted = carrierRegistry.getCarrier(cancellation.getProvider())
+                    .cancelShipment(cancellation.getTrackingNumber());
+        } catch (Exception e) {
+            scheduleRetry(cancellation, e.getMessage(), now);
+            transactionTemplate.executeWithoutResult(status -> cancellationRepository.save(cancellation));
+            outcome(cancellation.getStatus() == CarrierCancellationStatus.FAILED ? "failed" : "retry");
+            return false;
+        }
+
+        cancellation.setAttempts(cancellation.getAttempts() + 1);
+        cancellation.setStatus(accepted ? CarrierCancellationStatus.CONFIRMED : CarrierCancellationStatus.REJECTED);
+        cancellation.setCompletedAt(now);
+        cancellation.setLastError(null);
+        transactionTemplate.executeWithoutResult(status -> cancellationRepository.save(cancellation));
+        outcome(accepted ? "confirmed" : "rejected");
+
+        if (accepted) {
+            log.info("Cancelación confirmada por {} para {}", cancellation.getProvider(), cancellation.getTrackingNumber());
+        } else {
+            // El proveedor ya no la acepta: traer su estado y reabrir el envío si lo siguió moviendo
+            try {
+                shipmentTrackingUpdater.reconcileWithCarrier(cancellation.getShipmentId());
+            } catch (Exception e) {
+                log.warn("No se pudo conciliar el envío {} después del rechazo: {}",
+                        cancellation.getTrackingNumber(), e.getMessage());
+            }
+        }
+        return accepted;
+    }
+
+    private void scheduleRetry(CarrierCancellationEntity cancellation, String error, LocalDateTime now) {
+        int attempts = cancellation.getAttempts() + 1;
+        cancellation.setAttempts(attempts);
+        cancellation.setLastError(error != null && error.length() > 500 ? error.substring(0, 500) : error);
+
+        if (attempts >= maxAttempts) {
+            cancellation.setStatus(CarrierCancellationStatus.FAILED);
+            cancellation.setCompletedAt(now);
+            log.error("Cancelación de {} en {} abandonada después de {} intentos: {}",
+                    cancellation.getTrackingNumber(), cancellation.getProvider(), attempts, error);
+            return;
+        }
+
+        // Backoff exponencial con jitter completo
+        long cap = Math.min(retryMaxMs, retryBaseMs << Math.min(attempts - 1, 20));
+        long delayMs = ThreadLocalRandom.current().nextLong(retryBaseMs, Math.max(retryBaseMs, cap) + 1);
+        cancellation.setNextAttemptAt(now.plusNanos(delayMs * 1_000_000));
+    }
+
+    private void outcome(String outcome) {
+        Counter.builder("carrier.cancellations")
+                .description("Cancelaciones enviadas a proveedores por resultado")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+}
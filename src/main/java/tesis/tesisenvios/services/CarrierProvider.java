@@ -0,0 +1,58 @@
+package tesis.tesisenvios.services;
+
+import tesis.tesisenvios.dtos.CreateShipmentRequest;
+import tesis.tesisenvios.dtos.QuoteRequest;
+import tesis.tesisenvios.dtos.ShippingQuoteResponse;
+import tesis.tesisenvios.dtos.TrackingEventResponse;
+import tesis.tesisenvios.entitites.ShipmentEntity;
+
+import java.util.List;
+
+/**
+ * Contrato común para todos los proveedores de envío (carriers).
+ * Cada implementación se registra como bean y la toma {@link CarrierRegistry}.
+ */
+public interface CarrierProvider {
+
+    /**
+     * Código del proveedor, el mismo que se guarda en ShipmentEntity.provider
+     */
+    String getCarrierCode();
+
+    /**
+     * Obtener cotizaciones. Lanza excepción si el proveedor no responde,
+     * así el agregador puede distinguir una falla de una cotización real.
+     */
+    List<ShippingQuoteResponse> getQuotes(QuoteRequest request);
+
+    /**
+     * Cotizaciones de respaldo cuando no hay respuesta ni caché
+     */
+    default List<ShippingQuoteResponse> getFallbackQuotes(QuoteRequest request) {
+        return List.of();
+    }
+
+    /**
+     * Crear envío en el proveedor. Retorna el número de tracking o null si falla.
+     */
+    String createShipment(ShipmentEntity shipment, CreateShipmentRequest request);
+
+    /**
+     * Obtener eventos de tracking
+     */
+    List<TrackingEventResponse> getTrackingEvents(String trackingNumber);
+
+    /**
+     * Cancelar envío en el proveedor. Retorna false si el proveedor rechaza la cancelación;
+     * lanza excepción si no se pudo saber (el outbox de cancelaciones la reintenta).
+     */
+    boolean cancelShipment(String trackingNumber);
+
+    /**
+     * Etiqueta PDF emitida por el proveedor, o null si no emite etiquetas (se arma una propia).
+     * Lanza excepción si no se pudo obtener (se reintenta).
+     */
+    default byte[] getLabel(ShipmentEntity shipment) {
+        return null;
+    }
+}
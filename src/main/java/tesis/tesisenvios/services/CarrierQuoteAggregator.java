@@ -0,0 +1,183 @@
+package tesis.tesisenvios.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import tesis.tesisenvios.dtos.QuoteRequest;
+import tesis.tesisenvios.dtos.ShippingQuoteResponse;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Cotiza en paralelo con todos los proveedores habilitados (scatter-gather).
+ * Devuelve lo que llegó antes del deadline global; los proveedores que responden
+ * tarde igual dejan su cotización en la caché para el próximo pedido.
+ * Las consultas idénticas en curso se comparten (lotes, prewarm y pedidos concurrentes).
+ */
+@Service
+@Slf4j
+public class CarrierQuoteAggregator {
+
+    public static final Comparator<ShippingQuoteResponse> BY_PRICE_AND_DAYS = Comparator
+            .comparing(ShippingQuoteResponse::getPrice, Comparator.nullsLast(BigDecimal::compareTo))
+            .thenComparing(ShippingQuoteResponse::getEstimatedDays, Comparator.nullsLast(Integer::compareTo));
+
+    @Autowired
+    private CarrierRegistry carrierRegistry;
+
+    @Autowired
+    private QuoteCache quoteCache;
+
+    @Autowired
+    @Qualifier("carrierExecutor")
+    private ThreadPoolTaskExecutor carrierExecutor;
+
+    @Value("${shipping.quotes.deadline-ms:1500}")
+    private long deadlineMs;
+
+    // Consultas en curso por clave de caché: un prewarm y la cotización posterior comparten la misma llamada
+    private final Map<String, CompletableFuture<List<ShippingQuoteResponse>>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Obtener cotizaciones de todos los proveedores, ordenadas por precio y días
+     */
+    public List<ShippingQuoteResponse> getQuotes(QuoteRequest request) {
+        return getQuotes(List.of(request)).get(0);
+    }
+
+    /**
+     * Cotizar varios pedidos (carritos o destinos) a la vez: todas las consultas a proveedores salen
+     * juntas y se espera un único deadline. Los pedidos con la misma clave usan una sola consulta.
+     * El resultado respeta el orden de los pedidos.
+     */
+    public List<List<ShippingQuoteResponse>> getQuotes(List<QuoteRequest> requests) {
+        List<CarrierProvider> carriers = carrierRegistry.getEnabledCarriers();
+        List<List<ShippingQuoteResponse>> results = new ArrayList<>(requests.size());
+        List<Map<CarrierProvider, CompletableFuture<List<ShippingQuoteResponse>>>> pendingByRequest =
+                new ArrayList<>(requests.size());
+        List<CompletableFuture<List<ShippingQuoteResponse>>> all = new ArrayList<>();
+
+        for (QuoteRequest request : requests) {
+            List<ShippingQuoteResponse> quotes = new ArrayList<>();
+            Map<CarrierProvider, CompletableFuture<List<ShippingQuoteResponse>>> pending = new LinkedHashMap<>();
+
+            for (CarrierProvider carrier : carriers) {
+                String key = QuoteCache.buildKey(carrier.getCarrierCode(), request);
+                List<ShippingQuoteResponse> cached = quoteCache.get(key);
+
+                if (cached != null) {
+                    quotes.addAll(cached);
+                } else {
+                    CompletableFuture<List<ShippingQuoteResponse>> future = fetchAsync(carrier, request, key);
+                    pending.put(carrier, future);
+                    all.add(future);
+                }
+            }
+            results.add(quotes);
+            pendingByRequest.add(pending);
+        }
+
+        if (!all.isEmpty()) {
+            awaitDeadline(all);
+        }
+
+        for (int i = 0; i < requests.size(); i++) {
+            List<ShippingQuoteResponse> quotes = results.get(i);
+
+            for (Map.Entry<CarrierProvider, CompletableFuture<List<ShippingQuoteResponse>>> entry : pendingByRequest.get(i).entrySet()) {
+                CompletableFuture<List<ShippingQuoteResponse>> future = entry.getValue();
+
+                if (future.isDone() && !future.isCompletedExceptionally()) {
+                    quotes.addAll(future.join());
+                } else if (!future.isDone()) {
+                    log.warn("Proveedor {} no respondió dentro de {} ms, se omite",
+                            entry.getKey().getCarrierCode(), deadlineMs);
+                }
+            }
+
+            if (quotes.isEmpty()) {
+                for (CarrierProvider carrier : carriers) {
+                    quotes.addAll(carrier.getFallbackQuotes(requests.get(i)));
+                }
+            }
+
+            quotes.sort(BY_PRICE_AND_DAYS);
+        }
+        return results;
+    }
+
+    /**
+     * Precalentar la caché para un destino: lanza las consultas que falten y vuelve sin esperar.
+     * Retorna cuántas consultas se lanzaron (0 si ya estaba todo en caché o en curso).
+     */
+    public int prewarm(QuoteRequest request) {
+        int started = 0;
+        for (CarrierProvider carrier : carrierRegistry.getEnabledCarriers()) {
+            String key = QuoteCache.buildKey(carrier.getCarrierCode(), request);
+            if (quoteCache.get(key) == null && !inFlight.containsKey(key)) {
+                fetchAsync(carrier, request, key);
+                started++;
+            }
+        }
+        return started;
+    }
+
+    private CompletableFuture<List<ShippingQuoteResponse>> fetchAsync(CarrierProvider carrier,
+                                                                     QuoteRequest request, String key) {
+        CompletableFuture<List<ShippingQuoteResponse>> running = inFlight.get(key);
+        if (running != null) return running;
+
+        CompletableFuture<List<ShippingQuoteResponse>> result = new CompletableFuture<>();
+        running = inFlight.putIfAbsent(key, result);
+        if (running != null) return running;
+
+        try {
+            CompletableFuture
+                    .supplyAsync(() -> carrier.getQuotes(request), carrierExecutor)
+                    .whenComplete((quotes, error) -> {
+                        if (error == null && quotes != null && !quotes.isEmpty()) {
+                            quoteCache.put(key, quotes);
+                        } else if (error != null) {
+                            log.warn("Error cotizando con {}: {}", carrier.getCarrierCode(), error.getMessage());
+                        }
+                        inFlight.remove(key, result);
+                        if (error != null) {
+                            result.completeExceptionally(error);
+                        } else {
+                            result.complete(quotes);
+                        }
+                    });
+        } catch (Exception e) {
+            // Pool saturado: se trata igual que un proveedor que falló
+            log.warn("No se pudo consultar a {}: {}", carrier.getCarrierCode(), e.getMessage());
+            inFlight.remove(key, result);
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private void awaitDeadline(List<CompletableFuture<List<ShippingQuoteResponse>>> all) {
+        try {
+            CompletableFuture.allOf(all.toArray(new CompletableFuture[0])).get(deadlineMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.debug("Deadline de cotización alcanzado ({} ms)", deadlineMs);
+        } catch (ExecutionException e) {
+            // Las fallas individuales se resuelven al recolectar resultados
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
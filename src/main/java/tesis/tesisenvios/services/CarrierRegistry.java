@@ -0,0 +1,70 @@
+package tesis.tesisenvios.services;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Registro de proveedores de envío disponibles y habilitados
+ */
+@Component
+@Slf4j
+public class CarrierRegistry {
+
+    @Autowired
+    private List<CarrierProvider> carrierProviders;
+
+    @Value("${carriers.enabled:ANDREANI}")
+    private Set<String> enabledCarrierCodes;
+
+    private final Map<String, CarrierProvider> carriersByCode = new LinkedHashMap<>();
+    private List<CarrierProvider> enabledCarriers = List.of();
+
+    @PostConstruct
+    void init() {
+        List<CarrierProvider> enabled = new ArrayList<>();
+        for (CarrierProvider provider : carrierProviders) {
+            String code = provider.getCarrierCode().toUpperCase();
+            carriersByCode.put(code, provider);
+            if (enabledCarrierCodes.stream().anyMatch(code::equalsIgnoreCase)) {
+                enabled.add(provider);
+            }
+        }
+        enabledCarriers = List.copyOf(enabled);
+
+        log.info("Proveedores registrados: {} - habilitados: {}",
+                carriersByCode.keySet(), enabledCarriers.stream().map(CarrierProvider::getCarrierCode).toList());
+    }
+
+    /**
+     * Obtener proveedor por código (el guardado en el envío)
+     */
+    public CarrierProvider getCarrier(String carrierCode) {
+        String code = carrierCode != null ? carrierCode.toUpperCase() : AndreaniProviderService.CARRIER_CODE;
+        CarrierProvider provider = carriersByCode.get(code);
+        if (provider == null) {
+            throw new RuntimeException("Proveedor de envío no soportado: " + carrierCode);
+        }
+        return provider;
+    }
+
+    /**
+     * Proveedores habilitados para cotizar y crear envíos
+     */
+    public List<CarrierProvider> getEnabledCarriers() {
+        return enabledCarriers;
+    }
+
+    public boolean isEnabled(String carrierCode) {
+        return carrierCode != null && enabledCarriers.stream()
+                .anyMatch(provider -> provider.getCarrierCode().equalsIgnoreCase(carrierCode));
+    }
+}
@@ -0,0 +1,234 @@
+package tesis.tesisenvios.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import tesis.tesisenvios.dtos.IdempotencyStatus;
+import tesis.tesisenvios.entitites.IdempotencyKeyEntity;
+import tesis.tesisenvios.exceptions.IdempotencyConflictException;
+import tesis.tesisenvios.repositories.IdempotencyKeyRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Ejecución idempotente de operaciones con efectos en el proveedor (creación de envíos).
+ * Dos niveles:
+ * - En memoria: los duplicados concurrentes en el mismo nodo esperan el resultado del primero.
+ * - En la base: una fila por clave (PK) reserva la ejecución en todo el cluster; los reintentos
+ *   posteriores reproducen la respuesta guardada sin volver a llamar al proveedor.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 100;
+    private static final String CLEANUP_LOCK = "idempotency-keys-cleanup";
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private SchedulerLockService schedulerLockService;
+
+    @Autowired
+    private ClusterNode clusterNode;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${idempotency.wait-timeout-ms:10000}")
+    private long waitTimeoutMs;
+
+    @Value("${idempotency.poll-ms:200}")
+    private long pollMs;
+
+    @Value("${idempotency.lock-seconds:60}")
+    private long lockSeconds;
+
+    @Value("${idempotency.retention-hours:24}")
+    private long retentionHours;
+
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Ejecutar la acción una sola vez por clave. Sin Idempotency-Key se usa el código de orden.
+     */
+    public <T> T execute(String idempotencyKey, String orderCode, Object request, Class<T> responseType,
+                         Supplier<T> action) {
+        String key = resolveKey(idempotencyKey, orderCode);
+        String requestHash = hash(request);
+
+        InFlight mine = new InFlight(requestHash, new CompletableFuture<>());
+        InFlight running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            return responseType.cast(awaitInFlight(key, requestHash, running));
+        }
+
+        try {
+            T result = executeReserved(key, orderCode, requestHash, responseType, action);
+            mine.result.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private <T> T executeReserved(String key, String orderCode, String requestHash, Class<T> responseType,
+                                  Supplier<T> action) {
+        String token = clusterNode.getNodeId() + ":" + UUID.randomUUID().toString().substring(0, 8);
+        long deadline = System.currentTimeMillis() + waitTimeoutMs;
+
+        while (true) {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime until = now.plusSeconds(lockSeconds);
+
+            if (tryReserve(key, orderCode, requestHash, token, now, until)) break;
+
+            IdempotencyKeyEntity existing = idempotencyKeyRepository.findById(key).orElse(null);
+            if (existing != null) {
+                if (!requestHash.equals(existing.getRequestHash())) {
+                    throw new IdempotencyConflictException("La clave de idempotencia ya se usó con otro pedido", true);
+                }
+                if (existing.getStatus() == IdempotencyStatus.COMPLETED) {
+                    log.info("Reintento idempotente de {}: se reproduce la respuesta guardada", key);
+                    return fromJson(existing.getResponseBody(), responseType);
+                }
+                if (idempotencyKeyRepository.takeOver(key, token, now, until) == 1) break;
+            }
+
+            if (System.currentTimeMillis() >= deadline) {
+                throw new IdempotencyConflictException("Hay un pedido en curso con la misma clave de idempotencia", false);
+            }
+            sleep(pollMs);
+        }
+
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            idempotencyKeyRepository.finish(key, token, IdempotencyStatus.FAILED, null, LocalDateTime.now());
+            throw e;
+        }
+
+        if (idempotencyKeyRepository.finish(key, token, IdempotencyStatus.COMPLETED, toJson(result), LocalDateTime.now()) == 0) {
+            log.warn("La reserva de idempotencia {} venció antes de terminar la operación", key);
+        }
+        return result;
+    }
+
+    /**
+     * Limpieza de claves viejas (solo el líder)
+     */
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-interval-ms:3600000}",
+            initialDelayString = "${idempotency.cleanup-initial-delay-ms:300000}")
+    public void cleanup() {
+        if (!schedulerLockService.tryAcquire(CLEANUP_LOCK, Duration.ofMinutes(10))) return;
+
+        int deleted = idempotencyKeyRepository.deleteCreatedBefore(LocalDateTime.now().minusHours(retentionHours));
+        if (deleted > 0) {
+            log.info("Claves de idempotencia eliminadas: {}", deleted);
+        }
+    }
+
+    // ================================
+    // MÉTODOS AUXILIARES
+    // ================================
+
+    private boolean tryReserve(String key, String orderCode, String requestHash, String token,
+                               LocalDateTime now, LocalDateTime until) {
+        try {
+            return idempotencyKeyRepository.reserve(key, orderCode, requestHash,
+                    IdempotencyStatus.IN_PROGRESS, token, until, now) == 1;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    private Object awaitInFlight(String key, String requestHash, InFlight running) {
+        if (!running.requestHash.equals(requestHash)) {
+            throw new IdempotencyConflictException("La clave de idempotencia ya se usó con otro pedido", true);
+        }
+
+        try {
+            log.info("Pedido duplicado concurrente para {}: esperando el resultado del primero", key);
+            return running.result.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IdempotencyConflictException("Hay un pedido en curso con la misma clave de idempotencia", false);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyConflictException("Espera interrumpida", false);
+        }
+    }
+
+    private static String resolveKey(String idempotencyKey, String orderCode) {
+        String key = idempotencyKey != null && !idempotencyKey.isBlank()
+                ? idempotencyKey.trim()
+                : "order:" + orderCode;
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key no puede superar " + MAX_KEY_LENGTH + " caracteres");
+        }
+        return key;
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(objectMapper.writeValueAsString(request).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new RuntimeException("Error calculando hash del pedido: " + e.getMessage(), e);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Error serializando respuesta idempotente", e);
+        }
+    }
+
+    private <T> T fromJson(String json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Error leyendo respuesta idempotente", e);
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyConflictException("Espera interrumpida", false);
+        }
+    }
+
+    private record InFlight(String requestHash, CompletableFuture<Object> result) {
+    }
+}
@@ -0,0 +1,103 @@
+package tesis.tesisenvios.services;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.springframework.stereotype.Component;
+import tesis.tesisenvios.entitites.ShipmentAddress;
+import tesis.tesisenvios.entitites.ShipmentEntity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Etiqueta propia en PDF (A6) para proveedores que no emiten etiquetas y para el mock.
+ * Solo texto con fuentes estándar: no embebe fuentes ni imágenes y pesa pocos KB.
+ */
+@Component
+public class LabelRenderer {
+
+    private static final float MM = 72 / 25.4f;
+    private static final PDRectangle A6 = new PDRectangle(105 * MM, 148 * MM);
+
+    private static final PDType1Font BOLD = new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD);
+    private static final PDType1Font REGULAR = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+
+    public byte[] render(ShipmentEntity shipment) {
+        try (PDDocument document = new PDDocument();
+             ByteArrayOutputStream out = new ByteArrayOutputStream(8 * 1024)) {
+            PDPage page = new PDPage(A6);
+            document.addPage(page);
+
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                float x = 8 * MM;
+                float y = A6.getHeight() - 14 * MM;
+
+                y = line(content, BOLD, 16, x, y, safe(shipment.getProvider()) + "  " + safe(shipment.getServiceType()));
+                y = line(content, BOLD, 20, x, y - 6 * MM, safe(shipment.getTrackingNumber()));
+                y = line(content, REGULAR, 10, x, y, "Orden: " + safe(shipment.getOrderCode()));
+
+                y -= 6 * MM;
+                y = line(content, BOLD, 11, x, y, "DESTINATARIO");
+                y = line(content, REGULAR, 11, x, y, safe(shipment.getRecipientName()));
+                for (String addressLine : addressLines(shipment.getShippingAddress())) {
+                    y = line(content, REGULAR, 11, x, y, addressLine);
+                }
+
+                y -= 6 * MM;
+                line(content, REGULAR, 10, x, y, "Peso: " + (shipment.getWeightKg() != null
+                        ? shipment.getWeightKg().toPlainString() + " kg" : "-"));
+            }
+
+            document.save(out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error generando etiqueta para " + shipment.getOrderCode(), e);
+        }
+    }
+
+    private static float line(PDPageContentStream content, PDType1Font font, float size, float x, float y, String text)
+            throws IOException {
+        content.beginText();
+        content.setFont(font, size);
+        content.newLineAtOffset(x, y);
+        content.showText(text);
+        content.endText();
+        return y - size * 1.35f;
+    }
+
+    private static List<String> addressLines(ShipmentAddress address) {
+        List<String> lines = new ArrayList<>();
+        if (address == null) return lines;
+
+        String street = safe(address.getStreet()) + " " + safe(address.getStreetNumber());
+        if (address.getApartment() != null && !address.getApartment().isBlank()) {
+            street += " " + safe(address.getApartment());
+        }
+        lines.add(street.trim());
+        lines.add(safe(address.getCity()) + ", " + safe(address.getProvince()));
+        lines.add("CP " + safe(address.getPostalCode()));
+        return lines;
+    }
+
+    /**
+     * Las fuentes estándar usan WinAnsi: cubre castellano, lo demás se reemplaza por '?'
+     */
+    private static String safe(String text) {
+        if (text == null) return "";
+        CharsetEncoder encoder = Charset.forName("windows-1252").newEncoder();
+        StringBuilder sb = new StringBuilder(text.length());
+        for (char c : text.toCharArray()) {
+            sb.append(encoder.canEncode(c) && !Character.isISOControl(c) ? c : '?');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,326 @@
+package tesis.tesisenvios.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.multipdf.PDFMergerUtility;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tesis.tesisenvios.dtos.LabelStatus;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.entitites.ShipmentEntity;
+import tesis.tesisenvios.entitites.ShipmentLabelEntity;
+import tesis.tesisenvios.events.ShipmentCreatedEvent;
+import tesis.tesisenvios.repositories.ShipmentLabelRepository;
+import tesis.tesisenvios.repositories.ShipmentRepository;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Etiquetas de envío.
+ * Al crear un envío queda una etiqueta pendiente en la misma transacción; después del commit se
+ * descarga del proveedor (o se arma una propia si no emite) en un pool acotado y el PDF queda en
+ * el almacén direccionado por contenido. Un barrido en el líder retoma las pendientes (pool lleno,
+ * reinicios, reintentos). Las etiquetas de una ola de picking se pueden unir en un solo PDF.
+ */
+@Service
+@Slf4j
+public class LabelService {
+
+    private static final String SWEEP_LOCK = "label-sweep";
+    private static final String CLEANUP_LOCK = "label-merged-cleanup";
+
+    @Autowired
+    private ShipmentLabelRepository labelRepository;
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private CarrierRegistry carrierRegistry;
+
+    @Autowired
+    private LabelRenderer labelRenderer;
+
+    @Autowired
+    private LabelStorage labelStorage;
+
+    @Autowired
+    private SchedulerLockService schedulerLockService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    @Qualifier("labelExecutor")
+    private ThreadPoolTaskExecutor labelExecutor;
+
+    @Value("${labels.enabled:true}")
+    private boolean enabled;
+
+    @Value("${labels.claim-seconds:120}")
+    private long claimSeconds;
+
+    @Value("${labels.sweep-batch-size:100}")
+    private int sweepBatchSize;
+
+    @Value("${labels.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${labels.retry-base-ms:10000}")
+    private long retryBaseMs;
+
+    @Value("${labels.retry-max-ms:900000}")
+    private long retryMaxMs;
+
+    @Value("${labels.merge-max:200}")
+    private int mergeMax;
+
+    @Value("${labels.merged-retention-hours:24}")
+    private long mergedRetentionHours;
+
+    /**
+     * Registrar la etiqueta pendiente en la transacción que crea el envío y lanzarla al confirmar
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onShipmentCreated(ShipmentCreatedEvent event) {
+        if (!enabled || event.getTrackingNumber() == null || event.getStatus() != ShipmentStatus.CREATED) return;
+
+        Optional<ShipmentEntity> shipment = shipmentRepository.findById(event.getShipmentId());
+        if (shipment.isEmpty()) return;
+
+        LocalDateTime now = LocalDateTime.now();
+        ShipmentLabelEntity label = new ShipmentLabelEntity();
+        label.setShipmentId(event.getShipmentId());
+        label.setOrderCode(event.getOrderCode());
+        label.setTrackingNumber(event.getTrackingNumber());
+        label.setProvider(shipment.get().getProvider());
+        label.setStatus(LabelStatus.PENDING);
+        label.setNextAttemptAt(now);
+        label.setCreatedAt(now);
+        Long labelId = labelRepository.save(label).getId();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(labelId);
+                }
+            });
+        } else {
+            submit(labelId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${labels.sweep-interval-ms:30000}",
+            initialDelayString = "${labels.sweep-initial-delay-ms:60000}")
+    public void sweep() {
+        if (!enabled || !schedulerLockService.tryAcquire(SWEEP_LOCK, Duration.ofMinutes(5))) return;
+
+        for (Long labelId : labelRepository.findDueIds(LocalDateTime.now(), PageRequest.of(0, sweepBatchSize))) {
+            if (!submit(labelId)) break;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${labels.cleanup-interval-ms:3600000}",
+            initialDelayString = "${labels.cleanup-initial-delay-ms:600000}")
+    public void cleanupMerged() {
+        // El almacén es compartido: purga solo el líder
+        if (!schedulerLockService.tryAcquire(CLEANUP_LOCK, Duration.ofMinutes(30))) return;
+
+        int deleted = labelStorage.purgeMerged(Duration.ofHours(mergedRetentionHours));
+        if (deleted > 0) {
+            log.info("Etiquetas: {} merges sin uso eliminados", deleted);
+        }
+    }
+
+    public Optional<ShipmentLabelEntity> findByOrderCode(String orderCode) {
+        return labelRepository.findByOrderCode(orderCode);
+    }
+
+    /**
+     * Archivo de una etiqueta READY. Si falta en el almacén (volumen restaurado, borrado a mano) la
+     * etiqueta vuelve a PENDING para descargarla de nuevo y se retorna vacío.
+     */
+    public Optional<Path> readyFile(ShipmentLabelEntity label) {
+        if (label.getStatus() == LabelStatus.READY && labelStorage.exists(label.getContentHash())) {
+            return Optional.of(labelStorage.path(label.getContentHash()));
+        }
+        if (label.getStatus() == LabelStatus.READY) {
+            requeueMissing(label);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Unir en un PDF las etiquetas de una ola de picking, en el orden pedido. La clave del resultado
+     * sale de los hashes de las etiquetas: la misma ola no se vuelve a unir mientras el merge exista.
+     * Si alguna etiqueta no está lista no se une nada y se informan las faltantes.
+     */
+    public MergeResult merge(List<String> orderCodes) {
+        List<String> codes = new ArrayList<>(new LinkedHashSet<>(orderCodes));
+        if (codes.size() > mergeMax) {
+            throw new IllegalArgumentException("Máximo " + mergeMax + " etiquetas por merge");
+        }
+
+        Map<String, ShipmentLabelEntity> labels = labelRepository.findByOrderCodeIn(codes).stream()
+                .collect(Collectors.toMap(ShipmentLabelEntity::getOrderCode, Function.identity(), (a, b) -> a));
+
+        List<String> missing = new ArrayList<>();
+        List<Path> sources = new ArrayList<>(codes.size());
+        MessageDigest digest = LabelStorage.digest();
+        for (String code : codes) {
+            ShipmentLabelEntity label = labels.get(code);
+            Optional<Path> file = label != null ? readyFile(label) : Optional.empty();
+            if (file.isEmpty()) {
+                missing.add(code);
+                continue;
+            }
+            sources.add(file.get());
+            digest.update(label.getContentHash().getBytes(StandardCharsets.US_ASCII));
+        }
+        if (!missing.isEmpty()) {
+            return new MergeResult(null, null, missing);
+        }
+
+        String key = HexFormat.of().formatHex(digest.digest());
+        Path merged = labelStorage.mergedPath(key);
+        if (Files.exists(merged)) {
+            return new MergeResult(merged, key, List.of());
+        }
+
+        Path tmp = labelStorage.newTempFile();
+        try {
+            PDFMergerUtility merger = new PDFMergerUtility();
+            for (Path source : sources) {
+                merger.addSource(source.toFile());
+            }
+            merger.setDestinationFileName(tmp.toString());
+            // Páginas en archivos temporales, no en el heap: una ola grande no compite por memoria
+            merger.mergeDocuments(IOUtils.createTempFileOnlyStreamCache());
+        } catch (IOException e) {
+            deleteQuietly(tmp);
+            throw new RuntimeException("Error uniendo " + sources.size() + " etiquetas: " + e.getMessage(), e);
+        }
+
+        return new MergeResult(labelStorage.publishMerged(tmp, key), key, List.of());
+    }
+
+    // ================================
+    // MÉTODOS AUXILIARES
+    // ================================
+
+    /**
+     * Encolar en el pool de etiquetas; false si está lleno (lo retoma el barrido)
+     */
+    private boolean submit(Long labelId) {
+        try {
+            labelExecutor.execute(() -> process(labelId));
+            return true;
+        } catch (TaskRejectedException e) {
+            log.debug("Pool de etiquetas lleno, la etiqueta {} queda para el barrido", labelId);
+            return false;
+        }
+    }
+
+    private void requeueMissing(ShipmentLabelEntity label) {
+        Integer reset = transactionTemplate.execute(status ->
+                labelRepository.requeueMissing(label.getId(), label.getContentHash(), LocalDateTime.now()));
+        if (reset != null && reset > 0) {
+            log.warn("Falta el archivo de la etiqueta de {} ({}), se vuelve a descargar",
+                    label.getOrderCode(), label.getContentHash());
+            submit(label.getId());
+        }
+    }
+
+    private void process(Long labelId) {
+        LocalDateTime now = LocalDateTime.now();
+        Integer claimed = transactionTemplate.execute(status ->
+                labelRepository.claim(labelId, now, now.plusSeconds(claimSeconds)));
+        if (claimed == null || claimed == 0) return; // La tomó otro nodo o ya no está pendiente
+
+        ShipmentLabelEntity label = labelRepository.findById(labelId).orElse(null);
+        if (label == null) return;
+
+        try {
+            ShipmentEntity shipment = shipmentRepository.findById(label.getShipmentId())
+                    .orElseThrow(() -> new IllegalStateException("Envío inexistente: " + label.getShipmentId()));
+
+            byte[] pdf = carrierRegistry.getCarrier(label.getProvider()).getLabel(shipment);
+            boolean local = pdf == null;
+            if (local) {
+                pdf = labelRenderer.render(shipment);
+            }
+
+            label.setContentHash(labelStorage.store(pdf));
+            label.setSizeBytes((long) pdf.length);
+            label.setRenderedLocally(local);
+            label.setStatus(LabelStatus.READY);
+            label.setReadyAt(LocalDateTime.now());
+            label.setAttempts(label.getAttempts() + 1);
+            label.setLastError(null);
+        } catch (Exception e) {
+            log.warn("Error obteniendo etiqueta de {}: {}", label.getTrackingNumber(), e.getMessage());
+            scheduleRetry(label, e.getMessage(), LocalDateTime.now());
+        }
+
+        transactionTemplate.executeWithoutResult(status -> labelRepository.save(label));
+    }
+
+    private void scheduleRetry(ShipmentLabelEntity label, String error, LocalDateTime now) {
+        int attempts = label.getAttempts() + 1;
+        label.setAttempts(attempts);
+        label.setLastError(error != null && error.length() > 500 ? error.substring(0, 500) : error);
+
+        if (attempts >= maxAttempts) {
+            label.setStatus(LabelStatus.FAILED);
+            log.error("Etiqueta de {} abandonada después de {} intentos: {}",
+                    label.getTrackingNumber(), attempts, error);
+            return;
+        }
+
+        // Backoff exponencial con jitter completo
+        long cap = Math.min(retryMaxMs, retryBaseMs << Math.min(attempts - 1, 20));
+        long delayMs = ThreadLocalRandom.current().nextLong(retryBaseMs, Math.max(retryBaseMs, cap) + 1);
+        label.setNextAttemptAt(now.plusNanos(delayMs * 1_000_000));
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // Queda en tmp; no afecta al almacén
+        }
+    }
+
+    public record MergeResult(Path file, String key, List<String> missingOrderCodes) {
+        public boolean isComplete() {
+            return missingOrderCodes.isEmpty();
+        }
+    }
+}
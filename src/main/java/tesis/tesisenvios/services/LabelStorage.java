@@ -0,0 +1,162 @@
+package tesis.tesisenvios.services;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * Almacén de etiquetas en disco direccionado por contenido: cada PDF se guarda como
+ * {raíz}/ab/cd/{sha256}.pdf. El mismo contenido se guarda una sola vez y un archivo nunca
+ * cambia después de escrito (se escribe aparte y se mueve atómicamente), así se puede
+ * servir con sendfile y cachear para siempre.
+ * <p>
+ * La raíz ({@code labels.storage-dir}, obligatoria) tiene que ser un volumen compartido por todas
+ * las réplicas: la etiqueta la guarda el nodo que la descargó y la sirve cualquiera.
+ */
+@Component
+@Slf4j
+public class LabelStorage {
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    @Value("${labels.storage-dir}")
+    private Path root;
+
+    private Path tmpDir;
+
+    @PostConstruct
+    void init() throws IOException {
+        tmpDir = root.resolve("tmp");
+        Files.createDirectories(tmpDir);
+        log.info("Almacén de etiquetas en {}", root.toAbsolutePath());
+    }
+
+    /**
+     * Guardar un PDF y retornar su hash (si ya existía no se vuelve a escribir)
+     */
+    public String store(byte[] content) {
+        String hash = sha256(content);
+        Path target = path(hash);
+        if (Files.exists(target)) return hash;
+
+        try {
+            Path tmp = Files.createTempFile(tmpDir, hash, ".part");
+            Files.write(tmp, content);
+            publish(tmp, target);
+            return hash;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error guardando etiqueta " + hash, e);
+        }
+    }
+
+    /**
+     * Archivo temporal para armar una salida grande (merge) sin pasar por memoria
+     */
+    public Path newTempFile() {
+        try {
+            return Files.createTempFile(tmpDir, "merge", ".part");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error creando archivo temporal de etiquetas", e);
+        }
+    }
+
+    /**
+     * Publicar un merge ya escrito bajo su clave (derivada de las etiquetas que contiene).
+     * Los merges van aparte porque se pueden purgar: se regeneran desde las etiquetas.
+     */
+    public Path publishMerged(Path tmp, String key) {
+        Path target = mergedPath(key);
+        try {
+            if (Files.exists(target)) {
+                Files.deleteIfExists(tmp);
+            } else {
+                publish(tmp, target);
+            }
+            return target;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error publicando merge de etiquetas " + key, e);
+        }
+    }
+
+    public Path mergedPath(String key) {
+        checkHash(key);
+        return root.resolve("merged").resolve(key + ".pdf");
+    }
+
+    /**
+     * Borrar merges sin uso (por fecha de modificación). Retorna cuántos se borraron.
+     */
+    public int purgeMerged(Duration olderThan) {
+        Path mergedDir = root.resolve("merged");
+        if (!Files.isDirectory(mergedDir)) return 0;
+
+        FileTime cutoff = FileTime.from(Instant.now().minus(olderThan));
+        int deleted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(mergedDir, "*.pdf")) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).compareTo(cutoff) < 0 && Files.deleteIfExists(file)) {
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Error purgando merges de etiquetas: {}", e.getMessage());
+        }
+        return deleted;
+    }
+
+    public Path path(String hash) {
+        checkHash(hash);
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash + ".pdf");
+    }
+
+    public boolean exists(String hash) {
+        return Files.exists(path(hash));
+    }
+
+    public static String sha256(byte[] content) {
+        return HexFormat.of().formatHex(digest().digest(content));
+    }
+
+    public static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void checkHash(String hash) {
+        if (hash == null || !HASH.matcher(hash).matches()) {
+            throw new IllegalArgumentException("Hash de etiqueta inválido: " + hash);
+        }
+    }
+
+    private void publish(Path tmp, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Otro hilo escribió el mismo contenido: da igual cuál quede
+            Files.deleteIfExists(tmp);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package tesis.tesisenvios.services;
+
+import tesis.tesisenvios.dtos.NotificationChannelType;
+import tesis.tesisenvios.entitites.NotificationOutboxEntity;
+import tesis.tesisenvios.entitites.ShipmentEntity;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Canal de salida de notificaciones. Cada implementación se registra como bean
+ * y la toma {@link NotificationDispatcher}.
+ */
+public interface NotificationChannel {
+
+    NotificationChannelType getType();
+
+    /**
+     * Indica si el canal está configurado (servidor SMTP, URL del webhook, ...)
+     */
+    boolean isEnabled();
+
+    /**
+     * Destinatario de la notificación de un envío en este canal, o null si no corresponde
+     */
+    String recipientFor(ShipmentEntity shipment);
+
+    /**
+     * Enviar un lote. Retorna los ids que fallaron con su error;
+     * una excepción significa que falló el lote completo.
+     */
+    Map<Long, String> send(List<NotificationOutboxEntity> batch);
+}
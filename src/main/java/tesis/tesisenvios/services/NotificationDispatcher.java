@@ -0,0 +1,214 @@
+package tesis.tesisenvios.services;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import tesis.tesisenvios.dtos.NotificationChannelType;
+import tesis.tesisenvios.dtos.NotificationStatus;
+import tesis.tesisenvios.entitites.NotificationOutboxEntity;
+import tesis.tesisenvios.repositories.NotificationOutboxRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Envío de las notificaciones del outbox (solo en el líder).
+ * Toma las pendientes vencidas de cada canal, las manda en lotes en el pool de notificaciones
+ * con un tope de lotes simultáneos por canal (el SMTP y el webhook no se saturan entre sí)
+ * y registra el resultado: enviadas, o reintento con backoff exponencial hasta agotar intentos.
+ */
+@Service
+@Slf4j
+public class NotificationDispatcher {
+
+    private static final String DISPATCH_LOCK = "notification-dispatch";
+
+    @Autowired
+    private NotificationOutboxRepository outboxRepository;
+
+    @Autowired
+    private List<NotificationChannel> channels;
+
+    @Autowired
+    private SchedulerLockService schedulerLockService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    @Qualifier("notificationExecutor")
+    private ThreadPoolTaskExecutor notificationExecutor;
+
+    @Value("${notifications.email.batch-size:50}")
+    private int emailBatchSize;
+
+    @Value("${notifications.email.max-concurrent:2}")
+    private int emailMaxConcurrent;
+
+    @Value("${notifications.webhook.batch-size:100}")
+    private int webhookBatchSize;
+
+    @Value("${notifications.webhook.max-concurrent:4}")
+    private int webhookMaxConcurrent;
+
+    @Value("${notifications.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Value("${notifications.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${notifications.retry-base-ms:30000}")
+    private long retryBaseMs;
+
+    @Value("${notifications.retry-max-ms:3600000}")
+    private long retryMaxMs;
+
+    @Value("${notifications.retention-days:7}")
+    private long retentionDays;
+
+    private final Map<NotificationChannelType, Semaphore> permits = new EnumMap<>(NotificationChannelType.class);
+
+    @PostConstruct
+    void init() {
+        permits.put(NotificationChannelType.EMAIL, new Semaphore(emailMaxConcurrent));
+        permits.put(NotificationChannelType.WEBHOOK, new Semaphore(webhookMaxConcurrent));
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.dispatch-interval-ms:2000}")
+    public void scheduledDispatch() {
+        if (!schedulerLockService.tryAcquire(DISPATCH_LOCK, Duration.ofMinutes(5))) return;
+        dispatch();
+    }
+
+    /**
+     * Enviar las notificaciones vencidas de todos los canales. Retorna cuántas se enviaron.
+     */
+    public int dispatch() {
+        List<CompletableFuture<Integer>> batches = new ArrayList<>();
+
+        for (NotificationChannel channel : channels) {
+            if (!channel.isEnabled()) continue;
+
+            int batchSize = channel.getType() == NotificationChannelType.EMAIL ? emailBatchSize : webhookBatchSize;
+            List<NotificationOutboxEntity> due = outboxRepository.findDue(channel.getType(), LocalDateTime.now(),
+                    PageRequest.of(0, batchSize * maxBatchesPerRun));
+
+            for (int from = 0; from < due.size(); from += batchSize) {
+                List<NotificationOutboxEntity> batch = due.subList(from, Math.min(from + batchSize, due.size()));
+                batches.add(submit(channel, batch));
+            }
+        }
+
+        // Esperar los lotes de esta corrida: la próxima no debe tomar filas que siguen en vuelo
+        return batches.stream().mapToInt(CompletableFuture::join).sum();
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.cleanup-interval-ms:3600000}",
+            initialDelayString = "${notifications.cleanup-initial-delay-ms:600000}")
+    public void cleanup() {
+        if (!schedulerLockService.tryAcquire(DISPATCH_LOCK, Duration.ofMinutes(5))) return;
+
+        Integer deleted = transactionTemplate.execute(status -> outboxRepository.deleteFinishedBefore(
+                List.of(NotificationStatus.SENT, NotificationStatus.FAILED),
+                LocalDateTime.now().minusDays(retentionDays)));
+        if (deleted != null && deleted > 0) {
+            log.info("Outbox de notificaciones: {} filas terminadas eliminadas", deleted);
+        }
+    }
+
+    // ================================
+    // MÉTODOS AUXILIARES
+    // ================================
+
+    private CompletableFuture<Integer> submit(NotificationChannel channel, List<NotificationOutboxEntity> batch) {
+        Semaphore channelPermits = permits.get(channel.getType());
+        try {
+            channelPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.completedFuture(0);
+        }
+
+        try {
+            return CompletableFuture
+                    .supplyAsync(() -> sendBatch(channel, batch), notificationExecutor)
+                    .whenComplete((sent, error) -> channelPermits.release());
+        } catch (Exception e) {
+            // Pool saturado: el lote queda pendiente para la próxima corrida
+            channelPermits.release();
+            log.warn("No se pudo encolar un lote de {} notificaciones {}: {}", batch.size(), channel.getType(), e.getMessage());
+            return CompletableFuture.completedFuture(0);
+        }
+    }
+
+    private int sendBatch(NotificationChannel channel, List<NotificationOutboxEntity> batch) {
+        Map<Long, String> failures;
+        try {
+            failures = channel.send(batch);
+        } catch (Exception e) {
+            log.warn("Falló el lote de {} notificaciones {}: {}", batch.size(), channel.getType(), e.getMessage());
+            failures = batch.stream().collect(Collectors.toMap(NotificationOutboxEntity::getId,
+                    n -> String.valueOf(e.getMessage())));
+        }
+
+        Map<Long, String> failed = failures;
+        List<Long> sent = batch.stream()
+                .map(NotificationOutboxEntity::getId)
+                .filter(id -> !failed.containsKey(id))
+                .collect(Collectors.toList());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            if (!sent.isEmpty()) {
+                outboxRepository.markSent(sent, now);
+            }
+            List<NotificationOutboxEntity> retries = new ArrayList<>();
+            for (NotificationOutboxEntity notification : batch) {
+                String error = failed.get(notification.getId());
+                if (error != null) {
+                    scheduleRetry(notification, error, now);
+                    retries.add(notification);
+                }
+            }
+            outboxRepository.saveAll(retries);
+        });
+
+        if (!failed.isEmpty()) {
+            log.info("Notificaciones {}: {} enviadas, {} con error", channel.getType(), sent.size(), failed.size());
+        }
+        return sent.size();
+    }
+
+    private void scheduleRetry(NotificationOutboxEntity notification, String error, LocalDateTime now) {
+        int attempts = notification.getAttempts() + 1;
+        notification.setAttempts(attempts);
+        notification.setLastError(error != null && error.length() > 500 ? error.substring(0, 500) : error);
+
+        if (attempts >= maxAttempts) {
+            notification.setStatus(NotificationStatus.FAILED);
+            log.warn("Notificación {} a {} descartada después de {} intentos: {}",
+                    notification.getId(), notification.getRecipient(), attempts, error);
+            return;
+        }
+
+        // Backoff exponencial con jitter completo
+        long cap = Math.min(retryMaxMs, retryBaseMs << Math.min(attempts - 1, 20));
+        long delayMs = ThreadLocalRandom.current().nextLong(retryBaseMs, Math.max(retryBaseMs, cap) + 1);
+        notification.setNextAttemptAt(now.plusNanos(delayMs * 1_000_000));
+    }
+}
@@ -0,0 +1,223 @@
+package tesis.tesisenvios.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import tesis.tesisenvios.dtos.NotificationStatus;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.entitites.NotificationOutboxEntity;
+import tesis.tesisenvios.entitites.ShipmentEntity;
+import tesis.tesisenvios.events.ShipmentStatusChangedEvent;
+import tesis.tesisenvios.repositories.NotificationOutboxRepository;
+import tesis.tesisenvios.repositories.ShipmentRepository;
+
+import jakarta.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Entrada del subsistema de notificaciones.
+ * Las transiciones (después del commit) solo se anotan en memoria, agrupadas por envío:
+ * el barrido de tracking no espera ni una consulta. Cada cierto tiempo las que cumplieron
+ * la ventana de agrupamiento pasan al outbox en un solo lote, una fila por canal;
+ * desde ahí las envía {@link NotificationDispatcher}.
+ * La cola es acotada: si se llena, la transición se guarda directo en el outbox
+ * (más lento, pero no se pierde).
+ */
+@Service
+@Slf4j
+public class NotificationService {
+
+    @Autowired
+    private NotificationOutboxRepository outboxRepository;
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private List<NotificationChannel> channels;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${notifications.enabled:true}")
+    private boolean enabled;
+
+    @Value("${notifications.statuses:PICKED_UP,IN_TRANSIT,OUT_FOR_DELIVERY,DELIVERED,FAILED_DELIVERY,RETURNED,CANCELLED}")
+    private Set<ShipmentStatus> notifiedStatuses;
+
+    @Value("${notifications.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${notifications.coalesce-window-ms:5000}")
+    private long coalesceWindowMs;
+
+    // Transiciones agrupadas por envío, pendientes de pasar al outbox
+    private final Map<String, PendingNotification> pending = new ConcurrentHashMap<>();
+
+    private TransactionTemplate newTransaction;
+
+    @PostConstruct
+    void init() {
+        newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(ShipmentStatusChangedEvent event) {
+        if (!enabled) return;
+
+        boolean[] queued = {true};
+        pending.compute(event.getShipmentId(), (id, current) -> {
+            if (current != null) return current.merge(event);
+            if (pending.size() >= queueCapacity) {
+                queued[0] = false;
+                return null;
+            }
+            return new PendingNotification(event);
+        });
+
+        if (!queued[0]) {
+            log.warn("Cola de notificaciones llena ({}), se guarda directo en el outbox: envío {}",
+                    queueCapacity, event.getShipmentId());
+            persist(List.of(new PendingNotification(event)));
+        }
+    }
+
+    /**
+     * Pasar al outbox las notificaciones cuya ventana de agrupamiento ya venció.
+     * Corre en todas las réplicas (cada una tiene sus propias transiciones en memoria).
+     */
+    @Scheduled(fixedDelayString = "${notifications.flush-interval-ms:1000}")
+    public int flush() {
+        if (pending.isEmpty()) return 0;
+
+        long cutoff = System.currentTimeMillis() - coalesceWindowMs;
+        List<PendingNotification> due = new ArrayList<>();
+        for (PendingNotification notification : pending.values()) {
+            if (notification.firstAt <= cutoff && pending.remove(notification.shipmentId, notification)) {
+                due.add(notification);
+            }
+        }
+        if (due.isEmpty()) return 0;
+
+        try {
+            return persist(due);
+        } catch (Exception e) {
+            log.error("Error guardando {} notificaciones en el outbox, se reintenta: {}", due.size(), e.getMessage());
+            // Volver a la cola sin pisar transiciones que hayan llegado mientras tanto
+            for (PendingNotification notification : due) {
+                pending.merge(notification.shipmentId, notification, (newer, older) -> older.absorb(newer));
+            }
+            return 0;
+        }
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    // ================================
+    // MÉTODOS AUXILIARES
+    // ================================
+
+    private int persist(List<PendingNotification> notifications) {
+        Integer saved = newTransaction.execute(status -> {
+            Map<String, ShipmentEntity> shipments = shipmentRepository
+                    .findAllById(notifications.stream().map(n -> n.shipmentId).collect(Collectors.toSet()))
+                    .stream()
+                    .collect(Collectors.toMap(ShipmentEntity::getId, Function.identity()));
+
+            LocalDateTime now = LocalDateTime.now();
+            List<NotificationOutboxEntity> rows = new ArrayList<>();
+
+            for (PendingNotification notification : notifications) {
+                ShipmentEntity shipment = shipments.get(notification.shipmentId);
+                if (shipment == null || !notifiedStatuses.contains(notification.toStatus)) continue;
+
+                for (NotificationChannel channel : channels) {
+                    if (!channel.isEnabled()) continue;
+                    String recipient = channel.recipientFor(shipment);
+                    if (recipient == null) continue;
+
+                    rows.add(toOutbox(notification, channel, recipient, shipment, now));
+                }
+            }
+
+            outboxRepository.saveAll(rows);
+            return rows.size();
+        });
+        return saved != null ? saved : 0;
+    }
+
+    private NotificationOutboxEntity toOutbox(PendingNotification notification, NotificationChannel channel,
+                                              String recipient, ShipmentEntity shipment, LocalDateTime now) {
+        NotificationOutboxEntity row = new NotificationOutboxEntity();
+        row.setChannel(channel.getType());
+        row.setRecipient(recipient);
+        row.setShipmentId(shipment.getId());
+        row.setOrderCode(shipment.getOrderCode());
+        row.setTrackingNumber(shipment.getTrackingNumber());
+        row.setRecipientName(shipment.getRecipientName());
+        row.setPreviousStatus(notification.fromStatus);
+        row.setShipmentStatus(notification.toStatus);
+        row.setTransitions(notification.transitions);
+        row.setStatus(NotificationStatus.PENDING);
+        row.setNextAttemptAt(now);
+        row.setChangedAt(notification.changedAt);
+        row.setCreatedAt(now);
+        return row;
+    }
+
+    /**
+     * Transiciones de un envío dentro de la ventana: estado de origen de la primera,
+     * estado final de la última
+     */
+    private static final class PendingNotification {
+        final String shipmentId;
+        final ShipmentStatus fromStatus;
+        final long firstAt;
+        ShipmentStatus toStatus;
+        LocalDateTime changedAt;
+        int transitions;
+
+        PendingNotification(ShipmentStatusChangedEvent event) {
+            this.shipmentId = event.getShipmentId();
+            this.fromStatus = event.getFromStatus();
+            this.firstAt = System.currentTimeMillis();
+            this.toStatus = event.getToStatus();
+            this.changedAt = event.getChangedAt();
+            this.transitions = 1;
+        }
+
+        PendingNotification merge(ShipmentStatusChangedEvent event) {
+            toStatus = event.getToStatus();
+            changedAt = event.getChangedAt();
+            transitions++;
+            return this;
+        }
+
+        /**
+         * Unir una notificación anterior que no se pudo guardar con la que se formó después
+         */
+        PendingNotification absorb(PendingNotification newer) {
+            toStatus = newer.toStatus;
+            changedAt = newer.changedAt;
+            transitions += newer.transitions;
+            return this;
+        }
+    }
+}
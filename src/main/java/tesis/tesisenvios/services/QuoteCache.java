@@ -0,0 +1,110 @@
+package tesis.tesisenvios.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tesis.tesisenvios.dtos.PackageRequest;
+import tesis.tesisenvios.dtos.QuoteRequest;
+import tesis.tesisenvios.dtos.ShippingAddressRequest;
+import tesis.tesisenvios.dtos.ShippingQuoteResponse;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caché en memoria de cotizaciones por proveedor y destino.
+ * La llenan tanto las respuestas a tiempo como las que llegan tarde al agregador.
+ */
+@Component
+public class QuoteCache {
+
+    @Value("${shipping.quotes.cache-ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Value("${shipping.quotes.cache-max-entries:10000}")
+    private int maxEntries;
+
+    private final Map<String, CachedQuotes> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Obtener cotizaciones vigentes o null si no hay / expiraron
+     */
+    public List<ShippingQuoteResponse> get(String key) {
+        CachedQuotes cached = entries.get(key);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.isExpired(System.currentTimeMillis())) {
+            entries.remove(key, cached);
+            return null;
+        }
+        return cached.quotes();
+    }
+
+    public void put(String key, List<ShippingQuoteResponse> quotes) {
+        if (entries.size() >= maxEntries) {
+            evict();
+        }
+        entries.put(key, new CachedQuotes(List.copyOf(quotes), System.currentTimeMillis() + ttlSeconds * 1000));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Clave de caché: proveedor + destino + datos del paquete que afectan la tarifa
+     */
+    public static String buildKey(String carrierCode, QuoteRequest request) {
+        ShippingAddressRequest destination = request.getDestinationAddress();
+        StringBuilder key = new StringBuilder(64)
+                .append(carrierCode).append('|')
+                .append(normalize(destination.getPostalCode())).append('|')
+                .append(normalize(destination.getProvince())).append('|')
+                .append(normalize(destination.getCity())).append('|');
+
+        if (!request.hasPackages()) {
+            return key.append(plain(request.getWeightKg())).append('|')
+                    .append(plain(request.getDeclaredValue())).toString();
+        }
+
+        // Carrito: cada bulto con sus medidas, en el orden recibido
+        for (PackageRequest bulto : request.getPackages()) {
+            key.append(plain(bulto.getWeightKg())).append('x')
+                    .append(plain(bulto.getLengthCm())).append('x')
+                    .append(plain(bulto.getWidthCm())).append('x')
+                    .append(plain(bulto.getHeightCm())).append('$')
+                    .append(plain(bulto.getDeclaredValue())).append(';');
+        }
+        return key.toString();
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(cached -> cached.isExpired(now));
+
+        // Si sigue llena, liberar un 10% arbitrario para no crecer sin límite
+        Iterator<String> keys = entries.keySet().iterator();
+        int toRemove = entries.size() - (int) (maxEntries * 0.9);
+        while (toRemove-- > 0 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase();
+    }
+
+    private static String plain(BigDecimal value) {
+        return value == null ? "" : value.stripTrailingZeros().toPlainString();
+    }
+
+    private record CachedQuotes(List<ShippingQuoteResponse> quotes, long expiresAt) {
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package tesis.tesisenvios.services;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tabla de tarifas inmutable en arreglos primitivos ordenados por clave.
+ * Clave = (prefijo postal, banda de peso, opción de servicio) empaquetada en un long,
+ * así todas las opciones de un destino/banda quedan contiguas y se buscan con una
+ * sola búsqueda binaria.
+ */
+public final class RateTable {
+
+    public static final RateTable EMPTY = new Builder().build();
+
+    private static final int OPTION_BITS = 16;
+    private static final int BAND_BITS = 6;
+    private static final long OPTION_MASK = (1L << OPTION_BITS) - 1;
+
+    public static final int MAX_BANDS = 1 << BAND_BITS;
+    public static final int MAX_OPTIONS = 1 << OPTION_BITS;
+
+    private final long[] keys;
+    private final int[] priceCents;
+    private final short[] estimatedDays;
+    private final long[] harvestedAt;
+
+    private RateTable(long[] keys, int[] priceCents, short[] estimatedDays, long[] harvestedAt) {
+        this.keys = keys;
+        this.priceCents = priceCents;
+        this.estimatedDays = estimatedDays;
+        this.harvestedAt = harvestedAt;
+    }
+
+    public static long key(int postalPrefix, int band, int option) {
+        return ((long) postalPrefix << (BAND_BITS + OPTION_BITS)) | ((long) band << OPTION_BITS) | option;
+    }
+
+    /**
+     * Primer índice de la celda (prefijo, banda) o -1 si no hay tarifas
+     */
+    public int firstIndex(int postalPrefix, int band) {
+        long from = key(postalPrefix, band, 0);
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < from) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < keys.length && sameCell(keys[low], from) ? low : -1;
+    }
+
+    /**
+     * Indica si el índice sigue perteneciendo a la misma celda que {@code firstIndex}
+     */
+    public boolean sameCell(int index, int firstIndex) {
+        return index < keys.length && sameCell(keys[index], keys[firstIndex]);
+    }
+
+    public int optionAt(int index) {
+        return (int) (keys[index] & OPTION_MASK);
+    }
+
+    public int priceCentsAt(int index) {
+        return priceCents[index];
+    }
+
+    public int estimatedDaysAt(int index) {
+        return estimatedDays[index];
+    }
+
+    public long harvestedAt(int index) {
+        return harvestedAt[index];
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    private static boolean sameCell(long a, long b) {
+        return (a >>> OPTION_BITS) == (b >>> OPTION_BITS);
+    }
+
+    /**
+     * Builder usado al cosechar; no está en el camino caliente
+     */
+    public static final class Builder {
+        private final Map<Long, long[]> rows = new TreeMap<>();
+
+        public Builder put(int postalPrefix, int band, int option, int priceCents, int estimatedDays, long harvestedAt) {
+            rows.put(key(postalPrefix, band, option), new long[]{priceCents, estimatedDays, harvestedAt});
+            return this;
+        }
+
+        /**
+         * Copia las filas de una celda de otra tabla que no se hayan cargado ya
+         * (para conservar tarifas si la cosecha falla)
+         */
+        public Builder copyCell(RateTable table, int postalPrefix, int band) {
+            int first = table.firstIndex(postalPrefix, band);
+            if (first < 0) return this;
+            for (int i = first; table.sameCell(i, first); i++) {
+                rows.putIfAbsent(table.keys[i], new long[]{table.priceCents[i], table.estimatedDays[i], table.harvestedAt[i]});
+            }
+            return this;
+        }
+
+        public RateTable build() {
+            int size = rows.size();
+            long[] keys = new long[size];
+            int[] prices = new int[size];
+            short[] days = new short[size];
+            long[] harvested = new long[size];
+
+            int i = 0;
+            for (Map.Entry<Long, long[]> row : rows.entrySet()) {
+                keys[i] = row.getKey();
+                prices[i] = (int) row.getValue()[0];
+                days[i] = (short) row.getValue()[1];
+                harvested[i] = row.getValue()[2];
+                i++;
+            }
+            return new RateTable(keys, prices, days, harvested);
+        }
+    }
+}
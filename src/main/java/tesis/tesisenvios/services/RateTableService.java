@@ -0,0 +1,263 @@
+package tesis.tesisenvios.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import tesis.tesisenvios.dtos.QuoteRequest;
+import tesis.tesisenvios.dtos.ShippingAddressRequest;
+import tesis.tesisenvios.dtos.ShippingQuoteResponse;
+import tesis.tesisenvios.utils.AddressKeys;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Motor de tarifas precalculadas.
+ * Cosecha periódicamente cotizaciones por (prefijo postal, banda de peso, servicio)
+ * para los destinos que efectivamente se piden y responde getShippingQuotes en memoria,
+ * sin ir al proveedor. Si la celda no existe o está vencida se cotiza en vivo.
+ */
+@Service
+@Slf4j
+public class RateTableService {
+
+    @Autowired
+    private CarrierRegistry carrierRegistry;
+
+    @Value("${rate-table.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rate-table.weight-bands:0.5,1,2,3,5,10,15,20,25,30}")
+    private double[] weightBands;
+
+    @Value("${rate-table.max-age-minutes:360}")
+    private long maxAgeMinutes;
+
+    @Value("${rate-table.reference-declared-value:50000}")
+    private BigDecimal referenceDeclaredValue;
+
+    @Value("${rate-table.max-cells:5000}")
+    private int maxCells;
+
+    @Value("${rate-table.demand-ttl-hours:72}")
+    private long demandTtlHours;
+
+    @Value("${rate-table.harvest-pause-ms:200}")
+    private long harvestPauseMs;
+
+    private volatile RateTable table = RateTable.EMPTY;
+
+    // Celdas pedidas en vivo: clave (prefijo, banda) -> dirección representativa
+    private final Map<Long, DemandCell> demand = new ConcurrentHashMap<>();
+
+    // Diccionario de opciones (proveedor + servicio); el índice es estable mientras viva el proceso
+    private final List<QuoteOption> options = new CopyOnWriteArrayList<>();
+    private final Map<QuoteOption, Integer> optionIds = new ConcurrentHashMap<>();
+
+    /**
+     * Cotizaciones desde la tabla, o null si no hay tarifas frescas para la celda
+     */
+    public List<ShippingQuoteResponse> lookup(QuoteRequest request) {
+        // La tabla es por paquete único con volumen estimado; los carritos con bultos se cotizan en vivo
+        if (!enabled || request.hasPackages()) return null;
+
+        int prefix = AddressKeys.postalPrefix(request.getDestinationAddress().getPostalCode());
+        int band = weightBand(request.getWeightKg());
+        if (prefix < 0 || band < 0 || !coveredDeclaredValue(request.getDeclaredValue())) {
+            return null;
+        }
+
+        RateTable current = table;
+        int first = current.firstIndex(prefix, band);
+        if (first < 0) return null;
+
+        long oldestAllowed = System.currentTimeMillis() - maxAgeMinutes * 60_000;
+        List<ShippingQuoteResponse> quotes = new ArrayList<>();
+
+        for (int i = first; current.sameCell(i, first); i++) {
+            if (current.harvestedAt(i) < oldestAllowed) {
+                return null;
+            }
+            quotes.add(options.get(current.optionAt(i)).toQuote(current.priceCentsAt(i), current.estimatedDaysAt(i)));
+        }
+
+        DemandCell cell = demand.get(cellKey(prefix, band));
+        if (cell != null) {
+            cell.lastRequestedAt = System.currentTimeMillis();
+        }
+
+        quotes.sort(CarrierQuoteAggregator.BY_PRICE_AND_DAYS);
+        return quotes;
+    }
+
+    /**
+     * Registrar un destino cotizado en vivo para incluirlo en la próxima cosecha
+     */
+    public void recordDemand(QuoteRequest request) {
+        if (!enabled || request.hasPackages()) return;
+
+        int prefix = AddressKeys.postalPrefix(request.getDestinationAddress().getPostalCode());
+        int band = weightBand(request.getWeightKg());
+        if (prefix < 0 || band < 0 || !coveredDeclaredValue(request.getDeclaredValue())) {
+            return;
+        }
+
+        long key = cellKey(prefix, band);
+        DemandCell cell = demand.get(key);
+        if (cell != null) {
+            cell.lastRequestedAt = System.currentTimeMillis();
+        } else if (demand.size() < maxCells) {
+            demand.putIfAbsent(key, new DemandCell(prefix, band, request.getDestinationAddress()));
+        }
+    }
+
+    /**
+     * Cosecha periódica de tarifas para las celdas con demanda, en su propio scheduler
+     */
+    @Scheduled(fixedDelayString = "${rate-table.harvest-interval-ms:3600000}",
+            initialDelayString = "${rate-table.harvest-initial-delay-ms:60000}",
+            scheduler = "rateTableScheduler")
+    public void harvest() {
+        if (!enabled || demand.isEmpty()) return;
+
+        long startedAt = System.currentTimeMillis();
+        long demandCutoff = startedAt - demandTtlHours * 3_600_000;
+        demand.values().removeIf(cell -> cell.lastRequestedAt < demandCutoff);
+
+        RateTable previous = table;
+        RateTable.Builder builder = new RateTable.Builder();
+        int harvested = 0;
+        int failed = 0;
+
+        for (DemandCell cell : demand.values()) {
+            QuoteRequest request = harvestRequest(cell);
+            boolean cellOk = true;
+
+            for (CarrierProvider carrier : carrierRegistry.getEnabledCarriers()) {
+                try {
+                    List<ShippingQuoteResponse> quotes = carrier.getQuotes(request);
+                    long now = System.currentTimeMillis();
+                    for (ShippingQuoteResponse quote : quotes) {
+                        if (quote.getPrice() == null) continue;
+                        int option = optionId(quote);
+                        if (option < 0) continue;
+                        builder.put(cell.prefix, cell.band, option, toCents(quote.getPrice()),
+                                quote.getEstimatedDays() != null ? quote.getEstimatedDays() : 3, now);
+                    }
+                } catch (Exception e) {
+                    cellOk = false;
+                    log.debug("Cosecha fallida para {} prefijo {} banda {}: {}",
+                            carrier.getCarrierCode(), cell.prefix, cell.band, e.getMessage());
+                }
+                pause();
+            }
+
+            if (cellOk) {
+                harvested++;
+            } else {
+                // Conservar la tarifa anterior; la edad máxima decide si se sigue usando
+                builder.copyCell(previous, cell.prefix, cell.band);
+                failed++;
+            }
+        }
+
+        table = builder.build();
+
+        log.info("Tabla de tarifas cosechada: {} celdas ok, {} con error, {} filas en {} ms",
+                harvested, failed, table.size(), System.currentTimeMillis() - startedAt);
+    }
+
+    public int size() {
+        return table.size();
+    }
+
+    // ================================
+    // MÉTODOS AUXILIARES
+    // ================================
+
+    private int weightBand(BigDecimal weightKg) {
+        if (weightKg == null) return -1;
+
+        double weight = weightKg.doubleValue();
+        for (int i = 0; i < weightBands.length && i < RateTable.MAX_BANDS; i++) {
+            if (weight <= weightBands[i]) return i;
+        }
+        return -1;
+    }
+
+    private boolean coveredDeclaredValue(BigDecimal declaredValue) {
+        return declaredValue == null || declaredValue.compareTo(referenceDeclaredValue) <= 0;
+    }
+
+    private QuoteRequest harvestRequest(DemandCell cell) {
+        // Se cotiza con el tope de la banda y el valor declarado de referencia: tarifa conservadora
+        QuoteRequest request = new QuoteRequest();
+        request.setDestinationAddress(cell.destination);
+        request.setWeightKg(BigDecimal.valueOf(weightBands[cell.band]));
+        request.setDeclaredValue(referenceDeclaredValue);
+        return request;
+    }
+
+    private int optionId(ShippingQuoteResponse quote) {
+        QuoteOption option = new QuoteOption(quote.getProvider(), quote.getServiceType(),
+                quote.getServiceName(), quote.getDescription());
+
+        Integer id = optionIds.get(option);
+        if (id != null) return id;
+
+        synchronized (options) {
+            id = optionIds.get(option);
+            if (id != null) return id;
+            if (options.size() >= RateTable.MAX_OPTIONS) return -1;
+
+            options.add(option);
+            id = options.size() - 1;
+            optionIds.put(option, id);
+            return id;
+        }
+    }
+
+    private static int toCents(BigDecimal price) {
+        return price.movePointRight(2).setScale(0, RoundingMode.HALF_UP).intValueExact();
+    }
+
+    private static long cellKey(int prefix, int band) {
+        return RateTable.key(prefix, band, 0);
+    }
+
+    private void pause() {
+        if (harvestPauseMs <= 0) return;
+        try {
+            Thread.sleep(harvestPauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class DemandCell {
+        final int prefix;
+        final int band;
+        final ShippingAddressRequest destination;
+        volatile long lastRequestedAt = System.currentTimeMillis();
+
+        DemandCell(int prefix, int band, ShippingAddressRequest destination) {
+            this.prefix = prefix;
+            this.band = band;
+            this.destination = destination;
+        }
+    }
+
+    private record QuoteOption(String provider, String serviceType, String serviceName, String description) {
+        ShippingQuoteResponse toQuote(int priceCents, int estimatedDays) {
+            return new ShippingQuoteResponse(provider, serviceType, serviceName,
+                    BigDecimal.valueOf(priceCents, 2), estimatedDays, description);
+        }
+    }
+}
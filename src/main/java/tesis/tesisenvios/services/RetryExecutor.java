@@ -0,0 +1,217 @@
+package tesis.tesisenvios.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Reintentos de llamadas a proveedores.
+ * - Clasifica errores: timeouts/IO, 5xx y 429 se reintentan; el resto de los 4xx no.
+ * - Espera con jitter decorrelacionado: min(tope, random(base, espera anterior * 3)).
+ * - Presupuesto global: cada llamada deposita budget-ratio fichas y cada reintento consume una,
+ *   así los reintentos no superan ese porcentaje del tráfico y no amplifican una caída.
+ * Las operaciones no idempotentes (crear orden) solo se reintentan si el pedido seguro no llegó
+ * a procesarse: error de conexión, 429 o 503.
+ * Con deadline (cotizaciones) la espera se recorta al tiempo que le queda al que llama y no se
+ * reintenta si ya no queda tiempo o el Retry-After lo supera.
+ */
+@Component
+@Slf4j
+public class RetryExecutor {
+
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${carriers.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${carriers.retry.base-delay-ms:100}")
+    private long baseDelayMs;
+
+    @Value("${carriers.retry.max-delay-ms:2000}")
+    private long maxDelayMs;
+
+    @Value("${carriers.retry.budget-ratio:0.1}")
+    private double budgetRatio;
+
+    // Fichas iniciales: permiten reintentar apenas arranca, antes de acumular tráfico
+    @Value("${carriers.retry.budget-initial-tokens:10}")
+    private double budgetInitialTokens;
+
+    @Value("${carriers.retry.budget-max-tokens:100}")
+    private double budgetMaxTokens;
+
+    private double budgetTokens = -1;
+
+    /**
+     * Ejecutar una operación idempotente (consultas, cancelación, token)
+     */
+    public <T> T execute(String operation, Supplier<T> call) {
+        return execute(operation, true, call);
+    }
+
+    public <T> T execute(String operation, boolean idempotent, Supplier<T> call) {
+        return execute(operation, idempotent, NO_DEADLINE, call);
+    }
+
+    /**
+     * Ejecutar sin esperar más allá del deadline del que llama (en System.nanoTime)
+     */
+    public <T> T execute(String operation, boolean idempotent, long deadlineNanos, Supplier<T> call) {
+        deposit();
+
+        long previousDelay = baseDelayMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T result = call.get();
+                outcome(operation, attempt == 1 ? "success" : "success_after_retry");
+                return result;
+
+            } catch (RuntimeException e) {
+                long retryAfterMs = retryAfterMillis(e);
+                if (!isRetryable(e, idempotent) || retryAfterMs > maxDelayMs) {
+                    outcome(operation, "not_retryable");
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    outcome(operation, "exhausted");
+                    throw e;
+                }
+                long remainingMs = remainingMillis(deadlineNanos);
+                if (remainingMs <= 0 || retryAfterMs >= remainingMs) {
+                    outcome(operation, "deadline_exceeded");
+                    throw e;
+                }
+                if (!withdraw()) {
+                    outcome(operation, "budget_exhausted");
+                    log.warn("Presupuesto de reintentos agotado, no se reintenta {}: {}", operation, e.getMessage());
+                    throw e;
+                }
+
+                long delay = backoff(previousDelay, baseDelayMs, maxDelayMs, retryAfterMs, remainingMs);
+                previousDelay = delay;
+
+                retries(operation).increment();
+                log.debug("Reintentando {} (intento {}) en {} ms: {}", operation, attempt + 1, delay, e.getMessage());
+                sleep(delay, e);
+            }
+        }
+    }
+
+    /**
+     * Jitter decorrelacionado: random(base, anterior * 3), sin pasar del tope ni del tiempo restante;
+     * nunca menos que el Retry-After (que ya se verificó menor al tiempo restante)
+     */
+    static long backoff(long previousDelay, long baseDelayMs, long maxDelayMs, long retryAfterMs, long remainingMs) {
+        long delay = Math.min(Math.min(maxDelayMs, remainingMs),
+                ThreadLocalRandom.current().nextLong(baseDelayMs, Math.max(baseDelayMs, previousDelay * 3) + 1));
+        return Math.max(delay, retryAfterMs);
+    }
+
+    private static long remainingMillis(long deadlineNanos) {
+        if (deadlineNanos == NO_DEADLINE) return Long.MAX_VALUE;
+        return TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+    }
+
+    // ================================
+    // CLASIFICACIÓN DE ERRORES
+    // ================================
+
+    static boolean isRetryable(RuntimeException e, boolean idempotent) {
+        if (e instanceof ResourceAccessException) {
+            // Error de IO: timeout, conexión rechazada o cortada
+            return idempotent || isConnectFailure(e);
+        }
+        if (e instanceof HttpStatusCodeException http) {
+            int status = http.getStatusCode().value();
+            if (status == HttpStatus.TOO_MANY_REQUESTS.value() || status == HttpStatus.SERVICE_UNAVAILABLE.value()) {
+                return true;
+            }
+            return idempotent && http.getStatusCode().is5xxServerError();
+        }
+        return false;
+    }
+
+    private static boolean isConnectFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof UnknownHostException) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Retry-After (en segundos) de una respuesta 429/503; 0 si no viene
+     */
+    private static long retryAfterMillis(RuntimeException e) {
+        if (!(e instanceof HttpStatusCodeException http) || http.getResponseHeaders() == null) return 0;
+
+        String retryAfter = http.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        if (retryAfter == null) return 0;
+        try {
+            return Long.parseLong(retryAfter.trim()) * 1000;
+        } catch (NumberFormatException ex) {
+            return 0; // formato fecha HTTP: se usa el backoff normal
+        }
+    }
+
+    // ================================
+    // PRESUPUESTO DE REINTENTOS
+    // ================================
+
+    private synchronized void deposit() {
+        if (budgetTokens < 0) {
+            budgetTokens = budgetInitialTokens;
+        }
+        budgetTokens = Math.min(budgetMaxTokens, budgetTokens + budgetRatio);
+    }
+
+    private synchronized boolean withdraw() {
+        if (budgetTokens < 1) return false;
+        budgetTokens -= 1;
+        return true;
+    }
+
+    // ================================
+    // MÉTRICAS
+    // ================================
+
+    private void outcome(String operation, String outcome) {
+        Counter.builder("carrier.calls")
+                .description("Llamadas a proveedores por resultado")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Counter retries(String operation) {
+        return Counter.builder("carrier.retries")
+                .description("Reintentos de llamadas a proveedores")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    private static void sleep(long millis, RuntimeException cause) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package tesis.tesisenvios.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import tesis.tesisenvios.entitites.SchedulerLockEntity;
+import tesis.tesisenvios.repositories.SchedulerLockRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Elección de líder por tarea usando una fila con lease en la base.
+ * Solo el nodo que tiene el lock vigente ejecuta las tareas que deben correr una vez en el cluster;
+ * si el líder se cae, el lock vence y otro nodo lo toma.
+ */
+@Service
+@Slf4j
+public class SchedulerLockService {
+
+    @Autowired
+    private SchedulerLockRepository schedulerLockRepository;
+
+    @Autowired
+    private ClusterNode clusterNode;
+
+    /**
+     * Intentar tomar (o renovar) el lock de una tarea por el tiempo indicado
+     */
+    public boolean tryAcquire(String name, Duration leaseTime) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = now.plus(leaseTime);
+        String node = clusterNode.getNodeId();
+
+        try {
+            if (schedulerLockRepository.tryAcquire(name, node, now, until) == 1) {
+                return true;
+            }
+
+            if (!schedulerLockRepository.existsById(name)) {
+                schedulerLockRepository.saveAndFlush(new SchedulerLockEntity(name, node, now, until));
+                log.info("Lock {} creado y tomado por {}", name, node);
+                return true;
+            }
+
+        } catch (DataIntegrityViolationException e) {
+            // Otro nodo creó la fila al mismo tiempo: él es el líder
+            log.debug("Lock {} tomado por otro nodo", name);
+        }
+
+        return false;
+    }
+
+    /**
+     * Liberar el lock antes de que venza (al terminar la tarea)
+     */
+    public void release(String name) {
+        schedulerLockRepository.release(name, clusterNode.getNodeId(), LocalDateTime.now());
+    }
+}
@@ -0,0 +1,165 @@
+package tesis.tesisenvios.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tesis.tesisenvios.dtos.ShipmentResponse;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.dtos.ShipmentVersion;
+import tesis.tesisenvios.entitites.ShipmentArchiveEntity;
+import tesis.tesisenvios.entitites.ShipmentEntity;
+import tesis.tesisenvios.entitites.TrackingEventEntity;
+import tesis.tesisenvios.repositories.ShipmentArchiveRepository;
+import tesis.tesisenvios.repositories.ShipmentRepository;
+import tesis.tesisenvios.repositories.TrackingEventRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Archivo de envíos terminados.
+ * Mueve cada envío y sus eventos a shipment_archive (una fila con el JSON completo) y los borra
+ * de las tablas activas en la misma transacción, así un envío nunca queda en ambos lados ni en ninguno.
+ */
+@Service
+@Slf4j
+public class ShipmentArchiveService {
+
+    public static final Set<ShipmentStatus> ARCHIVABLE_STATUSES =
+            EnumSet.of(ShipmentStatus.DELIVERED, ShipmentStatus.CANCELLED, ShipmentStatus.RETURNED);
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private TrackingEventRepository trackingEventRepository;
+
+    @Autowired
+    private ShipmentArchiveRepository shipmentArchiveRepository;
+
+    @Autowired
+    private ModelMapper modelMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TrackingDictionary trackingDictionary;
+
+    /**
+     * Ids de envíos terminados sin cambios desde antes de la fecha indicada
+     */
+    @Transactional(readOnly = true)
+    public List<String> findCandidates(LocalDateTime before, int batchSize) {
+        return shipmentRepository.findIdsForArchive(ARCHIVABLE_STATUSES, before, PageRequest.of(0, batchSize));
+    }
+
+    /**
+     * Archivar un lote; retorna cuántos envíos se movieron
+     */
+    @Transactional
+    public int archiveBatch(Collection<String> shipmentIds, LocalDateTime before) {
+        List<ShipmentEntity> shipments = shipmentRepository.findAllById(shipmentIds).stream()
+                .filter(s -> ARCHIVABLE_STATUSES.contains(s.getStatus()))
+                .filter(s -> s.getUpdatedAt() != null && s.getUpdatedAt().isBefore(before))
+                .collect(Collectors.toList());
+
+        if (shipments.isEmpty()) return 0;
+
+        List<String> ids = shipments.stream().map(ShipmentEntity::getId).collect(Collectors.toList());
+        Map<String, List<TrackingEventEntity>> eventsByShipment = trackingEventRepository
+                .findByShipmentIdInOrderByEventEpochDesc(ids).stream()
+                .collect(Collectors.groupingBy(e -> e.getShipment().getId()));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<ShipmentArchiveEntity> archived = new ArrayList<>(shipments.size());
+
+        for (ShipmentEntity shipment : shipments) {
+            ShipmentResponse response = modelMapper.map(shipment, ShipmentResponse.class);
+            response.setTrackingEvents(eventsByShipment.getOrDefault(shipment.getId(), List.of()).stream()
+                    .map(trackingDictionary::toResponse)
+                    .collect(Collectors.toList()));
+
+            LocalDateTime completedAt = shipment.getActualDeliveryDate() != null
+                    ? shipment.getActualDeliveryDate() : shipment.getUpdatedAt();
+
+            archived.add(new ShipmentArchiveEntity(
+                    shipment.getId(),
+                    shipment.getOrderCode(),
+                    shipment.getTrackingNumber(),
+                    shipment.getStatus(),
+                    completedAt.getYear() * 100 + completedAt.getMonthValue(),
+                    completedAt,
+                    now,
+                    toJson(response)));
+        }
+
+        shipmentArchiveRepository.saveAll(archived);
+        trackingEventRepository.deleteByShipmentIds(ids);
+        shipmentRepository.deleteByIds(ids);
+
+        return archived.size();
+    }
+
+    /**
+     * Buscar un envío archivado por código de orden
+     */
+    @Transactional(readOnly = true)
+    public Optional<ShipmentResponse> findByOrderCode(String orderCode) {
+        return shipmentArchiveRepository.findByOrderCode(orderCode).map(this::fromArchive);
+    }
+
+    /**
+     * Buscar un envío archivado por número de tracking
+     */
+    @Transactional(readOnly = true)
+    public Optional<ShipmentResponse> findByTrackingNumber(String trackingNumber) {
+        return shipmentArchiveRepository.findFirstByTrackingNumber(trackingNumber).map(this::fromArchive);
+    }
+
+    /**
+     * Metadatos de un envío archivado para GET condicional (sin deserializar el payload)
+     */
+    @Transactional(readOnly = true)
+    public Optional<ShipmentVersion> findVersionByOrderCode(String orderCode) {
+        return shipmentArchiveRepository.findVersionByOrderCode(orderCode);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<ShipmentVersion> findVersionByTrackingNumber(String trackingNumber) {
+        return shipmentArchiveRepository.findVersionsByTrackingNumber(trackingNumber, PageRequest.of(0, 1))
+                .stream().findFirst();
+    }
+
+    // ================================
+    // MÉTODOS AUXILIARES
+    // ================================
+
+    private String toJson(ShipmentResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Error serializando envío para archivo: " + response.getOrderCode(), e);
+        }
+    }
+
+    private ShipmentResponse fromArchive(ShipmentArchiveEntity archive) {
+        try {
+            return objectMapper.readValue(archive.getPayload(), ShipmentResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Error leyendo envío archivado: " + archive.getOrderCode(), e);
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package tesis.tesisenvios.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
+import tesis.tesisenvios.dtos.ShipmentChangeFeedResponse;
+import tesis.tesisenvios.dtos.ShipmentChangeResponse;
+import tesis.tesisenvios.dtos.ShipmentChangeType;
+import tesis.tesisenvios.dtos.TrackingEventResponse;
+import tesis.tesisenvios.entitites.ShipmentChangeEntity;
+import tesis.tesisenvios.events.ShipmentCreatedEvent;
+import tesis.tesisenvios.events.ShipmentStatusChangedEvent;
+import tesis.tesisenvios.events.TrackingEventRecordedEvent;
+import tesis.tesisenvios.repositories.ShipmentChangeRepository;
+import tesis.tesisenvios.utils.EpochSeconds;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Log de cambios de envíos y feed incremental para otros servicios.
+ * <ul>
+ *   <li>Cada alta, transición de estado y evento de tracking agrega una entrada en la misma
+ *   transacción que el cambio (BEFORE_COMMIT): si el cambio se revierte, la entrada también.</li>
+ *   <li>El secuenciador (solo en el líder) numera las entradas ya confirmadas con un offset
+ *   monótono. Así un consumidor que leyó hasta N nunca se pierde una entrada que confirmó
+ *   tarde con un id menor.</li>
+ *   <li>El feed devuelve las entradas con offset mayor a "since"; con waitMs el pedido queda
+ *   en espera (long-poll) hasta que haya cambios o venza el tiempo.</li>
+ *   <li>La compactación deja solo la última entrada de cada envío pasado cierto tiempo y borra
+ *   todo lo que supera la retención. Toda entrada lleva el estado vigente del envío, así que
+ *   un consumidor que arranca de 0 igual reconstruye el estado actual.</li>
+ * </ul>
+ */
+@Service
+@Slf4j
+public class ShipmentChangeLogService {
+
+    private static final String SEQUENCER_LOCK = "shipment-change-sequencer";
+    private static final String COMPACTION_LOCK = "shipment-change-compaction";
+
+    @Autowired
+    private ShipmentChangeRepository shipmentChangeRepository;
+
+    @Autowired
+    private SchedulerLockService schedulerLockService;
+
+    @Autowired
+    private TrackingDictionary trackingDictionary;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${changes.sequencer-batch-size:500}")
+    private int sequencerBatchSize;
+
+    @Value("${changes.max-limit:500}")
+    private int maxLimit;
+
+    @Value("${changes.max-wait-ms:30000}")
+    private long maxWaitMs;
+
+    @Value("${changes.compact-after-days:7}")
+    private long compactAfterDays;
+
+    @Value("${changes.retention-days:90}")
+    private long retentionDays;
+
+    @Value("${changes.compaction-batch-size:1000}")
+    private int compactionBatchSize;
+
+    // Pedidos en espera de cambios (long-poll)
+    private final Set<Waiter> waiters = ConcurrentHashMap.newKeySet();
+
+    // ================================
+    // CAPTURA (en la transacción del cambio)
+    // ================================
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onShipmentCreated(ShipmentCreatedEvent event) {
+        shipmentChangeRepository.save(new ShipmentChangeEntity(ShipmentChangeType.CREATED,
+                event.getShipmentId(), event.getOrderCode(), event.getTrackingNumber(),
+                event.getStatus(), LocalDateTime.now()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onStatusChanged(ShipmentStatusChangedEvent event) {
+        ShipmentChangeEntity change = new ShipmentChangeEntity(ShipmentChangeType.STATUS_CHANGED,
+                event.getShipmentId(), event.getOrderCode(), event.getTrackingNumber(),
+                event.getToStatus(), event.getChangedAt());
+        change.setPreviousStatus(event.getFromStatus());
+        shipmentChangeRepository.save(change);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onTrackingEvent(TrackingEventRecordedEvent event) {
+        ShipmentChangeEntity change = new ShipmentChangeEntity(ShipmentChangeType.TRACKING_EVENT,
+                event.getShipmentId(), event.getOrderCode(), event.getTrackingNumber(),
+                event.getShipmentStatus(), LocalDateTime.now());
+        change.setTrackingEventId(event.getTrackingEventId());
+        change.setEventEpoch(event.getEventEpoch());
+        change.setEventStatusCode(event.getStatusCode());
+        change.setDescriptionCode(event.getDescriptionCode());
+        change.setLocationCode(event.getLocationCode());
+        shipmentChangeRepository.save(change);
+    }
+
+    // ================================
+    // SECUENCIADOR
+    // ================================
+
+    /**
+     * Corre en changeFeedScheduler, no en el pool general de tareas programadas
+     */
+    @Scheduled(fixedDelayString = "${changes.sequencer-interval-ms:250}", scheduler = "changeFeedScheduler")
+    public void scheduledSequence() {
+        if (schedulerLockService.tryAcquire(SEQUENCER_LOCK, Duration.ofSeconds(30))) {
+            try {
+                sequence();
+            } catch (Exception e) {
+                // Con dos secuenciadores a la vez el índice único de seq hace fallar a uno; se reintenta
+                log.warn("Error numerando el log de cambios: {}", e.getMessage());
+            }
+        }
+        wakeWaiters();
+    }
+
+    /**
+     * Asignar offsets a las entradas confirmadas pendientes. Retorna cuántas se numeraron.
+     */
+    public int sequence() {
+        Integer assigned = transactionTemplate.execute(status -> {
+            List<ShipmentChangeEntity> pending = shipmentChangeRepository
+                    .findPending(PageRequest.of(0, sequencerBatchSize));
+            if (pending.isEmpty()) return 0;
+
+            long next = shipmentChangeRepository.findHeadSeq();
+            for (ShipmentChangeEntity change : pending) {
+                change.setSeq(++next);
+            }
+            return pending.size();
+        });
+        return assigned != null ? assigned : 0;
+    }
+
+    // ================================
+    // FEED
+    // ================================
+
+    /**
+     * Cambios posteriores a "since" (hasta "limit")
+     */
+    public ShipmentChangeFeedResponse read(long since, int limit) {
+        List<ShipmentChangeEntity> changes = shipmentChangeRepository
+                .findSince(Math.max(0, since), PageRequest.of(0, Math.min(Math.max(1, limit), maxLimit)));
+
+        long nextSince = changes.isEmpty() ? since : changes.get(changes.size() - 1).getSeq();
+        return new ShipmentChangeFeedResponse(
+                changes.stream().map(this::toResponse).collect(Collectors.toList()),
+                nextSince);
+    }
+
+    /**
+     * Lectura con long-poll: si no hay cambios, espera hasta waitMs a que aparezcan.
+     * Vencido el tiempo responde la lista vacía con el mismo "since".
+     */
+    public DeferredResult<ShipmentChangeFeedResponse> poll(long since, int limit, long waitMs) {
+        long timeout = Math.min(Math.max(0, waitMs), maxWaitMs);
+        DeferredResult<ShipmentChangeFeedResponse> result = new DeferredResult<>(timeout > 0 ? timeout : null);
+
+        ShipmentChangeFeedResponse current = read(since, limit);
+        if (!current.getChanges().isEmpty() || timeout == 0) {
+            result.setResult(current);
+            return result;
+        }
+
+        Waiter waiter = new Waiter(since, limit, result);
+        waiters.add(waiter);
+        result.onTimeout(() -> result.setResult(new ShipmentChangeFeedResponse(List.of(), since)));
+        result.onCompletion(() -> waiters.remove(waiter));
+        result.onError(error -> waiters.remove(waiter));
+        return result;
+    }
+
+    /**
+     * Responder a los pedidos en espera que ya tienen cambios nuevos.
+     * Corre en todas las réplicas: cada una atiende sus propias conexiones.
+     */
+    private void wakeWaiters() {
+        if (waiters.isEmpty()) return;
+
+        long head = shipmentChangeRepository.findHeadSeq();
+        for (Waiter waiter : waiters) {
+            if (waiter.since >= head || waiter.result.isSetOrExpired()) continue;
+            try {
+                waiter.result.setResult(read(waiter.since, waiter.limit));
+            } catch (Exception e) {
+                waiter.result.setErrorResult(e);
+            }
+        }
+    }
+
+    // ================================
+    // COMPACTACIÓN
+    // ================================
+
+    @Scheduled(fixedDelayString = "${changes.compaction-interval-ms:3600000}",
+            initialDelayString = "${changes.compaction-initial-delay-ms:300000}")
+    public void scheduledCompaction() {
+        if (!schedulerLockService.tryAcquire(COMPACTION_LOCK, Duration.ofMinutes(30))) return;
+        compact();
+    }
+
+    /**
+     * Borrar entradas reemplazadas por una posterior del mismo envío y las que superan la retención
+     */
+    public int compact() {
+        LocalDateTime now = LocalDateTime.now();
+        int superseded = deleteInBatches(() -> shipmentChangeRepository
+                .findSupersededIds(now.minusDays(compactAfterDays), PageRequest.of(0, compactionBatchSize)));
+        int expired = deleteInBatches(() -> shipmentChangeRepository
+                .findExpiredIds(now.minusDays(retentionDays), PageRequest.of(0, compactionBatchSize)));
+
+        if (superseded + expired > 0) {
+            log.info("Log de cambios compactado: {} entradas reemplazadas, {} vencidas", superseded, expired);
+        }
+        return superseded + expired;
+    }
+
+    // ================================
+    // MÉTODOS AUXILIARES
+    // ================================
+
+    private int deleteInBatches(Supplier<List<Long>> nextBatch) {
+        int deleted = 0;
+        while (true) {
+            Integer count = transactionTemplate.execute(status -> {
+                List<Long> ids = nextBatch.get();
+                return ids.isEmpty() ? 0 : shipmentChangeRepository.deleteByIds(ids);
+            });
+            if (count == null || count == 0) return deleted;
+            deleted += count;
+            if (count < compactionBatchSize) return deleted;
+        }
+    }
+
+    private ShipmentChangeResponse toResponse(ShipmentChangeEntity change) {
+        TrackingEventResponse trackingEvent = null;
+        if (change.getChangeType() == ShipmentChangeType.TRACKING_EVENT) {
+            trackingEvent = new TrackingEventResponse(
+                    EpochSeconds.toLocalDateTime(change.getEventEpoch()),
+                    trackingDictionary.term(change.getEventStatusCode()),
+                    trackingDictionary.term(change.getDescriptionCode()),
+                    trackingDictionary.term(change.getLocationCode()),
+                    null);
+        }
+
+        return new ShipmentChangeResponse(
+                change.getSeq(),
+                change.getChangeType(),
+                change.getShipmentId(),
+                change.getOrderCode(),
+                change.getTrackingNumber(),
+                change.getStatus(),
+                change.getPreviousStatus(),
+                trackingEvent,
+                change.getCreatedAt());
+    }
+
+    private record Waiter(long since, int limit, DeferredResult<ShipmentChangeFeedResponse> result) {
+    }
+}
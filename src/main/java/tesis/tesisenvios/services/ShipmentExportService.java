@@ -0,0 +1,352 @@
+package tesis.tesisenvios.services;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tesis.tesisenvios.dtos.ShipmentResponse;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.dtos.ShippingAddressResponse;
+import tesis.tesisenvios.dtos.TrackingEventResponse;
+import tesis.tesisenvios.exceptions.ExportBusyException;
+import tesis.tesisenvios.repositories.ShipmentArchiveRepository;
+import tesis.tesisenvios.repositories.ShipmentRepository;
+import tesis.tesisenvios.utils.EpochSeconds;
+
+import jakarta.annotation.PostConstruct;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exportación de envíos y eventos en CSV o NDJSON.
+ * Recorre un cursor de solo avance (fetch size acotado, columnas escalares, sin entidades en el
+ * contexto de persistencia) y escribe cada fila directo a la respuesta: la memoria usada no
+ * depende de la cantidad de filas exportadas.
+ * Los envíos ya archivados (shipment_archive) salen después de los activos, leídos de su JSON de a uno.
+ */
+@Service
+@Slf4j
+public class ShipmentExportService {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final String[] CSV_HEADER = {
+            "shipment_id", "order_code", "tracking_number", "provider", "service_type", "status",
+            "recipient_name", "recipient_email", "city", "province", "postal_code", "shipping_cost",
+            "created_at", "estimated_delivery_date", "actual_delivery_date",
+            "event_date", "event_status", "event_description", "event_location"
+    };
+
+    // Posiciones de las columnas del evento en cada fila
+    private static final int FIRST_EVENT_COLUMN = 15;
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private ShipmentArchiveRepository shipmentArchiveRepository;
+
+    @Autowired
+    private TrackingDictionary trackingDictionary;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${export.max-concurrent:2}")
+    private int maxConcurrent;
+
+    @Value("${export.buffer-bytes:65536}")
+    private int bufferBytes;
+
+    private Semaphore permits;
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    void init() {
+        permits = new Semaphore(maxConcurrent);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Si ya están en curso todas las exportaciones permitidas. Solo orientativo, para rechazar
+     * rápido: el lugar se toma recién en export.
+     */
+    public boolean isBusy() {
+        return permits.availablePermits() == 0;
+    }
+
+    /**
+     * Escribir la exportación en el stream indicado. El lugar se toma y se libera acá mismo;
+     * lanza ExportBusyException (sin escribir nada) si no hay lugar.
+     * Retorna la cantidad de filas escritas: líneas en CSV (una por evento), envíos en NDJSON.
+     */
+    public long export(LocalDate from, LocalDate to, Collection<ShipmentStatus> statuses, String provider,
+                       Format format, boolean gzip, OutputStream out) throws IOException {
+        if (!permits.tryAcquire()) {
+            throw new ExportBusyException("Demasiadas exportaciones en curso");
+        }
+
+        long startedAt = System.currentTimeMillis();
+        Collection<ShipmentStatus> statusFilter = statuses == null || statuses.isEmpty()
+                ? EnumSet.allOf(ShipmentStatus.class) : statuses;
+
+        try {
+            OutputStream target = gzip ? new GZIPOutputStream(out, bufferBytes) : out;
+
+            LocalDateTime start = from.atStartOfDay();
+            LocalDateTime end = to.plusDays(1).atStartOfDay();
+
+            Long rows = readOnlyTransaction.execute(tx -> {
+                try (Stream<Object[]> active = shipmentRepository.streamForExport(start, end, statusFilter, provider);
+                     Stream<String> archived = shipmentArchiveRepository.streamPayloadsForExport(start, statusFilter)) {
+                    Iterator<Object[]> rows = Stream.concat(
+                            active.map(this::decodeEvent),
+                            archived.map(this::fromArchive)
+                                    .filter(s -> inRange(s, start, end, provider))
+                                    .flatMap(this::archivedRows))
+                            .iterator();
+                    return format == Format.CSV
+                            ? writeCsv(rows, target)
+                            : writeNdjson(rows, target);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            if (gzip) {
+                ((GZIPOutputStream) target).finish();
+            }
+            out.flush();
+
+            long elapsed = Math.max(1, System.currentTimeMillis() - startedAt);
+            log.info("Exportación {} completada: {} filas en {} ms ({} filas/s)",
+                    format, rows, elapsed, rows * 1000 / elapsed);
+            return rows;
+
+        } catch (UncheckedIOException e) {
+            // Normalmente el cliente cortó la descarga
+            throw e.getCause();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Los eventos vienen codificados (epoch y códigos del diccionario): se resuelven sobre la misma fila
+     */
+    private Object[] decodeEvent(Object[] row) {
+        if (row[FIRST_EVENT_COLUMN] != null) {
+            row[15] = EpochSeconds.toLocalDateTime((Long) row[15]);
+            row[16] = trackingDictionary.term((Integer) row[16]);
+            row[17] = trackingDictionary.term((Integer) row[17]);
+            row[18] = trackingDictionary.term((Integer) row[18]);
+        }
+        return row;
+    }
+
+    // ================================
+    // ARCHIVO: mismas columnas que el cursor de envíos activos, eventos ya resueltos
+    // ================================
+
+    private ShipmentResponse fromArchive(String payload) {
+        try {
+            return objectMapper.readValue(payload, ShipmentResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Envío archivado ilegible: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    private static boolean inRange(ShipmentResponse shipment, LocalDateTime start, LocalDateTime end, String provider) {
+        LocalDateTime createdAt = shipment.getCreatedAt();
+        return createdAt != null && !createdAt.isBefore(start) && createdAt.isBefore(end)
+                && (provider == null || provider.equals(shipment.getProvider()));
+    }
+
+    /**
+     * Una fila por evento en orden cronológico (el archivo los guarda del más nuevo al más viejo),
+     * o una sola con las columnas de evento vacías si no tiene eventos
+     */
+    private Stream<Object[]> archivedRows(ShipmentResponse shipment) {
+        List<TrackingEventResponse> events = shipment.getTrackingEvents() == null
+                ? List.of() : shipment.getTrackingEvents();
+        if (events.isEmpty()) {
+            return Stream.<Object[]>of(archivedRow(shipment, null));
+        }
+        return events.stream()
+                .sorted(Comparator.comparing(TrackingEventResponse::getEventDate,
+                        Comparator.nullsFirst(Comparator.naturalOrder())))
+                .map(event -> archivedRow(shipment, event));
+    }
+
+    private static Object[] archivedRow(ShipmentResponse shipment, TrackingEventResponse event) {
+        ShippingAddressResponse address = shipment.getShippingAddress();
+        return new Object[]{
+                shipment.getId(), shipment.getOrderCode(), shipment.getTrackingNumber(), shipment.getProvider(),
+                shipment.getServiceType(), shipment.getStatus(), shipment.getRecipientName(),
+                shipment.getRecipientEmail(),
+                address != null ? address.getCity() : null,
+                address != null ? address.getProvince() : null,
+                address != null ? address.getPostalCode() : null,
+                shipment.getShippingCost(), shipment.getCreatedAt(),
+                shipment.getEstimatedDeliveryDate(), shipment.getActualDeliveryDate(),
+                event != null ? event.getEventDate() : null,
+                event != null ? event.getStatus() : null,
+                event != null ? event.getDescription() : null,
+                event != null ? event.getLocation() : null
+        };
+    }
+
+    // ================================
+    // CSV: una línea por evento (los envíos sin eventos salen con las columnas de evento vacías)
+    // ================================
+
+    private long writeCsv(Iterator<Object[]> rows, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), bufferBytes);
+        writeCsvLine(writer, CSV_HEADER);
+
+        long count = 0;
+        while (rows.hasNext()) {
+            writeCsvLine(writer, rows.next());
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+
+    private void writeCsvLine(Writer writer, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) writer.write(',');
+            writeCsvValue(writer, values[i]);
+        }
+        writer.write('\n');
+    }
+
+    private void writeCsvValue(Writer writer, Object value) throws IOException {
+        if (value == null) return;
+
+        String text = value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if (!quote) {
+            writer.write(text);
+            return;
+        }
+
+        writer.write('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') writer.write('"');
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    // ================================
+    // NDJSON: un objeto por envío con sus eventos anidados
+    // ================================
+
+    private long writeNdjson(Iterator<Object[]> rows, OutputStream out) throws IOException {
+        JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        json.setRootValueSeparator(null);
+
+        long count = 0;
+        String currentId = null;
+
+        while (rows.hasNext()) {
+            Object[] row = rows.next();
+            String shipmentId = (String) row[0];
+
+            if (!shipmentId.equals(currentId)) {
+                if (currentId != null) {
+                    endShipment(json);
+                }
+                startShipment(json, row);
+                currentId = shipmentId;
+                count++;
+            }
+
+            if (row[FIRST_EVENT_COLUMN] != null) {
+                json.writeStartObject();
+                writeField(json, "eventDate", row[15]);
+                writeField(json, "status", row[16]);
+                writeField(json, "description", row[17]);
+                writeField(json, "location", row[18]);
+                json.writeEndObject();
+            }
+        }
+
+        if (currentId != null) {
+            endShipment(json);
+        }
+        json.flush();
+        return count;
+    }
+
+    private void startShipment(JsonGenerator json, Object[] row) throws IOException {
+        json.writeStartObject();
+        writeField(json, "id", row[0]);
+        writeField(json, "orderCode", row[1]);
+        writeField(json, "trackingNumber", row[2]);
+        writeField(json, "provider", row[3]);
+        writeField(json, "serviceType", row[4]);
+        writeField(json, "status", row[5]);
+        writeField(json, "recipientName", row[6]);
+        writeField(json, "recipientEmail", row[7]);
+        writeField(json, "city", row[8]);
+        writeField(json, "province", row[9]);
+        writeField(json, "postalCode", row[10]);
+        writeField(json, "shippingCost", row[11]);
+        writeField(json, "createdAt", row[12]);
+        writeField(json, "estimatedDeliveryDate", row[13]);
+        writeField(json, "actualDeliveryDate", row[14]);
+        json.writeArrayFieldStart("trackingEvents");
+    }
+
+    private void endShipment(JsonGenerator json) throws IOException {
+        json.writeEndArray();
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    private void writeField(JsonGenerator json, String name, Object value) throws IOException {
+        if (value == null) {
+            json.writeNullField(name);
+        } else if (value instanceof BigDecimal decimal) {
+            json.writeNumberField(name, decimal);
+        } else if (value instanceof LocalDateTime dateTime) {
+            json.writeStringField(name, dateTime.toString());
+        } else {
+            json.writeStringField(name, value.toString());
+        }
+    }
+}
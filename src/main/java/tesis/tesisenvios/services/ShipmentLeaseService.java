@@ -0,0 +1,85 @@
+package tesis.tesisenvios.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.repositories.ShipmentRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reparto del barrido de tracking entre réplicas mediante leases en la tabla de envíos.
+ * Cada réplica reclama lotes de envíos vencidos; si se cae, el lease vence y otra réplica
+ * los vuelve a tomar. Es portable (H2 / SQL Server) porque no depende de SKIP LOCKED:
+ * el UPDATE condicional sobre lease_until es el que decide quién se queda con cada fila.
+ */
+@Service
+@Slf4j
+public class ShipmentLeaseService {
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private ClusterNode clusterNode;
+
+    /**
+     * Reclamar hasta batchSize envíos vencidos para este nodo
+     */
+    @Transactional
+    public List<String> claimBatch(Collection<ShipmentStatus> statuses, int batchSize, Duration leaseTime) {
+        return claimBatch(statuses, batchSize, leaseTime, LocalDateTime.now());
+    }
+
+    /**
+     * Reclamar envíos cuya próxima consulta es anterior a dueBefore (permite forzar un refresco)
+     */
+    @Transactional
+    public List<String> claimBatch(Collection<ShipmentStatus> statuses, int batchSize, Duration leaseTime,
+                                   LocalDateTime dueBefore) {
+        LocalDateTime now = LocalDateTime.now();
+
+        List<String> candidates = shipmentRepository.findDueForPolling(
+                statuses, dueBefore, now, PageRequest.of(0, batchSize));
+
+        return claim(candidates, now, leaseTime);
+    }
+
+    /**
+     * Reclamar envíos puntuales; los que ya tienen lease de otro nodo se omiten
+     */
+    @Transactional
+    public List<String> claimShipments(Collection<String> shipmentIds, Duration leaseTime) {
+        return claim(shipmentIds, LocalDateTime.now(), leaseTime);
+    }
+
+    private List<String> claim(Collection<String> candidates, LocalDateTime now, Duration leaseTime) {
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+
+        String token = clusterNode.getNodeId() + "/" + UUID.randomUUID();
+        int claimed = shipmentRepository.claimLeases(candidates, token, now, now.plus(leaseTime));
+
+        if (claimed < candidates.size()) {
+            log.debug("Lote parcialmente reclamado por otro nodo: {} de {}", claimed, candidates.size());
+        }
+
+        return claimed == 0 ? List.of() : shipmentRepository.findIdsByLeaseOwner(token);
+    }
+
+    /**
+     * Limpiar leases vencidos de nodos caídos
+     */
+    @Transactional
+    public int releaseExpiredLeases() {
+        return shipmentRepository.releaseExpiredLeases(LocalDateTime.now());
+    }
+}
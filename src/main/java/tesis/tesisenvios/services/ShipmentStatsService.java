@@ -0,0 +1,368 @@
+package tesis.tesisenvios.services;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import tesis.tesisenvios.dtos.ShipmentStatsResponse;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.entitites.ShipmentDailyStatsEntity;
+import tesis.tesisenvios.entitites.ShipmentDailyStatsKey;
+import tesis.tesisenvios.entitites.ShipmentStatusCountEntity;
+import tesis.tesisenvios.events.ShipmentCreatedEvent;
+import tesis.tesisenvios.events.ShipmentStatusChangedEvent;
+import tesis.tesisenvios.repositories.ShipmentDailyStatsRepository;
+import tesis.tesisenvios.repositories.ShipmentStatusCountRepository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Estadísticas de envíos mantenidas en forma incremental.
+ * Los eventos de creación y cambio de estado (después del commit) suman en contadores
+ * en memoria; un volcado periódico los agrega a shipment_daily_stats y shipment_status_counts.
+ * Las consultas leen solo esas tablas: el costo depende de la cantidad de días pedidos,
+ * no de la cantidad de envíos históricos.
+ */
+@Service
+@Slf4j
+public class ShipmentStatsService {
+
+    public static final String UNKNOWN = "NA";
+
+    // Topes (en días) del histograma de tiempo de entrega; lo que supera el último va a "> 7d"
+    private static final int[] DELIVERY_DAY_BUCKETS = {1, 2, 3, 5, 7};
+
+    // Posiciones en el arreglo de contadores diarios
+    private static final int CREATED = 0;
+    private static final int DELIVERED = 1;
+    private static final int ON_TIME = 2;
+    private static final int LATE = 3;
+    private static final int FAILED_DELIVERY = 4;
+    private static final int CANCELLED = 5;
+    private static final int RETURNED = 6;
+    private static final int COST_CENTS = 7;
+    private static final int COST_COUNT = 8;
+    private static final int DELIVERY_HOURS = 9;
+    private static final int HISTOGRAM = 10;
+    private static final int COUNTERS = HISTOGRAM + DELIVERY_DAY_BUCKETS.length + 1;
+
+    @Autowired
+    private ShipmentDailyStatsRepository dailyStatsRepository;
+
+    @Autowired
+    private ShipmentStatusCountRepository statusCountRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${stats.enabled:true}")
+    private boolean enabled;
+
+    @Value("${stats.max-range-days:366}")
+    private long maxRangeDays;
+
+    private final Map<ShipmentDailyStatsKey, LongAdder[]> pendingDaily = new ConcurrentHashMap<>();
+    private final Map<ShipmentStatus, LongAdder> pendingStatus = new ConcurrentHashMap<>();
+
+    // ================================
+    // EVENTOS
+    // ================================
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onShipmentCreated(ShipmentCreatedEvent event) {
+        if (!enabled) return;
+
+        statusDelta(event.getStatus()).increment();
+        if (event.getStatus() != ShipmentStatus.CREATED) return;
+
+        LongAdder[] counters = dailyCounters(event.getCreatedAt(), event.getRegionCode(), event.getServiceType());
+        counters[CREATED].increment();
+        if (event.getShippingCost() != null) {
+            counters[COST_CENTS].add(event.getShippingCost().movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue());
+            counters[COST_COUNT].increment();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onShipmentStatusChanged(ShipmentStatusChangedEvent event) {
+        if (!enabled) return;
+
+        statusDelta(event.getFromStatus()).decrement();
+        statusDelta(event.getToStatus()).increment();
+
+        LongAdder[] counters = dailyCounters(event.getChangedAt(), event.getRegionCode(), event.getServiceType());
+        switch (event.getToStatus()) {
+            case DELIVERED -> recordDelivery(counters, event);
+            case FAILED_DELIVERY -> counters[FAILED_DELIVERY].increment();
+            case CANCELLED -> counters[CANCELLED].increment();
+            case RETURNED -> counters[RETURNED].increment();
+            default -> { }
+        }
+    }
+
+    private void recordDelivery(LongAdder[] counters, ShipmentStatusChangedEvent event) {
+        counters[DELIVERED].increment();
+
+        if (event.getEstimatedDeliveryDate() != null) {
+            // A tiempo si se entregó hasta el final del día estimado
+            boolean onTime = !event.getChangedAt().toLocalDate().isAfter(event.getEstimatedDeliveryDate().toLocalDate());
+            counters[onTime ? ON_TIME : LATE].increment();
+        }
+
+        if (event.getCreatedAt() != null) {
+            long hours = Math.max(0, Duration.between(event.getCreatedAt(), event.getChangedAt()).toHours());
+            counters[DELIVERY_HOURS].add(hours);
+
+            long days = (hours + 23) / 24;
+            int bucket = 0;
+            while (bucket < DELIVERY_DAY_BUCKETS.length && days > DELIVERY_DAY_BUCKETS[bucket]) {
+                bucket++;
+            }
+            counters[HISTOGRAM + bucket].increment();
+        }
+    }
+
+    // ================================
+    // VOLCADO A LA BASE
+    // ================================
+
+    /**
+     * Sumar los contadores acumulados a las tablas de estadísticas
+     */
+    @Scheduled(fixedDelayString = "${stats.flush-interval-ms:10000}")
+    public void flush() {
+        for (Map.Entry<ShipmentDailyStatsKey, LongAdder[]> entry : pendingDaily.entrySet()) {
+            long[] delta = drain(entry.getValue());
+            if (isZero(delta)) continue;
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> applyDaily(entry.getKey(), delta));
+            } catch (DataIntegrityViolationException e) {
+                // Otra réplica insertó la misma fila: se reintenta como actualización en el próximo volcado
+                restore(entry.getKey(), delta);
+            } catch (Exception e) {
+                log.warn("Error volcando estadísticas de {}: {}", entry.getKey(), e.getMessage());
+                restore(entry.getKey(), delta);
+            }
+        }
+
+        // Las celdas de días anteriores ya no reciben eventos nuevos
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        pendingDaily.entrySet().removeIf(e -> e.getKey().getStatDate().isBefore(yesterday) && isZero(e.getValue()));
+
+        for (Map.Entry<ShipmentStatus, LongAdder> entry : pendingStatus.entrySet()) {
+            long delta = entry.getValue().sumThenReset();
+            if (delta == 0) continue;
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> applyStatus(entry.getKey(), delta));
+            } catch (Exception e) {
+                log.warn("Error volcando conteo de estado {}: {}", entry.getKey(), e.getMessage());
+                entry.getValue().add(delta);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void applyDaily(ShipmentDailyStatsKey key, long[] delta) {
+        ShipmentDailyStatsEntity stats = dailyStatsRepository.findForUpdate(key).orElse(null);
+        boolean isNew = stats == null;
+        if (isNew) {
+            stats = new ShipmentDailyStatsEntity();
+            stats.setId(key);
+        }
+
+        stats.setCreatedCount(stats.getCreatedCount() + delta[CREATED]);
+        stats.setDeliveredCount(stats.getDeliveredCount() + delta[DELIVERED]);
+        stats.setOnTimeCount(stats.getOnTimeCount() + delta[ON_TIME]);
+        stats.setLateCount(stats.getLateCount() + delta[LATE]);
+        stats.setFailedDeliveryCount(stats.getFailedDeliveryCount() + delta[FAILED_DELIVERY]);
+        stats.setCancelledCount(stats.getCancelledCount() + delta[CANCELLED]);
+        stats.setReturnedCount(stats.getReturnedCount() + delta[RETURNED]);
+        stats.setCostCentsSum(stats.getCostCentsSum() + delta[COST_CENTS]);
+        stats.setCostCount(stats.getCostCount() + delta[COST_COUNT]);
+        stats.setDeliveryHoursSum(stats.getDeliveryHoursSum() + delta[DELIVERY_HOURS]);
+        stats.setDeliveredWithin1Day(stats.getDeliveredWithin1Day() + delta[HISTOGRAM]);
+        stats.setDeliveredWithin2Days(stats.getDeliveredWithin2Days() + delta[HISTOGRAM + 1]);
+        stats.setDeliveredWithin3Days(stats.getDeliveredWithin3Days() + delta[HISTOGRAM + 2]);
+        stats.setDeliveredWithin5Days(stats.getDeliveredWithin5Days() + delta[HISTOGRAM + 3]);
+        stats.setDeliveredWithin7Days(stats.getDeliveredWithin7Days() + delta[HISTOGRAM + 4]);
+        stats.setDeliveredAfter7Days(stats.getDeliveredAfter7Days() + delta[HISTOGRAM + 5]);
+
+        if (isNew) {
+            dailyStatsRepository.saveAndFlush(stats);
+        }
+    }
+
+    private void applyStatus(ShipmentStatus status, long delta) {
+        if (statusCountRepository.increment(status, delta) == 0) {
+            statusCountRepository.saveAndFlush(new ShipmentStatusCountEntity(status, delta));
+        }
+    }
+
+    // ================================
+    // CONSULTA
+    // ================================
+
+    /**
+     * Estadísticas del rango de fechas, opcionalmente filtradas por región y servicio
+     */
+    public ShipmentStatsResponse getStats(LocalDate from, LocalDate to, String regionCode, String serviceType) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("La fecha desde no puede ser posterior a la fecha hasta");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxRangeDays) {
+            throw new IllegalArgumentException("El rango no puede superar " + maxRangeDays + " días");
+        }
+
+        List<ShipmentDailyStatsEntity> rows = dailyStatsRepository.findByIdStatDateBetween(from, to);
+
+        long[] totals = new long[COUNTERS];
+        Map<String, Long> byRegion = new TreeMap<>();
+        Map<String, Long> byService = new TreeMap<>();
+
+        for (ShipmentDailyStatsEntity row : rows) {
+            ShipmentDailyStatsKey key = row.getId();
+            if (regionCode != null && !regionCode.equalsIgnoreCase(key.getRegionCode())) continue;
+            if (serviceType != null && !serviceType.equalsIgnoreCase(key.getServiceType())) continue;
+
+            totals[CREATED] += row.getCreatedCount();
+            totals[DELIVERED] += row.getDeliveredCount();
+            totals[ON_TIME] += row.getOnTimeCount();
+            totals[LATE] += row.getLateCount();
+            totals[FAILED_DELIVERY] += row.getFailedDeliveryCount();
+            totals[CANCELLED] += row.getCancelledCount();
+            totals[RETURNED] += row.getReturnedCount();
+            totals[COST_CENTS] += row.getCostCentsSum();
+            totals[COST_COUNT] += row.getCostCount();
+            totals[DELIVERY_HOURS] += row.getDeliveryHoursSum();
+            totals[HISTOGRAM] += row.getDeliveredWithin1Day();
+            totals[HISTOGRAM + 1] += row.getDeliveredWithin2Days();
+            totals[HISTOGRAM + 2] += row.getDeliveredWithin3Days();
+            totals[HISTOGRAM + 3] += row.getDeliveredWithin5Days();
+            totals[HISTOGRAM + 4] += row.getDeliveredWithin7Days();
+            totals[HISTOGRAM + 5] += row.getDeliveredAfter7Days();
+
+            byRegion.merge(key.getRegionCode(), row.getCreatedCount(), Long::sum);
+            byService.merge(key.getServiceType(), row.getCreatedCount(), Long::sum);
+        }
+
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < DELIVERY_DAY_BUCKETS.length; i++) {
+            histogram.put("<=" + DELIVERY_DAY_BUCKETS[i] + "d", totals[HISTOGRAM + i]);
+        }
+        histogram.put(">" + DELIVERY_DAY_BUCKETS[DELIVERY_DAY_BUCKETS.length - 1] + "d",
+                totals[HISTOGRAM + DELIVERY_DAY_BUCKETS.length]);
+
+        Map<String, Long> byStatus = new LinkedHashMap<>();
+        Map<ShipmentStatus, Long> counts = new EnumMap<>(ShipmentStatus.class);
+        statusCountRepository.findAll().forEach(c -> counts.put(c.getStatus(), c.getShipmentCount()));
+        counts.forEach((status, count) -> byStatus.put(status.name(), count));
+
+        long withEstimate = totals[ON_TIME] + totals[LATE];
+        long timedDeliveries = histogramTotal(totals);
+
+        ShipmentStatsResponse response = new ShipmentStatsResponse();
+        response.setFrom(from);
+        response.setTo(to);
+        response.setRegionCode(regionCode);
+        response.setServiceType(serviceType);
+        response.setCreated(totals[CREATED]);
+        response.setDelivered(totals[DELIVERED]);
+        response.setFailedDeliveries(totals[FAILED_DELIVERY]);
+        response.setCancelled(totals[CANCELLED]);
+        response.setReturned(totals[RETURNED]);
+        response.setOnTimeRate(withEstimate > 0 ? (double) totals[ON_TIME] / withEstimate : null);
+        response.setAverageShippingCost(totals[COST_COUNT] > 0
+                ? BigDecimal.valueOf(totals[COST_CENTS], 2).divide(BigDecimal.valueOf(totals[COST_COUNT]), 2, RoundingMode.HALF_UP)
+                : null);
+        response.setAverageDeliveryHours(timedDeliveries > 0 ? (double) totals[DELIVERY_HOURS] / timedDeliveries : null);
+        response.setDeliveryDaysHistogram(histogram);
+        response.setCreatedByRegion(byRegion);
+        response.setCreatedByServiceType(byService);
+        response.setShipmentsByStatus(byStatus);
+        return response;
+    }
+
+    // ================================
+    // MÉTODOS AUXILIARES
+    // ================================
+
+    private LongAdder[] dailyCounters(LocalDateTime when, String regionCode, String serviceType) {
+        ShipmentDailyStatsKey key = new ShipmentDailyStatsKey(
+                (when != null ? when : LocalDateTime.now()).toLocalDate(),
+                regionCode != null ? regionCode : UNKNOWN,
+                serviceType != null ? serviceType.toUpperCase() : UNKNOWN);
+        return pendingDaily.computeIfAbsent(key, k -> newCounters());
+    }
+
+    private LongAdder statusDelta(ShipmentStatus status) {
+        return pendingStatus.computeIfAbsent(status, s -> new LongAdder());
+    }
+
+    private void restore(ShipmentDailyStatsKey key, long[] delta) {
+        LongAdder[] counters = pendingDaily.computeIfAbsent(key, k -> newCounters());
+        for (int i = 0; i < COUNTERS; i++) {
+            counters[i].add(delta[i]);
+        }
+    }
+
+    private static LongAdder[] newCounters() {
+        LongAdder[] counters = new LongAdder[COUNTERS];
+        for (int i = 0; i < COUNTERS; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    private static long[] drain(LongAdder[] counters) {
+        long[] values = new long[COUNTERS];
+        for (int i = 0; i < COUNTERS; i++) {
+            values[i] = counters[i].sumThenReset();
+        }
+        return values;
+    }
+
+    private static boolean isZero(long[] values) {
+        for (long value : values) {
+            if (value != 0) return false;
+        }
+        return true;
+    }
+
+    private static boolean isZero(LongAdder[] counters) {
+        for (LongAdder counter : counters) {
+            if (counter.sum() != 0) return false;
+        }
+        return true;
+    }
+
+    private static long histogramTotal(long[] totals) {
+        long total = 0;
+        for (int i = HISTOGRAM; i < COUNTERS; i++) {
+            total += totals[i];
+        }
+        return total;
+    }
+}
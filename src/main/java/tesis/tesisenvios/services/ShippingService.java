@@ -5,6 +5,8 @@ import org.springframework.stereotype.Service;
 import tesis.tesisenvios.dtos.CreateShipmentRequest;
 import tesis.tesisenvios.dtos.QuoteRequest;
 import tesis.tesisenvios.dtos.ShipmentResponse;
+import tesis.tesisenvios.dtos.ShipmentSummaryResponse;
+import tesis.tesisenvios.dtos.ShipmentVersion;
 import tesis.tesisenvios.dtos.ShippingQuoteResponse;
 
 import java.util.List;
@@ -16,6 +18,16 @@ public interface ShippingService {
      */
     List<ShippingQuoteResponse> getShippingQuotes(QuoteRequest request);
 
+    /**
+     * Cotizar varios carritos o destinos en una sola llamada (resultado en el mismo orden)
+     */
+    List<List<ShippingQuoteResponse>> getShippingQuotesBatch(List<QuoteRequest> requests);
+
+    /**
+     * Precalentar cotizaciones para un destino sin esperar la respuesta de los proveedores
+     */
+    void prewarmQuotes(QuoteRequest request);
+
     /**
      * Crear un envío
      */
@@ -27,10 +39,25 @@ public interface ShippingService {
     ShipmentResponse getShipmentByOrderCode(String orderCode);
 
     /**
-     * Obtener seguimiento por número de tracking
+     * Resumen de un envío (estado, fecha estimada y último evento) sin leer todo el historial
+     */
+    ShipmentSummaryResponse getShipmentSummaryByOrderCode(String orderCode);
+
+    /**
+     * Obtener seguimiento por número de tracking (lo guardado, sin consultar al proveedor)
      */
     ShipmentResponse getShipmentByTrackingNumber(String trackingNumber);
 
+    /**
+     * Versión de un envío para GET condicional, sin armar la respuesta
+     */
+    ShipmentVersion getShipmentVersionByOrderCode(String orderCode);
+
+    /**
+     * Versión de un envío por tracking; antes consulta al proveedor si le toca según next_poll_at
+     */
+    ShipmentVersion getShipmentVersionByTrackingNumber(String trackingNumber);
+
     /**
      * Actualizar tracking de todos los envíos activos
      */
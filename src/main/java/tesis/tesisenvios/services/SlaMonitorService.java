@@ -0,0 +1,238 @@
+package tesis.tesisenvios.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import tesis.tesisenvios.dtos.ShipmentDeadline;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.dtos.SlaAlertResponse;
+import tesis.tesisenvios.dtos.SlaReportResponse;
+import tesis.tesisenvios.dtos.SlaState;
+import tesis.tesisenvios.repositories.ShipmentChangeRepository;
+import tesis.tesisenvios.repositories.ShipmentRepository;
+import tesis.tesisenvios.services.impl.ShipmentTrackingUpdater;
+import tesis.tesisenvios.utils.EpochSeconds;
+import tesis.tesisenvios.utils.SlaTracker;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Detector de envíos en riesgo o atrasados respecto de la fecha estimada de entrega.
+ * <ul>
+ *   <li>Al arrancar carga los envíos activos con fecha estimada (recorrido por id, una sola vez)
+ *   y toma como marca el offset del log de cambios leído antes de la carga.</li>
+ *   <li>Después solo consume el log de cambios desde la marca: altas y transiciones de todas las
+ *   réplicas, en orden. Los envíos que terminan salen del índice; los nuevos se cargan por id.</li>
+ *   <li>Los vencimientos se sacan de un heap por fecha (ver {@link SlaTracker}): cada pasada cuesta
+ *   lo que vence, no lo que está activo.</li>
+ * </ul>
+ * Corre en todas las réplicas (solo lee); cada una responde el endpoint desde su propio índice.
+ */
+@Service
+@Slf4j
+public class SlaMonitorService {
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private ShipmentChangeRepository shipmentChangeRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${sla.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sla.at-risk-hours:24}")
+    private long atRiskHours;
+
+    @Value("${sla.batch-size:500}")
+    private int batchSize;
+
+    @Value("${sla.max-limit:500}")
+    private int maxLimit;
+
+    private SlaTracker tracker;
+
+    // Último offset del log de cambios aplicado; -1 hasta terminar la carga inicial
+    private volatile long watermark = -1;
+
+    private final Map<SlaState, Counter> flaggedCounters = new EnumMap<>(SlaState.class);
+
+    @PostConstruct
+    void init() {
+        tracker = new SlaTracker(atRiskHours * 3600);
+
+        for (SlaState state : List.of(SlaState.AT_RISK, SlaState.LATE)) {
+            flaggedCounters.put(state, Counter.builder("shipping.sla.flagged")
+                    .description("Envíos que pasaron a en riesgo o atrasados")
+                    .tag("state", state.name())
+                    .register(meterRegistry));
+        }
+        Gauge.builder("shipping.sla.tracked", this, s -> s.count(null)).register(meterRegistry);
+        Gauge.builder("shipping.sla.at_risk", this, s -> s.count(SlaState.AT_RISK)).register(meterRegistry);
+        Gauge.builder("shipping.sla.late", this, s -> s.count(SlaState.LATE)).register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${sla.interval-ms:5000}", initialDelayString = "${sla.initial-delay-ms:15000}")
+    public void scheduledAdvance() {
+        if (!enabled) return;
+
+        try {
+            if (watermark < 0) {
+                bootstrap();
+            }
+            applyChanges();
+            advance();
+        } catch (Exception e) {
+            log.warn("Error actualizando el detector de SLA: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Envíos en riesgo y/o atrasados (state null = ambos), el plazo más vencido primero
+     */
+    public SlaReportResponse getReport(SlaState state, int limit) {
+        if (state == SlaState.ON_TRACK) {
+            throw new IllegalArgumentException("Solo se listan envíos AT_RISK o LATE");
+        }
+
+        int capped = Math.min(Math.max(1, limit), maxLimit);
+        List<SlaAlertResponse> shipments = new ArrayList<>();
+        synchronized (tracker) {
+            for (SlaTracker.Entry entry : tracker.flagged(state, capped)) {
+                shipments.add(new SlaAlertResponse(
+                        entry.getOrderCode(),
+                        entry.getTrackingNumber(),
+                        entry.getStatus(),
+                        entry.getState(),
+                        entry.getEstimatedDeliveryDate(),
+                        entry.getDeadline(),
+                        EpochSeconds.toLocalDateTime(entry.getFlaggedAt())));
+            }
+            return new SlaReportResponse(tracker.size(), tracker.count(SlaState.AT_RISK),
+                    tracker.count(SlaState.LATE), watermark, shipments);
+        }
+    }
+
+    // ================================
+    // MÉTODOS AUXILIARES
+    // ================================
+
+    /**
+     * Carga inicial. La marca se lee antes de recorrer: lo que cambie durante la carga se vuelve
+     * a aplicar desde el log, y aplicar dos veces el mismo estado no cambia nada.
+     */
+    private void bootstrap() {
+        long head = shipmentChangeRepository.findHeadSeq();
+        long now = EpochSeconds.now();
+        String afterId = "";
+        int loaded = 0;
+
+        while (true) {
+            List<ShipmentDeadline> page = shipmentRepository.findDeadlinesAfter(
+                    ShipmentTrackingUpdater.ACTIVE_STATUSES, afterId, PageRequest.of(0, batchSize));
+            synchronized (tracker) {
+                for (ShipmentDeadline shipment : page) {
+                    track(shipment, now);
+                }
+            }
+            loaded += page.size();
+            if (page.size() < batchSize) break;
+            afterId = page.get(page.size() - 1).getId();
+        }
+
+        synchronized (tracker) {
+            // Esos envíos ya estaban en riesgo o atrasados antes de arrancar: no se cuentan como nuevos
+            tracker.drainFlagged();
+        }
+        watermark = head;
+        log.info("Detector de SLA cargado: {} envíos activos, marca {}", loaded, head);
+    }
+
+    /**
+     * Aplicar las entradas del log de cambios posteriores a la marca
+     */
+    private void applyChanges() {
+        while (true) {
+            List<Object[]> rows = shipmentChangeRepository.findStatusSince(watermark, PageRequest.of(0, batchSize));
+            if (rows.isEmpty()) return;
+
+            // Solo importa el último estado de cada envío dentro del lote
+            Map<String, ShipmentStatus> latest = new LinkedHashMap<>();
+            for (Object[] row : rows) {
+                latest.put((String) row[1], (ShipmentStatus) row[2]);
+            }
+
+            long now = EpochSeconds.now();
+            List<String> missing = new ArrayList<>();
+            synchronized (tracker) {
+                for (Map.Entry<String, ShipmentStatus> change : latest.entrySet()) {
+                    ShipmentStatus status = change.getValue();
+                    if (status == null || !ShipmentTrackingUpdater.ACTIVE_STATUSES.contains(status)) {
+                        tracker.remove(change.getKey());
+                    } else if (!tracker.updateStatus(change.getKey(), status, now)) {
+                        missing.add(change.getKey());
+                    }
+                }
+            }
+
+            if (!missing.isEmpty()) {
+                List<ShipmentDeadline> loaded = shipmentRepository.findDeadlinesByIdIn(
+                        missing, ShipmentTrackingUpdater.ACTIVE_STATUSES);
+                synchronized (tracker) {
+                    for (ShipmentDeadline shipment : loaded) {
+                        track(shipment, now);
+                    }
+                }
+            }
+
+            watermark = (Long) rows.get(rows.size() - 1)[0];
+            if (rows.size() < batchSize) return;
+        }
+    }
+
+    private void advance() {
+        List<SlaTracker.Entry> flagged;
+        synchronized (tracker) {
+            tracker.advance(EpochSeconds.now());
+            flagged = tracker.drainFlagged();
+        }
+        for (SlaTracker.Entry entry : flagged) {
+            record(entry.getState(), entry.getOrderCode(), entry.getTrackingNumber());
+        }
+    }
+
+    private void track(ShipmentDeadline shipment, long now) {
+        tracker.track(shipment.getId(), shipment.getOrderCode(), shipment.getTrackingNumber(),
+                shipment.getStatus(), shipment.getEstimatedDeliveryDate(), now);
+    }
+
+    private void record(SlaState state, String orderCode, String trackingNumber) {
+        Counter counter = flaggedCounters.get(state);
+        if (counter == null) return;
+
+        counter.increment();
+        if (state == SlaState.LATE) {
+            log.info("Envío atrasado: orden {} ({})", orderCode, trackingNumber);
+        }
+    }
+
+    private double count(SlaState state) {
+        synchronized (tracker) {
+            return state != null ? tracker.count(state) : tracker.size();
+        }
+    }
+}
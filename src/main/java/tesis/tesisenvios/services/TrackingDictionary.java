@@ -0,0 +1,139 @@
+package tesis.tesisenvios.services;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import tesis.tesisenvios.dtos.TrackingEventResponse;
+import tesis.tesisenvios.entitites.TrackingDictionaryEntity;
+import tesis.tesisenvios.entitites.TrackingEventEntity;
+import tesis.tesisenvios.repositories.TrackingDictionaryRepository;
+import tesis.tesisenvios.utils.EpochSeconds;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Diccionario de términos de tracking (estados, sucursales, descripciones).
+ * Los eventos guardan solo el código; cada término existe una sola vez en la base y en memoria,
+ * así miles de eventos "En tránsito" en "Centro de Distribución Córdoba" comparten las mismas instancias.
+ * El diccionario completo se carga al iniciar y los términos nuevos se agregan a medida que aparecen.
+ */
+@Service
+@Slf4j
+public class TrackingDictionary {
+
+    public static final int NONE = 0;
+
+    // Largo máximo del término (entra en el índice único de SQL Server)
+    public static final int MAX_TERM_LENGTH = 400;
+
+    public enum Kind {
+        STATUS("S"), LOCATION("L"), DESCRIPTION("D");
+
+        private final String code;
+
+        Kind(String code) {
+            this.code = code;
+        }
+    }
+
+    @Autowired
+    private TrackingDictionaryRepository repository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // kind + término -> código, y código -> término
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private final Map<Integer, String> terms = new ConcurrentHashMap<>();
+
+    private TransactionTemplate newTransaction;
+
+    @PostConstruct
+    void load() {
+        newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        repository.findAll().forEach(this::remember);
+        log.info("Diccionario de tracking cargado: {} términos", terms.size());
+    }
+
+    /**
+     * Código del término, dándolo de alta si no existe. Null o vacío = NONE.
+     */
+    public int code(Kind kind, String term) {
+        if (term == null || term.isEmpty()) return NONE;
+
+        String normalized = term.length() > MAX_TERM_LENGTH ? term.substring(0, MAX_TERM_LENGTH) : term;
+        Integer code = codes.get(kind.code + normalized);
+        if (code != null) return code;
+
+        // Sin lock: si dos hilos (o réplicas) dan de alta el mismo término, el índice único deja
+        // uno solo y el otro lo relee. Así un alta lenta no frena los términos ya conocidos.
+        code = remember(findOrInsert(kind, normalized));
+        // Con collation sin distinción de mayúsculas la base puede devolver otra grafía del término
+        codes.putIfAbsent(kind.code + normalized, code);
+        return code;
+    }
+
+    /**
+     * Término de un código; null para NONE
+     */
+    public String term(int code) {
+        if (code == NONE) return null;
+
+        String term = terms.get(code);
+        if (term != null) return term;
+
+        // Alta hecha por otra réplica después de la carga inicial
+        return repository.findById(code)
+                .map(entity -> terms.get(remember(entity)))
+                .orElse(null);
+    }
+
+    /**
+     * Armar la respuesta de un evento resolviendo sus códigos
+     */
+    public TrackingEventResponse toResponse(TrackingEventEntity event) {
+        return new TrackingEventResponse(
+                EpochSeconds.toLocalDateTime(event.getEventEpoch()),
+                term(event.getStatusCode()),
+                term(event.getDescriptionCode()),
+                term(event.getLocationCode()),
+                event.getProviderEventId());
+    }
+
+    public int size() {
+        return terms.size();
+    }
+
+    // ================================
+    // MÉTODOS AUXILIARES
+    // ================================
+
+    private TrackingDictionaryEntity findOrInsert(Kind kind, String term) {
+        return repository.findByKindAndTerm(kind.code, term).orElseGet(() -> {
+            try {
+                // Transacción propia: el alta queda aunque la transacción del llamador haga rollback
+                return newTransaction.execute(status ->
+                        repository.saveAndFlush(new TrackingDictionaryEntity(null, kind.code, term)));
+            } catch (DataIntegrityViolationException | ConcurrencyFailureException e) {
+                // Otro hilo o réplica lo dio de alta al mismo tiempo (uk_tracking_dictionary_term)
+                return repository.findByKindAndTerm(kind.code, term).orElseThrow(() -> e);
+            }
+        });
+    }
+
+    private int remember(TrackingDictionaryEntity entity) {
+        String term = entity.getTerm();
+        codes.put(entity.getKind() + term, entity.getId());
+        terms.put(entity.getId(), term);
+        return entity.getId();
+    }
+}
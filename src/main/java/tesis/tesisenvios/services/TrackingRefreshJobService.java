@@ -0,0 +1,17 @@
+package tesis.tesisenvios.services;
+
+import tesis.tesisenvios.dtos.TrackingRefreshJobResponse;
+import tesis.tesisenvios.dtos.TrackingRefreshRequest;
+
+public interface TrackingRefreshJobService {
+
+    /**
+     * Encolar un refresco de tracking (o unirse a uno equivalente en curso)
+     */
+    TrackingRefreshJobResponse enqueue(TrackingRefreshRequest request);
+
+    /**
+     * Obtener estado y progreso de un trabajo
+     */
+    TrackingRefreshJobResponse getJob(String jobId);
+}
@@ -0,0 +1,129 @@
+package tesis.tesisenvios.services.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.repositories.ShipmentRepository;
+import tesis.tesisenvios.services.AdmissionController;
+import tesis.tesisenvios.services.SchedulerLockService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Conciliación programada de envíos terminados contra el proveedor.
+ * Recorre los terminados de los últimos días por lotes con un cursor (updated_at, id) y
+ * compara el último estado del proveedor con el local; las cancelaciones que el proveedor
+ * no aplicó se reabren. Cada consulta pide permiso al control de admisión como trabajo
+ * de baja prioridad: con el checkout cargado la corrida se corta y sigue en la próxima.
+ */
+@Service
+@Slf4j
+public class CarrierReconciliationJob {
+
+    private static final String RECONCILIATION_LOCK = "carrier-reconciliation";
+    private static final List<ShipmentStatus> TERMINAL_STATUSES = List.of(
+            ShipmentStatus.CANCELLED, ShipmentStatus.DELIVERED, ShipmentStatus.RETURNED);
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private ShipmentTrackingUpdater shipmentTrackingUpdater;
+
+    @Autowired
+    private AdmissionController admissionController;
+
+    @Autowired
+    private SchedulerLockService schedulerLockService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${reconciliation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${reconciliation.window-days:14}")
+    private long windowDays;
+
+    @Value("${reconciliation.batch-size:50}")
+    private int batchSize;
+
+    // Cursor en memoria: si cambia el líder, el nuevo empieza desde el principio de la ventana
+    private LocalDateTime cursorUpdatedAt;
+    private String cursorId = "";
+
+    @Scheduled(fixedDelayString = "${reconciliation.interval-ms:600000}",
+            initialDelayString = "${reconciliation.initial-delay-ms:300000}")
+    public void scheduledReconciliation() {
+        if (!enabled) return;
+        if (!schedulerLockService.tryAcquire(RECONCILIATION_LOCK, Duration.ofMinutes(10))) return;
+
+        runReconciliation();
+    }
+
+    /**
+     * Conciliar el próximo lote. Retorna cuántos envíos se compararon.
+     */
+    public synchronized int runReconciliation() {
+        LocalDateTime windowStart = LocalDateTime.now().minusDays(windowDays);
+        if (cursorUpdatedAt == null || cursorUpdatedAt.isBefore(windowStart)) {
+            cursorUpdatedAt = windowStart;
+            cursorId = "";
+        }
+
+        List<Object[]> batch = shipmentRepository.findForReconciliation(TERMINAL_STATUSES, cursorUpdatedAt, cursorId,
+                PageRequest.of(0, batchSize));
+        if (batch.isEmpty()) {
+            // Vuelta completa: la próxima corrida empieza otra vez desde el inicio de la ventana
+            cursorUpdatedAt = null;
+            return 0;
+        }
+
+        int checked = 0;
+        int drifted = 0;
+        for (Object[] row : batch) {
+            if (!admissionController.admitBackground(RECONCILIATION_LOCK)) {
+                log.debug("Conciliación pausada por carga: {} de {} envíos del lote", checked, batch.size());
+                break;
+            }
+
+            String shipmentId = (String) row[0];
+            try {
+                ShipmentStatus carrierStatus = shipmentTrackingUpdater.reconcileWithCarrier(shipmentId);
+                boolean drift = carrierStatus != null && !TERMINAL_STATUSES.contains(carrierStatus);
+                if (drift) {
+                    drifted++;
+                }
+                outcome(carrierStatus == null ? "unknown" : drift ? "drift" : "checked");
+            } catch (Exception e) {
+                outcome("error");
+                log.warn("Error conciliando envío {}: {}", shipmentId, e.getMessage());
+            }
+
+            cursorUpdatedAt = (LocalDateTime) row[1];
+            cursorId = shipmentId;
+            checked++;
+        }
+
+        if (drifted > 0) {
+            log.warn("Conciliación: {} de {} envíos terminados siguen activos en el proveedor", drifted, checked);
+        }
+        return checked;
+    }
+
+    private void outcome(String outcome) {
+        Counter.builder("carrier.reconciliation")
+                .description("Envíos terminados conciliados con el proveedor por resultado")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+}
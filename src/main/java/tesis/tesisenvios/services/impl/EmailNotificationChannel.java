@@ -0,0 +1,106 @@
+package tesis.tesisenvios.services.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+import tesis.tesisenvios.dtos.NotificationChannelType;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.entitites.NotificationOutboxEntity;
+import tesis.tesisenvios.entitites.ShipmentEntity;
+import tesis.tesisenvios.services.NotificationChannel;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mails de cambio de estado al destinatario. Todo el lote sale por una sola conexión SMTP.
+ * Solo está habilitado si hay servidor configurado (spring.mail.host).
+ */
+@Component
+@Slf4j
+public class EmailNotificationChannel implements NotificationChannel {
+
+    private static final Map<ShipmentStatus, String> STATUS_TEXT = new EnumMap<>(ShipmentStatus.class);
+
+    static {
+        STATUS_TEXT.put(ShipmentStatus.PICKED_UP, "fue retirado por el correo");
+        STATUS_TEXT.put(ShipmentStatus.IN_TRANSIT, "está en camino");
+        STATUS_TEXT.put(ShipmentStatus.OUT_FOR_DELIVERY, "salió para entrega");
+        STATUS_TEXT.put(ShipmentStatus.DELIVERED, "fue entregado");
+        STATUS_TEXT.put(ShipmentStatus.FAILED_DELIVERY, "no pudo ser entregado, se volverá a intentar");
+        STATUS_TEXT.put(ShipmentStatus.RETURNED, "fue devuelto al remitente");
+        STATUS_TEXT.put(ShipmentStatus.CANCELLED, "fue cancelado");
+    }
+
+    @Autowired
+    private ObjectProvider<JavaMailSender> mailSender;
+
+    @Value("${notifications.email.enabled:true}")
+    private boolean enabled;
+
+    @Value("${notifications.email.from:envios@tesis.local}")
+    private String from;
+
+    @Override
+    public NotificationChannelType getType() {
+        return NotificationChannelType.EMAIL;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled && mailSender.getIfAvailable() != null;
+    }
+
+    @Override
+    public String recipientFor(ShipmentEntity shipment) {
+        String email = shipment.getRecipientEmail();
+        return email != null && !email.isBlank() ? email.trim() : null;
+    }
+
+    @Override
+    public Map<Long, String> send(List<NotificationOutboxEntity> batch) {
+        Map<SimpleMailMessage, Long> ids = new IdentityHashMap<>();
+        SimpleMailMessage[] messages = new SimpleMailMessage[batch.size()];
+
+        for (int i = 0; i < batch.size(); i++) {
+            messages[i] = toMessage(batch.get(i));
+            ids.put(messages[i], batch.get(i).getId());
+        }
+
+        try {
+            mailSender.getObject().send(messages);
+            return Map.of();
+        } catch (MailSendException e) {
+            // Fallas por mensaje: el resto del lote se dio por enviado
+            if (e.getFailedMessages().isEmpty()) throw e;
+
+            Map<Long, String> failed = new HashMap<>();
+            e.getFailedMessages().forEach((message, error) ->
+                    failed.put(ids.get(message), error.getMessage()));
+            return failed;
+        }
+    }
+
+    private SimpleMailMessage toMessage(NotificationOutboxEntity notification) {
+        String statusText = STATUS_TEXT.getOrDefault(notification.getShipmentStatus(),
+                "cambió de estado (" + notification.getShipmentStatus() + ")");
+
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(from);
+        message.setTo(notification.getRecipient());
+        message.setSubject("Tu envío " + notification.getOrderCode() + " " + statusText);
+        message.setText("Hola" + (notification.getRecipientName() != null ? " " + notification.getRecipientName() : "") + ",\n\n" +
+                "Tu envío de la orden " + notification.getOrderCode() + " " + statusText + ".\n" +
+                (notification.getTrackingNumber() != null
+                        ? "Número de seguimiento: " + notification.getTrackingNumber() + "\n" : ""));
+        return message;
+    }
+}
@@ -1,6 +1,8 @@
 package tesis.tesisenvios.services.impl;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import tesis.tesisenvios.dtos.CreateShipmentRequest;
@@ -9,19 +11,70 @@ import tesis.tesisenvios.dtos.ShippingQuoteResponse;
 import tesis.tesisenvios.dtos.TrackingEventResponse;
 import tesis.tesisenvios.entitites.ShipmentEntity;
 import tesis.tesisenvios.services.AndreaniProviderService;
+import tesis.tesisenvios.services.LabelRenderer;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Proveedor simulado, determinístico a partir de andreani.mock.seed.
+ * Cada número de tracking recorre un ciclo de vida realista (entrega, reintento, devolución
+ * o envío demorado) sobre un reloj virtual acelerado y devuelve eventos con ids estables.
+ */
 @Service
 @ConditionalOnProperty(name = "andreani.mock.enabled", havingValue = "true", matchIfMissing = true)
 @Slf4j
 public class MockAndreaniService extends AndreaniProviderService {
 
-    private final Random random = new Random();
+    private static final Set<String> TERMINAL_STATUSES = Set.of("ENTREGADO", "DEVUELTO");
+
+    private static final Step CREATED = new Step("CREADO", "Orden creada en el sistema", "Centro de Distribución Córdoba", 0, 0);
+    private static final Step PICKED_UP = new Step("RETIRADO", "Paquete retirado del origen", "Centro de Distribución Córdoba", 240, 720);
+    private static final Step IN_TRANSIT = new Step("EN_TRANSITO", "En tránsito hacia destino", "Centro de Distribución Buenos Aires", 360, 1080);
+    private static final Step OUT_FOR_DELIVERY = new Step("SALIDA_REPARTO", "Salió para entrega", "Base de Reparto Zona Norte", 720, 2160);
+    private static final Step RETRY_DELIVERY = new Step("SALIDA_REPARTO", "Nuevo intento de entrega", "Base de Reparto Zona Norte", 1200, 1680);
+    private static final Step FAILED = new Step("NO_ENTREGADO", "Destinatario ausente", "Domicilio del destinatario", 120, 360);
+    private static final Step DELIVERED = new Step("ENTREGADO", "Paquete entregado al destinatario", "Domicilio del destinatario", 60, 360);
+    private static final Step RETURNED = new Step("DEVUELTO", "Paquete devuelto al remitente", "Centro de Distribución Córdoba", 2880, 5760);
+
+    private static final Step[] DELIVERED_SCENARIO = {CREATED, PICKED_UP, IN_TRANSIT, OUT_FOR_DELIVERY, DELIVERED};
+    private static final Step[] RETRY_SCENARIO = {CREATED, PICKED_UP, IN_TRANSIT, OUT_FOR_DELIVERY, FAILED, RETRY_DELIVERY, DELIVERED};
+    private static final Step[] RETURNED_SCENARIO = {CREATED, PICKED_UP, IN_TRANSIT, OUT_FOR_DELIVERY, FAILED, RETRY_DELIVERY, FAILED, RETURNED};
+    private static final Step[] STALLED_SCENARIO = {CREATED, PICKED_UP, IN_TRANSIT};
+
+    @Value("${andreani.mock.seed:42}")
+    private long seed;
+
+    // Minutos simulados por minuto real (60 = un día de ciclo de vida en 24 minutos)
+    @Value("${andreani.mock.time-scale:60}")
+    private double timeScale;
+
+    @Value("${andreani.mock.failure-rate-percent:5}")
+    private int failureRatePercent;
+
+    @Value("${andreani.mock.max-tracked:100000}")
+    private int maxTracked;
+
+    @Autowired
+    private LabelRenderer labelRenderer;
+
+    private final Map<String, MockTimeline> timelines = new ConcurrentHashMap<>();
+
+    // Cancelados: ya no generan eventos (si no, la conciliación los vería avanzar y los reabriría)
+    private final Set<String> cancelled = ConcurrentHashMap.newKeySet();
+
+    // Terminados y ya vistos completos: solo se guarda el ancla para rearmar los mismos eventos,
+    // todos visibles (si no, la conciliación vería un ciclo nuevo en CREADO)
+    private final Map<String, Long> finished = new ConcurrentHashMap<>();
 
     @Override
     public String getAuthToken() {
@@ -67,62 +120,62 @@ public class MockAndreaniService extends AndreaniProviderService {
     public String createShipment(ShipmentEntity shipment, CreateShipmentRequest request) {
         log.info("🔧 MOCK: Creando envío para orden: {}", request.getOrderCode());
 
-        // Simular posible falla (5% de chance)
-        if (random.nextInt(100) < 5) {
+        // Falla y número de tracking derivados de la semilla y la orden: misma orden, mismo resultado
+        long hash = mix(seed ^ stringHash(request.getOrderCode()));
+
+        if (Math.floorMod(hash, 100) < failureRatePercent) {
             log.warn("🔧 MOCK: Simulando falla en creación de envío");
             return null;
         }
 
-        // Generar número de tracking simulado
-        String trackingNumber = generateMockTrackingNumber();
-        log.info("🔧 MOCK: Envío creado con tracking: {}", trackingNumber);
+        // Formato similar a Andreani: AND + 10 dígitos
+        String trackingNumber = "AND" + String.format("%010d", Math.floorMod(mix(hash), 10_000_000_000L));
+        timelineFor(trackingNumber);
 
+        log.info("🔧 MOCK: Envío creado con tracking: {}", trackingNumber);
         return trackingNumber;
     }
 
     @Override
     public List<TrackingEventResponse> getTrackingEvents(String trackingNumber) {
-        log.info("🔧 MOCK: Obteniendo eventos para tracking: {}", trackingNumber);
-
-        // Simular eventos de tracking basados en el tiempo
-        List<TrackingEventResponse> events = Arrays.asList(
-                createMockEvent(
-                        LocalDateTime.now().minusDays(2),
-                        "CREADO",
-                        "Orden creada en el sistema",
-                        "Centro de Distribución Córdoba"
-                ),
-                createMockEvent(
-                        LocalDateTime.now().minusDays(1),
-                        "RETIRADO",
-                        "Paquete retirado del origen",
-                        "Centro de Distribución Córdoba"
-                ),
-                createMockEvent(
-                        LocalDateTime.now().minusHours(12),
-                        "EN_TRANSITO",
-                        "En tránsito hacia destino",
-                        "Centro de Distribución Buenos Aires"
-                ),
-                createMockEvent(
-                        LocalDateTime.now().minusHours(2),
-                        "SALIDA_REPARTO",
-                        "Salió para entrega",
-                        "Base de Reparto Zona Norte"
-                )
-        );
-
-        // Simular entrega (30% de chance)
-        if (random.nextInt(100) < 30) {
-            events.add(createMockEvent(
-                    LocalDateTime.now().minusMinutes(30),
-                    "ENTREGADO",
-                    "Paquete entregado al destinatario",
-                    "Domicilio del destinatario"
-            ));
+        log.debug("🔧 MOCK: Obteniendo eventos para tracking: {}", trackingNumber);
+
+        if (cancelled.contains(trackingNumber)) {
+            return List.of();
+        }
+
+        Long finishedAnchor = finished.get(trackingNumber);
+        if (finishedAnchor != null) {
+            return buildTimeline(trackingNumber, finishedAnchor).events;
         }
 
-        return events;
+        MockTimeline timeline = timelineFor(trackingNumber);
+        int visible = timeline.visibleCount(System.currentTimeMillis());
+
+        if (visible == timeline.events.size() && timeline.terminal) {
+            // Ya no va a cambiar: se libera la línea de tiempo y queda solo su ancla
+            if (finished.size() < maxTracked) {
+                finished.put(trackingNumber, timeline.anchorMillis);
+            }
+            timelines.remove(trackingNumber);
+        }
+        return timeline.events.subList(0, visible);
+    }
+
+    @Override
+    public byte[] getLabel(ShipmentEntity shipment) {
+        log.info("🔧 MOCK: Generando etiqueta para tracking: {}", shipment.getTrackingNumber());
+        return labelRenderer.render(shipment);
+    }
+
+    @Override
+    public boolean cancelShipment(String trackingNumber) {
+        log.info("🔧 MOCK: Cancelando envío con tracking: {}", trackingNumber);
+        timelines.remove(trackingNumber);
+        if (cancelled.size() < maxTracked) {
+            cancelled.add(trackingNumber);
+        }
+        return true;
     }
 
     // ================================
@@ -172,18 +225,102 @@ public class MockAndreaniService extends AndreaniProviderService {
         }
     }
 
-    private String generateMockTrackingNumber() {
-        // Formato similar a Andreani: AND + 10 dígitos
-        return "AND" + String.format("%010d", random.nextInt(1000000000));
+    // ================================
+    // CICLO DE VIDA SIMULADO
+    // ================================
+
+    /**
+     * Línea de tiempo del envío: se calcula una sola vez (semilla + tracking) con fechas absolutas,
+     * así cada consulta devuelve los mismos eventos con los mismos ids y solo se suman los nuevos.
+     */
+    private MockTimeline timelineFor(String trackingNumber) {
+        MockTimeline timeline = timelines.get(trackingNumber);
+        if (timeline != null) return timeline;
+
+        if (timelines.size() >= maxTracked) {
+            // Tope de memoria: se descarta uno cualquiera (si se vuelve a consultar arranca de nuevo,
+            // con los mismos ids de evento)
+            Iterator<String> it = timelines.keySet().iterator();
+            if (it.hasNext()) {
+                timelines.remove(it.next());
+            }
+        }
+        return timelines.computeIfAbsent(trackingNumber,
+                tn -> buildTimeline(tn, System.currentTimeMillis()));
+    }
+
+    private MockTimeline buildTimeline(String trackingNumber, long anchorMillis) {
+        Random rnd = new Random(mix(seed ^ stringHash(trackingNumber)));
+
+        Step[] scenario = pickScenario(rnd.nextInt(100));
+        TrackingEventResponse[] events = new TrackingEventResponse[scenario.length];
+        long[] visibleAt = new long[scenario.length];
+
+        long virtualMinutes = 0;
+        for (int i = 0; i < scenario.length; i++) {
+            Step step = scenario[i];
+            virtualMinutes += step.minMinutes + rnd.nextInt(step.maxMinutes - step.minMinutes + 1);
+
+            // Reloj virtual: timeScale minutos simulados por cada minuto real
+            visibleAt[i] = anchorMillis + (long) (virtualMinutes * 60_000L / timeScale);
+
+            TrackingEventResponse event = new TrackingEventResponse();
+            event.setProviderEventId(trackingNumber + "-" + i);
+            event.setEventDate(LocalDateTime.ofInstant(Instant.ofEpochMilli(visibleAt[i]), ZoneId.systemDefault()));
+            event.setStatus(step.status);
+            event.setDescription(step.description);
+            event.setLocation(step.location);
+            events[i] = event;
+        }
+
+        boolean terminal = TERMINAL_STATUSES.contains(scenario[scenario.length - 1].status);
+        return new MockTimeline(List.of(events), visibleAt, terminal, anchorMillis);
     }
 
-    private TrackingEventResponse createMockEvent(LocalDateTime date, String status,
-                                                  String description, String location) {
-        TrackingEventResponse event = new TrackingEventResponse();
-        event.setEventDate(date);
-        event.setStatus(status);
-        event.setDescription(description);
-        event.setLocation(location);
-        return event;
+    private static Step[] pickScenario(int roll) {
+        if (roll < 80) return DELIVERED_SCENARIO;
+        if (roll < 90) return RETRY_SCENARIO;
+        if (roll < 95) return RETURNED_SCENARIO;
+        return STALLED_SCENARIO;
+    }
+
+    private static long stringHash(String value) {
+        long h = 1125899906842597L;
+        for (int i = 0; i < value.length(); i++) {
+            h = 31 * h + value.charAt(i);
+        }
+        return h;
+    }
+
+    // Mezcla SplitMix64: distribuye bien semillas parecidas
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private record Step(String status, String description, String location, int minMinutes, int maxMinutes) {
+    }
+
+    private static final class MockTimeline {
+        final List<TrackingEventResponse> events;
+        final long[] visibleAt;
+        final boolean terminal;
+        final long anchorMillis;
+
+        MockTimeline(List<TrackingEventResponse> events, long[] visibleAt, boolean terminal, long anchorMillis) {
+            this.events = events;
+            this.visibleAt = visibleAt;
+            this.terminal = terminal;
+            this.anchorMillis = anchorMillis;
+        }
+
+        int visibleCount(long nowMillis) {
+            int count = 0;
+            while (count < visibleAt.length && visibleAt[count] <= nowMillis) {
+                count++;
+            }
+            return count;
+        }
     }
 }
\ No newline at end of file
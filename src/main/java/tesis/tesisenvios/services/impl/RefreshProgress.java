@@ -0,0 +1,60 @@
+package tesis.tesisenvios.services.impl;
+
+import java.util.function.Consumer;
+
+/**
+ * Contadores de un refresco de tracking (barrido o trabajo manual)
+ */
+public class RefreshProgress {
+
+    private static final int CHECKPOINT_EVERY = 10;
+
+    private final long startedAtMillis = System.currentTimeMillis();
+    private final Consumer<RefreshProgress> checkpoint;
+
+    private int processed;
+    private int updated;
+    private int failed;
+
+    public RefreshProgress() {
+        this(null);
+    }
+
+    public RefreshProgress(Consumer<RefreshProgress> checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    public void recordProcessed(boolean changed) {
+        processed++;
+        if (changed) updated++;
+        maybeCheckpoint();
+    }
+
+    public void recordFailure() {
+        processed++;
+        failed++;
+        maybeCheckpoint();
+    }
+
+    public int getProcessed() {
+        return processed;
+    }
+
+    public int getUpdated() {
+        return updated;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public long getElapsedMillis() {
+        return System.currentTimeMillis() - startedAtMillis;
+    }
+
+    private void maybeCheckpoint() {
+        if (checkpoint != null && processed % CHECKPOINT_EVERY == 0) {
+            checkpoint.accept(this);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package tesis.tesisenvios.services.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import tesis.tesisenvios.services.SchedulerLockService;
+import tesis.tesisenvios.services.ShipmentArchiveService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Archivador programado de envíos terminados.
+ * Corre solo en el líder, dentro de la ventana horaria configurada y en lotes chicos;
+ * después de cada lote espera al menos lo mismo que tardó el lote (nunca más de la mitad
+ * del tiempo ocupando la base), así no compite con el tráfico de checkout.
+ */
+@Service
+@Slf4j
+public class ShipmentArchiveJob {
+
+    private static final String ARCHIVE_LOCK = "shipment-archive";
+
+    @Autowired
+    private ShipmentArchiveService shipmentArchiveService;
+
+    @Autowired
+    private SchedulerLockService schedulerLockService;
+
+    @Value("${archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${archive.after-days:90}")
+    private long afterDays;
+
+    @Value("${archive.batch-size:200}")
+    private int batchSize;
+
+    @Value("${archive.max-batches-per-run:50}")
+    private int maxBatchesPerRun;
+
+    @Value("${archive.pause-ms:500}")
+    private long pauseMs;
+
+    @Value("${archive.window-start-hour:1}")
+    private int windowStartHour;
+
+    @Value("${archive.window-end-hour:6}")
+    private int windowEndHour;
+
+    @Value("${archive.lock-minutes:30}")
+    private long lockMinutes;
+
+    @Scheduled(fixedDelayString = "${archive.interval-ms:900000}",
+            initialDelayString = "${archive.initial-delay-ms:120000}")
+    public void scheduledArchive() {
+        if (!enabled || !insideWindow(LocalTime.now())) return;
+        if (!schedulerLockService.tryAcquire(ARCHIVE_LOCK, Duration.ofMinutes(lockMinutes))) return;
+
+        runArchive();
+    }
+
+    /**
+     * Archivar lotes hasta agotar candidatos o llegar al tope por corrida
+     */
+    public int runArchive() {
+        LocalDateTime before = LocalDateTime.now().minusDays(afterDays);
+        long startedAt = System.currentTimeMillis();
+        int archived = 0;
+
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            List<String> candidates = shipmentArchiveService.findCandidates(before, batchSize);
+            if (candidates.isEmpty()) break;
+
+            long batchStartedAt = System.currentTimeMillis();
+            try {
+                archived += shipmentArchiveService.archiveBatch(candidates, before);
+            } catch (Exception e) {
+                log.error("Error archivando lote de {} envíos: {}", candidates.size(), e.getMessage());
+                break;
+            }
+
+            if (candidates.size() < batchSize || !insideWindow(LocalTime.now())) break;
+            pause(Math.max(pauseMs, System.currentTimeMillis() - batchStartedAt));
+        }
+
+        if (archived > 0) {
+            log.info("Archivo de envíos: {} envíos movidos en {} ms", archived, System.currentTimeMillis() - startedAt);
+        }
+        return archived;
+    }
+
+    private boolean insideWindow(LocalTime time) {
+        if (windowStartHour == windowEndHour) return true; // sin ventana: todo el día
+
+        int hour = time.getHour();
+        return windowStartHour < windowEndHour
+                ? hour >= windowStartHour && hour < windowEndHour
+                : hour >= windowStartHour || hour < windowEndHour; // ventana que cruza la medianoche
+    }
+
+    private void pause(long millis) {
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package tesis.tesisenvios.services.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import tesis.tesisenvios.dtos.CarrierCancellationStatus;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.dtos.TrackingEventResponse;
+import tesis.tesisenvios.entitites.ShipmentEntity;
+import tesis.tesisenvios.entitites.TrackingEventEntity;
+import tesis.tesisenvios.events.ShipmentStatusChangedEvent;
+import tesis.tesisenvios.events.TrackingEventRecordedEvent;
+import tesis.tesisenvios.repositories.CarrierCancellationRepository;
+import tesis.tesisenvios.repositories.ShipmentRepository;
+import tesis.tesisenvios.repositories.TrackingEventRepository;
+import tesis.tesisenvios.services.CarrierRegistry;
+import tesis.tesisenvios.services.TrackingDictionary;
+import tesis.tesisenvios.utils.EpochSeconds;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Actualización de tracking y transiciones de estado de un envío.
+ * Lo usan el barrido programado, el GET de tracking, la cancelación y la conciliación.
+ */
+@Component
+@Transactional
+@Slf4j
+public class ShipmentTrackingUpdater {
+
+    // Estados que todavía pueden avanzar en el proveedor
+    public static final List<ShipmentStatus> ACTIVE_STATUSES = List.of(
+            ShipmentStatus.CREATED,
+            ShipmentStatus.PICKED_UP,
+            ShipmentStatus.IN_TRANSIT,
+            ShipmentStatus.OUT_FOR_DELIVERY,
+            ShipmentStatus.FAILED_DELIVERY
+    );
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private TrackingEventRepository trackingEventRepository;
+
+    @Autowired
+    private CarrierCancellationRepository cancellationRepository;
+
+    @Autowired
+    private CarrierRegistry carrierRegistry;
+
+    @Autowired
+    private TrackingDictionary trackingDictionary;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${tracking.poll-interval-minutes:5}")
+    private long pollIntervalMinutes;
+
+    /**
+     * Actualizar un envío reclamado por el barrido, en su propia transacción,
+     * y liberar su lease programando la próxima consulta
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean refreshClaimedShipment(String shipmentId) {
+        Optional<ShipmentEntity> shipmentOpt = shipmentRepository.findById(shipmentId);
+        if (shipmentOpt.isEmpty()) return false;
+
+        ShipmentEntity shipment = shipmentOpt.get();
+        boolean changed = false;
+
+        try {
+            if (ACTIVE_STATUSES.contains(shipment.getStatus())) {
+                changed = updateShipmentTracking(shipment);
+            }
+        } finally {
+            LocalDateTime nextPollAt = ACTIVE_STATUSES.contains(shipment.getStatus())
+                    ? LocalDateTime.now().plusMinutes(pollIntervalMinutes)
+                    : null;
+            shipmentRepository.releaseLease(shipmentId, nextPollAt);
+        }
+
+        return changed;
+    }
+
+    /**
+     * Consultar eventos en el proveedor, guardar los nuevos y avanzar el estado.
+     * Retorna true si hubo eventos nuevos.
+     */
+    public boolean updateShipmentTracking(ShipmentEntity shipment) {
+        if (shipment.getTrackingNumber() == null) return false;
+
+        try {
+            List<TrackingEventResponse> newEvents = carrierRegistry.getCarrier(shipment.getProvider())
+                    .getTrackingEvents(shipment.getTrackingNumber());
+            return recordEvents(shipment, newEvents);
+
+        } catch (Exception e) {
+            log.error("Error actualizando tracking para {}: {}",
+                    shipment.getTrackingNumber(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Conciliar un envío terminado con el proveedor: guarda los eventos que falten y, si figura
+     * cancelado pero el proveedor lo siguió moviendo (la cancelación no llegó a tiempo), lo reabre
+     * con el estado del proveedor para que el barrido lo vuelva a seguir.
+     * Retorna el estado según el último evento del proveedor, o null si no se pudo determinar.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public ShipmentStatus reconcileWithCarrier(String shipmentId) {
+        Optional<ShipmentEntity> shipmentOpt = shipmentRepository.findById(shipmentId);
+        if (shipmentOpt.isEmpty() || shipmentOpt.get().getTrackingNumber() == null) return null;
+
+        ShipmentEntity shipment = shipmentOpt.get();
+        List<TrackingEventResponse> events = carrierRegistry.getCarrier(shipment.getProvider())
+                .getTrackingEvents(shipment.getTrackingNumber());
+        recordEvents(shipment, events);
+
+        ShipmentStatus carrierStatus = events.stream()
+                .filter(event -> event.getEventDate() != null)
+                .max(Comparator.comparing(TrackingEventResponse::getEventDate))
+                .map(event -> mapProviderStatusToShipmentStatus(event.getStatus()))
+                .orElse(null);
+
+        ShipmentStatus localStatus = shipment.getStatus();
+        if (carrierStatus == null || carrierStatus == localStatus) {
+            return carrierStatus;
+        }
+
+        if (localStatus == ShipmentStatus.CANCELLED && carrierStatus != ShipmentStatus.CREATED) {
+            if (cancellationRepository.existsByShipmentIdAndStatus(shipmentId, CarrierCancellationStatus.PENDING)) {
+                // La cancelación todavía no llegó al proveedor: es esperable que lo siga moviendo
+                log.debug("Conciliación: envío {} con cancelación pendiente de enviar, no se reabre",
+                        shipment.getTrackingNumber());
+                return carrierStatus;
+            }
+            reopenCancelled(shipment, carrierStatus);
+        } else {
+            // Un terminado distinto (entregado vs devuelto) no se pisa: lo revisa una persona
+            log.warn("Conciliación: envío {} figura {} y el proveedor informa {}",
+                    shipment.getTrackingNumber(), localStatus, carrierStatus);
+        }
+        return carrierStatus;
+    }
+
+    private boolean recordEvents(ShipmentEntity shipment, List<TrackingEventResponse> newEvents) {
+        boolean changed = false;
+
+        for (TrackingEventResponse eventResponse : newEvents) {
+            // Verificar si el evento ya existe (por id del proveedor si lo informa)
+            boolean eventExists = shipment.getTrackingEvents().stream()
+                    .anyMatch(existing -> isSameEvent(existing, eventResponse));
+
+            if (!eventExists) {
+                TrackingEventEntity newEvent = new TrackingEventEntity();
+                newEvent.setShipment(shipment);
+                newEvent.setEventEpoch(EpochSeconds.of(eventResponse.getEventDate()));
+                newEvent.setStatusCode(trackingDictionary.code(TrackingDictionary.Kind.STATUS, eventResponse.getStatus()));
+                newEvent.setDescriptionCode(trackingDictionary.code(TrackingDictionary.Kind.DESCRIPTION, eventResponse.getDescription()));
+                newEvent.setLocationCode(trackingDictionary.code(TrackingDictionary.Kind.LOCATION, eventResponse.getLocation()));
+                newEvent.setProviderEventId(eventResponse.getProviderEventId());
+
+                trackingEventRepository.save(newEvent);
+                shipment.getTrackingEvents().add(newEvent);
+                changed = true;
+
+                // Actualizar estado del envío si es necesario
+                updateShipmentStatus(shipment, eventResponse.getStatus());
+
+                eventPublisher.publishEvent(new TrackingEventRecordedEvent(
+                        shipment.getId(),
+                        shipment.getOrderCode(),
+                        shipment.getTrackingNumber(),
+                        shipment.getStatus(),
+                        newEvent.getId(),
+                        newEvent.getEventEpoch(),
+                        newEvent.getStatusCode(),
+                        newEvent.getDescriptionCode(),
+                        newEvent.getLocationCode()));
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Única vuelta atrás permitida fuera de la tabla de transiciones: la cancelación local que el
+     * proveedor no aplicó. Condicional sobre CANCELLED para no pisar otra corrección concurrente;
+     * las cancelaciones del envío que quedaron sin confirmar pasan a REJECTED.
+     */
+    private void reopenCancelled(ShipmentEntity shipment, ShipmentStatus carrierStatus) {
+        LocalDateTime now = LocalDateTime.now();
+        int updated = shipmentRepository.reopenCancelled(shipment.getId(), carrierStatus, now);
+        entityManager.refresh(shipment);
+        if (updated == 0) return;
+
+        // En la misma transacción: una cancelación fallida no se vuelve a reintentar sobre un envío reabierto
+        cancellationRepository.rejectOpen(shipment.getId(), "Reabierto por conciliación: " + carrierStatus, now);
+
+        log.warn("Conciliación: envío {} estaba CANCELLED pero el proveedor informa {}; se reabre",
+                shipment.getTrackingNumber(), carrierStatus);
+
+        eventPublisher.publishEvent(new ShipmentStatusChangedEvent(
+                shipment.getId(),
+                shipment.getOrderCode(),
+                shipment.getTrackingNumber(),
+                ShipmentStatus.CANCELLED,
+                carrierStatus,
+                now,
+                shipment.getShippingAddress() != null ? shipment.getShippingAddress().getRegionCode() : null,
+                shipment.getServiceType(),
+                shipment.getCreatedAt(),
+                shipment.getEstimatedDeliveryDate()));
+    }
+
+    private boolean isSameEvent(TrackingEventEntity existing, TrackingEventResponse event) {
+        if (event.getProviderEventId() != null && existing.getProviderEventId() != null) {
+            return event.getProviderEventId().equals(existing.getProviderEventId());
+        }
+        return existing.getEventEpoch() == EpochSeconds.of(event.getEventDate()) &&
+                existing.getStatusCode() == trackingDictionary.code(TrackingDictionary.Kind.STATUS, event.getStatus());
+    }
+
+    private void updateShipmentStatus(ShipmentEntity shipment, String providerStatus) {
+        ShipmentStatus newStatus = mapProviderStatusToShipmentStatus(providerStatus);
+
+        if (newStatus == null) {
+            log.debug("Estado de proveedor desconocido para envío {}: {}",
+                    shipment.getTrackingNumber(), providerStatus);
+            return;
+        }
+
+        transitionStatus(shipment, newStatus);
+    }
+
+    /**
+     * Aplica una transición de estado con un UPDATE condicional (WHERE status IN ...).
+     * Si otro proceso ya movió el envío, el UPDATE no afecta filas y no se pisa nada.
+     */
+    public boolean transitionStatus(ShipmentEntity shipment, ShipmentStatus newStatus) {
+        ShipmentStatus currentStatus = shipment.getStatus();
+
+        if (currentStatus == newStatus || !currentStatus.canTransitionTo(newStatus)) {
+            return false;
+        }
+
+        // Se exige el estado leído, que ya se validó contra la tabla de transiciones: es más estricto
+        // que aceptar cualquier origen válido y el evento publicado lleva el estado de origen exacto
+        LocalDateTime now = LocalDateTime.now();
+        List<ShipmentStatus> expected = List.of(currentStatus);
+        int updated = newStatus == ShipmentStatus.DELIVERED
+                ? shipmentRepository.transitionToDelivered(shipment.getId(), expected, now)
+                : shipmentRepository.transitionStatus(shipment.getId(), expected, newStatus, now);
+
+        // Recargar estado y versión reales para no trabajar con una copia vieja
+        entityManager.refresh(shipment);
+
+        if (updated == 0) {
+            log.debug("Transición {} -> {} descartada para envío {}: estado actual {}",
+                    currentStatus, newStatus, shipment.getTrackingNumber(), shipment.getStatus());
+            return false;
+        }
+
+        log.info("Estado actualizado para envío {}: {} -> {}",
+                shipment.getTrackingNumber(), currentStatus, newStatus);
+
+        eventPublisher.publishEvent(new ShipmentStatusChangedEvent(
+                shipment.getId(),
+                shipment.getOrderCode(),
+                shipment.getTrackingNumber(),
+                currentStatus,
+                newStatus,
+                now,
+                shipment.getShippingAddress() != null ? shipment.getShippingAddress().getRegionCode() : null,
+                shipment.getServiceType(),
+                shipment.getCreatedAt(),
+                shipment.getEstimatedDeliveryDate()));
+        return true;
+    }
+
+    /**
+     * Mapear estados del proveedor a nuestros estados. Retorna null si el estado es desconocido:
+     * un estado desconocido nunca debe mover el envío.
+     */
+    private ShipmentStatus mapProviderStatusToShipmentStatus(String providerStatus) {
+        if (providerStatus == null) return null;
+
+        switch (providerStatus.toLowerCase()) {
+            case "creado":
+            case "created":
+                return ShipmentStatus.CREATED;
+            case "entregado":
+            case "delivered":
+                return ShipmentStatus.DELIVERED;
+            case "en reparto":
+            case "salida_reparto":
+            case "out_for_delivery":
+                return ShipmentStatus.OUT_FOR_DELIVERY;
+            case "en transito":
+            case "en tránsito":
+            case "en_transito":
+            case "in_transit":
+                return ShipmentStatus.IN_TRANSIT;
+            case "retirado":
+            case "picked_up":
+                return ShipmentStatus.PICKED_UP;
+            case "no entregado":
+            case "no_entregado":
+            case "failed_delivery":
+                return ShipmentStatus.FAILED_DELIVERY;
+            case "devuelto":
+            case "returned":
+                return ShipmentStatus.RETURNED;
+            case "cancelado":
+            case "cancelled":
+                return ShipmentStatus.CANCELLED;
+            default:
+                return null;
+        }
+    }
+}
@@ -1,23 +1,35 @@
 package tesis.tesisenvios.services.impl;
 
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import tesis.tesisenvios.dtos.*;
+import tesis.tesisenvios.entitites.ShipmentAddress;
 import tesis.tesisenvios.entitites.ShipmentEntity;
 import tesis.tesisenvios.entitites.TrackingEventEntity;
+import tesis.tesisenvios.events.ShipmentCreatedEvent;
 import tesis.tesisenvios.repositories.ShipmentRepository;
 import tesis.tesisenvios.repositories.TrackingEventRepository;
-import tesis.tesisenvios.services.AndreaniProviderService;
+import tesis.tesisenvios.services.AddressNormalizer;
+import tesis.tesisenvios.services.CarrierCancellationService;
+import tesis.tesisenvios.services.CarrierProvider;
+import tesis.tesisenvios.services.CarrierQuoteAggregator;
+import tesis.tesisenvios.services.CarrierRegistry;
+import tesis.tesisenvios.services.RateTableService;
+import tesis.tesisenvios.services.ShipmentArchiveService;
 import tesis.tesisenvios.services.ShippingService;
+import tesis.tesisenvios.services.TrackingDictionary;
+import tesis.tesisenvios.utils.ShipmentViews;
 
 import java.time.LocalDateTime;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -34,22 +46,59 @@ public class ShippingServiceImpl implements ShippingService {
     private TrackingEventRepository trackingEventRepository;
 
     @Autowired
-    private AndreaniProviderService andreaniProviderService;
+    private CarrierRegistry carrierRegistry;
+
+    @Autowired
+    private CarrierQuoteAggregator carrierQuoteAggregator;
+
+    @Autowired
+    private RateTableService rateTableService;
+
+    @Autowired
+    private AddressNormalizer addressNormalizer;
 
     @Autowired
     private ModelMapper modelMapper;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private ShipmentTrackingUpdater shipmentTrackingUpdater;
+
+    @Autowired
+    private TrackingSweepService trackingSweepService;
+
+    @Autowired
+    private ShipmentArchiveService shipmentArchiveService;
+
+    @Autowired
+    private CarrierCancellationService carrierCancellationService;
+
+    @Autowired
+    private TrackingDictionary trackingDictionary;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${shipping.quotes.batch-max:20}")
+    private int maxBatchQuotes;
 
     @Override
     public List<ShippingQuoteResponse> getShippingQuotes(QuoteRequest request) {
+        // Fuera del try: una dirección imposible se informa al cliente, no se cotiza vacío
+        addressNormalizer.normalizeDestination(request);
+
         try {
             log.info("Obteniendo cotizaciones para envío a {}, {}",
                     request.getDestinationAddress().getCity(),
                     request.getDestinationAddress().getPostalCode());
 
-            return andreaniProviderService.getQuotes(request);
+            // Primero la tabla de tarifas precalculadas; si no hay tarifa fresca, en vivo
+            List<ShippingQuoteResponse> tableQuotes = rateTableService.lookup(request);
+            if (tableQuotes != null) {
+                return tableQuotes;
+            }
+
+            rateTableService.recordDemand(request);
+            return carrierQuoteAggregator.getQuotes(request);
 
         } catch (Exception e) {
             log.error("Error obteniendo cotizaciones: {}", e.getMessage());
@@ -57,8 +106,60 @@ public class ShippingServiceImpl implements ShippingService {
         }
     }
 
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<List<ShippingQuoteResponse>> getShippingQuotesBatch(List<QuoteRequest> requests) {
+        if (requests.size() > maxBatchQuotes) {
+            throw new IllegalArgumentException("Se permiten hasta " + maxBatchQuotes + " cotizaciones por lote");
+        }
+        requests.forEach(addressNormalizer::normalizeDestination);
+
+        List<List<ShippingQuoteResponse>> results = new ArrayList<>(Collections.nCopies(requests.size(), null));
+        List<QuoteRequest> live = new ArrayList<>();
+        List<Integer> liveIndexes = new ArrayList<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            List<ShippingQuoteResponse> tableQuotes = rateTableService.lookup(requests.get(i));
+            if (tableQuotes != null) {
+                results.set(i, tableQuotes);
+            } else {
+                rateTableService.recordDemand(requests.get(i));
+                live.add(requests.get(i));
+                liveIndexes.add(i);
+            }
+        }
+
+        if (!live.isEmpty()) {
+            List<List<ShippingQuoteResponse>> liveQuotes = carrierQuoteAggregator.getQuotes(live);
+            for (int i = 0; i < liveIndexes.size(); i++) {
+                results.set(liveIndexes.get(i), liveQuotes.get(i));
+            }
+        }
+
+        log.info("Lote de {} cotizaciones: {} desde la tabla de tarifas, {} en vivo",
+                requests.size(), requests.size() - live.size(), live.size());
+        return results;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void prewarmQuotes(QuoteRequest request) {
+        addressNormalizer.normalizeDestination(request);
+
+        // Si la tabla de tarifas ya responde este destino no hace falta ir al proveedor
+        if (rateTableService.lookup(request) != null) return;
+
+        rateTableService.recordDemand(request);
+        int started = carrierQuoteAggregator.prewarm(request);
+        log.debug("Prewarm de cotizaciones para {}: {} consultas lanzadas",
+                request.getDestinationAddress().getPostalCode(), started);
+    }
+
     @Override
     public ShipmentResponse createShipment(CreateShipmentRequest request) {
+        // Antes de guardar nada: con la dirección normalizada se arman la entidad y la cotización
+        request.setShippingAddress(addressNormalizer.normalize(request.getShippingAddress()));
+
         try {
             log.info("Creando envío para orden: {}", request.getOrderCode());
 
@@ -69,9 +170,19 @@ public class ShippingServiceImpl implements ShippingService {
                 return modelMapper.map(existing.get(), ShipmentResponse.class);
             }
 
+            // Un envío terminado y archivado también cuenta: no se vuelve a crear en el proveedor
+            Optional<ShipmentResponse> archived = shipmentArchiveService.findByOrderCode(request.getOrderCode());
+            if (archived.isPresent()) {
+                log.warn("Ya existe envío archivado para orden: {}", request.getOrderCode());
+                return archived.get();
+            }
+
+            CarrierProvider carrier = carrierRegistry.getCarrier(request.getProvider());
+
             // Crear entidad
             ShipmentEntity shipment = new ShipmentEntity();
             shipment.setOrderCode(request.getOrderCode());
+            shipment.setProvider(carrier.getCarrierCode());
             shipment.setRecipientName(request.getRecipientName());
             shipment.setRecipientEmail(request.getRecipientEmail());
             shipment.setRecipientPhone(request.getRecipientPhone());
@@ -80,15 +191,14 @@ public class ShippingServiceImpl implements ShippingService {
             shipment.setDeclaredValue(request.getDeclaredValue());
             shipment.setStatus(ShipmentStatus.PENDING);
 
-            // Convertir dirección a JSON
-            String addressJson = objectMapper.writeValueAsString(request.getShippingAddress());
-            shipment.setShippingAddress(addressJson);
+            // Dirección en columnas, con claves postal/región ya normalizadas
+            shipment.setShippingAddress(ShipmentAddress.from(request.getShippingAddress()));
 
             // Guardar temporalmente
             shipment = shipmentRepository.save(shipment);
 
-            // Crear en Andreani
-            String trackingNumber = andreaniProviderService.createShipment(shipment, request);
+            // Crear en el proveedor
+            String trackingNumber = carrier.createShipment(shipment, request);
 
             if (trackingNumber != null) {
                 shipment.setTrackingNumber(trackingNumber);
@@ -96,10 +206,11 @@ public class ShippingServiceImpl implements ShippingService {
 
                 // Obtener cotización para el costo
                 List<ShippingQuoteResponse> quotes = getShippingQuotes(buildQuoteRequest(request));
-                if (!quotes.isEmpty()) {
-                    shipment.setShippingCost(quotes.get(0).getPrice());
+                ShippingQuoteResponse quote = selectQuote(quotes, carrier.getCarrierCode(), request.getServiceType());
+                if (quote != null) {
+                    shipment.setShippingCost(quote.getPrice());
                     shipment.setEstimatedDeliveryDate(
-                            LocalDateTime.now().plusDays(quotes.get(0).getEstimatedDays())
+                            LocalDateTime.now().plusDays(quote.getEstimatedDays())
                     );
                 }
 
@@ -110,9 +221,19 @@ public class ShippingServiceImpl implements ShippingService {
             } else {
                 shipment.setStatus(ShipmentStatus.ERROR);
                 shipment = shipmentRepository.save(shipment);
-                log.error("Error creando envío en Andreani para orden: {}", request.getOrderCode());
+                log.error("Error creando envío en {} para orden: {}", carrier.getCarrierCode(), request.getOrderCode());
             }
 
+            eventPublisher.publishEvent(new ShipmentCreatedEvent(
+                    shipment.getId(),
+                    shipment.getOrderCode(),
+                    shipment.getTrackingNumber(),
+                    shipment.getStatus(),
+                    shipment.getShippingAddress().getRegionCode(),
+                    shipment.getServiceType(),
+                    shipment.getShippingCost(),
+                    shipment.getCreatedAt()));
+
             return modelMapper.map(shipment, ShipmentResponse.class);
 
         } catch (Exception e) {
@@ -129,31 +250,48 @@ public class ShippingServiceImpl implements ShippingService {
         if (shipment.isPresent()) {
             ShipmentResponse response = modelMapper.map(shipment.get(), ShipmentResponse.class);
 
-            // FIX: Mapear manualmente la dirección desde JSON
-            try {
-                if (shipment.get().getShippingAddress() != null) {
-                    ShippingAddressResponse address = objectMapper.readValue(
-                            shipment.get().getShippingAddress(),
-                            ShippingAddressResponse.class
-                    );
-                    response.setShippingAddress(address);
-                }
-            } catch (Exception e) {
-                log.warn("Error parseando dirección de envío: {}", e.getMessage());
-            }
-
             // Agregar eventos de tracking
             List<TrackingEventEntity> events = trackingEventRepository
-                    .findByShipmentIdOrderByEventDateDesc(shipment.get().getId());
+                    .findByShipmentIdOrderByEventEpochDesc(shipment.get().getId());
 
             response.setTrackingEvents(events.stream()
-                    .map(event -> modelMapper.map(event, TrackingEventResponse.class))
+                    .map(trackingDictionary::toResponse)
                     .collect(Collectors.toList()));
 
             return response;
         }
 
-        throw new RuntimeException("Envío no encontrado para orden: " + orderCode);
+        // Envíos terminados hace tiempo ya no están en las tablas activas
+        return shipmentArchiveService.findByOrderCode(orderCode)
+                .orElseThrow(() -> new RuntimeException("Envío no encontrado para orden: " + orderCode));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ShipmentSummaryResponse getShipmentSummaryByOrderCode(String orderCode) {
+        Optional<ShipmentEntity> shipment = shipmentRepository.findByOrderCode(orderCode);
+
+        if (shipment.isPresent()) {
+            ShipmentEntity entity = shipment.get();
+            // Solo el último evento: una fila por el índice (shipment_id, event_epoch)
+            TrackingEventResponse lastEvent = trackingEventRepository
+                    .findFirstByShipmentIdOrderByEventEpochDesc(entity.getId())
+                    .map(trackingDictionary::toResponse)
+                    .orElse(null);
+
+            return new ShipmentSummaryResponse(
+                    entity.getOrderCode(),
+                    entity.getTrackingNumber(),
+                    entity.getProvider(),
+                    entity.getStatus().name(),
+                    entity.getEstimatedDeliveryDate(),
+                    entity.getActualDeliveryDate(),
+                    lastEvent);
+        }
+
+        return shipmentArchiveService.findByOrderCode(orderCode)
+                .map(ShipmentViews::summary)
+                .orElseThrow(() -> new RuntimeException("Envío no encontrado para orden: " + orderCode));
     }
 
     @Override
@@ -162,42 +300,46 @@ public class ShippingServiceImpl implements ShippingService {
         Optional<ShipmentEntity> shipment = shipmentRepository.findByTrackingNumber(trackingNumber);
 
         if (shipment.isPresent()) {
-            // Actualizar tracking antes de devolver
-            updateShipmentTracking(shipment.get());
-
             return getShipmentByOrderCode(shipment.get().getOrderCode());
         }
 
-        throw new RuntimeException("Envío no encontrado con tracking: " + trackingNumber);
+        // Archivado: estado final, no hace falta consultar al proveedor
+        return shipmentArchiveService.findByTrackingNumber(trackingNumber)
+                .orElseThrow(() -> new RuntimeException("Envío no encontrado con tracking: " + trackingNumber));
     }
 
     @Override
-    @Scheduled(fixedRate = 300000) // Cada 5 minutos
-    public void updateAllActiveShipments() {
-        log.info("Iniciando actualización de envíos activos");
-
-        List<ShipmentStatus> activeStatuses = Arrays.asList(
-                ShipmentStatus.CREATED,
-                ShipmentStatus.PICKED_UP,
-                ShipmentStatus.IN_TRANSIT,
-                ShipmentStatus.OUT_FOR_DELIVERY
-        );
-
-        List<ShipmentEntity> activeShipments = shipmentRepository.findByStatusIn(activeStatuses);
-
-        log.info("Actualizando {} envíos activos", activeShipments.size());
-
-        for (ShipmentEntity shipment : activeShipments) {
-            try {
-                updateShipmentTracking(shipment);
-                Thread.sleep(1000); // Evitar rate limiting
-            } catch (Exception e) {
-                log.error("Error actualizando envío {}: {}",
-                        shipment.getTrackingNumber(), e.getMessage());
-            }
+    @Transactional(readOnly = true)
+    public ShipmentVersion getShipmentVersionByOrderCode(String orderCode) {
+        return shipmentRepository.findVersionByOrderCode(orderCode)
+                .or(() -> shipmentArchiveService.findVersionByOrderCode(orderCode))
+                .orElseThrow(() -> new RuntimeException("Envío no encontrado para orden: " + orderCode));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ShipmentVersion getShipmentVersionByTrackingNumber(String trackingNumber) {
+        Optional<ShipmentVersion> version = shipmentRepository.findVersionByTrackingNumber(trackingNumber);
+
+        if (version.isEmpty()) {
+            return shipmentArchiveService.findVersionByTrackingNumber(trackingNumber)
+                    .orElseThrow(() -> new RuntimeException("Envío no encontrado con tracking: " + trackingNumber));
+        }
+
+        // Solo se consulta al proveedor si ya venció su próxima consulta; el resto de los pedidos
+        // (y los 304) salen de la base. El lease evita pisarse con el barrido.
+        if (version.get().isTrackingDue(LocalDateTime.now())
+                && trackingSweepService.refreshShipment(version.get().getId())) {
+            return shipmentRepository.findVersionByTrackingNumber(trackingNumber).orElse(version.get());
         }
+        return version.get();
+    }
 
-        log.info("Actualización de envíos completada");
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void updateAllActiveShipments() {
+        // Cada envío se actualiza en su propia transacción; el barrido se reparte entre réplicas
+        trackingSweepService.runSweep();
     }
 
     @Override
@@ -208,13 +350,11 @@ public class ShippingServiceImpl implements ShippingService {
             if (shipmentOpt.isPresent()) {
                 ShipmentEntity shipment = shipmentOpt.get();
 
-                // Solo se puede cancelar si no está en tránsito
-                if (shipment.getStatus() == ShipmentStatus.PENDING ||
-                        shipment.getStatus() == ShipmentStatus.CREATED) {
-
-                    shipment.setStatus(ShipmentStatus.CANCELLED);
-                    shipmentRepository.save(shipment);
-
+                // Solo se puede cancelar si no está en tránsito (lo define la tabla de transiciones).
+                // El UPDATE condicional decide frente al barrido; el aviso al proveedor queda en el
+                // outbox de la misma transacción y sale en segundo plano.
+                if (shipmentTrackingUpdater.transitionStatus(shipment, ShipmentStatus.CANCELLED)) {
+                    carrierCancellationService.enqueue(shipment);
                     log.info("Envío cancelado: {}", orderCode);
                     return true;
                 }
@@ -228,80 +368,27 @@ public class ShippingServiceImpl implements ShippingService {
         }
     }
 
-    private void updateShipmentTracking(ShipmentEntity shipment) {
-        if (shipment.getTrackingNumber() == null) return;
+    /**
+     * Cotización del proveedor y servicio elegidos; si no está, la mejor del proveedor
+     */
+    private ShippingQuoteResponse selectQuote(List<ShippingQuoteResponse> quotes, String provider, String serviceType) {
+        ShippingQuoteResponse providerQuote = null;
 
-        try {
-            List<TrackingEventResponse> newEvents = andreaniProviderService
-                    .getTrackingEvents(shipment.getTrackingNumber());
-
-            for (TrackingEventResponse eventResponse : newEvents) {
-                // Verificar si el evento ya existe
-                boolean eventExists = shipment.getTrackingEvents().stream()
-                        .anyMatch(existing ->
-                                existing.getEventDate().equals(eventResponse.getEventDate()) &&
-                                        existing.getStatus().equals(eventResponse.getStatus())
-                        );
-
-                if (!eventExists) {
-                    TrackingEventEntity newEvent = new TrackingEventEntity();
-                    newEvent.setShipment(shipment);
-                    newEvent.setEventDate(eventResponse.getEventDate());
-                    newEvent.setStatus(eventResponse.getStatus());
-                    newEvent.setDescription(eventResponse.getDescription());
-                    newEvent.setLocation(eventResponse.getLocation());
-
-                    trackingEventRepository.save(newEvent);
-
-                    // Actualizar estado del envío si es necesario
-                    updateShipmentStatus(shipment, eventResponse.getStatus());
-                }
-            }
+        for (ShippingQuoteResponse quote : quotes) {
+            if (!provider.equalsIgnoreCase(quote.getProvider())) continue;
 
-        } catch (Exception e) {
-            log.error("Error actualizando tracking para {}: {}",
-                    shipment.getTrackingNumber(), e.getMessage());
-        }
-    }
-
-    private void updateShipmentStatus(ShipmentEntity shipment, String providerStatus) {
-        ShipmentStatus newStatus = mapProviderStatusToShipmentStatus(providerStatus);
-
-        if (newStatus != shipment.getStatus()) {
-            shipment.setStatus(newStatus);
-
-            if (newStatus == ShipmentStatus.DELIVERED) {
-                shipment.setActualDeliveryDate(LocalDateTime.now());
+            if (serviceType != null && serviceType.equalsIgnoreCase(quote.getServiceType())) {
+                return quote;
+            }
+            if (providerQuote == null) {
+                providerQuote = quote;
             }
-
-            shipmentRepository.save(shipment);
-
-            log.info("Estado actualizado para envío {}: {} -> {}",
-                    shipment.getTrackingNumber(), shipment.getStatus(), newStatus);
         }
-    }
 
-    private ShipmentStatus mapProviderStatusToShipmentStatus(String providerStatus) {
-        // Mapear estados de Andreani a nuestros estados
-        switch (providerStatus.toLowerCase()) {
-            case "entregado":
-            case "delivered":
-                return ShipmentStatus.DELIVERED;
-            case "en reparto":
-            case "out_for_delivery":
-                return ShipmentStatus.OUT_FOR_DELIVERY;
-            case "en transito":
-            case "in_transit":
-                return ShipmentStatus.IN_TRANSIT;
-            case "retirado":
-            case "picked_up":
-                return ShipmentStatus.PICKED_UP;
-            case "devuelto":
-            case "returned":
-                return ShipmentStatus.RETURNED;
-            default:
-                return ShipmentStatus.IN_TRANSIT;
+        if (providerQuote == null && !quotes.isEmpty()) {
+            return quotes.get(0);
         }
+        return providerQuote;
     }
 
     private QuoteRequest buildQuoteRequest(CreateShipmentRequest request) {
@@ -0,0 +1,253 @@
+package tesis.tesisenvios.services.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.dtos.TrackingRefreshJobResponse;
+import tesis.tesisenvios.dtos.TrackingRefreshJobStatus;
+import tesis.tesisenvios.dtos.TrackingRefreshRequest;
+import tesis.tesisenvios.entitites.TrackingRefreshJobEntity;
+import tesis.tesisenvios.repositories.ShipmentRepository;
+import tesis.tesisenvios.repositories.TrackingRefreshJobRepository;
+import tesis.tesisenvios.services.ClusterNode;
+import tesis.tesisenvios.services.SchedulerLockService;
+import tesis.tesisenvios.services.TrackingRefreshJobService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cola persistente de refrescos manuales de tracking.
+ * El endpoint solo encola y responde con el id; un worker programado toma los trabajos
+ * (cada trabajo lo ejecuta un solo nodo gracias al UPDATE condicional) en un pool propio y
+ * reutiliza el barrido con leases.
+ */
+@Service
+@Slf4j
+public class TrackingRefreshJobServiceImpl implements TrackingRefreshJobService {
+
+    private static final String ALL_FILTER = "ALL";
+    private static final String MAINTENANCE_LOCK = "tracking-refresh-jobs-maintenance";
+    private static final List<TrackingRefreshJobStatus> OPEN_STATUSES =
+            List.of(TrackingRefreshJobStatus.QUEUED, TrackingRefreshJobStatus.RUNNING);
+
+    @Autowired
+    private TrackingRefreshJobRepository jobRepository;
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private TrackingSweepService trackingSweepService;
+
+    @Autowired
+    private SchedulerLockService schedulerLockService;
+
+    @Autowired
+    private ClusterNode clusterNode;
+
+    @Autowired
+    @Qualifier("trackingJobExecutor")
+    private ThreadPoolTaskExecutor trackingJobExecutor;
+
+    @Value("${tracking.poll-interval-minutes:5}")
+    private long pollIntervalMinutes;
+
+    @Value("${tracking.refresh-jobs.max-tracking-numbers:500}")
+    private int maxTrackingNumbers;
+
+    @Value("${tracking.refresh-jobs.stale-after-minutes:10}")
+    private long staleAfterMinutes;
+
+    @Value("${tracking.refresh-jobs.retention-days:7}")
+    private long retentionDays;
+
+    // Trabajos tomados por este nodo y todavía en el pool
+    private final AtomicInteger running = new AtomicInteger();
+
+    @Override
+    public TrackingRefreshJobResponse enqueue(TrackingRefreshRequest request) {
+        TrackingRefreshRequest filter = request != null ? request : new TrackingRefreshRequest();
+        validate(filter);
+
+        String filterKey = filterKey(filter);
+
+        // Coalescer con un trabajo equivalente en cola o en ejecución
+        Optional<TrackingRefreshJobEntity> open = jobRepository
+                .findFirstByFilterKeyAndStatusInOrderByRequestedAtAsc(filterKey, OPEN_STATUSES);
+        if (open.isPresent()) {
+            log.info("Refresco de tracking unificado con trabajo existente {}", open.get().getId());
+            return toResponse(open.get(), true);
+        }
+
+        TrackingRefreshJobEntity job = new TrackingRefreshJobEntity();
+        job.setFilterKey(filterKey);
+        job.setStatusFilter(filter.getStatus() != null ? filter.getStatus().name() : null);
+        if (filter.getTrackingNumbers() != null && !filter.getTrackingNumbers().isEmpty()) {
+            job.setTrackingNumbers(String.join(",", new TreeSet<>(filter.getTrackingNumbers())));
+        }
+        try {
+            job = jobRepository.saveAndFlush(job);
+        } catch (DataIntegrityViolationException e) {
+            // Otro pedido equivalente se encoló al mismo tiempo (índice único de trabajos abiertos)
+            open = jobRepository.findFirstByFilterKeyAndStatusInOrderByRequestedAtAsc(filterKey, OPEN_STATUSES);
+            if (open.isEmpty()) throw e;
+            log.info("Refresco de tracking unificado con trabajo concurrente {}", open.get().getId());
+            return toResponse(open.get(), true);
+        }
+
+        log.info("Refresco de tracking encolado: {} ({})", job.getId(), filterKey);
+        return toResponse(job, false);
+    }
+
+    @Override
+    public TrackingRefreshJobResponse getJob(String jobId) {
+        return jobRepository.findById(jobId)
+                .map(job -> toResponse(job, false))
+                .orElseThrow(() -> new RuntimeException("Trabajo de refresco no encontrado: " + jobId));
+    }
+
+    /**
+     * Worker: tomar el trabajo más viejo en cola y ejecutarlo en el pool de trabajos.
+     * Solo se reclama si hay un hilo libre, para no dejar trabajos RUNNING esperando en este nodo.
+     */
+    @Scheduled(fixedDelayString = "${tracking.refresh-jobs.poll-ms:2000}")
+    public void processQueue() {
+        if (running.incrementAndGet() > trackingJobExecutor.getMaxPoolSize()) {
+            running.decrementAndGet();
+            return;
+        }
+
+        boolean submitted = false;
+        try {
+            Optional<TrackingRefreshJobEntity> next = jobRepository
+                    .findFirstByStatusOrderByRequestedAtAsc(TrackingRefreshJobStatus.QUEUED);
+            if (next.isEmpty()) return;
+
+            TrackingRefreshJobEntity job = next.get();
+            if (jobRepository.claim(job.getId(), clusterNode.getNodeId(), LocalDateTime.now()) == 0) {
+                return; // Lo tomó otro nodo
+            }
+
+            try {
+                trackingJobExecutor.execute(() -> {
+                    try {
+                        run(job);
+                    } finally {
+                        running.decrementAndGet();
+                    }
+                });
+                submitted = true;
+            } catch (TaskRejectedException e) {
+                // No debería pasar (hay un lugar por hilo); se devuelve a la cola para otro intento
+                log.warn("Pool de refrescos lleno, se reencola el trabajo {}", job.getId());
+                jobRepository.unclaim(job.getId());
+            }
+        } finally {
+            if (!submitted) running.decrementAndGet();
+        }
+    }
+
+    /**
+     * Mantenimiento (solo el líder): reencolar trabajos huérfanos y borrar los viejos
+     */
+    @Scheduled(fixedDelayString = "${tracking.refresh-jobs.maintenance-ms:60000}")
+    public void maintenance() {
+        if (!schedulerLockService.tryAcquire(MAINTENANCE_LOCK, Duration.ofMinutes(5))) return;
+
+        LocalDateTime now = LocalDateTime.now();
+        int requeued = jobRepository.requeueStale(now.minusMinutes(staleAfterMinutes));
+        if (requeued > 0) {
+            log.warn("Se reencolaron {} trabajos de refresco sin progreso", requeued);
+        }
+        jobRepository.deleteFinishedBefore(now.minusDays(retentionDays));
+    }
+
+    private void run(TrackingRefreshJobEntity job) {
+        String jobId = job.getId();
+        RefreshProgress progress = new RefreshProgress(p -> jobRepository.updateProgress(
+                jobId, p.getProcessed(), p.getUpdated(), p.getFailed(), LocalDateTime.now()));
+
+        log.info("Ejecutando refresco de tracking {} ({})", jobId, job.getFilterKey());
+
+        try {
+            if (job.getTrackingNumbers() != null) {
+                List<String> trackingNumbers = Arrays.asList(job.getTrackingNumbers().split(","));
+                trackingSweepService.refreshShipments(
+                        shipmentRepository.findIdsByTrackingNumberIn(trackingNumbers), progress);
+            } else {
+                List<ShipmentStatus> statuses = job.getStatusFilter() != null
+                        ? List.of(ShipmentStatus.valueOf(job.getStatusFilter()))
+                        : ShipmentTrackingUpdater.ACTIVE_STATUSES;
+
+                // Forzar todo lo consultado antes del pedido, aunque no estuviera vencido
+                LocalDateTime dueBefore = job.getRequestedAt().plusMinutes(pollIntervalMinutes);
+
+                int before;
+                do {
+                    before = progress.getProcessed();
+                    trackingSweepService.runSweep(statuses, dueBefore, progress);
+                } while (progress.getProcessed() > before);
+            }
+
+            jobRepository.finish(jobId, TrackingRefreshJobStatus.COMPLETED, progress.getProcessed(),
+                    progress.getUpdated(), progress.getFailed(), null, LocalDateTime.now());
+
+        } catch (Exception e) {
+            log.error("Error en refresco de tracking {}: {}", jobId, e.getMessage());
+            jobRepository.finish(jobId, TrackingRefreshJobStatus.FAILED, progress.getProcessed(),
+                    progress.getUpdated(), progress.getFailed(), truncate(e.getMessage()), LocalDateTime.now());
+        }
+    }
+
+    private static String truncate(String message) {
+        return message != null && message.length() > 255 ? message.substring(0, 255) : message;
+    }
+
+    private void validate(TrackingRefreshRequest filter) {
+        if (filter.getStatus() != null && !ShipmentTrackingUpdater.ACTIVE_STATUSES.contains(filter.getStatus())) {
+            throw new IllegalArgumentException("Solo se pueden refrescar envíos activos, no " + filter.getStatus());
+        }
+        if (filter.getTrackingNumbers() != null && filter.getTrackingNumbers().size() > maxTrackingNumbers) {
+            throw new IllegalArgumentException("Máximo " + maxTrackingNumbers + " números de tracking por pedido");
+        }
+    }
+
+    private String filterKey(TrackingRefreshRequest filter) {
+        if (filter.getTrackingNumbers() != null && !filter.getTrackingNumbers().isEmpty()) {
+            String key = "TRACKING:" + String.join(",", new TreeSet<>(filter.getTrackingNumbers()));
+            // La clave solo sirve para unificar; si es muy larga se usa un hash
+            return key.length() <= 512 ? key : "TRACKING#" + Integer.toHexString(key.hashCode()) + ":" + key.length();
+        }
+        if (filter.getStatus() != null) {
+            return "STATUS:" + filter.getStatus().name();
+        }
+        return ALL_FILTER;
+    }
+
+    private TrackingRefreshJobResponse toResponse(TrackingRefreshJobEntity job, boolean coalesced) {
+        double rate = 0;
+        if (job.getStartedAt() != null) {
+            LocalDateTime end = job.getFinishedAt() != null ? job.getFinishedAt() : LocalDateTime.now();
+            long millis = Math.max(1, Duration.between(job.getStartedAt(), end).toMillis());
+            rate = job.getProcessed() * 1000.0 / millis;
+        }
+
+        String filter = job.getFilterKey();
+        return new TrackingRefreshJobResponse(job.getId(), job.getStatus(), filter, coalesced,
+                job.getProcessed(), job.getUpdated(), job.getFailed(), rate,
+                job.getRequestedAt(), job.getStartedAt(), job.getFinishedAt(), job.getErrorMessage());
+    }
+}
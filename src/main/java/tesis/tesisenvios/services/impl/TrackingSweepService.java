@@ -0,0 +1,142 @@
+package tesis.tesisenvios.services.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.services.SchedulerLockService;
+import tesis.tesisenvios.services.ShipmentLeaseService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Barrido de tracking distribuido.
+ * Todas las réplicas corren el trigger; cada una reclama lotes de envíos vencidos con un lease,
+ * así N réplicas procesan cada una ~1/N de los envíos. La limpieza de leases vencidos
+ * la hace solo el líder.
+ */
+@Service
+@Slf4j
+public class TrackingSweepService {
+
+    private static final String LEASE_RECOVERY_LOCK = "tracking-lease-recovery";
+
+    @Autowired
+    private ShipmentLeaseService shipmentLeaseService;
+
+    @Autowired
+    private ShipmentTrackingUpdater shipmentTrackingUpdater;
+
+    @Autowired
+    private SchedulerLockService schedulerLockService;
+
+    @Value("${tracking.sweep.batch-size:20}")
+    private int batchSize;
+
+    @Value("${tracking.sweep.max-batches-per-run:50}")
+    private int maxBatchesPerRun;
+
+    @Value("${tracking.sweep.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${tracking.sweep.pause-ms:1000}")
+    private long pauseMs;
+
+    @Scheduled(fixedDelayString = "${tracking.sweep.interval-ms:60000}",
+            initialDelayString = "${tracking.sweep.initial-delay-ms:30000}")
+    public void scheduledSweep() {
+        recoverExpiredLeases();
+        runSweep();
+    }
+
+    /**
+     * Procesar lotes reclamados hasta que no queden envíos vencidos (o se llegue al tope por corrida)
+     */
+    public RefreshProgress runSweep() {
+        return runSweep(ShipmentTrackingUpdater.ACTIVE_STATUSES, LocalDateTime.now(), new RefreshProgress());
+    }
+
+    /**
+     * Barrido sobre los estados indicados; dueBefore en el futuro fuerza el refresco
+     * de envíos que todavía no estaban vencidos
+     */
+    public RefreshProgress runSweep(Collection<ShipmentStatus> statuses, LocalDateTime dueBefore,
+                                    RefreshProgress progress) {
+        log.info("Iniciando actualización de envíos activos");
+
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            List<String> claimed = shipmentLeaseService.claimBatch(
+                    statuses, batchSize, Duration.ofSeconds(leaseSeconds), dueBefore);
+
+            if (claimed.isEmpty()) break;
+
+            refreshClaimed(claimed, progress);
+        }
+
+        log.info("Actualización de envíos completada: {} procesados, {} con novedades, {} con error",
+                progress.getProcessed(), progress.getUpdated(), progress.getFailed());
+        return progress;
+    }
+
+    /**
+     * Refrescar envíos puntuales (los que otro nodo está procesando se omiten).
+     * Se reclaman de a un lote, como en el barrido, para que el lease no venza antes de llegar al último.
+     */
+    public RefreshProgress refreshShipments(Collection<String> shipmentIds, RefreshProgress progress) {
+        List<String> ids = new ArrayList<>(shipmentIds);
+
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<String> chunk = ids.subList(from, Math.min(ids.size(), from + batchSize));
+            List<String> claimed = shipmentLeaseService.claimShipments(chunk, Duration.ofSeconds(leaseSeconds));
+            refreshClaimed(claimed, progress);
+        }
+        return progress;
+    }
+
+    /**
+     * Refrescar un envío pedido por un cliente, sin pausa. Retorna false si otro nodo lo está procesando
+     * o no hubo novedades.
+     */
+    public boolean refreshShipment(String shipmentId) {
+        List<String> claimed = shipmentLeaseService.claimShipments(List.of(shipmentId), Duration.ofSeconds(leaseSeconds));
+        return !claimed.isEmpty() && shipmentTrackingUpdater.refreshClaimedShipment(shipmentId);
+    }
+
+    private void refreshClaimed(List<String> claimed, RefreshProgress progress) {
+        for (String shipmentId : claimed) {
+            try {
+                progress.recordProcessed(shipmentTrackingUpdater.refreshClaimedShipment(shipmentId));
+            } catch (Exception e) {
+                progress.recordFailure();
+                log.error("Error actualizando envío {}: {}", shipmentId, e.getMessage());
+            }
+            pause(); // Evitar rate limiting
+        }
+    }
+
+    private void recoverExpiredLeases() {
+        if (!schedulerLockService.tryAcquire(LEASE_RECOVERY_LOCK, Duration.ofSeconds(leaseSeconds))) {
+            return;
+        }
+
+        int released = shipmentLeaseService.releaseExpiredLeases();
+        if (released > 0) {
+            log.warn("Se liberaron {} leases vencidos (réplica caída o lenta)", released);
+        }
+    }
+
+    private void pause() {
+        if (pauseMs <= 0) return;
+        try {
+            Thread.sleep(pauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
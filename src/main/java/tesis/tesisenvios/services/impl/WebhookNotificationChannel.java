@@ -0,0 +1,76 @@
+package tesis.tesisenvios.services.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+import tesis.tesisenvios.dtos.NotificationChannelType;
+import tesis.tesisenvios.entitites.NotificationOutboxEntity;
+import tesis.tesisenvios.entitites.ShipmentEntity;
+import tesis.tesisenvios.services.NotificationChannel;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Webhook de cambios de estado: un POST con un arreglo JSON por lote.
+ * El receptor debe responder 2xx; cualquier otra respuesta reintenta el lote completo.
+ */
+@Component
+@Slf4j
+public class WebhookNotificationChannel implements NotificationChannel {
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Value("${notifications.webhook.url:}")
+    private String url;
+
+    @Override
+    public NotificationChannelType getType() {
+        return NotificationChannelType.WEBHOOK;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return url != null && !url.isBlank();
+    }
+
+    @Override
+    public String recipientFor(ShipmentEntity shipment) {
+        return url;
+    }
+
+    @Override
+    public Map<Long, String> send(List<NotificationOutboxEntity> batch) {
+        List<Map<String, Object>> body = batch.stream()
+                .map(this::toPayload)
+                .collect(Collectors.toList());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        // Lanza excepción ante 4xx/5xx o falla de conexión
+        restTemplate.postForEntity(url, new HttpEntity<>(body, headers), Void.class);
+        return Map.of();
+    }
+
+    private Map<String, Object> toPayload(NotificationOutboxEntity notification) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("notificationId", notification.getId());
+        payload.put("shipmentId", notification.getShipmentId());
+        payload.put("orderCode", notification.getOrderCode());
+        payload.put("trackingNumber", notification.getTrackingNumber());
+        payload.put("previousStatus", notification.getPreviousStatus());
+        payload.put("status", notification.getShipmentStatus());
+        payload.put("transitions", notification.getTransitions());
+        payload.put("changedAt", notification.getChangedAt());
+        return payload;
+    }
+}
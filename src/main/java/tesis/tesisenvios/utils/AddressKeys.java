@@ -0,0 +1,116 @@
+package tesis.tesisenvios.utils;
+
+import java.text.Normalizer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Claves normalizadas de dirección: código postal de 4 dígitos y código de región (ISO 3166-2:AR)
+ */
+public final class AddressKeys {
+
+    private static final Map<String, String> REGION_BY_PROVINCE = new HashMap<>();
+    private static final Map<String, String> PROVINCE_BY_REGION = new HashMap<>();
+
+    static {
+        region("AR-B", "Buenos Aires", "Provincia de Buenos Aires", "Bs As", "Bs. As.", "PBA");
+        region("AR-C", "CABA", "Capital Federal", "Ciudad Autónoma de Buenos Aires", "Ciudad de Buenos Aires");
+        region("AR-X", "Córdoba");
+        region("AR-S", "Santa Fe");
+        region("AR-M", "Mendoza");
+        region("AR-T", "Tucumán");
+        region("AR-E", "Entre Ríos");
+        region("AR-A", "Salta");
+        region("AR-N", "Misiones");
+        region("AR-H", "Chaco");
+        region("AR-W", "Corrientes");
+        region("AR-G", "Santiago del Estero");
+        region("AR-J", "San Juan");
+        region("AR-Y", "Jujuy");
+        region("AR-R", "Río Negro");
+        region("AR-P", "Formosa");
+        region("AR-Q", "Neuquén");
+        region("AR-U", "Chubut");
+        region("AR-D", "San Luis");
+        region("AR-K", "Catamarca");
+        region("AR-F", "La Rioja");
+        region("AR-L", "La Pampa");
+        region("AR-Z", "Santa Cruz");
+        region("AR-V", "Tierra del Fuego", "Tierra del Fuego, Antártida e Islas del Atlántico Sur");
+    }
+
+    private AddressKeys() {
+    }
+
+    /**
+     * Código de región de la provincia (sin distinguir acentos ni mayúsculas) o null si no se reconoce
+     */
+    public static String regionCode(String province) {
+        return province == null ? null : REGION_BY_PROVINCE.get(fold(province));
+    }
+
+    /**
+     * Nombre canónico de la provincia (el primero registrado para la región) o null
+     */
+    public static String provinceName(String regionCode) {
+        return regionCode == null ? null : PROVINCE_BY_REGION.get(regionCode);
+    }
+
+    /**
+     * Todos los nombres reconocidos de provincias (ya normalizados con fold) y su región
+     */
+    public static Map<String, String> provinceAliases() {
+        return Collections.unmodifiableMap(REGION_BY_PROVINCE);
+    }
+
+    /**
+     * Prefijo numérico de 4 dígitos; acepta "5000" y CPA "X5000ABC". Retorna -1 si no es válido.
+     */
+    public static int postalPrefix(String postalCode) {
+        if (postalCode == null) return -1;
+
+        int value = 0;
+        int digits = 0;
+        for (int i = 0; i < postalCode.length() && digits < 4; i++) {
+            char c = postalCode.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                digits++;
+            } else if (digits > 0) {
+                break;
+            }
+        }
+        return digits == 4 ? value : -1;
+    }
+
+    /**
+     * Código postal normalizado de 4 dígitos ("5000") o null si no es válido
+     */
+    public static String postalKey(String postalCode) {
+        int prefix = postalPrefix(postalCode);
+        return prefix < 0 ? null : String.format("%04d", prefix);
+    }
+
+    /**
+     * Minúsculas y sin acentos, para comparar nombres escritos de distintas formas
+     */
+    public static String fold(String value) {
+        String decomposed = Normalizer.normalize(value.trim(), Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                folded.append(Character.toLowerCase(c));
+            }
+        }
+        return folded.toString();
+    }
+
+    private static void region(String code, String... names) {
+        PROVINCE_BY_REGION.put(code, names[0]);
+        for (String name : names) {
+            REGION_BY_PROVINCE.put(fold(name), code);
+        }
+    }
+}
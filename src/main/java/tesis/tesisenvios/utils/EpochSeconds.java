@@ -0,0 +1,29 @@
+package tesis.tesisenvios.utils;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Conversión entre LocalDateTime (hora de Argentina, como informan los proveedores) y segundos epoch.
+ * 0 representa "sin fecha" para no tener que usar Long en las entidades compactas.
+ */
+public final class EpochSeconds {
+
+    public static final ZoneId ZONE = ZoneId.of("America/Argentina/Buenos_Aires");
+
+    private EpochSeconds() {
+    }
+
+    public static long of(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.atZone(ZONE).toEpochSecond() : 0L;
+    }
+
+    public static long now() {
+        return Instant.now().getEpochSecond();
+    }
+
+    public static LocalDateTime toLocalDateTime(long epochSeconds) {
+        return epochSeconds != 0L ? LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSeconds), ZONE) : null;
+    }
+}
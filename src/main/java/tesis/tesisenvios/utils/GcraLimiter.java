@@ -0,0 +1,90 @@
+package tesis.tesisenvios.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket por clave implementado como GCRA (generic cell rate algorithm).
+ * Por cliente se guarda un solo long, el "theoretical arrival time" (TAT): cada pedido lo corre
+ * un intervalo de emisión y se rechaza si quedaría más adelante que la ráfaga permitida.
+ * Sin locks: un get del mapa y un CAS por pedido.
+ */
+public final class GcraLimiter {
+
+    private final long emissionIntervalNanos;
+    private final long burstNanos;
+    private final int maxKeys;
+    private final ConcurrentHashMap<String, AtomicLong> arrivals = new ConcurrentHashMap<>();
+    private final AtomicLong overflow = new AtomicLong();
+    private final AtomicLong lastEvictionNanos = new AtomicLong();
+
+    public GcraLimiter(double ratePerSecond, int burst, int maxKeys) {
+        if (ratePerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("La tasa y la ráfaga deben ser positivas");
+        }
+        this.emissionIntervalNanos = (long) (1_000_000_000L / ratePerSecond);
+        this.burstNanos = emissionIntervalNanos * burst;
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Consumir un pedido de la clave. Retorna 0 si se admite o los nanos a esperar para reintentar.
+     * nowNanos debe ser monótono y no negativo (nanos desde un origen fijo, no System.nanoTime crudo).
+     */
+    public long tryAcquire(String key, long nowNanos) {
+        AtomicLong arrival = arrivals.get(key);
+        if (arrival == null) {
+            arrival = arrivals.size() < maxKeys || evictIfDue(nowNanos)
+                    ? arrivals.computeIfAbsent(key, k -> new AtomicLong(nowNanos))
+                    : overflow; // Mapa lleno de clientes activos: los nuevos comparten un bucket
+        }
+
+        while (true) {
+            long tat = arrival.get();
+            long next = Math.max(tat, nowNanos) + emissionIntervalNanos;
+            long ahead = next - nowNanos;
+            if (ahead > burstNanos) {
+                return ahead - burstNanos;
+            }
+            if (arrival.compareAndSet(tat, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Devolver un pedido admitido que al final no se atendió (descartado por carga).
+     * El TAT no vuelve a antes de nowNanos: como mucho queda la ráfaga completa.
+     */
+    public void refund(String key, long nowNanos) {
+        AtomicLong arrival = arrivals.get(key);
+        if (arrival == null) return; // En el bucket compartido o ya eliminada: no hay nada propio que devolver
+
+        arrival.getAndUpdate(tat -> Math.max(nowNanos, tat - emissionIntervalNanos));
+    }
+
+    /**
+     * Quitar las claves que ya recuperaron toda la ráfaga (equivalen a una clave nueva)
+     */
+    public int evictIdle(long nowNanos) {
+        int before = arrivals.size();
+        arrivals.values().removeIf(arrival -> arrival.get() <= nowNanos);
+        return before - arrivals.size();
+    }
+
+    /**
+     * Barrido de claves inactivas cuando el mapa se llena, como mucho uno por segundo
+     * (si no, un ataque con muchas IPs haría barrer el mapa en cada pedido)
+     */
+    private boolean evictIfDue(long nowNanos) {
+        long last = lastEvictionNanos.get();
+        if (nowNanos - last >= 1_000_000_000L && lastEvictionNanos.compareAndSet(last, nowNanos)) {
+            evictIdle(nowNanos);
+        }
+        return arrivals.size() < maxKeys;
+    }
+
+    public int size() {
+        return arrivals.size();
+    }
+}
@@ -0,0 +1,385 @@
+package tesis.tesisenvios.utils;
+
+import tesis.tesisenvios.dtos.ShippingAddressRequest;
+import tesis.tesisenvios.exceptions.InvalidAddressException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Índice en memoria de localidades y códigos postales argentinos para normalizar direcciones.
+ * <ul>
+ *   <li>Provincia y localidad se buscan primero exactas (sin acentos ni mayúsculas, en un HashMap)
+ *   y, si no aparecen, en un trie con distancia de edición acotada: "Cordova" -> "Córdoba".</li>
+ *   <li>El código postal se acepta como "5000" o CPA "X5000ABC"; la letra del CPA es la de la
+ *   provincia (la misma del código ISO 3166-2:AR) y se valida.</li>
+ *   <li>Solo se rechaza lo imposible: un código postal conocido que pertenece a otra provincia.
+ *   Una localidad que no está en el archivo se deja como vino.</li>
+ * </ul>
+ * Archivo: "region;localidad;codigos;alias", donde codigos es "5000" o un rango "1000-1499"
+ * (varios separados por coma) y alias es opcional (nombres alternativos separados por '|').
+ * Inmutable después de construido: se puede consultar desde varios threads.
+ */
+public final class LocalityIndex {
+
+    private static final Pattern POSTAL_CODE = Pattern.compile("\\d{4}|[A-Z]\\d{4}[A-Z]{3}|[A-Z]\\d{4}");
+    private static final Pattern POSTAL_SEPARATORS = Pattern.compile("[\\s-]");
+
+    public static final LocalityIndex EMPTY = new LocalityIndex(List.of(), Map.of());
+
+    private final Map<String, Locality> byRegionAndName = new HashMap<>();
+    private final Trie<Locality> localityNames = new Trie<>();
+    private final Trie<String> provinceNames = new Trie<>();
+    private final Map<Integer, Set<String>> regionsByPostalPrefix;
+    private final int size;
+
+    private LocalityIndex(List<Locality> localities, Map<Integer, Set<String>> regionsByPostalPrefix) {
+        for (Locality locality : localities) {
+            for (String name : locality.names) {
+                String key = key(name);
+                byRegionAndName.putIfAbsent(locality.regionCode + '|' + key, locality);
+                localityNames.put(key, locality);
+            }
+        }
+        AddressKeys.provinceAliases().forEach((alias, region) -> provinceNames.put(key(alias), region));
+        this.regionsByPostalPrefix = regionsByPostalPrefix;
+        this.size = localities.size();
+    }
+
+    /**
+     * Construir el índice desde el archivo de localidades (líneas vacías y con '#' se ignoran)
+     */
+    public static LocalityIndex load(Reader source) throws IOException {
+        Map<String, Locality> localities = new LinkedHashMap<>();
+        Map<Integer, Set<String>> regionsByPostalPrefix = new HashMap<>();
+
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            String[] columns = line.split(";", -1);
+            if (columns.length < 3 || AddressKeys.provinceName(columns[0].strip()) == null) {
+                throw new IOException("Línea " + lineNumber + " inválida en el archivo de localidades: " + line);
+            }
+
+            String region = columns[0].strip();
+            String name = columns[1].strip();
+            Locality locality = localities.computeIfAbsent(region + '|' + key(name), k -> new Locality(region, name));
+
+            for (String range : columns[2].split(",")) {
+                String[] bounds = range.strip().split("-");
+                int from = Integer.parseInt(bounds[0].strip());
+                int to = bounds.length > 1 ? Integer.parseInt(bounds[1].strip()) : from;
+                for (int prefix = from; prefix <= to; prefix++) {
+                    locality.addPostalPrefix(prefix);
+                    regionsByPostalPrefix.computeIfAbsent(prefix, p -> new HashSet<>(2)).add(region);
+                }
+            }
+            if (columns.length > 3 && !columns[3].isBlank()) {
+                for (String alias : columns[3].split("\\|")) {
+                    locality.names.add(alias.strip());
+                }
+            }
+        }
+        return new LocalityIndex(new ArrayList<>(localities.values()), regionsByPostalPrefix);
+    }
+
+    /**
+     * Dirección con provincia y localidad canónicas y el código postal validado, sin separadores
+     * ("X5000ABC" sigue siendo CPA; el resto de los campos igual).
+     * Lanza InvalidAddressException si la combinación es imposible.
+     */
+    public ShippingAddressRequest normalize(ShippingAddressRequest address) {
+        String region = resolveProvince(address.getProvince());
+        String postalCode = compactPostalCode(address.getPostalCode());
+        int postalPrefix = resolvePostalCode(postalCode, address.getPostalCode(), region);
+
+        if (address.getCity() == null || address.getCity().isBlank()) {
+            throw new InvalidAddressException("Falta la localidad");
+        }
+        Locality locality = resolveLocality(address.getCity(), region, postalPrefix);
+        String city = locality != null ? locality.canonicalName() : address.getCity().strip();
+
+        return new ShippingAddressRequest(
+                address.getStreet(),
+                address.getStreetNumber(),
+                address.getApartment(),
+                city,
+                AddressKeys.provinceName(region),
+                postalCode,
+                address.getAdditionalInfo());
+    }
+
+    /**
+     * Cantidad de localidades cargadas
+     */
+    public int size() {
+        return size;
+    }
+
+    // ================================
+    // MÉTODOS AUXILIARES
+    // ================================
+
+    private String resolveProvince(String province) {
+        if (province == null || province.isBlank()) {
+            throw new InvalidAddressException("Falta la provincia");
+        }
+
+        String region = AddressKeys.regionCode(province);
+        if (region != null) return region;
+
+        String key = key(province);
+        List<String> exact = provinceNames.get(key);
+        if (!exact.isEmpty()) return exact.get(0);
+
+        Set<String> nearest = new HashSet<>(provinceNames.nearest(key, maxEdits(key), r -> true));
+        if (nearest.size() == 1) return nearest.iterator().next();
+
+        throw new InvalidAddressException("Provincia desconocida: " + province);
+    }
+
+    private static String compactPostalCode(String postalCode) {
+        return postalCode == null ? "" : POSTAL_SEPARATORS.matcher(postalCode).replaceAll("").toUpperCase();
+    }
+
+    /**
+     * Prefijo de 4 dígitos validado contra la provincia
+     */
+    private int resolvePostalCode(String compact, String postalCode, String region) {
+        if (!POSTAL_CODE.matcher(compact).matches()) {
+            throw new InvalidAddressException("Código postal inválido: " + postalCode);
+        }
+
+        char letter = compact.charAt(0);
+        if (Character.isLetter(letter) && letter != region.charAt(region.length() - 1)) {
+            throw new InvalidAddressException("El CPA " + postalCode + " no corresponde a "
+                    + AddressKeys.provinceName(region));
+        }
+
+        int prefix = AddressKeys.postalPrefix(compact);
+        Set<String> regions = regionsByPostalPrefix.get(prefix);
+        if (regions != null && !regions.contains(region)) {
+            throw new InvalidAddressException("El código postal " + postalCode + " no corresponde a "
+                    + AddressKeys.provinceName(region));
+        }
+        return prefix;
+    }
+
+    /**
+     * Localidad de la provincia: exacta o la más cercana. Si el código postal es conocido, la
+     * corrección tiene que coincidir con él (aunque haya un solo candidato); si hay empate decide
+     * el código postal. Si sigue ambiguo no se corrige.
+     */
+    private Locality resolveLocality(String city, String region, int postalPrefix) {
+        String key = key(city);
+        Locality exact = byRegionAndName.get(region + '|' + key);
+        if (exact != null) return exact;
+
+        List<Locality> nearest = localityNames.nearest(key, maxEdits(key), l -> l.regionCode.equals(region));
+        Set<Locality> candidates = new HashSet<>(nearest);
+        if (candidates.size() == 1) {
+            Locality candidate = candidates.iterator().next();
+            boolean knownPrefix = regionsByPostalPrefix.containsKey(postalPrefix);
+            return !knownPrefix || candidate.hasPostalPrefix(postalPrefix) ? candidate : null;
+        }
+
+        Locality match = null;
+        for (Locality candidate : candidates) {
+            if (candidate.hasPostalPrefix(postalPrefix)) {
+                if (match != null) return null;
+                match = candidate;
+            }
+        }
+        return match;
+    }
+
+    /**
+     * Errores tolerados según el largo: los nombres cortos se confunden fácil entre sí
+     */
+    private static int maxEdits(String key) {
+        if (key.length() <= 4) return 0;
+        return key.length() <= 8 ? 1 : 2;
+    }
+
+    /**
+     * Clave de búsqueda: sin acentos, minúsculas, signos como espacios y espacios colapsados
+     */
+    static String key(String value) {
+        String folded = AddressKeys.fold(value);
+        StringBuilder key = new StringBuilder(folded.length());
+        boolean space = false;
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (space && key.length() > 0) key.append(' ');
+                key.append(c);
+                space = false;
+            } else {
+                space = true;
+            }
+        }
+        return key.toString();
+    }
+
+    private static final class Locality {
+        private final String regionCode;
+        private final List<String> names = new ArrayList<>(1);
+        private int[] postalPrefixes = new int[0];
+
+        Locality(String regionCode, String name) {
+            this.regionCode = regionCode;
+            this.names.add(name);
+        }
+
+        String canonicalName() {
+            return names.get(0);
+        }
+
+        void addPostalPrefix(int prefix) {
+            if (hasPostalPrefix(prefix)) return;
+            int[] updated = Arrays.copyOf(postalPrefixes, postalPrefixes.length + 1);
+            updated[postalPrefixes.length] = prefix;
+            Arrays.sort(updated);
+            postalPrefixes = updated;
+        }
+
+        boolean hasPostalPrefix(int prefix) {
+            return Arrays.binarySearch(postalPrefixes, prefix) >= 0;
+        }
+    }
+
+    /**
+     * Trie de caracteres con los hijos en arreglos ordenados (búsqueda binaria por nivel).
+     * nearest() recorre el trie calculando una fila de Levenshtein por nodo y poda las ramas
+     * que ya superan la distancia tolerada, así no compara contra cada nombre.
+     */
+    private static final class Trie<V> {
+        private final Node<V> root = new Node<>();
+
+        void put(String key, V value) {
+            Node<V> node = root;
+            for (int i = 0; i < key.length(); i++) {
+                node = node.childOrCreate(key.charAt(i));
+            }
+            if (!node.values.contains(value)) {
+                node.values.add(value);
+            }
+        }
+
+        List<V> get(String key) {
+            Node<V> node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.child(key.charAt(i));
+            }
+            return node != null ? node.values : Collections.emptyList();
+        }
+
+        /**
+         * Valores aceptados a la menor distancia de edición encontrada (hasta maxEdits)
+         */
+        List<V> nearest(String key, int maxEdits, Predicate<V> accept) {
+            Search<V> search = new Search<>(key, maxEdits, accept);
+            int[] firstRow = new int[key.length() + 1];
+            for (int i = 0; i < firstRow.length; i++) {
+                firstRow[i] = i;
+            }
+            for (int i = 0; i < root.size; i++) {
+                search.walk(root.children[i], root.labels[i], firstRow);
+            }
+            return search.matches;
+        }
+    }
+
+    private static final class Search<V> {
+        private final String key;
+        private final Predicate<V> accept;
+        private int best;
+        private final List<V> matches = new ArrayList<>();
+
+        Search(String key, int maxEdits, Predicate<V> accept) {
+            this.key = key;
+            this.accept = accept;
+            this.best = maxEdits;
+        }
+
+        void walk(Node<V> node, char label, int[] previous) {
+            int columns = key.length() + 1;
+            int[] row = new int[columns];
+            row[0] = previous[0] + 1;
+            int rowMin = row[0];
+
+            for (int i = 1; i < columns; i++) {
+                int cost = key.charAt(i - 1) == label ? 0 : 1;
+                row[i] = Math.min(Math.min(row[i - 1] + 1, previous[i] + 1), previous[i - 1] + cost);
+                rowMin = Math.min(rowMin, row[i]);
+            }
+
+            int distance = row[columns - 1];
+            if (distance <= best) {
+                for (V value : node.values) {
+                    if (!accept.test(value)) continue;
+                    if (distance < best) {
+                        best = distance;
+                        matches.clear();
+                    }
+                    matches.add(value);
+                }
+            }
+
+            if (rowMin <= best) {
+                for (int i = 0; i < node.size; i++) {
+                    walk(node.children[i], node.labels[i], row);
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static final class Node<V> {
+        private char[] labels = new char[0];
+        private Node<V>[] children = new Node[0];
+        private int size;
+        private final List<V> values = new ArrayList<>(0);
+
+        Node<V> child(char c) {
+            int index = Arrays.binarySearch(labels, 0, size, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node<V> childOrCreate(char c) {
+            int index = Arrays.binarySearch(labels, 0, size, c);
+            if (index >= 0) return children[index];
+
+            int insertAt = -index - 1;
+            if (size == labels.length) {
+                int capacity = Math.max(2, size * 2);
+                labels = Arrays.copyOf(labels, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            System.arraycopy(labels, insertAt, labels, insertAt + 1, size - insertAt);
+            System.arraycopy(children, insertAt, children, insertAt + 1, size - insertAt);
+            Node<V> created = new Node<>();
+            labels[insertAt] = c;
+            children[insertAt] = created;
+            size++;
+            return created;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package tesis.tesisenvios.utils;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import tesis.tesisenvios.dtos.ShipmentResponse;
+import tesis.tesisenvios.dtos.ShipmentSummaryResponse;
+import tesis.tesisenvios.dtos.ShippingAddressResponse;
+import tesis.tesisenvios.dtos.TrackingEventResponse;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Vistas reducidas de un envío para clientes que no necesitan la respuesta completa.
+ * Las vistas reducidas y filtradas omiten los campos null; la vista completa mantiene su formato.
+ */
+public final class ShipmentViews {
+
+    private static final int MAX_FIELDS = 20;
+
+    private ShipmentViews() {
+    }
+
+    /**
+     * Resumen a partir de una respuesta completa (envíos archivados); los eventos vienen del más nuevo al más viejo
+     */
+    public static ShipmentSummaryResponse summary(ShipmentResponse shipment) {
+        List<TrackingEventResponse> events = shipment.getTrackingEvents();
+        return new ShipmentSummaryResponse(
+                shipment.getOrderCode(),
+                shipment.getTrackingNumber(),
+                shipment.getProvider(),
+                shipment.getStatus(),
+                shipment.getEstimatedDeliveryDate(),
+                shipment.getActualDeliveryDate(),
+                events != null && !events.isEmpty() ? events.get(0) : null);
+    }
+
+    /**
+     * Envío con eventos sin datos personales: sin destinatario y con la dirección reducida a la localidad
+     */
+    public static ShipmentResponse detail(ShipmentResponse shipment) {
+        ShippingAddressResponse address = shipment.getShippingAddress();
+        ShippingAddressResponse locality = null;
+        if (address != null) {
+            locality = new ShippingAddressResponse();
+            locality.setCity(address.getCity());
+            locality.setProvince(address.getProvince());
+            locality.setPostalCode(address.getPostalCode());
+        }
+
+        shipment.setShippingAddress(locality);
+        shipment.setRecipientName(null);
+        shipment.setRecipientEmail(null);
+        return shipment;
+    }
+
+    /**
+     * Copia del mapper que omite los null, para las vistas reducidas
+     */
+    public static ObjectMapper compactMapper(ObjectMapper objectMapper) {
+        return objectMapper.copy().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    }
+
+    /**
+     * Cuerpo de una vista reducida: sin null y, si se pidieron, solo los campos indicados
+     */
+    public static ObjectNode compact(ObjectMapper compactMapper, Object body, Set<String> fields) {
+        return fields.isEmpty() ? compactMapper.valueToTree(body) : filter(compactMapper, body, fields);
+    }
+
+    /**
+     * Lista de campos de ?fields=a,b,c (solo primer nivel)
+     */
+    public static Set<String> parseFields(String fields) {
+        if (fields == null || fields.isBlank()) return Set.of();
+
+        Set<String> parsed = Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toSet());
+        if (parsed.size() > MAX_FIELDS) {
+            throw new IllegalArgumentException("Demasiados campos en fields (máximo " + MAX_FIELDS + ")");
+        }
+        return parsed;
+    }
+
+    /**
+     * Dejar solo los campos pedidos; los desconocidos se ignoran
+     */
+    public static ObjectNode filter(ObjectMapper objectMapper, Object body, Set<String> fields) {
+        ObjectNode node = objectMapper.valueToTree(body);
+        node.retain(fields);
+        return node;
+    }
+}
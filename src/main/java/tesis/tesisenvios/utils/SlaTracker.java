@@ -0,0 +1,208 @@
+package tesis.tesisenvios.utils;
+
+import lombok.Getter;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.dtos.SlaState;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Índice de envíos activos ordenado por su próximo vencimiento de SLA.
+ * Cada envío tiene a lo sumo un vencimiento vigente en el heap (el próximo cambio de estado de SLA):
+ * advance() solo saca los que ya vencieron, así el costo de cada pasada depende de los envíos
+ * que vencen y no del total de envíos activos. Los vencimientos de un envío que cambió o se quitó
+ * quedan en el heap y se descartan al salir (generación distinta).
+ * <p>
+ * El plazo es el final del día estimado de entrega (mismo criterio que "a tiempo" en las estadísticas).
+ * No es thread-safe: el llamador sincroniza.
+ */
+public class SlaTracker {
+
+    private static final Comparator<Deadline> BY_DUE = Comparator.comparingLong(Deadline::dueAt);
+
+    private final long atRiskSeconds;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final PriorityQueue<Deadline> deadlines = new PriorityQueue<>(BY_DUE);
+    private final Map<SlaState, Integer> counts = new EnumMap<>(SlaState.class);
+    private final List<Entry> recentlyFlagged = new ArrayList<>();
+
+    public SlaTracker(long atRiskSeconds) {
+        this.atRiskSeconds = atRiskSeconds;
+        for (SlaState state : SlaState.values()) {
+            counts.put(state, 0);
+        }
+    }
+
+    /**
+     * Agregar o reemplazar un envío. Retorna el estado de SLA que le corresponde ya mismo.
+     */
+    public SlaState track(String id, String orderCode, String trackingNumber, ShipmentStatus status,
+                          LocalDateTime estimatedDeliveryDate, long now) {
+        remove(id);
+
+        LocalDateTime deadline = estimatedDeliveryDate.toLocalDate().plusDays(1).atStartOfDay();
+        Entry entry = new Entry(id, orderCode, trackingNumber, estimatedDeliveryDate, deadline,
+                EpochSeconds.of(deadline));
+        entry.status = status;
+        entries.put(id, entry);
+        evaluate(entry, now);
+        return entry.state;
+    }
+
+    /**
+     * Actualizar el estado de un envío ya seguido. Retorna false si no se sigue (hay que cargarlo con track).
+     */
+    public boolean updateStatus(String id, ShipmentStatus status, long now) {
+        Entry entry = entries.get(id);
+        if (entry == null) return false;
+        if (entry.status != status) {
+            entry.status = status;
+            evaluate(entry, now);
+        }
+        return true;
+    }
+
+    public void remove(String id) {
+        Entry entry = entries.remove(id);
+        if (entry != null) {
+            counts.merge(entry.state, -1, Integer::sum);
+        }
+        compactIfNeeded();
+    }
+
+    /**
+     * Procesar los vencimientos hasta "now". Retorna cuántos vencimientos vigentes se procesaron.
+     */
+    public int advance(long now) {
+        int processed = 0;
+        while (!deadlines.isEmpty() && deadlines.peek().dueAt() <= now) {
+            Deadline due = deadlines.poll();
+            Entry entry = entries.get(due.id());
+            if (entry == null || entry.generation != due.generation()) continue;
+
+            evaluate(entry, now);
+            processed++;
+        }
+        return processed;
+    }
+
+    /**
+     * Envíos que pasaron a en riesgo o atrasados desde la llamada anterior (por vencimiento,
+     * por un cambio de estado o al agregarlos)
+     */
+    public List<Entry> drainFlagged() {
+        List<Entry> drained = new ArrayList<>(recentlyFlagged);
+        recentlyFlagged.clear();
+        return drained;
+    }
+
+    /**
+     * Envíos en el estado indicado (o en riesgo y atrasados si es null), el plazo más vencido primero
+     */
+    public List<Entry> flagged(SlaState state, int limit) {
+        List<Entry> result = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (state != null ? entry.state == state : entry.state != SlaState.ON_TRACK) {
+                result.add(entry);
+            }
+        }
+        result.sort(Comparator.comparingLong((Entry e) -> e.deadlineEpoch).thenComparing(e -> e.id));
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    public int count(SlaState state) {
+        return counts.get(state);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // ================================
+    // MÉTODOS AUXILIARES
+    // ================================
+
+    /**
+     * Recalcular el estado de SLA y programar el próximo vencimiento (si queda alguno)
+     */
+    private void evaluate(Entry entry, long now) {
+        SlaState state;
+        long next;
+        long riskAt = entry.deadlineEpoch - atRiskSeconds;
+
+        if (now >= entry.deadlineEpoch) {
+            state = SlaState.LATE;
+            next = -1;
+        } else if (entry.status == ShipmentStatus.FAILED_DELIVERY
+                || (now >= riskAt && entry.status != ShipmentStatus.OUT_FOR_DELIVERY)) {
+            state = SlaState.AT_RISK;
+            next = entry.deadlineEpoch;
+        } else {
+            state = SlaState.ON_TRACK;
+            next = now < riskAt && entry.status != ShipmentStatus.OUT_FOR_DELIVERY ? riskAt : entry.deadlineEpoch;
+        }
+
+        if (state != entry.state) {
+            if (entry.state != null) {
+                counts.merge(entry.state, -1, Integer::sum);
+            }
+            counts.merge(state, 1, Integer::sum);
+            entry.state = state;
+            entry.flaggedAt = now;
+            if (state != SlaState.ON_TRACK) {
+                recentlyFlagged.add(entry);
+            }
+        }
+
+        entry.generation++;
+        if (next >= 0) {
+            deadlines.add(new Deadline(next, entry.id, entry.generation));
+        }
+        compactIfNeeded();
+    }
+
+    /**
+     * Si los vencimientos descartados superan a los vigentes, reconstruir el heap solo con los vigentes
+     */
+    private void compactIfNeeded() {
+        if (deadlines.size() <= 2 * entries.size() + 1024) return;
+        deadlines.removeIf(d -> {
+            Entry entry = entries.get(d.id());
+            return entry == null || entry.generation != d.generation();
+        });
+    }
+
+    private record Deadline(long dueAt, String id, int generation) {
+    }
+
+    @Getter
+    public static final class Entry {
+        private final String id;
+        private final String orderCode;
+        private final String trackingNumber;
+        private final LocalDateTime estimatedDeliveryDate;
+        private final LocalDateTime deadline;
+        private final long deadlineEpoch;
+        private ShipmentStatus status;
+        private SlaState state;
+        private long flaggedAt;
+        private int generation;
+
+        private Entry(String id, String orderCode, String trackingNumber, LocalDateTime estimatedDeliveryDate,
+                      LocalDateTime deadline, long deadlineEpoch) {
+            this.id = id;
+            this.orderCode = orderCode;
+            this.trackingNumber = trackingNumber;
+            this.estimatedDeliveryDate = estimatedDeliveryDate;
+            this.deadline = deadline;
+            this.deadlineEpoch = deadlineEpoch;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+-- ================================
+-- Outbox de cancelaciones a informar al proveedor
+-- ================================
+
+CREATE SEQUENCE carrier_cancellations_seq AS BIGINT START WITH 1 INCREMENT BY 20;
+
+CREATE TABLE carrier_cancellations (
+    id              BIGINT         NOT NULL,
+    shipment_id     NVARCHAR(36)   NOT NULL,
+    provider        NVARCHAR(50)   NOT NULL,
+    tracking_number NVARCHAR(64)   NOT NULL,
+    status          NVARCHAR(20)   NOT NULL,
+    attempts        INT            NOT NULL,
+    next_attempt_at DATETIME2      NOT NULL,
+    last_error      NVARCHAR(500)  NULL,
+    created_at      DATETIME2      NOT NULL,
+    completed_at    DATETIME2      NULL,
+    CONSTRAINT pk_carrier_cancellations PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_carrier_cancellations_due ON carrier_cancellations (status, next_attempt_at);
+CREATE INDEX idx_carrier_cancellations_shipment ON carrier_cancellations (shipment_id);
@@ -0,0 +1,27 @@
+-- ================================
+-- Etiquetas de envío (el PDF vive en el almacén de archivos, acá solo su hash)
+-- ================================
+
+CREATE SEQUENCE shipment_labels_seq AS BIGINT START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE shipment_labels (
+    id               BIGINT         NOT NULL,
+    shipment_id      NVARCHAR(36)   NOT NULL,
+    order_code       NVARCHAR(100)  NOT NULL,
+    tracking_number  NVARCHAR(64)   NOT NULL,
+    provider         NVARCHAR(50)   NOT NULL,
+    status           NVARCHAR(20)   NOT NULL,
+    content_hash     NVARCHAR(64)   NULL,
+    size_bytes       BIGINT         NULL,
+    rendered_locally BIT            NOT NULL,
+    attempts         INT            NOT NULL,
+    next_attempt_at  DATETIME2      NOT NULL,
+    last_error       NVARCHAR(500)  NULL,
+    created_at       DATETIME2      NOT NULL,
+    ready_at         DATETIME2      NULL,
+    CONSTRAINT pk_shipment_labels PRIMARY KEY (id),
+    CONSTRAINT uk_shipment_labels_shipment UNIQUE (shipment_id)
+);
+
+CREATE INDEX idx_shipment_labels_due ON shipment_labels (status, next_attempt_at);
+CREATE INDEX idx_shipment_labels_order_code ON shipment_labels (order_code);
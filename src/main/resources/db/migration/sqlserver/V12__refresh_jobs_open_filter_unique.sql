@@ -0,0 +1,9 @@
+-- ================================
+-- Un solo trabajo de refresco abierto por filtro
+-- ================================
+
+-- La unificación de pedidos equivalentes consulta y después inserta; con dos pedidos al mismo
+-- tiempo ambos podían encolar. El índice filtrado hace fallar el segundo insert y el servicio
+-- responde con el trabajo existente. Los trabajos terminados no cuentan.
+CREATE UNIQUE INDEX uk_refresh_jobs_open_filter ON tracking_refresh_jobs (filter_key)
+    WHERE status IN ('QUEUED', 'RUNNING');
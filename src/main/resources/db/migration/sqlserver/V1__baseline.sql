@@ -0,0 +1,83 @@
+-- ================================
+-- Esquema base de Tesis-Envios (SQL Server)
+-- ================================
+
+CREATE TABLE shipments (
+    id                      NVARCHAR(36)   NOT NULL,
+    order_code              NVARCHAR(100)  NOT NULL,
+    tracking_number         NVARCHAR(64)   NULL,
+    provider                NVARCHAR(30)   NULL,
+    service_type            NVARCHAR(30)   NULL,
+    status                  NVARCHAR(30)   NULL,
+    shipping_address        NVARCHAR(MAX)  NULL,
+    recipient_name          NVARCHAR(255)  NULL,
+    recipient_email         NVARCHAR(255)  NULL,
+    recipient_phone         NVARCHAR(50)   NULL,
+    shipping_cost           DECIMAL(10, 2) NULL,
+    estimated_delivery_date DATETIME2      NULL,
+    actual_delivery_date    DATETIME2      NULL,
+    weight_kg               DECIMAL(5, 2)  NULL,
+    declared_value          DECIMAL(10, 2) NULL,
+    created_at              DATETIME2      NULL,
+    updated_at              DATETIME2      NULL,
+    next_poll_at            DATETIME2      NULL,
+    lease_owner             NVARCHAR(128)  NULL,
+    lease_until             DATETIME2      NULL,
+    version                 BIGINT         NULL,
+    external_data           NVARCHAR(MAX)  NULL,
+    CONSTRAINT pk_shipments PRIMARY KEY (id),
+    CONSTRAINT uk_shipments_order_code UNIQUE (order_code)
+);
+
+-- Barrido de tracking: envíos activos por próxima consulta
+CREATE INDEX idx_shipments_status_next_poll ON shipments (status, next_poll_at) INCLUDE (lease_until, tracking_number);
+CREATE INDEX idx_shipments_tracking_number ON shipments (tracking_number);
+CREATE INDEX idx_shipments_recipient_email ON shipments (recipient_email);
+CREATE INDEX idx_shipments_lease_owner ON shipments (lease_owner) WHERE lease_owner IS NOT NULL;
+
+-- Secuencia con incremento = allocationSize de Hibernate (optimizador pooled)
+CREATE SEQUENCE tracking_events_seq AS BIGINT START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE tracking_events (
+    id                BIGINT        NOT NULL,
+    shipment_id       NVARCHAR(36)  NULL,
+    event_date        DATETIME2     NULL,
+    status            NVARCHAR(100) NULL,
+    description       NVARCHAR(255) NULL,
+    location          NVARCHAR(255) NULL,
+    provider_event_id NVARCHAR(100) NULL,
+    created_at        DATETIME2     NULL,
+    CONSTRAINT pk_tracking_events PRIMARY KEY (id),
+    CONSTRAINT fk_tracking_events_shipment FOREIGN KEY (shipment_id) REFERENCES shipments (id)
+);
+
+CREATE INDEX idx_tracking_events_shipment_date ON tracking_events (shipment_id, event_date DESC);
+
+CREATE TABLE scheduler_locks (
+    name         NVARCHAR(64)  NOT NULL,
+    locked_by    NVARCHAR(255) NULL,
+    locked_at    DATETIME2     NULL,
+    locked_until DATETIME2     NULL,
+    CONSTRAINT pk_scheduler_locks PRIMARY KEY (name)
+);
+
+CREATE TABLE tracking_refresh_jobs (
+    id               NVARCHAR(36)  NOT NULL,
+    status           NVARCHAR(20)  NULL,
+    filter_key       NVARCHAR(512) NULL,
+    tracking_numbers NVARCHAR(MAX) NULL,
+    status_filter    NVARCHAR(30)  NULL,
+    processed        INT           NOT NULL DEFAULT 0,
+    updated          INT           NOT NULL DEFAULT 0,
+    failed           INT           NOT NULL DEFAULT 0,
+    runner_node      NVARCHAR(255) NULL,
+    error_message    NVARCHAR(255) NULL,
+    requested_at     DATETIME2     NULL,
+    started_at       DATETIME2     NULL,
+    heartbeat_at     DATETIME2     NULL,
+    finished_at      DATETIME2     NULL,
+    CONSTRAINT pk_tracking_refresh_jobs PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_refresh_jobs_status_requested ON tracking_refresh_jobs (status, requested_at);
+CREATE INDEX idx_refresh_jobs_filter_status ON tracking_refresh_jobs (filter_key, status);
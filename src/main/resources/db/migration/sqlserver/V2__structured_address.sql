@@ -0,0 +1,67 @@
+-- ================================
+-- Dirección de envío en columnas (antes JSON en shipping_address)
+-- ================================
+
+ALTER TABLE shipments ADD
+    dest_street          NVARCHAR(255) NULL,
+    dest_street_number   NVARCHAR(20)  NULL,
+    dest_apartment       NVARCHAR(50)  NULL,
+    dest_city            NVARCHAR(100) NULL,
+    dest_province        NVARCHAR(100) NULL,
+    dest_postal_code     NVARCHAR(20)  NULL,
+    dest_additional_info NVARCHAR(255) NULL,
+    dest_postal_key      NVARCHAR(4)   NULL,
+    dest_region_code     NVARCHAR(4)   NULL;
+GO
+
+-- Copiar los datos existentes desde el JSON
+UPDATE shipments SET
+    dest_street          = JSON_VALUE(shipping_address, '$.street'),
+    dest_street_number   = LEFT(JSON_VALUE(shipping_address, '$.streetNumber'), 20),
+    dest_apartment       = LEFT(JSON_VALUE(shipping_address, '$.apartment'), 50),
+    dest_city            = LEFT(JSON_VALUE(shipping_address, '$.city'), 100),
+    dest_province        = LEFT(JSON_VALUE(shipping_address, '$.province'), 100),
+    dest_postal_code     = LEFT(JSON_VALUE(shipping_address, '$.postalCode'), 20),
+    dest_additional_info = JSON_VALUE(shipping_address, '$.additionalInfo')
+WHERE shipping_address IS NOT NULL AND ISJSON(shipping_address) = 1;
+GO
+
+-- Clave postal: primeros 4 dígitos ("5000" o CPA "X5000ABC")
+UPDATE shipments SET
+    dest_postal_key = SUBSTRING(dest_postal_code, PATINDEX('%[0-9][0-9][0-9][0-9]%', dest_postal_code), 4)
+WHERE PATINDEX('%[0-9][0-9][0-9][0-9]%', dest_postal_code) > 0;
+
+-- Región ISO 3166-2:AR (la collation por defecto ignora mayúsculas; se contemplan ambas grafías con y sin acento)
+UPDATE shipments SET dest_region_code = CASE
+        WHEN dest_province IN (N'Buenos Aires', N'Provincia de Buenos Aires') THEN 'AR-B'
+        WHEN dest_province IN (N'CABA', N'Capital Federal', N'Ciudad Autónoma de Buenos Aires', N'Ciudad Autonoma de Buenos Aires', N'Ciudad de Buenos Aires') THEN 'AR-C'
+        WHEN dest_province IN (N'Córdoba', N'Cordoba') THEN 'AR-X'
+        WHEN dest_province = N'Santa Fe' THEN 'AR-S'
+        WHEN dest_province = N'Mendoza' THEN 'AR-M'
+        WHEN dest_province IN (N'Tucumán', N'Tucuman') THEN 'AR-T'
+        WHEN dest_province IN (N'Entre Ríos', N'Entre Rios') THEN 'AR-E'
+        WHEN dest_province = N'Salta' THEN 'AR-A'
+        WHEN dest_province = N'Misiones' THEN 'AR-N'
+        WHEN dest_province = N'Chaco' THEN 'AR-H'
+        WHEN dest_province = N'Corrientes' THEN 'AR-W'
+        WHEN dest_province = N'Santiago del Estero' THEN 'AR-G'
+        WHEN dest_province = N'San Juan' THEN 'AR-J'
+        WHEN dest_province = N'Jujuy' THEN 'AR-Y'
+        WHEN dest_province IN (N'Río Negro', N'Rio Negro') THEN 'AR-R'
+        WHEN dest_province = N'Formosa' THEN 'AR-P'
+        WHEN dest_province IN (N'Neuquén', N'Neuquen') THEN 'AR-Q'
+        WHEN dest_province = N'Chubut' THEN 'AR-U'
+        WHEN dest_province = N'San Luis' THEN 'AR-D'
+        WHEN dest_province = N'Catamarca' THEN 'AR-K'
+        WHEN dest_province = N'La Rioja' THEN 'AR-F'
+        WHEN dest_province = N'La Pampa' THEN 'AR-L'
+        WHEN dest_province = N'Santa Cruz' THEN 'AR-Z'
+        WHEN dest_province = N'Tierra del Fuego' THEN 'AR-V'
+    END
+WHERE dest_province IS NOT NULL;
+GO
+
+ALTER TABLE shipments DROP COLUMN shipping_address;
+
+CREATE INDEX idx_shipments_dest_postal_key ON shipments (dest_postal_key);
+CREATE INDEX idx_shipments_dest_region_status ON shipments (dest_region_code, status);
@@ -0,0 +1,22 @@
+-- ================================
+-- Archivo de envíos terminados
+-- ================================
+
+CREATE TABLE shipment_archive (
+    id              NVARCHAR(36)  NOT NULL,
+    order_code      NVARCHAR(100) NOT NULL,
+    tracking_number NVARCHAR(64)  NULL,
+    status          NVARCHAR(30)  NULL,
+    archive_month   INT           NOT NULL,
+    completed_at    DATETIME2     NULL,
+    archived_at     DATETIME2     NULL,
+    payload         NVARCHAR(MAX) NOT NULL,
+    CONSTRAINT pk_shipment_archive PRIMARY KEY (id),
+    CONSTRAINT uk_shipment_archive_order_code UNIQUE (order_code)
+) WITH (DATA_COMPRESSION = PAGE);
+
+CREATE INDEX idx_shipment_archive_tracking_number ON shipment_archive (tracking_number) WITH (DATA_COMPRESSION = PAGE);
+CREATE INDEX idx_shipment_archive_month ON shipment_archive (archive_month) WITH (DATA_COMPRESSION = PAGE);
+
+-- Candidatos a archivar: envíos terminados por antigüedad
+CREATE INDEX idx_shipments_status_updated ON shipments (status, updated_at);
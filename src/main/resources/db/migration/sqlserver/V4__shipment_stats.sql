@@ -0,0 +1,104 @@
+-- ================================
+-- Estadísticas incrementales de envíos
+-- ================================
+
+CREATE TABLE shipment_daily_stats (
+    stat_date             DATE          NOT NULL,
+    region_code           NVARCHAR(4)   NOT NULL,
+    service_type          NVARCHAR(30)  NOT NULL,
+    created_count         BIGINT        NOT NULL DEFAULT 0,
+    delivered_count       BIGINT        NOT NULL DEFAULT 0,
+    on_time_count         BIGINT        NOT NULL DEFAULT 0,
+    late_count            BIGINT        NOT NULL DEFAULT 0,
+    failed_delivery_count BIGINT        NOT NULL DEFAULT 0,
+    cancelled_count       BIGINT        NOT NULL DEFAULT 0,
+    returned_count        BIGINT        NOT NULL DEFAULT 0,
+    cost_cents_sum        BIGINT        NOT NULL DEFAULT 0,
+    cost_count            BIGINT        NOT NULL DEFAULT 0,
+    delivery_hours_sum    BIGINT        NOT NULL DEFAULT 0,
+    delivered_le_1d       BIGINT        NOT NULL DEFAULT 0,
+    delivered_le_2d       BIGINT        NOT NULL DEFAULT 0,
+    delivered_le_3d       BIGINT        NOT NULL DEFAULT 0,
+    delivered_le_5d       BIGINT        NOT NULL DEFAULT 0,
+    delivered_le_7d       BIGINT        NOT NULL DEFAULT 0,
+    delivered_gt_7d       BIGINT        NOT NULL DEFAULT 0,
+    CONSTRAINT pk_shipment_daily_stats PRIMARY KEY (stat_date, region_code, service_type)
+);
+
+CREATE TABLE shipment_status_counts (
+    status         NVARCHAR(30) NOT NULL,
+    shipment_count BIGINT       NOT NULL DEFAULT 0,
+    CONSTRAINT pk_shipment_status_counts PRIMARY KEY (status)
+);
+GO
+
+-- Carga inicial desde los envíos existentes (activos y archivados)
+INSERT INTO shipment_status_counts (status, shipment_count)
+SELECT status, COUNT_BIG(*)
+FROM (SELECT status FROM shipments UNION ALL SELECT status FROM shipment_archive) s
+WHERE status IS NOT NULL
+GROUP BY status;
+
+-- Creaciones por día de alta
+MERGE shipment_daily_stats AS t
+USING (
+    SELECT CAST(created_at AS DATE) AS stat_date,
+           COALESCE(dest_region_code, 'NA') AS region_code,
+           COALESCE(UPPER(service_type), 'NA') AS service_type,
+           COUNT_BIG(*) AS created_count,
+           SUM(CAST(ROUND(shipping_cost * 100, 0) AS BIGINT)) AS cost_cents_sum,
+           COUNT_BIG(shipping_cost) AS cost_count
+    FROM shipments
+    WHERE created_at IS NOT NULL AND tracking_number IS NOT NULL
+    GROUP BY CAST(created_at AS DATE), COALESCE(dest_region_code, 'NA'), COALESCE(UPPER(service_type), 'NA')
+) AS s
+ON t.stat_date = s.stat_date AND t.region_code = s.region_code AND t.service_type = s.service_type
+WHEN MATCHED THEN UPDATE SET
+    created_count = t.created_count + s.created_count,
+    cost_cents_sum = t.cost_cents_sum + ISNULL(s.cost_cents_sum, 0),
+    cost_count = t.cost_count + s.cost_count
+WHEN NOT MATCHED THEN INSERT (stat_date, region_code, service_type, created_count, cost_cents_sum, cost_count)
+    VALUES (s.stat_date, s.region_code, s.service_type, s.created_count, ISNULL(s.cost_cents_sum, 0), s.cost_count);
+
+-- Entregas por día de entrega, con puntualidad e histograma de días
+MERGE shipment_daily_stats AS t
+USING (
+    SELECT CAST(actual_delivery_date AS DATE) AS stat_date,
+           COALESCE(dest_region_code, 'NA') AS region_code,
+           COALESCE(UPPER(service_type), 'NA') AS service_type,
+           COUNT_BIG(*) AS delivered_count,
+           SUM(CASE WHEN estimated_delivery_date IS NOT NULL
+                     AND CAST(actual_delivery_date AS DATE) <= CAST(estimated_delivery_date AS DATE) THEN 1 ELSE 0 END) AS on_time_count,
+           SUM(CASE WHEN estimated_delivery_date IS NOT NULL
+                     AND CAST(actual_delivery_date AS DATE) > CAST(estimated_delivery_date AS DATE) THEN 1 ELSE 0 END) AS late_count,
+           SUM(CAST(h.hours AS BIGINT)) AS delivery_hours_sum,
+           SUM(CASE WHEN h.days <= 1 THEN 1 ELSE 0 END) AS le_1d,
+           SUM(CASE WHEN h.days = 2 THEN 1 ELSE 0 END) AS le_2d,
+           SUM(CASE WHEN h.days = 3 THEN 1 ELSE 0 END) AS le_3d,
+           SUM(CASE WHEN h.days BETWEEN 4 AND 5 THEN 1 ELSE 0 END) AS le_5d,
+           SUM(CASE WHEN h.days BETWEEN 6 AND 7 THEN 1 ELSE 0 END) AS le_7d,
+           SUM(CASE WHEN h.days > 7 THEN 1 ELSE 0 END) AS gt_7d
+    FROM shipments
+    CROSS APPLY (SELECT CASE WHEN DATEDIFF(HOUR, created_at, actual_delivery_date) < 0 THEN 0
+                             ELSE DATEDIFF(HOUR, created_at, actual_delivery_date) END AS hours) hh
+    CROSS APPLY (SELECT hh.hours AS hours, (hh.hours + 23) / 24 AS days) h
+    WHERE status = 'DELIVERED' AND actual_delivery_date IS NOT NULL AND created_at IS NOT NULL
+    GROUP BY CAST(actual_delivery_date AS DATE), COALESCE(dest_region_code, 'NA'), COALESCE(UPPER(service_type), 'NA')
+) AS s
+ON t.stat_date = s.stat_date AND t.region_code = s.region_code AND t.service_type = s.service_type
+WHEN MATCHED THEN UPDATE SET
+    delivered_count = t.delivered_count + s.delivered_count,
+    on_time_count = t.on_time_count + s.on_time_count,
+    late_count = t.late_count + s.late_count,
+    delivery_hours_sum = t.delivery_hours_sum + s.delivery_hours_sum,
+    delivered_le_1d = t.delivered_le_1d + s.le_1d,
+    delivered_le_2d = t.delivered_le_2d + s.le_2d,
+    delivered_le_3d = t.delivered_le_3d + s.le_3d,
+    delivered_le_5d = t.delivered_le_5d + s.le_5d,
+    delivered_le_7d = t.delivered_le_7d + s.le_7d,
+    delivered_gt_7d = t.delivered_gt_7d + s.gt_7d
+WHEN NOT MATCHED THEN INSERT (stat_date, region_code, service_type, delivered_count, on_time_count, late_count,
+                              delivery_hours_sum, delivered_le_1d, delivered_le_2d, delivered_le_3d,
+                              delivered_le_5d, delivered_le_7d, delivered_gt_7d)
+    VALUES (s.stat_date, s.region_code, s.service_type, s.delivered_count, s.on_time_count, s.late_count,
+            s.delivery_hours_sum, s.le_1d, s.le_2d, s.le_3d, s.le_5d, s.le_7d, s.gt_7d);
@@ -0,0 +1,2 @@
+-- Exportación por rango de fechas de creación
+CREATE INDEX idx_shipments_created_at ON shipments (created_at);
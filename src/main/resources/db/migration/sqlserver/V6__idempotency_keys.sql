@@ -0,0 +1,18 @@
+-- ================================
+-- Claves de idempotencia de creación de envíos
+-- ================================
+
+CREATE TABLE idempotency_keys (
+    idempotency_key NVARCHAR(100) NOT NULL,
+    order_code      NVARCHAR(100) NULL,
+    request_hash    NVARCHAR(64)  NULL,
+    status          NVARCHAR(20)  NULL,
+    response_body   NVARCHAR(MAX) NULL,
+    locked_by       NVARCHAR(255) NULL,
+    locked_until    DATETIME2     NULL,
+    created_at      DATETIME2     NULL,
+    completed_at    DATETIME2     NULL,
+    CONSTRAINT pk_idempotency_keys PRIMARY KEY (idempotency_key)
+);
+
+CREATE INDEX idx_idempotency_keys_created_at ON idempotency_keys (created_at);
@@ -0,0 +1,50 @@
+-- ================================
+-- Eventos de tracking compactos: fechas en segundos epoch y textos como códigos de diccionario
+-- ================================
+
+CREATE TABLE tracking_dictionary (
+    id   INT IDENTITY(1,1) NOT NULL,
+    kind CHAR(1)           NOT NULL,
+    term NVARCHAR(400)     NOT NULL,
+    CONSTRAINT pk_tracking_dictionary PRIMARY KEY (id),
+    CONSTRAINT uk_tracking_dictionary_term UNIQUE (kind, term)
+);
+GO
+
+-- Términos existentes (la collation sin distinción de mayúsculas junta grafías que solo difieren en eso)
+INSERT INTO tracking_dictionary (kind, term)
+SELECT 'S', MIN(status) FROM tracking_events WHERE status IS NOT NULL AND status <> N'' GROUP BY status;
+
+INSERT INTO tracking_dictionary (kind, term)
+SELECT 'L', MIN(location) FROM tracking_events WHERE location IS NOT NULL AND location <> N'' GROUP BY location;
+
+INSERT INTO tracking_dictionary (kind, term)
+SELECT 'D', MIN(description) FROM tracking_events WHERE description IS NOT NULL AND description <> N'' GROUP BY description;
+GO
+
+ALTER TABLE tracking_events ADD
+    event_epoch      BIGINT NOT NULL CONSTRAINT df_tracking_events_event_epoch DEFAULT 0,
+    status_code      INT    NOT NULL CONSTRAINT df_tracking_events_status_code DEFAULT 0,
+    description_code INT    NOT NULL CONSTRAINT df_tracking_events_description_code DEFAULT 0,
+    location_code    INT    NOT NULL CONSTRAINT df_tracking_events_location_code DEFAULT 0,
+    created_epoch    BIGINT NOT NULL CONSTRAINT df_tracking_events_created_epoch DEFAULT 0;
+GO
+
+-- Las fechas guardadas son hora de Argentina (UTC-3, sin horario de verano)
+UPDATE e SET
+    event_epoch      = CASE WHEN e.event_date IS NULL THEN 0 ELSE DATEDIFF_BIG(SECOND, '1970-01-01', e.event_date) + 10800 END,
+    created_epoch    = CASE WHEN e.created_at IS NULL THEN 0 ELSE DATEDIFF_BIG(SECOND, '1970-01-01', e.created_at) + 10800 END,
+    status_code      = COALESCE(s.id, 0),
+    description_code = COALESCE(d.id, 0),
+    location_code    = COALESCE(l.id, 0)
+FROM tracking_events e
+LEFT JOIN tracking_dictionary s ON s.kind = 'S' AND s.term = e.status
+LEFT JOIN tracking_dictionary d ON d.kind = 'D' AND d.term = e.description
+LEFT JOIN tracking_dictionary l ON l.kind = 'L' AND l.term = e.location;
+GO
+
+DROP INDEX idx_tracking_events_shipment_date ON tracking_events;
+
+ALTER TABLE tracking_events DROP COLUMN event_date, status, description, location, created_at;
+
+CREATE INDEX idx_tracking_events_shipment_epoch ON tracking_events (shipment_id, event_epoch DESC);
@@ -0,0 +1,28 @@
+-- ================================
+-- Log de cambios de envíos (feed para otros servicios)
+-- ================================
+
+CREATE SEQUENCE shipment_changes_seq AS BIGINT START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE shipment_changes (
+    id                BIGINT        NOT NULL,
+    seq               BIGINT        NULL,
+    change_type       NVARCHAR(20)  NOT NULL,
+    shipment_id       NVARCHAR(36)  NOT NULL,
+    order_code        NVARCHAR(100) NULL,
+    tracking_number   NVARCHAR(64)  NULL,
+    status            NVARCHAR(20)  NULL,
+    previous_status   NVARCHAR(20)  NULL,
+    tracking_event_id BIGINT        NULL,
+    event_epoch       BIGINT        NOT NULL,
+    event_status_code INT           NOT NULL,
+    description_code  INT           NOT NULL,
+    location_code     INT           NOT NULL,
+    created_at        DATETIME2     NOT NULL,
+    CONSTRAINT pk_shipment_changes PRIMARY KEY (id)
+);
+
+-- El offset es único una vez asignado; las pendientes (NULL) se buscan por su propio índice filtrado
+CREATE UNIQUE INDEX uk_shipment_changes_seq ON shipment_changes (seq) WHERE seq IS NOT NULL;
+CREATE INDEX idx_shipment_changes_pending ON shipment_changes (created_at, id) WHERE seq IS NULL;
+CREATE INDEX idx_shipment_changes_shipment ON shipment_changes (shipment_id, seq);
@@ -0,0 +1,28 @@
+-- ================================
+-- Outbox de notificaciones (mail y webhook)
+-- ================================
+
+CREATE SEQUENCE notification_outbox_seq AS BIGINT START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE notification_outbox (
+    id              BIGINT         NOT NULL,
+    channel         NVARCHAR(20)   NOT NULL,
+    recipient       NVARCHAR(255)  NULL,
+    shipment_id     NVARCHAR(36)   NOT NULL,
+    order_code      NVARCHAR(100)  NULL,
+    tracking_number NVARCHAR(64)   NULL,
+    recipient_name  NVARCHAR(255)  NULL,
+    previous_status NVARCHAR(20)   NULL,
+    shipment_status NVARCHAR(20)   NOT NULL,
+    transitions     INT            NOT NULL,
+    status          NVARCHAR(20)   NOT NULL,
+    attempts        INT            NOT NULL,
+    next_attempt_at DATETIME2      NOT NULL,
+    last_error      NVARCHAR(500)  NULL,
+    changed_at      DATETIME2      NOT NULL,
+    created_at      DATETIME2      NOT NULL,
+    sent_at         DATETIME2      NULL,
+    CONSTRAINT pk_notification_outbox PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_notification_outbox_due ON notification_outbox (status, channel, next_attempt_at);
@@ -0,0 +1,186 @@
+package tesis.tesisenvios.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import tesis.tesisenvios.dtos.ShipmentResponse;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.entitites.ShipmentArchiveEntity;
+import tesis.tesisenvios.entitites.ShipmentEntity;
+import tesis.tesisenvios.entitites.TrackingEventEntity;
+import tesis.tesisenvios.repositories.ShipmentArchiveRepository;
+import tesis.tesisenvios.repositories.ShipmentRepository;
+import tesis.tesisenvios.repositories.TrackingEventRepository;
+import tesis.tesisenvios.services.TrackingDictionary;
+import tesis.tesisenvios.utils.EpochSeconds;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * GET condicional de /order: If-None-Match con comparación débil (incluido *), If-Modified-Since
+ * ignorado cuando vino ETag y ETag de envíos archivados
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ShippingControllerTests {
+
+    private static final String ORDER = "/api/shipping/order/{orderCode}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private TrackingEventRepository trackingEventRepository;
+
+    @Autowired
+    private ShipmentArchiveRepository archiveRepository;
+
+    @Autowired
+    private TrackingDictionary dictionary;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private ShipmentEntity shipment;
+
+    @BeforeEach
+    void start() {
+        shipmentRepository.deleteAll();
+        archiveRepository.deleteAll();
+
+        shipment = new ShipmentEntity();
+        shipment.setOrderCode("HTTP-1");
+        shipment.setTrackingNumber("AND-HTTP-1");
+        shipment.setProvider("ANDREANI");
+        shipment.setStatus(ShipmentStatus.IN_TRANSIT);
+        // Sin consulta al proveedor durante el test
+        shipment.setNextPollAt(LocalDateTime.now().plusDays(1));
+        shipment = shipmentRepository.save(shipment);
+        addEvent("HTTP-EV-1");
+    }
+
+    @Test
+    void matchingTagAnswersNotModified() throws Exception {
+        String eTag = currentETag("HTTP-1");
+        assertTrue(eTag.startsWith("W/\""), eTag);
+
+        mockMvc.perform(get(ORDER, "HTTP-1").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag));
+
+        // Comparación débil: la forma fuerte del mismo tag también coincide
+        mockMvc.perform(get(ORDER, "HTTP-1").header(HttpHeaders.IF_NONE_MATCH, eTag.substring(2)))
+                .andExpect(status().isNotModified());
+
+        // Alcanza con que coincida uno de la lista
+        mockMvc.perform(get(ORDER, "HTTP-1").header(HttpHeaders.IF_NONE_MATCH, "W/\"0-0\", " + eTag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(get(ORDER, "HTTP-1").header(HttpHeaders.IF_NONE_MATCH, "*"))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(get(ORDER, "HTTP-1").header(HttpHeaders.IF_NONE_MATCH, "W/\"0-0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag));
+    }
+
+    @Test
+    void ifModifiedSinceIsIgnoredWhenTagIsSent() throws Exception {
+        String future = httpDate(LocalDateTime.now().plusDays(1));
+
+        mockMvc.perform(get(ORDER, "HTTP-1").header(HttpHeaders.IF_MODIFIED_SINCE, future))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(get(ORDER, "HTTP-1")
+                        .header(HttpHeaders.IF_NONE_MATCH, "W/\"0-0\"")
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, future))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void newTrackingEventChangesTheTag() throws Exception {
+        String before = currentETag("HTTP-1");
+        Long version = shipmentRepository.findById(shipment.getId()).orElseThrow().getVersion();
+
+        addEvent("HTTP-EV-2");
+
+        // El envío no cambió de versión, pero la respuesta sí
+        assertEquals(version, shipmentRepository.findById(shipment.getId()).orElseThrow().getVersion());
+        mockMvc.perform(get(ORDER, "HTTP-1").header(HttpHeaders.IF_NONE_MATCH, before))
+                .andExpect(status().isOk());
+        assertNotEquals(before, currentETag("HTTP-1"));
+    }
+
+    @Test
+    void archivedShipmentUsesArchiveTag() throws Exception {
+        LocalDateTime archivedAt = LocalDateTime.now().minusDays(1).withNano(0);
+        ShipmentResponse payload = new ShipmentResponse();
+        payload.setId("id-HTTP-ARC");
+        payload.setOrderCode("HTTP-ARC");
+        payload.setTrackingNumber("AND-HTTP-ARC");
+        payload.setProvider("ANDREANI");
+        payload.setStatus(ShipmentStatus.DELIVERED.name());
+        payload.setTrackingEvents(List.of());
+        archiveRepository.save(new ShipmentArchiveEntity(payload.getId(), payload.getOrderCode(),
+                payload.getTrackingNumber(), ShipmentStatus.DELIVERED, 202501, archivedAt, archivedAt,
+                objectMapper.writeValueAsString(payload)));
+
+        String expected = "W/\"a" + EpochSeconds.of(archivedAt) + "\"";
+        MvcResult result = mockMvc.perform(get(ORDER, "HTTP-ARC"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, expected))
+                .andReturn();
+        assertTrue(result.getResponse().getHeader(HttpHeaders.CACHE_CONTROL).contains("max-age=86400"));
+
+        mockMvc.perform(get(ORDER, "HTTP-ARC").header(HttpHeaders.IF_NONE_MATCH, expected))
+                .andExpect(status().isNotModified());
+    }
+
+    // ================================
+    // MÉTODOS AUXILIARES
+    // ================================
+
+    private String currentETag(String orderCode) throws Exception {
+        return mockMvc.perform(get(ORDER, orderCode))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    /**
+     * Evento nuevo sin cambio de estado (no toca version ni updated_at del envío)
+     */
+    private void addEvent(String providerEventId) {
+        trackingEventRepository.save(new TrackingEventEntity(null, shipment,
+                EpochSeconds.of(LocalDateTime.now()),
+                dictionary.code(TrackingDictionary.Kind.STATUS, "En tránsito"),
+                TrackingDictionary.NONE, TrackingDictionary.NONE, providerEventId, 0));
+    }
+
+    private static String httpDate(LocalDateTime dateTime) {
+        ZonedDateTime utc = dateTime.atZone(ZoneId.systemDefault()).withZoneSameInstant(ZoneOffset.UTC);
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(utc);
+    }
+}
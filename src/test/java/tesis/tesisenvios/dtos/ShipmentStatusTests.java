@@ -0,0 +1,70 @@
+package tesis.tesisenvios.dtos;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tabla de transiciones: solo se avanza, con la única vuelta del reintento de entrega
+ */
+class ShipmentStatusTests {
+
+    @Test
+    void terminalStatesHaveNoExit() {
+        Set<ShipmentStatus> terminal = EnumSet.noneOf(ShipmentStatus.class);
+        for (ShipmentStatus status : ShipmentStatus.values()) {
+            if (status.isTerminal()) terminal.add(status);
+        }
+        assertEquals(EnumSet.of(ShipmentStatus.DELIVERED, ShipmentStatus.RETURNED, ShipmentStatus.CANCELLED), terminal);
+
+        for (ShipmentStatus target : ShipmentStatus.values()) {
+            assertFalse(ShipmentStatus.DELIVERED.canTransitionTo(target), "DELIVERED -> " + target);
+        }
+    }
+
+    @Test
+    void carrierStatusesOnlyMoveForward() {
+        assertTrue(ShipmentStatus.CREATED.canTransitionTo(ShipmentStatus.IN_TRANSIT));
+        assertTrue(ShipmentStatus.IN_TRANSIT.canTransitionTo(ShipmentStatus.DELIVERED));
+        assertFalse(ShipmentStatus.IN_TRANSIT.canTransitionTo(ShipmentStatus.PICKED_UP));
+        assertFalse(ShipmentStatus.OUT_FOR_DELIVERY.canTransitionTo(ShipmentStatus.IN_TRANSIT));
+        assertFalse(ShipmentStatus.PICKED_UP.canTransitionTo(ShipmentStatus.CREATED));
+
+        // La única vuelta atrás: reintento de entrega
+        assertTrue(ShipmentStatus.FAILED_DELIVERY.canTransitionTo(ShipmentStatus.OUT_FOR_DELIVERY));
+        assertFalse(ShipmentStatus.FAILED_DELIVERY.canTransitionTo(ShipmentStatus.IN_TRANSIT));
+
+        // Cancelar solo antes del retiro
+        assertTrue(ShipmentStatus.CREATED.canTransitionTo(ShipmentStatus.CANCELLED));
+        assertFalse(ShipmentStatus.PICKED_UP.canTransitionTo(ShipmentStatus.CANCELLED));
+        assertTrue(ShipmentStatus.ERROR.canTransitionTo(ShipmentStatus.CREATED));
+    }
+
+    @Test
+    void noSelfTransitionsAndEveryStatusCanFinish() {
+        for (ShipmentStatus status : ShipmentStatus.values()) {
+            assertFalse(status.canTransitionTo(status), status + " -> " + status);
+            assertTrue(reachesTerminal(status), status + " no llega a un estado final");
+        }
+    }
+
+    private static boolean reachesTerminal(ShipmentStatus from) {
+        Set<ShipmentStatus> seen = EnumSet.of(from);
+        Deque<ShipmentStatus> pending = new ArrayDeque<>(Set.of(from));
+        while (!pending.isEmpty()) {
+            ShipmentStatus status = pending.poll();
+            if (status.isTerminal()) return true;
+            for (ShipmentStatus target : ShipmentStatus.values()) {
+                if (status.canTransitionTo(target) && seen.add(target)) pending.add(target);
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,52 @@
+package tesis.tesisenvios.dtos;
+
+import org.junit.jupiter.api.Test;
+import tesis.tesisenvios.utils.EpochSeconds;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * ETag y Last-Modified calculados solo con los metadatos del envío
+ */
+class ShipmentVersionTests {
+
+    private static final LocalDateTime UPDATED_AT = LocalDateTime.of(2025, 3, 1, 10, 0);
+
+    @Test
+    void activeTagCombinesVersionAndEventCount() {
+        assertEquals("W/\"3-5\"", active(3L, 5L, 0L).eTag());
+    }
+
+    @Test
+    void newTrackingEventChangesTagWithoutVersionBump() {
+        ShipmentVersion before = active(3L, 5L, 0L);
+        ShipmentVersion after = active(3L, 6L, 0L);
+
+        assertEquals(before.getVersion(), after.getVersion());
+        assertNotEquals(before.eTag(), after.eTag());
+    }
+
+    @Test
+    void archivedTagIsTheArchiveEpoch() {
+        ShipmentVersion archived = new ShipmentVersion("id", "ORD-1", "AND1", ShipmentStatus.DELIVERED, UPDATED_AT);
+
+        assertEquals("W/\"a" + EpochSeconds.of(UPDATED_AT) + "\"", archived.eTag());
+        assertEquals(EpochSeconds.of(UPDATED_AT) * 1000, archived.lastModifiedMillis());
+    }
+
+    @Test
+    void lastModifiedTakesTheNewestEvent() {
+        long updated = EpochSeconds.of(UPDATED_AT);
+
+        assertEquals(updated * 1000, active(3L, 5L, updated - 60).lastModifiedMillis());
+        assertEquals((updated + 60) * 1000, active(3L, 6L, updated + 60).lastModifiedMillis());
+    }
+
+    private static ShipmentVersion active(Long version, Long eventCount, Long lastEventEpoch) {
+        return new ShipmentVersion("id", "ORD-1", "AND1", ShipmentStatus.IN_TRANSIT, version,
+                UPDATED_AT, null, eventCount, lastEventEpoch);
+    }
+}
@@ -0,0 +1,81 @@
+package tesis.tesisenvios.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import tesis.tesisenvios.dtos.PackageRequest;
+import tesis.tesisenvios.dtos.QuoteRequest;
+import tesis.tesisenvios.dtos.ShippingAddressRequest;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Cuerpo de cotización de Andreani: un paquete por bulto del carrito con su volumen real
+ */
+class AndreaniProviderServiceTests {
+
+    private AndreaniProviderService service;
+
+    @BeforeEach
+    void start() {
+        service = new AndreaniProviderService();
+        ReflectionTestUtils.setField(service, "andreaniContract", "400006709");
+        ReflectionTestUtils.setField(service, "shopStreet", "Av. Colón");
+        ReflectionTestUtils.setField(service, "shopNumber", "100");
+        ReflectionTestUtils.setField(service, "shopCity", "Córdoba");
+        ReflectionTestUtils.setField(service, "shopProvince", "Córdoba");
+        ReflectionTestUtils.setField(service, "shopPostalCode", "5000");
+    }
+
+    @Test
+    void eachPackageKeepsItsOwnVolume() {
+        QuoteRequest request = request();
+        request.setPackages(List.of(
+                new PackageRequest(new BigDecimal("2.5"), new BigDecimal("40"), new BigDecimal("30"),
+                        new BigDecimal("20"), new BigDecimal("15000")),
+                // Sin medidas: volumen estimado por el peso
+                new PackageRequest(new BigDecimal("1.5"), null, null, null, null)));
+
+        List<Map<String, Object>> paquetes = paquetes(request);
+
+        assertEquals(2, paquetes.size());
+        assertEquals(2.5, paquetes.get(0).get("pesoKilogramos"));
+        assertEquals(24000.0, paquetes.get(0).get("volumenCentimetrosCubicos"));
+        assertEquals(15000.0, paquetes.get(0).get("valorDeclaradoConIva"));
+        assertEquals(1.5, paquetes.get(1).get("pesoKilogramos"));
+        assertEquals(3000.0, paquetes.get(1).get("volumenCentimetrosCubicos"));
+        assertFalse(paquetes.get(1).containsKey("valorDeclaradoConIva"));
+    }
+
+    @Test
+    void withoutPackagesSendsSinglePackageFromWeight() {
+        QuoteRequest request = request();
+        request.setWeightKg(new BigDecimal("3"));
+        request.setDeclaredValue(new BigDecimal("8000"));
+
+        List<Map<String, Object>> paquetes = paquetes(request);
+
+        assertEquals(1, paquetes.size());
+        assertEquals(3.0, paquetes.get(0).get("pesoKilogramos"));
+        assertEquals(6000.0, paquetes.get(0).get("volumenCentimetrosCubicos"));
+        assertEquals(8000.0, paquetes.get(0).get("valorDeclaradoConIva"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> paquetes(QuoteRequest request) {
+        Map<String, Object> body = ReflectionTestUtils.invokeMethod(service, "buildCotizacionRequest", request);
+        return (List<Map<String, Object>>) body.get("paquetes");
+    }
+
+    private static QuoteRequest request() {
+        QuoteRequest request = new QuoteRequest();
+        request.setDestinationAddress(new ShippingAddressRequest("San Martín", "50", null, "Mendoza", "Mendoza",
+                "5500", null));
+        return request;
+    }
+}
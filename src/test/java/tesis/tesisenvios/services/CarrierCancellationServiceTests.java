@@ -0,0 +1,213 @@
+package tesis.tesisenvios.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import tesis.tesisenvios.TesisEnviosApplication;
+import tesis.tesisenvios.dtos.CarrierCancellationStatus;
+import tesis.tesisenvios.dtos.CreateShipmentRequest;
+import tesis.tesisenvios.dtos.QuoteRequest;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.dtos.ShippingQuoteResponse;
+import tesis.tesisenvios.dtos.TrackingEventResponse;
+import tesis.tesisenvios.entitites.CarrierCancellationEntity;
+import tesis.tesisenvios.entitites.ShipmentEntity;
+import tesis.tesisenvios.repositories.CarrierCancellationRepository;
+import tesis.tesisenvios.repositories.ShipmentRepository;
+import tesis.tesisenvios.services.impl.ShipmentTrackingUpdater;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Outbox de cancelaciones contra un proveedor de prueba: backoff, abandono después de
+ * max-attempts y reapertura por conciliación cuando el proveedor rechaza la cancelación
+ */
+@SpringBootTest(classes = {TesisEnviosApplication.class, CarrierCancellationServiceTests.StubCarrier.class})
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "cancellations.dispatch-interval-ms=3600000",
+        "cancellations.max-attempts=3",
+        "cancellations.retry-base-ms=1000",
+        "cancellations.retry-max-ms=4000"
+})
+class CarrierCancellationServiceTests {
+
+    @Autowired
+    private CarrierCancellationService cancellationService;
+
+    @Autowired
+    private CarrierCancellationRepository cancellationRepository;
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private ShipmentTrackingUpdater updater;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void start() {
+        StubCarrier.reset();
+        cancellationRepository.deleteAll();
+        shipmentRepository.deleteAll();
+    }
+
+    @Test
+    void unansweredCancellationBacksOffThenFails() {
+        StubCarrier.failure = new RuntimeException("timeout");
+        Long id = cancel("CAN-RETRY").getId();
+
+        LocalDateTime before = LocalDateTime.now();
+        assertEquals(0, cancellationService.dispatch());
+        CarrierCancellationEntity first = cancellationRepository.findById(id).orElseThrow();
+        assertEquals(CarrierCancellationStatus.PENDING, first.getStatus());
+        assertEquals(1, first.getAttempts());
+        assertEquals("timeout", first.getLastError());
+        // Primer reintento: exactamente la base (el tope todavía es la base)
+        assertFalse(first.getNextAttemptAt().isBefore(before.plusSeconds(1)));
+        assertFalse(first.getNextAttemptAt().isAfter(LocalDateTime.now().plusSeconds(1)));
+
+        // Todavía no venció: no se vuelve a enviar
+        cancellationService.dispatch();
+        assertEquals(1, cancellationRepository.findById(id).orElseThrow().getAttempts());
+
+        makeDue(id);
+        before = LocalDateTime.now();
+        cancellationService.dispatch();
+        CarrierCancellationEntity second = cancellationRepository.findById(id).orElseThrow();
+        assertEquals(2, second.getAttempts());
+        assertFalse(second.getNextAttemptAt().isBefore(before.plusSeconds(1)));
+        assertFalse(second.getNextAttemptAt().isAfter(LocalDateTime.now().plusSeconds(2)));
+
+        makeDue(id);
+        cancellationService.dispatch();
+        CarrierCancellationEntity failed = cancellationRepository.findById(id).orElseThrow();
+        assertEquals(CarrierCancellationStatus.FAILED, failed.getStatus());
+        assertEquals(3, failed.getAttempts());
+        assertNotNull(failed.getCompletedAt());
+
+        makeDue(id);
+        cancellationService.dispatch();
+        assertEquals(3, cancellationRepository.findById(id).orElseThrow().getAttempts());
+        assertEquals(3, StubCarrier.cancelCalls);
+    }
+
+    @Test
+    void rejectedCancellationReopensShipment() {
+        StubCarrier.acceptCancel = false;
+        StubCarrier.events = List.of(inTransit());
+        ShipmentEntity shipment = cancel("CAN-REJECT");
+
+        assertEquals(0, cancellationService.dispatch());
+
+        assertEquals(CarrierCancellationStatus.REJECTED,
+                cancellationRepository.findAll().get(0).getStatus());
+        ShipmentEntity reopened = shipmentRepository.findById(shipment.getId()).orElseThrow();
+        assertEquals(ShipmentStatus.IN_TRANSIT, reopened.getStatus());
+        assertNotNull(reopened.getNextPollAt());
+    }
+
+    @Test
+    void pendingCancellationKeepsShipmentCancelled() {
+        StubCarrier.events = List.of(inTransit());
+        ShipmentEntity shipment = cancel("CAN-PENDING");
+        CarrierCancellationEntity cancellation = cancellationRepository.findAll().get(0);
+
+        // Todavía sin enviar al proveedor: el envío no se reabre
+        assertEquals(ShipmentStatus.IN_TRANSIT, updater.reconcileWithCarrier(shipment.getId()));
+        assertEquals(ShipmentStatus.CANCELLED, shipmentRepository.findById(shipment.getId()).orElseThrow().getStatus());
+
+        // Agotada sin respuesta: la conciliación reabre y da la cancelación por rechazada
+        cancellation.setStatus(CarrierCancellationStatus.FAILED);
+        cancellationRepository.save(cancellation);
+        updater.reconcileWithCarrier(shipment.getId());
+
+        assertEquals(ShipmentStatus.IN_TRANSIT, shipmentRepository.findById(shipment.getId()).orElseThrow().getStatus());
+        CarrierCancellationEntity rejected = cancellationRepository.findById(cancellation.getId()).orElseThrow();
+        assertEquals(CarrierCancellationStatus.REJECTED, rejected.getStatus());
+        assertTrue(rejected.getLastError().startsWith("Reabierto"));
+    }
+
+    private ShipmentEntity cancel(String orderCode) {
+        ShipmentEntity shipment = new ShipmentEntity();
+        shipment.setOrderCode(orderCode);
+        shipment.setTrackingNumber("STB-" + orderCode);
+        shipment.setProvider(StubCarrier.CODE);
+        shipment.setStatus(ShipmentStatus.CANCELLED);
+        ShipmentEntity saved = shipmentRepository.save(shipment);
+
+        transactionTemplate.executeWithoutResult(status -> cancellationService.enqueue(saved));
+        return saved;
+    }
+
+    private void makeDue(Long id) {
+        CarrierCancellationEntity cancellation = cancellationRepository.findById(id).orElseThrow();
+        cancellation.setNextAttemptAt(LocalDateTime.now().minus(Duration.ofSeconds(1)));
+        cancellationRepository.save(cancellation);
+    }
+
+    private static TrackingEventResponse inTransit() {
+        return new TrackingEventResponse(LocalDateTime.now().minusMinutes(5), "en transito", "En camino",
+                "Córdoba", "STB-EV-1");
+    }
+
+    /**
+     * Proveedor de prueba con respuestas fijadas por cada test
+     */
+    public static class StubCarrier implements CarrierProvider {
+
+        static final String CODE = "STUB";
+
+        static volatile boolean acceptCancel;
+        static volatile RuntimeException failure;
+        static volatile List<TrackingEventResponse> events;
+        static volatile int cancelCalls;
+
+        static void reset() {
+            acceptCancel = true;
+            failure = null;
+            events = List.of();
+            cancelCalls = 0;
+        }
+
+        @Override
+        public String getCarrierCode() {
+            return CODE;
+        }
+
+        @Override
+        public List<ShippingQuoteResponse> getQuotes(QuoteRequest request) {
+            return List.of();
+        }
+
+        @Override
+        public String createShipment(ShipmentEntity shipment, CreateShipmentRequest request) {
+            return null;
+        }
+
+        @Override
+        public List<TrackingEventResponse> getTrackingEvents(String trackingNumber) {
+            return events;
+        }
+
+        @Override
+        public boolean cancelShipment(String trackingNumber) {
+            cancelCalls++;
+            if (failure != null) throw failure;
+            return acceptCancel;
+        }
+    }
+}
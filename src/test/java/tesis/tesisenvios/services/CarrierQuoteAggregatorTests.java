@@ -0,0 +1,277 @@
+package tesis.tesisenvios.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import tesis.tesisenvios.TesisEnviosApplication;
+import tesis.tesisenvios.dtos.CreateShipmentRequest;
+import tesis.tesisenvios.dtos.QuoteRequest;
+import tesis.tesisenvios.dtos.ShippingAddressRequest;
+import tesis.tesisenvios.dtos.ShippingQuoteResponse;
+import tesis.tesisenvios.dtos.TrackingEventResponse;
+import tesis.tesisenvios.entitites.ShipmentEntity;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Scatter-gather de cotizaciones contra dos proveedores de prueba: deadline global,
+ * respuestas tardías que quedan en caché, consultas en curso compartidas y cotizaciones de respaldo
+ */
+@SpringBootTest(classes = {TesisEnviosApplication.class, CarrierQuoteAggregatorTests.Carriers.class})
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "carriers.enabled=FAST,SLOW",
+        "shipping.quotes.deadline-ms=300"
+})
+class CarrierQuoteAggregatorTests {
+
+    @Autowired
+    private CarrierQuoteAggregator aggregator;
+
+    @Autowired
+    private QuoteCache quoteCache;
+
+    @Autowired
+    @Qualifier("fastCarrier")
+    private StubCarrier fast;
+
+    @Autowired
+    @Qualifier("slowCarrier")
+    private StubCarrier slow;
+
+    // Cada test cotiza a otro código postal: la caché es la del contexto compartido
+    private static final AtomicInteger postalCodes = new AtomicInteger(5000);
+
+    @BeforeEach
+    void start() {
+        fast.reset();
+        slow.reset();
+    }
+
+    @AfterEach
+    void release() {
+        fast.release.countDown();
+        slow.release.countDown();
+    }
+
+    @Test
+    void answersAtDeadlineWithoutSlowCarrier() {
+        fast.quotes = List.of(quote("FAST", 9000));
+        slow.blocked();
+
+        long start = System.currentTimeMillis();
+        List<ShippingQuoteResponse> quotes = aggregator.getQuotes(request());
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals(List.of("FAST"), providers(quotes));
+        assertTrue(elapsed >= 250, "Debería esperar el deadline: " + elapsed + " ms");
+        assertTrue(elapsed < 2000, "No debería esperar al proveedor lento: " + elapsed + " ms");
+    }
+
+    @Test
+    void lateResultFillsCacheForNextRequest() {
+        fast.quotes = List.of(quote("FAST", 9000));
+        slow.quotes = List.of(quote("SLOW", 7000));
+        slow.blocked();
+        QuoteRequest request = request();
+
+        assertEquals(List.of("FAST"), providers(aggregator.getQuotes(request)));
+
+        // El proveedor lento contesta después del deadline: su cotización queda en la caché
+        slow.release.countDown();
+        String slowKey = QuoteCache.buildKey("SLOW", request);
+        await().atMost(Duration.ofSeconds(5)).until(() -> quoteCache.get(slowKey) != null);
+
+        List<ShippingQuoteResponse> next = aggregator.getQuotes(request);
+        assertEquals(List.of("SLOW", "FAST"), providers(next));
+        assertEquals(1, slow.calls.get());
+        assertEquals(1, fast.calls.get());
+    }
+
+    @Test
+    void prewarmBatchAndQuoteShareOneProviderCall() {
+        fast.quotes = List.of(quote("FAST", 9000));
+        slow.quotes = List.of(quote("SLOW", 7000));
+        fast.blocked();
+        slow.blocked();
+        QuoteRequest request = request();
+        QuoteRequest sameCart = copyOf(request);
+
+        assertEquals(2, aggregator.prewarm(request));
+        // Ya en curso: no se lanza otra consulta
+        assertEquals(0, aggregator.prewarm(sameCart));
+
+        // Lote con dos pedidos de la misma clave y cotización suelta mientras el prewarm sigue en curso
+        List<List<ShippingQuoteResponse>> batch = aggregator.getQuotes(List.of(request, sameCart));
+        assertEquals(2, batch.size());
+        assertTrue(aggregator.getQuotes(sameCart).isEmpty());
+        assertEquals(1, fast.calls.get());
+        assertEquals(1, slow.calls.get());
+
+        fast.release.countDown();
+        slow.release.countDown();
+        await().atMost(Duration.ofSeconds(5)).until(() -> quoteCache.get(QuoteCache.buildKey("FAST", request)) != null
+                && quoteCache.get(QuoteCache.buildKey("SLOW", request)) != null);
+
+        assertEquals(List.of("SLOW", "FAST"), providers(aggregator.getQuotes(sameCart)));
+        assertEquals(1, fast.calls.get());
+        assertEquals(1, slow.calls.get());
+    }
+
+    @Test
+    void fallbackOnlyWhenEveryCarrierIsEmpty() {
+        fast.fallback = List.of(quote("FAST-RESPALDO", 12000));
+        slow.fallback = List.of(quote("SLOW-RESPALDO", 11000));
+
+        // Un solo proveedor con cotizaciones alcanza: el otro vacío no suma respaldo
+        fast.quotes = List.of(quote("FAST", 9000));
+        assertEquals(List.of("FAST"), providers(aggregator.getQuotes(request())));
+
+        fast.quotes = List.of();
+        assertEquals(List.of("SLOW-RESPALDO", "FAST-RESPALDO"), providers(aggregator.getQuotes(request())));
+    }
+
+    @Test
+    void fallbackWhenCarriersFailOrMissDeadline() {
+        fast.failure = new RuntimeException("503");
+        fast.fallback = List.of(quote("FAST-RESPALDO", 12000));
+        slow.blocked();
+
+        assertEquals(List.of("FAST-RESPALDO"), providers(aggregator.getQuotes(request())));
+    }
+
+    // ================================
+    // MÉTODOS AUXILIARES
+    // ================================
+
+    private static QuoteRequest request() {
+        QuoteRequest request = new QuoteRequest();
+        request.setOriginAddress(address("5000"));
+        request.setDestinationAddress(address(String.valueOf(postalCodes.incrementAndGet())));
+        request.setWeightKg(BigDecimal.valueOf(2));
+        return request;
+    }
+
+    private static QuoteRequest copyOf(QuoteRequest request) {
+        QuoteRequest copy = new QuoteRequest();
+        copy.setOriginAddress(address(request.getOriginAddress().getPostalCode()));
+        copy.setDestinationAddress(address(request.getDestinationAddress().getPostalCode()));
+        copy.setWeightKg(new BigDecimal("2.0"));
+        return copy;
+    }
+
+    private static ShippingAddressRequest address(String postalCode) {
+        return new ShippingAddressRequest("Av. Colón", "100", null, "Córdoba", "Córdoba", postalCode, null);
+    }
+
+    private static ShippingQuoteResponse quote(String provider, int price) {
+        ShippingQuoteResponse quote = new ShippingQuoteResponse();
+        quote.setProvider(provider);
+        quote.setServiceType("STANDARD");
+        quote.setPrice(BigDecimal.valueOf(price));
+        quote.setEstimatedDays(3);
+        return quote;
+    }
+
+    private static List<String> providers(List<ShippingQuoteResponse> quotes) {
+        return quotes.stream().map(ShippingQuoteResponse::getProvider).toList();
+    }
+
+    @Configuration
+    static class Carriers {
+
+        @Bean
+        public StubCarrier fastCarrier() {
+            return new StubCarrier("FAST");
+        }
+
+        @Bean
+        public StubCarrier slowCarrier() {
+            return new StubCarrier("SLOW");
+        }
+    }
+
+    /**
+     * Proveedor de prueba: cotizaciones fijas, opcionalmente bloqueado hasta "release"
+     */
+    static class StubCarrier implements CarrierProvider {
+
+        private final String code;
+
+        volatile List<ShippingQuoteResponse> quotes;
+        volatile List<ShippingQuoteResponse> fallback;
+        volatile RuntimeException failure;
+        volatile CountDownLatch release;
+        final AtomicInteger calls = new AtomicInteger();
+
+        StubCarrier(String code) {
+            this.code = code;
+            reset();
+        }
+
+        void reset() {
+            quotes = List.of();
+            fallback = List.of();
+            failure = null;
+            release = new CountDownLatch(0);
+            calls.set(0);
+        }
+
+        void blocked() {
+            release = new CountDownLatch(1);
+        }
+
+        @Override
+        public String getCarrierCode() {
+            return code;
+        }
+
+        @Override
+        public List<ShippingQuoteResponse> getQuotes(QuoteRequest request) {
+            calls.incrementAndGet();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null) throw failure;
+            return quotes;
+        }
+
+        @Override
+        public List<ShippingQuoteResponse> getFallbackQuotes(QuoteRequest request) {
+            return fallback;
+        }
+
+        @Override
+        public String createShipment(ShipmentEntity shipment, CreateShipmentRequest request) {
+            return null;
+        }
+
+        @Override
+        public List<TrackingEventResponse> getTrackingEvents(String trackingNumber) {
+            return List.of();
+        }
+
+        @Override
+        public boolean cancelShipment(String trackingNumber) {
+            return true;
+        }
+    }
+}
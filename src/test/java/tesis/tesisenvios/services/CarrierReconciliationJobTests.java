@@ -0,0 +1,109 @@
+package tesis.tesisenvios.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.dtos.TrackingEventResponse;
+import tesis.tesisenvios.entitites.ShipmentEntity;
+import tesis.tesisenvios.repositories.ShipmentRepository;
+import tesis.tesisenvios.repositories.TrackingEventRepository;
+import tesis.tesisenvios.services.impl.CarrierReconciliationJob;
+import tesis.tesisenvios.services.impl.MockAndreaniService;
+import tesis.tesisenvios.services.impl.ShipmentTrackingUpdater;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Conciliación contra el mock: un envío entregado que el mock ya terminó de recorrer
+ * sigue figurando entregado (no se rearma un ciclo nuevo desde CREADO)
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        // Un ciclo completo de entrega en menos de dos segundos reales
+        "andreani.mock.time-scale=172800",
+        "reconciliation.initial-delay-ms=3600000"
+})
+class CarrierReconciliationJobTests {
+
+    @Autowired
+    private CarrierReconciliationJob reconciliationJob;
+
+    @Autowired
+    private ShipmentTrackingUpdater updater;
+
+    @Autowired
+    private MockAndreaniService mock;
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private TrackingEventRepository trackingEventRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void start() {
+        shipmentRepository.deleteAll();
+    }
+
+    @Test
+    void deliveredMockShipmentIsNotReportedAsDrift() {
+        String trackingNumber = awaitDeliveredTimeline();
+        List<TrackingEventResponse> timeline = mock.getTrackingEvents(trackingNumber);
+
+        ShipmentEntity shipment = new ShipmentEntity();
+        shipment.setOrderCode("REC-" + trackingNumber);
+        shipment.setTrackingNumber(trackingNumber);
+        shipment.setProvider("ANDREANI");
+        shipment.setStatus(ShipmentStatus.DELIVERED);
+        shipment = shipmentRepository.save(shipment);
+
+        double drift = count("drift");
+        double checked = count("checked");
+        assertEquals(1, reconciliationJob.runReconciliation());
+
+        assertEquals(drift, count("drift"));
+        assertEquals(checked + 1, count("checked"));
+        assertEquals(ShipmentStatus.DELIVERED, shipmentRepository.findById(shipment.getId()).orElseThrow().getStatus());
+        assertEquals(timeline.size(), trackingEventRepository.findByShipmentIdOrderByEventEpochDesc(shipment.getId()).size());
+
+        // Otra vuelta: mismo estado, sin eventos duplicados
+        assertEquals(ShipmentStatus.DELIVERED, updater.reconcileWithCarrier(shipment.getId()));
+        assertEquals(timeline, mock.getTrackingEvents(trackingNumber));
+        assertEquals(timeline.size(), trackingEventRepository.findByShipmentIdOrderByEventEpochDesc(shipment.getId()).size());
+    }
+
+    /**
+     * Tracking de un ciclo de entrega ya visto completo por el mock (el escenario depende de la semilla)
+     */
+    private String awaitDeliveredTimeline() {
+        List<String> candidates = IntStream.range(0, 10).mapToObj(i -> "AND-REC-" + i).toList();
+        return await().atMost(Duration.ofSeconds(20))
+                .until(() -> candidates.stream()
+                        .filter(tn -> isDelivered(mock.getTrackingEvents(tn)))
+                        .findFirst()
+                        .orElse(null), tn -> tn != null);
+    }
+
+    private static boolean isDelivered(List<TrackingEventResponse> events) {
+        return !events.isEmpty() && "ENTREGADO".equals(events.get(events.size() - 1).getStatus());
+    }
+
+    private double count(String outcome) {
+        var counter = meterRegistry.find("carrier.reconciliation").tag("outcome", outcome).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,242 @@
+package tesis.tesisenvios.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import tesis.tesisenvios.dtos.IdempotencyStatus;
+import tesis.tesisenvios.entitites.IdempotencyKeyEntity;
+import tesis.tesisenvios.exceptions.IdempotencyConflictException;
+import tesis.tesisenvios.repositories.IdempotencyKeyRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Idempotencia de la creación de envíos: una sola llamada al proveedor por clave,
+ * respuesta reproducida en los reintentos y conflictos 422 / 409
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "idempotency.wait-timeout-ms=500",
+        "idempotency.poll-ms=20",
+        "idempotency.cleanup-initial-delay-ms=3600000"
+})
+class IdempotencyServiceTests {
+
+    private static final Map<String, Object> REQUEST = Map.of("orderCode", "IDEM-1", "weight", 1200);
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @BeforeEach
+    void start() {
+        idempotencyKeyRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentDuplicatesShareOneProviderCall() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<Created>> results = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                results.add(pool.submit(() -> idempotencyService.execute("key-concurrent", "IDEM-1", REQUEST,
+                        Created.class, () -> {
+                            calls.incrementAndGet();
+                            block(release);
+                            return new Created("AND0000000001");
+                        })));
+            }
+            release.countDown();
+
+            for (Future<Created> result : results) {
+                assertEquals(new Created("AND0000000001"), result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, calls.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void retryReplaysStoredResponse() {
+        AtomicInteger calls = new AtomicInteger();
+
+        Created first = idempotencyService.execute("key-replay", "IDEM-1", REQUEST, Created.class,
+                () -> new Created("AND" + calls.incrementAndGet()));
+        Created retry = idempotencyService.execute("key-replay", "IDEM-1", REQUEST, Created.class,
+                () -> new Created("AND" + calls.incrementAndGet()));
+
+        assertEquals(first, retry);
+        assertEquals(1, calls.get());
+        IdempotencyKeyEntity stored = idempotencyKeyRepository.findById("key-replay").orElseThrow();
+        assertEquals(IdempotencyStatus.COMPLETED, stored.getStatus());
+        assertNull(stored.getLockedUntil());
+    }
+
+    @Test
+    void withoutHeaderTheOrderCodeIsTheKey() {
+        idempotencyService.execute(null, "IDEM-1", REQUEST, Created.class, () -> new Created("AND1"));
+
+        assertTrue(idempotencyKeyRepository.existsById("order:IDEM-1"));
+    }
+
+    @Test
+    void sameKeyWithDifferentBodyIsRequestMismatch() {
+        idempotencyService.execute("key-mismatch", "IDEM-1", REQUEST, Created.class, () -> new Created("AND1"));
+
+        IdempotencyConflictException e = assertThrows(IdempotencyConflictException.class,
+                () -> idempotencyService.execute("key-mismatch", "IDEM-1", Map.of("orderCode", "IDEM-1", "weight", 900),
+                        Created.class, () -> new Created("AND2")));
+        // El controller responde 422
+        assertTrue(e.isRequestMismatch());
+    }
+
+    @Test
+    void concurrentDuplicateWithDifferentBodyIsRequestMismatch() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Created> first = CompletableFuture.supplyAsync(() ->
+                idempotencyService.execute("key-mismatch-live", "IDEM-1", REQUEST, Created.class, () -> {
+                    block(release);
+                    return new Created("AND1");
+                }));
+        try {
+            awaitReserved("key-mismatch-live");
+
+            IdempotencyConflictException e = assertThrows(IdempotencyConflictException.class,
+                    () -> idempotencyService.execute("key-mismatch-live", "IDEM-1",
+                            Map.of("orderCode", "IDEM-1", "weight", 900), Created.class, () -> new Created("AND2")));
+            assertTrue(e.isRequestMismatch());
+        } finally {
+            release.countDown();
+        }
+        assertEquals(new Created("AND1"), first.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void reservationHeldByAnotherNodeTimesOutAsConflict() {
+        reserveFailed("key-busy");
+        IdempotencyKeyEntity row = idempotencyKeyRepository.findById("key-busy").orElseThrow();
+        row.setStatus(IdempotencyStatus.IN_PROGRESS);
+        row.setLockedBy("otro-nodo:1234");
+        row.setLockedUntil(LocalDateTime.now().plusMinutes(5));
+        idempotencyKeyRepository.save(row);
+
+        AtomicInteger calls = new AtomicInteger();
+        IdempotencyConflictException e = assertThrows(IdempotencyConflictException.class,
+                () -> idempotencyService.execute("key-busy", "IDEM-1", REQUEST, Created.class,
+                        () -> new Created("AND" + calls.incrementAndGet())));
+        // El controller responde 409
+        assertFalse(e.isRequestMismatch());
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    void failedReservationIsTakenOverByRetry() {
+        reserveFailed("key-failed");
+        assertEquals(IdempotencyStatus.FAILED, idempotencyKeyRepository.findById("key-failed").orElseThrow().getStatus());
+
+        Created created = idempotencyService.execute("key-failed", "IDEM-1", REQUEST, Created.class,
+                () -> new Created("AND1"));
+
+        assertEquals(new Created("AND1"), created);
+        assertEquals(IdempotencyStatus.COMPLETED, idempotencyKeyRepository.findById("key-failed").orElseThrow().getStatus());
+    }
+
+    @Test
+    void expiredReservationIsTakenOverByRetry() {
+        reserveFailed("key-expired");
+        IdempotencyKeyEntity row = idempotencyKeyRepository.findById("key-expired").orElseThrow();
+        row.setStatus(IdempotencyStatus.IN_PROGRESS);
+        row.setLockedBy("nodo-caido:1234");
+        row.setLockedUntil(LocalDateTime.now().minusSeconds(1));
+        idempotencyKeyRepository.save(row);
+
+        Created created = idempotencyService.execute("key-expired", "IDEM-1", REQUEST, Created.class,
+                () -> new Created("AND1"));
+
+        assertEquals(new Created("AND1"), created);
+        IdempotencyKeyEntity stored = idempotencyKeyRepository.findById("key-expired").orElseThrow();
+        assertEquals(IdempotencyStatus.COMPLETED, stored.getStatus());
+        assertNotEquals("nodo-caido:1234", stored.getLockedBy());
+    }
+
+    @Test
+    void cleanupDeletesOldRowsAndAbandonedReservations() {
+        LocalDateTime old = LocalDateTime.now().minusDays(3);
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(1);
+        saveRow("old-completed", IdempotencyStatus.COMPLETED, old, null);
+        saveRow("old-failed", IdempotencyStatus.FAILED, old, null);
+        saveRow("old-abandoned", IdempotencyStatus.IN_PROGRESS, old, old.plusMinutes(1));
+        saveRow("old-still-locked", IdempotencyStatus.IN_PROGRESS, old, LocalDateTime.now().plusMinutes(1));
+        saveRow("recent-completed", IdempotencyStatus.COMPLETED, LocalDateTime.now(), null);
+
+        assertEquals(3, idempotencyKeyRepository.deleteCreatedBefore(cutoff));
+
+        assertEquals(List.of("old-still-locked", "recent-completed"), idempotencyKeyRepository.findAll().stream()
+                .map(IdempotencyKeyEntity::getIdempotencyKey)
+                .sorted()
+                .toList());
+    }
+
+    // ================================
+    // MÉTODOS AUXILIARES
+    // ================================
+
+    /**
+     * Deja la clave en FAILED con el hash real del pedido (la acción falla en el proveedor)
+     */
+    private void reserveFailed(String key) {
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute(key, "IDEM-1", REQUEST,
+                Created.class, () -> {
+                    throw new IllegalStateException("Proveedor caído");
+                }));
+    }
+
+    private void saveRow(String key, IdempotencyStatus status, LocalDateTime createdAt, LocalDateTime lockedUntil) {
+        idempotencyKeyRepository.save(new IdempotencyKeyEntity(key, "IDEM-1", "hash", status, null,
+                "nodo:1", lockedUntil, createdAt, null));
+    }
+
+    private void awaitReserved(String key) {
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> idempotencyKeyRepository.existsById(key));
+    }
+
+    private static void block(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public record Created(String trackingNumber) {
+    }
+}
@@ -0,0 +1,151 @@
+package tesis.tesisenvios.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import tesis.tesisenvios.dtos.LabelStatus;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.entitites.ShipmentEntity;
+import tesis.tesisenvios.entitites.ShipmentLabelEntity;
+import tesis.tesisenvios.events.ShipmentCreatedEvent;
+import tesis.tesisenvios.repositories.ShipmentLabelRepository;
+import tesis.tesisenvios.repositories.ShipmentRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Etiquetas de punta a punta contra el mock del proveedor: descarga, reintentos, merge y
+ * recuperación de un archivo faltante
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "labels.max-attempts=2",
+        "labels.retry-base-ms=0",
+        "labels.sweep-initial-delay-ms=3600000",
+        "labels.cleanup-initial-delay-ms=3600000"
+})
+class LabelServiceTests {
+
+    @TempDir
+    static Path storageDir;
+
+    @DynamicPropertySource
+    static void storage(DynamicPropertyRegistry registry) {
+        registry.add("labels.storage-dir", storageDir::toString);
+    }
+
+    @Autowired
+    private LabelService labelService;
+
+    @Autowired
+    private ShipmentLabelRepository labelRepository;
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @BeforeEach
+    void start() {
+        labelRepository.deleteAll();
+        shipmentRepository.deleteAll();
+    }
+
+    @Test
+    void mockLabelIsStoredAndServed() throws Exception {
+        ShipmentLabelEntity label = create("LBL-1", "ANDREANI");
+
+        ShipmentLabelEntity ready = awaitLabel(label.getId(), l -> l.getStatus() == LabelStatus.READY);
+        assertEquals(LabelStatus.READY, ready.getStatus());
+        assertFalse(ready.isRenderedLocally());
+        assertEquals(1, ready.getAttempts());
+
+        Path file = labelService.readyFile(ready).orElseThrow();
+        assertEquals(ready.getSizeBytes(), Files.size(file));
+        assertTrue(Files.readString(file, StandardCharsets.ISO_8859_1).startsWith("%PDF"));
+    }
+
+    @Test
+    void failingLabelIsRetriedThenAbandoned() throws Exception {
+        ShipmentLabelEntity label = create("LBL-FAIL", "NOPE");
+
+        ShipmentLabelEntity retry = awaitLabel(label.getId(), l -> l.getAttempts() == 1);
+        assertEquals(LabelStatus.PENDING, retry.getStatus());
+        assertTrue(retry.getLastError().contains("NOPE"));
+
+        labelService.sweep();
+        ShipmentLabelEntity failed = awaitLabel(label.getId(), l -> l.getStatus() == LabelStatus.FAILED);
+        assertEquals(LabelStatus.FAILED, failed.getStatus());
+        assertEquals(2, failed.getAttempts());
+        assertTrue(labelService.readyFile(failed).isEmpty());
+    }
+
+    @Test
+    void mergeReusesItsKeyAndReportsPending() throws Exception {
+        awaitLabel(create("LBL-A", "ANDREANI").getId(), l -> l.getStatus() == LabelStatus.READY);
+        awaitLabel(create("LBL-B", "ANDREANI").getId(), l -> l.getStatus() == LabelStatus.READY);
+
+        LabelService.MergeResult first = labelService.merge(List.of("LBL-B", "LBL-A", "LBL-B"));
+        assertTrue(first.isComplete());
+        assertTrue(Files.size(first.file()) > 0);
+
+        LabelService.MergeResult again = labelService.merge(List.of("LBL-B", "LBL-A"));
+        assertEquals(first.key(), again.key());
+        assertEquals(first.file(), again.file());
+
+        // El orden es parte de la ola: otro orden, otro merge
+        assertFalse(first.key().equals(labelService.merge(List.of("LBL-A", "LBL-B")).key()));
+
+        assertEquals(List.of("LBL-X"), labelService.merge(List.of("LBL-A", "LBL-X")).missingOrderCodes());
+    }
+
+    @Test
+    void missingFileSendsLabelBackToPending() throws Exception {
+        ShipmentLabelEntity ready = awaitLabel(create("LBL-LOST", "ANDREANI").getId(),
+                l -> l.getStatus() == LabelStatus.READY);
+        Path file = labelService.readyFile(ready).orElseThrow();
+        Files.delete(file);
+
+        assertEquals(List.of("LBL-LOST"), labelService.merge(List.of("LBL-LOST")).missingOrderCodes());
+
+        ShipmentLabelEntity again = awaitLabel(ready.getId(),
+                l -> l.getStatus() == LabelStatus.READY && l.getAttempts() == 2);
+        assertEquals(LabelStatus.READY, again.getStatus());
+        assertTrue(labelService.readyFile(again).isPresent());
+    }
+
+    private ShipmentLabelEntity create(String orderCode, String provider) {
+        ShipmentEntity shipment = new ShipmentEntity();
+        shipment.setOrderCode(orderCode);
+        shipment.setTrackingNumber("AND-" + orderCode);
+        shipment.setProvider(provider);
+        shipment.setRecipientName("Ana");
+        shipment.setStatus(ShipmentStatus.CREATED);
+        shipment = shipmentRepository.save(shipment);
+
+        labelService.onShipmentCreated(new ShipmentCreatedEvent(shipment.getId(), orderCode,
+                shipment.getTrackingNumber(), ShipmentStatus.CREATED, null, null, null, LocalDateTime.now()));
+        return labelRepository.findByOrderCode(orderCode).orElseThrow();
+    }
+
+    private ShipmentLabelEntity awaitLabel(Long labelId, Predicate<ShipmentLabelEntity> done) {
+        return await().atMost(Duration.ofSeconds(20))
+                .until(() -> labelRepository.findById(labelId).orElseThrow(), done);
+    }
+}
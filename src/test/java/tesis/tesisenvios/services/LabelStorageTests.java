@@ -0,0 +1,80 @@
+package tesis.tesisenvios.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LabelStorageTests {
+
+    @TempDir
+    Path root;
+
+    private LabelStorage storage;
+
+    @BeforeEach
+    void init() throws IOException {
+        storage = new LabelStorage();
+        ReflectionTestUtils.setField(storage, "root", root);
+        storage.init();
+    }
+
+    @Test
+    void sameContentIsStoredOnceUnderItsHash() throws IOException {
+        byte[] pdf = "%PDF-1.7 etiqueta".getBytes(StandardCharsets.US_ASCII);
+
+        String hash = storage.store(pdf);
+        assertEquals(LabelStorage.sha256(pdf), hash);
+        assertEquals(root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash + ".pdf"),
+                storage.path(hash));
+        assertArrayEquals(pdf, Files.readAllBytes(storage.path(hash)));
+
+        long written = Files.getLastModifiedTime(storage.path(hash)).toMillis();
+        assertEquals(hash, storage.store(pdf.clone()));
+        assertEquals(written, Files.getLastModifiedTime(storage.path(hash)).toMillis());
+        try (var parts = Files.list(root.resolve("tmp"))) {
+            assertEquals(0, parts.count(), "no quedan temporales");
+        }
+    }
+
+    @Test
+    void rejectsAnythingButAHash() {
+        assertThrows(IllegalArgumentException.class, () -> storage.path("../../etc/passwd"));
+        assertThrows(IllegalArgumentException.class, () -> storage.path("ABC"));
+        assertThrows(IllegalArgumentException.class, () -> storage.path(null));
+        assertThrows(IllegalArgumentException.class, () -> storage.mergedPath("a".repeat(63) + "/"));
+        assertFalse(storage.exists("0".repeat(64)));
+    }
+
+    @Test
+    void mergeUnderAnExistingKeyKeepsTheFirstFile() throws IOException {
+        String key = "f".repeat(64);
+
+        Path first = storage.newTempFile();
+        Files.writeString(first, "primero");
+        Path merged = storage.publishMerged(first, key);
+
+        Path second = storage.newTempFile();
+        Files.writeString(second, "segundo");
+        assertEquals(merged, storage.publishMerged(second, key));
+
+        assertEquals("primero", Files.readString(merged));
+        assertFalse(Files.exists(second));
+
+        assertEquals(0, storage.purgeMerged(Duration.ofHours(1)));
+        assertEquals(1, storage.purgeMerged(Duration.ofMillis(-1000)));
+        assertTrue(Files.notExists(merged));
+    }
+}
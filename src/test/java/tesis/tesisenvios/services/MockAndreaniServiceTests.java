@@ -0,0 +1,79 @@
+package tesis.tesisenvios.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import tesis.tesisenvios.dtos.CreateShipmentRequest;
+import tesis.tesisenvios.dtos.TrackingEventResponse;
+import tesis.tesisenvios.services.impl.MockAndreaniService;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Mock determinista: misma semilla y misma orden dan el mismo tracking y el mismo escenario,
+ * aunque sea otra instancia (otro nodo o un reinicio)
+ */
+class MockAndreaniServiceTests {
+
+    @Test
+    void sameSeedAndOrderGiveSameTrackingNumberAndScenario() {
+        MockAndreaniService first = mock(42);
+        MockAndreaniService second = mock(42);
+
+        for (int i = 0; i < 20; i++) {
+            String trackingNumber = first.createShipment(null, request("ORD-DET-" + i));
+            assertEquals(trackingNumber, second.createShipment(null, request("ORD-DET-" + i)));
+            assertTrue(trackingNumber.matches("AND\\d{10}"), trackingNumber);
+
+            // Las fechas dependen del momento de la consulta; escenario e ids no
+            assertEquals(scenario(first.getTrackingEvents(trackingNumber)),
+                    scenario(second.getTrackingEvents(trackingNumber)));
+        }
+    }
+
+    @Test
+    void otherSeedGivesOtherTrackingNumbers() {
+        MockAndreaniService first = mock(42);
+        MockAndreaniService other = mock(7);
+
+        assertNotEquals(first.createShipment(null, request("ORD-DET-1")),
+                other.createShipment(null, request("ORD-DET-1")));
+    }
+
+    @Test
+    void providerEventIdsAreStableAcrossQueries() {
+        MockAndreaniService mock = mock(42);
+        String trackingNumber = mock.createShipment(null, request("ORD-DET-IDS"));
+
+        List<TrackingEventResponse> events = mock.getTrackingEvents(trackingNumber);
+        assertEquals(scenario(events), scenario(mock.getTrackingEvents(trackingNumber)));
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(trackingNumber + "-" + i, events.get(i).getProviderEventId());
+        }
+    }
+
+    private static MockAndreaniService mock(long seed) {
+        MockAndreaniService mock = new MockAndreaniService();
+        ReflectionTestUtils.setField(mock, "seed", seed);
+        // Todo el ciclo visible al instante
+        ReflectionTestUtils.setField(mock, "timeScale", 1e9);
+        ReflectionTestUtils.setField(mock, "failureRatePercent", 0);
+        ReflectionTestUtils.setField(mock, "maxTracked", 1000);
+        return mock;
+    }
+
+    private static CreateShipmentRequest request(String orderCode) {
+        CreateShipmentRequest request = new CreateShipmentRequest();
+        request.setOrderCode(orderCode);
+        return request;
+    }
+
+    private static List<String> scenario(List<TrackingEventResponse> events) {
+        return events.stream()
+                .map(e -> e.getProviderEventId() + " " + e.getStatus() + " " + e.getDescription())
+                .toList();
+    }
+}
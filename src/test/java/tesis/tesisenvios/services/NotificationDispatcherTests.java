@@ -0,0 +1,176 @@
+package tesis.tesisenvios.services;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import tesis.tesisenvios.dtos.NotificationStatus;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.entitites.ShipmentEntity;
+import tesis.tesisenvios.events.ShipmentStatusChangedEvent;
+import tesis.tesisenvios.repositories.NotificationOutboxRepository;
+import tesis.tesisenvios.repositories.ShipmentRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Notificaciones de punta a punta contra un SMTP y un webhook locales:
+ * varias transiciones del mismo envío se agrupan en una sola notificación por canal.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "spring.mail.host=localhost",
+        "notifications.coalesce-window-ms=0",
+        "notifications.flush-interval-ms=3600000",
+        "notifications.dispatch-interval-ms=3600000"
+})
+class NotificationDispatcherTests {
+
+    private static final List<String> mails = new CopyOnWriteArrayList<>();
+    private static final List<String> webhookBodies = new CopyOnWriteArrayList<>();
+
+    private static ServerSocket smtpSink;
+    private static HttpServer webhookSink;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
+
+    @Autowired
+    private NotificationOutboxRepository outboxRepository;
+
+    @BeforeAll
+    static void startSinks() throws IOException {
+        smtpSink = new ServerSocket(0);
+        Thread smtp = new Thread(NotificationDispatcherTests::acceptSmtp, "smtp-sink");
+        smtp.setDaemon(true);
+        smtp.start();
+
+        webhookSink = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        webhookSink.createContext("/hook", exchange -> {
+            webhookBodies.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        webhookSink.start();
+    }
+
+    @DynamicPropertySource
+    static void sinks(DynamicPropertyRegistry registry) {
+        registry.add("spring.mail.port", () -> smtpSink.getLocalPort());
+        registry.add("notifications.webhook.url",
+                () -> "http://localhost:" + webhookSink.getAddress().getPort() + "/hook");
+    }
+
+    @AfterAll
+    static void stopSinks() throws IOException {
+        webhookSink.stop(0);
+        smtpSink.close();
+    }
+
+    @BeforeEach
+    void clear() {
+        mails.clear();
+        webhookBodies.clear();
+        outboxRepository.deleteAll();
+        shipmentRepository.deleteAll();
+    }
+
+    @Test
+    void coalescedTransitionsAreSentOncePerChannel() {
+        ShipmentEntity shipment = new ShipmentEntity();
+        shipment.setOrderCode("NOTIF-1");
+        shipment.setTrackingNumber("AND-NOTIF-1");
+        shipment.setRecipientName("Ana");
+        shipment.setRecipientEmail("ana@example.com");
+        shipment.setStatus(ShipmentStatus.OUT_FOR_DELIVERY);
+        shipment = shipmentRepository.save(shipment);
+
+        eventPublisher.publishEvent(statusChanged(shipment, ShipmentStatus.CREATED, ShipmentStatus.IN_TRANSIT));
+        eventPublisher.publishEvent(statusChanged(shipment, ShipmentStatus.IN_TRANSIT, ShipmentStatus.OUT_FOR_DELIVERY));
+
+        assertEquals(2, notificationService.flush(), "una fila por canal");
+        assertEquals(2, notificationDispatcher.dispatch());
+
+        assertEquals(1, mails.size());
+        assertTrue(mails.get(0).contains("NOTIF-1"));
+        assertEquals(1, webhookBodies.size());
+        assertTrue(webhookBodies.get(0).contains("\"previousStatus\":\"CREATED\""));
+        assertTrue(webhookBodies.get(0).contains("\"status\":\"OUT_FOR_DELIVERY\""));
+        assertTrue(webhookBodies.get(0).contains("\"transitions\":2"));
+        assertEquals(2, outboxRepository.countByStatus(NotificationStatus.SENT));
+    }
+
+    private static ShipmentStatusChangedEvent statusChanged(ShipmentEntity shipment, ShipmentStatus from, ShipmentStatus to) {
+        return new ShipmentStatusChangedEvent(shipment.getId(), shipment.getOrderCode(), shipment.getTrackingNumber(),
+                from, to, LocalDateTime.now(), null, null, shipment.getCreatedAt(), null);
+    }
+
+    /**
+     * SMTP mínimo: acepta todo y guarda el contenido de cada DATA
+     */
+    private static void acceptSmtp() {
+        while (!smtpSink.isClosed()) {
+            try (Socket socket = smtpSink.accept();
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                 PrintWriter out = new PrintWriter(socket.getOutputStream(), true)) {
+                reply(out, "220 sink");
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String command = line.toUpperCase();
+                    if (command.startsWith("DATA")) {
+                        reply(out, "354 fin con <CRLF>.<CRLF>");
+                        StringBuilder data = new StringBuilder();
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            data.append(line).append('\n');
+                        }
+                        mails.add(data.toString());
+                        reply(out, "250 OK");
+                    } else if (command.startsWith("QUIT")) {
+                        reply(out, "221 chau");
+                        break;
+                    } else {
+                        reply(out, "250 OK");
+                    }
+                }
+            } catch (IOException e) {
+                // Socket cerrado al terminar el test
+            }
+        }
+    }
+
+    private static void reply(PrintWriter out, String line) {
+        out.print(line + "\r\n");
+        out.flush();
+    }
+}
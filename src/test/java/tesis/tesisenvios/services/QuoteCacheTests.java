@@ -0,0 +1,64 @@
+package tesis.tesisenvios.services;
+
+import org.junit.jupiter.api.Test;
+import tesis.tesisenvios.dtos.PackageRequest;
+import tesis.tesisenvios.dtos.QuoteRequest;
+import tesis.tesisenvios.dtos.ShippingAddressRequest;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Clave de caché de cotizaciones: incluye cada bulto del carrito
+ */
+class QuoteCacheTests {
+
+    @Test
+    void packagesArePartOfTheKey() {
+        String single = QuoteCache.buildKey("ANDREANI", cart(pkg("2", "40")));
+        String two = QuoteCache.buildKey("ANDREANI", cart(pkg("2", "40"), pkg("1", "10")));
+        String heavier = QuoteCache.buildKey("ANDREANI", cart(pkg("3", "40")));
+        String bigger = QuoteCache.buildKey("ANDREANI", cart(pkg("2", "50")));
+
+        assertNotEquals(single, two);
+        assertNotEquals(single, heavier);
+        assertNotEquals(single, bigger);
+        // El orden de los bultos se respeta tal cual llegó
+        assertNotEquals(two, QuoteCache.buildKey("ANDREANI", cart(pkg("1", "10"), pkg("2", "40"))));
+    }
+
+    @Test
+    void sameCartGivesSameKey() {
+        // Misma cantidad con otra escala y destino con otras mayúsculas y espacios
+        QuoteRequest other = cart(pkg("2.00", "40.0"));
+        other.getDestinationAddress().setCity(" MENDOZA ");
+
+        assertEquals(QuoteCache.buildKey("ANDREANI", cart(pkg("2", "40"))), QuoteCache.buildKey("ANDREANI", other));
+    }
+
+    @Test
+    void cartAndSingleWeightDoNotShareKey() {
+        QuoteRequest single = cart();
+        single.setPackages(null);
+        single.setWeightKg(new BigDecimal("2"));
+
+        assertNotEquals(QuoteCache.buildKey("ANDREANI", single), QuoteCache.buildKey("ANDREANI", cart(pkg("2", null))));
+        assertNotEquals(QuoteCache.buildKey("ANDREANI", single), QuoteCache.buildKey("OCA", single));
+    }
+
+    private static QuoteRequest cart(PackageRequest... packages) {
+        QuoteRequest request = new QuoteRequest();
+        request.setDestinationAddress(new ShippingAddressRequest("San Martín", "50", null, "Mendoza", "Mendoza",
+                "5500", null));
+        request.setPackages(List.of(packages));
+        return request;
+    }
+
+    private static PackageRequest pkg(String weightKg, String side) {
+        BigDecimal cm = side != null ? new BigDecimal(side) : null;
+        return new PackageRequest(new BigDecimal(weightKg), cm, cm, cm, null);
+    }
+}
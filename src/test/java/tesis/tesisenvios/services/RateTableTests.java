@@ -0,0 +1,98 @@
+package tesis.tesisenvios.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class RateTableTests {
+
+    @Test
+    void findsEachCellAndItsOptionsInOrder() {
+        RateTable table = new RateTable.Builder()
+                .put(5000, 2, 7, 9100, 4, 100)
+                .put(5000, 2, 1, 8400, 3, 100)
+                .put(5000, 1, 1, 6500, 3, 100)
+                .put(5000, 3, 1, 9900, 3, 100)
+                .put(1425, 2, 1, 7200, 2, 100)
+                .put(9410, 0, 0, 15000, 9, 100)
+                .build();
+        assertEquals(6, table.size());
+
+        int first = table.firstIndex(5000, 2);
+        List<Integer> options = new ArrayList<>();
+        List<Integer> prices = new ArrayList<>();
+        for (int i = first; table.sameCell(i, first); i++) {
+            options.add(table.optionAt(i));
+            prices.add(table.priceCentsAt(i));
+        }
+        assertEquals(List.of(1, 7), options);
+        assertEquals(List.of(8400, 9100), prices);
+
+        assertEquals(6500, table.priceCentsAt(table.firstIndex(5000, 1)));
+        assertEquals(2, table.estimatedDaysAt(table.firstIndex(1425, 2)));
+        // Primera y última celda de la tabla
+        assertEquals(0, table.firstIndex(1425, 2));
+        assertEquals(table.size() - 1, table.firstIndex(9410, 0));
+    }
+
+    @Test
+    void missingCellsBetweenAndAroundExistingOnesReturnMinusOne() {
+        RateTable table = new RateTable.Builder()
+                .put(5000, 2, 1, 8400, 3, 100)
+                .put(5002, 2, 1, 8600, 3, 100)
+                .build();
+
+        assertEquals(-1, table.firstIndex(5001, 2));
+        assertEquals(-1, table.firstIndex(5000, 1));
+        assertEquals(-1, table.firstIndex(5000, 3));
+        assertEquals(-1, table.firstIndex(1000, 0));
+        assertEquals(-1, table.firstIndex(9999, RateTable.MAX_BANDS - 1));
+        assertEquals(-1, RateTable.EMPTY.firstIndex(5000, 2));
+
+        // La siguiente celda no se confunde con la buscada
+        int first = table.firstIndex(5000, 2);
+        assertFalse(table.sameCell(first + 1, first));
+    }
+
+    @Test
+    void keysKeepTheirOrderAtTheLimits() {
+        RateTable table = new RateTable.Builder()
+                .put(9999, RateTable.MAX_BANDS - 1, RateTable.MAX_OPTIONS - 1, 1, 1, 1)
+                .put(9999, RateTable.MAX_BANDS - 1, 0, 2, 1, 1)
+                .put(9999, RateTable.MAX_BANDS - 2, RateTable.MAX_OPTIONS - 1, 3, 1, 1)
+                .build();
+
+        int first = table.firstIndex(9999, RateTable.MAX_BANDS - 1);
+        assertEquals(1, first);
+        assertEquals(0, table.optionAt(first));
+        assertEquals(RateTable.MAX_OPTIONS - 1, table.optionAt(first + 1));
+        assertEquals(RateTable.MAX_OPTIONS - 1, table.optionAt(table.firstIndex(9999, RateTable.MAX_BANDS - 2)));
+    }
+
+    @Test
+    void copyCellKeepsFreshRowsOverOldOnes() {
+        RateTable old = new RateTable.Builder()
+                .put(5000, 2, 1, 8000, 3, 10)
+                .put(5000, 2, 2, 9000, 2, 10)
+                .put(5000, 3, 1, 9900, 3, 10)
+                .build();
+
+        RateTable table = new RateTable.Builder()
+                .put(5000, 2, 1, 8400, 3, 20)
+                .copyCell(old, 5000, 2)
+                .copyCell(old, 1425, 2)
+                .build();
+
+        assertEquals(2, table.size());
+        int first = table.firstIndex(5000, 2);
+        assertEquals(8400, table.priceCentsAt(first));
+        assertEquals(20, table.harvestedAt(first));
+        assertEquals(9000, table.priceCentsAt(first + 1));
+        assertEquals(10, table.harvestedAt(first + 1));
+        assertEquals(-1, table.firstIndex(5000, 3));
+    }
+}
@@ -0,0 +1,147 @@
+package tesis.tesisenvios.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryExecutorTests {
+
+    private RetryExecutor retryExecutor;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void init() {
+        meterRegistry = new SimpleMeterRegistry();
+        retryExecutor = new RetryExecutor();
+        ReflectionTestUtils.setField(retryExecutor, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(retryExecutor, "maxAttempts", 3);
+        ReflectionTestUtils.setField(retryExecutor, "baseDelayMs", 1L);
+        ReflectionTestUtils.setField(retryExecutor, "maxDelayMs", 5L);
+        ReflectionTestUtils.setField(retryExecutor, "budgetRatio", 0.0);
+        ReflectionTestUtils.setField(retryExecutor, "budgetInitialTokens", 10.0);
+        ReflectionTestUtils.setField(retryExecutor, "budgetMaxTokens", 100.0);
+    }
+
+    @Test
+    void classifiesErrorsByIdempotency() {
+        RuntimeException timeout = new ResourceAccessException("timeout", new SocketTimeoutException("Read timed out"));
+        RuntimeException refused = new ResourceAccessException("refused", new ConnectException("Connection refused"));
+        RuntimeException serverError = new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR);
+        RuntimeException unavailable = new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+        RuntimeException tooMany = new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS);
+        RuntimeException badRequest = new HttpClientErrorException(HttpStatus.BAD_REQUEST);
+
+        assertTrue(RetryExecutor.isRetryable(timeout, true));
+        assertTrue(RetryExecutor.isRetryable(serverError, true));
+        assertFalse(RetryExecutor.isRetryable(badRequest, true));
+        assertFalse(RetryExecutor.isRetryable(new IllegalStateException("bug"), true));
+
+        // No idempotente: solo si el pedido seguro no se procesó
+        assertFalse(RetryExecutor.isRetryable(timeout, false));
+        assertFalse(RetryExecutor.isRetryable(serverError, false));
+        assertTrue(RetryExecutor.isRetryable(refused, false));
+        assertTrue(RetryExecutor.isRetryable(unavailable, false));
+        assertTrue(RetryExecutor.isRetryable(tooMany, false));
+    }
+
+    @Test
+    void retriesUntilSuccessOrMaxAttempts() {
+        AtomicInteger calls = new AtomicInteger();
+        assertEquals("ok", retryExecutor.execute("test", () -> {
+            if (calls.incrementAndGet() < 3) throw new HttpServerErrorException(HttpStatus.BAD_GATEWAY);
+            return "ok";
+        }));
+        assertEquals(3, calls.get());
+
+        calls.set(0);
+        assertThrows(HttpServerErrorException.class, () -> retryExecutor.execute("test", failing(calls)));
+        assertEquals(3, calls.get());
+
+        calls.set(0);
+        assertThrows(HttpClientErrorException.class, () -> retryExecutor.execute("test", () -> {
+            calls.incrementAndGet();
+            throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+        }));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void retryBudgetCapsRetriesAcrossCalls() {
+        ReflectionTestUtils.setField(retryExecutor, "budgetInitialTokens", 3.0);
+        AtomicInteger calls = new AtomicInteger();
+
+        // 3 fichas: dos reintentos en la primera llamada, uno en la segunda, ninguno después
+        assertThrows(HttpServerErrorException.class, () -> retryExecutor.execute("test", failing(calls)));
+        assertEquals(3, calls.get());
+        assertThrows(HttpServerErrorException.class, () -> retryExecutor.execute("test", failing(calls)));
+        assertEquals(5, calls.get());
+        assertThrows(HttpServerErrorException.class, () -> retryExecutor.execute("test", failing(calls)));
+        assertEquals(6, calls.get());
+
+        assertEquals(2, meterRegistry.get("carrier.calls").tag("outcome", "budget_exhausted").counter().count());
+    }
+
+    @Test
+    void backoffStaysWithinJitterCapAndDeadline() {
+        for (int i = 0; i < 1000; i++) {
+            long delay = RetryExecutor.backoff(100, 100, 2000, 0, Long.MAX_VALUE);
+            assertTrue(delay >= 100 && delay <= 300, "fuera de [base, anterior*3]: " + delay);
+
+            delay = RetryExecutor.backoff(1500, 100, 2000, 0, Long.MAX_VALUE);
+            assertTrue(delay >= 100 && delay <= 2000, "supera el tope: " + delay);
+
+            delay = RetryExecutor.backoff(1500, 100, 2000, 0, 250);
+            assertTrue(delay <= 250, "supera el tiempo restante: " + delay);
+
+            assertTrue(RetryExecutor.backoff(100, 100, 2000, 1000, 1500) >= 1000, "menor al Retry-After");
+        }
+    }
+
+    @Test
+    void doesNotRetryPastTheCallerDeadline() {
+        AtomicInteger calls = new AtomicInteger();
+        long expired = System.nanoTime() - 1;
+        assertThrows(HttpServerErrorException.class,
+                () -> retryExecutor.execute("test", true, expired, failing(calls)));
+        assertEquals(1, calls.get());
+
+        // Retry-After mayor que lo que le queda al que llama: se corta sin esperar
+        calls.set(0);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        ReflectionTestUtils.setField(retryExecutor, "maxDelayMs", 2000L);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+        long startedAt = System.nanoTime();
+        assertThrows(HttpClientErrorException.class, () -> retryExecutor.execute("test", true, deadline, () -> {
+            calls.incrementAndGet();
+            throw HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "429", headers, null, null);
+        }));
+        assertEquals(1, calls.get());
+        assertTrue(System.nanoTime() - startedAt < TimeUnit.MILLISECONDS.toNanos(200));
+        assertEquals(2, meterRegistry.get("carrier.calls").tag("outcome", "deadline_exceeded").counter().count());
+    }
+
+    private static Supplier<String> failing(AtomicInteger calls) {
+        return () -> {
+            calls.incrementAndGet();
+            throw new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR);
+        };
+    }
+}
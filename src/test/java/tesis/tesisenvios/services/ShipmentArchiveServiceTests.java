@@ -0,0 +1,136 @@
+package tesis.tesisenvios.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import tesis.tesisenvios.dtos.CreateShipmentRequest;
+import tesis.tesisenvios.dtos.ShipmentResponse;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.dtos.ShippingAddressRequest;
+import tesis.tesisenvios.entitites.ShipmentArchiveEntity;
+import tesis.tesisenvios.entitites.ShipmentEntity;
+import tesis.tesisenvios.entitites.TrackingEventEntity;
+import tesis.tesisenvios.repositories.ShipmentArchiveRepository;
+import tesis.tesisenvios.repositories.ShipmentRepository;
+import tesis.tesisenvios.repositories.TrackingEventRepository;
+import tesis.tesisenvios.utils.EpochSeconds;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Archivo de envíos terminados: copia y borrado en una sola transacción y lectura de respaldo
+ * desde el archivo (incluida la creación repetida de una orden ya archivada)
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "archive.enabled=false")
+class ShipmentArchiveServiceTests {
+
+    @Autowired
+    private ShipmentArchiveService archiveService;
+
+    @Autowired
+    private ShippingService shippingService;
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private TrackingEventRepository trackingEventRepository;
+
+    @Autowired
+    private ShipmentArchiveRepository archiveRepository;
+
+    @Autowired
+    private TrackingDictionary trackingDictionary;
+
+    @BeforeEach
+    void start() {
+        archiveRepository.deleteAll();
+        trackingEventRepository.deleteAll();
+        shipmentRepository.deleteAll();
+    }
+
+    @Test
+    void archivingMovesTerminalShipmentsWithTheirEvents() {
+        ShipmentEntity delivered = shipment("ARCH-1", ShipmentStatus.DELIVERED);
+        ShipmentEntity active = shipment("ARCH-2", ShipmentStatus.IN_TRANSIT);
+
+        int archived = archiveService.archiveBatch(List.of(delivered.getId(), active.getId()),
+                LocalDateTime.now().plusMinutes(1));
+
+        assertEquals(1, archived);
+        assertTrue(shipmentRepository.findById(delivered.getId()).isEmpty());
+        assertTrue(trackingEventRepository.findByShipmentIdOrderByEventEpochDesc(delivered.getId()).isEmpty());
+        assertTrue(shipmentRepository.findById(active.getId()).isPresent());
+
+        ShipmentResponse fromArchive = archiveService.findByOrderCode("ARCH-1").orElseThrow();
+        assertEquals(ShipmentStatus.DELIVERED, fromArchive.getStatus());
+        assertEquals(2, fromArchive.getTrackingEvents().size());
+        assertEquals("Entregado", fromArchive.getTrackingEvents().get(0).getStatus());
+        assertEquals("ARCH-1", archiveService.findByTrackingNumber("AND-ARCH-1").orElseThrow().getOrderCode());
+    }
+
+    @Test
+    void failedBatchLeavesEveryShipmentLive() {
+        ShipmentEntity first = shipment("ARCH-3", ShipmentStatus.DELIVERED);
+        ShipmentEntity second = shipment("ARCH-4", ShipmentStatus.CANCELLED);
+
+        // Copia previa a medias con el mismo código de orden: el alta del lote choca con el índice único
+        archiveRepository.save(new ShipmentArchiveEntity("otro-id", "ARCH-4", "AND-OTRO", ShipmentStatus.CANCELLED,
+                202501, LocalDateTime.now(), LocalDateTime.now(), "{}"));
+
+        assertThrows(Exception.class, () -> archiveService.archiveBatch(List.of(first.getId(), second.getId()),
+                LocalDateTime.now().plusMinutes(1)));
+
+        assertTrue(shipmentRepository.findById(first.getId()).isPresent());
+        assertTrue(shipmentRepository.findById(second.getId()).isPresent());
+        assertEquals(2, trackingEventRepository.findByShipmentIdOrderByEventEpochDesc(first.getId()).size());
+        assertTrue(archiveService.findByOrderCode("ARCH-3").isEmpty());
+    }
+
+    @Test
+    void archivedOrdersAreReadAndNotCreatedAgain() {
+        ShipmentEntity delivered = shipment("ARCH-5", ShipmentStatus.DELIVERED);
+        archiveService.archiveBatch(List.of(delivered.getId()), LocalDateTime.now().plusMinutes(1));
+
+        assertEquals(ShipmentStatus.DELIVERED, shippingService.getShipmentByOrderCode("ARCH-5").getStatus());
+
+        CreateShipmentRequest request = new CreateShipmentRequest("ARCH-5",
+                new ShippingAddressRequest("Av. Colón", "1234", null, "Córdoba", "Córdoba", "5000", null),
+                "Ana", "ana@example.com", null, "ANDREANI", "STANDARD", null, BigDecimal.ONE);
+        ShipmentResponse response = shippingService.createShipment(request);
+
+        assertEquals(ShipmentStatus.DELIVERED, response.getStatus());
+        assertEquals("AND-ARCH-5", response.getTrackingNumber());
+        assertTrue(shipmentRepository.findByOrderCode("ARCH-5").isEmpty());
+    }
+
+    private ShipmentEntity shipment(String orderCode, ShipmentStatus status) {
+        ShipmentEntity shipment = new ShipmentEntity();
+        shipment.setOrderCode(orderCode);
+        shipment.setTrackingNumber("AND-" + orderCode);
+        shipment.setStatus(status);
+        shipment = shipmentRepository.save(shipment);
+
+        LocalDateTime date = LocalDateTime.of(2025, 3, 10, 9, 0);
+        event(shipment, date, "En tránsito");
+        event(shipment, date.plusDays(1), "Entregado");
+        return shipment;
+    }
+
+    private void event(ShipmentEntity shipment, LocalDateTime date, String status) {
+        trackingEventRepository.save(new TrackingEventEntity(null, shipment, EpochSeconds.of(date),
+                trackingDictionary.code(TrackingDictionary.Kind.STATUS, status),
+                TrackingDictionary.NONE, TrackingDictionary.NONE, null, EpochSeconds.now()));
+    }
+}
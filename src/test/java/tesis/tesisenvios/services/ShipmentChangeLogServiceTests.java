@@ -0,0 +1,177 @@
+package tesis.tesisenvios.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
+import tesis.tesisenvios.dtos.ShipmentChangeFeedResponse;
+import tesis.tesisenvios.dtos.ShipmentChangeResponse;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.entitites.ShipmentChangeEntity;
+import tesis.tesisenvios.events.TrackingEventRecordedEvent;
+import tesis.tesisenvios.repositories.ShipmentChangeRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Log de cambios: offsets sin huecos ni repetidos aunque las transacciones confirmen en paralelo,
+ * lectura por cursor y long-poll despertado por el secuenciador
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "changes.sequencer-interval-ms=50",
+        "changes.compaction-initial-delay-ms=3600000"
+})
+class ShipmentChangeLogServiceTests {
+
+    @Autowired
+    private ShipmentChangeLogService changeLogService;
+
+    @Autowired
+    private ShipmentChangeRepository shipmentChangeRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void start() {
+        shipmentChangeRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentCommitsGetGapFreeOrderedOffsets() throws Exception {
+        int writers = 8;
+        int perWriter = 25;
+        int total = writers * perWriter;
+
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        try {
+            List<CompletableFuture<Void>> commits = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                commits.add(CompletableFuture.runAsync(() -> {
+                    for (int i = 0; i < perWriter; i++) {
+                        recordChange("SEQ-" + writer + "-" + i);
+                    }
+                }, pool));
+            }
+
+            // Un consumidor que sigue el feed mientras se confirman cambios no pierde ni repite ninguno
+            List<Long> seen = new ArrayList<>();
+            long since = 0;
+            long deadline = System.currentTimeMillis() + 20_000;
+            while (seen.size() < total && System.currentTimeMillis() < deadline) {
+                ShipmentChangeFeedResponse page = changeLogService.read(since, 50);
+                page.getChanges().forEach(change -> seen.add(change.getSeq()));
+                since = page.getNextSince();
+            }
+            CompletableFuture.allOf(commits.toArray(CompletableFuture[]::new)).get(20, TimeUnit.SECONDS);
+
+            assertEquals(LongStream.rangeClosed(1, total).boxed().toList(), seen);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        List<Long> stored = shipmentChangeRepository.findAll().stream()
+                .map(ShipmentChangeEntity::getSeq)
+                .sorted()
+                .toList();
+        assertEquals(LongStream.rangeClosed(1, total).boxed().toList(), stored);
+    }
+
+    @Test
+    void cursorResumesFromOffset() {
+        for (int i = 0; i < 5; i++) {
+            recordChange("CUR-" + i);
+        }
+        awaitSequenced(5);
+
+        ShipmentChangeFeedResponse first = changeLogService.read(0, 2);
+        assertEquals(List.of(1L, 2L), seqs(first));
+        assertEquals(2, first.getNextSince());
+
+        ShipmentChangeFeedResponse second = changeLogService.read(first.getNextSince(), 2);
+        assertEquals(List.of(3L, 4L), seqs(second));
+        assertEquals(List.of("CUR-2", "CUR-3"), second.getChanges().stream()
+                .map(ShipmentChangeResponse::getOrderCode)
+                .toList());
+
+        ShipmentChangeFeedResponse last = changeLogService.read(second.getNextSince(), 10);
+        assertEquals(List.of(5L), seqs(last));
+
+        // Al día: lista vacía y el mismo cursor
+        ShipmentChangeFeedResponse empty = changeLogService.read(last.getNextSince(), 10);
+        assertTrue(empty.getChanges().isEmpty());
+        assertEquals(5, empty.getNextSince());
+    }
+
+    @Test
+    void waitingRequestIsWokenByNewChange() {
+        recordChange("WAIT-0");
+        awaitSequenced(1);
+
+        DeferredResult<ShipmentChangeFeedResponse> waiting = changeLogService.poll(1, 10, 10_000);
+        assertFalse(waiting.hasResult());
+
+        recordChange("WAIT-1");
+
+        await().atMost(Duration.ofSeconds(5)).until(waiting::hasResult);
+        ShipmentChangeFeedResponse result = (ShipmentChangeFeedResponse) waiting.getResult();
+        assertEquals(List.of(2L), seqs(result));
+        assertEquals("WAIT-1", result.getChanges().get(0).getOrderCode());
+        assertEquals(2, result.getNextSince());
+    }
+
+    @Test
+    void pollWithPendingChangesAnswersRightAway() {
+        recordChange("NOW-0");
+        awaitSequenced(1);
+
+        DeferredResult<ShipmentChangeFeedResponse> result = changeLogService.poll(0, 10, 10_000);
+
+        assertTrue(result.hasResult());
+        assertEquals(List.of(1L), seqs((ShipmentChangeFeedResponse) result.getResult()));
+    }
+
+    // ================================
+    // MÉTODOS AUXILIARES
+    // ================================
+
+    /**
+     * Un cambio confirmado en su propia transacción (la entrada se guarda en BEFORE_COMMIT)
+     */
+    private void recordChange(String orderCode) {
+        transactionTemplate.executeWithoutResult(status -> eventPublisher.publishEvent(
+                new TrackingEventRecordedEvent("ship-" + orderCode, orderCode, "AND-" + orderCode,
+                        ShipmentStatus.IN_TRANSIT, null, 1_700_000_000L, 0, 0, 0)));
+    }
+
+    private void awaitSequenced(long head) {
+        await().atMost(Duration.ofSeconds(5)).until(() -> shipmentChangeRepository.findHeadSeq() >= head);
+    }
+
+    private static List<Long> seqs(ShipmentChangeFeedResponse feed) {
+        return feed.getChanges().stream().map(ShipmentChangeResponse::getSeq).toList();
+    }
+}
@@ -0,0 +1,231 @@
+package tesis.tesisenvios.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import tesis.tesisenvios.dtos.ShipmentResponse;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.dtos.ShippingAddressResponse;
+import tesis.tesisenvios.dtos.TrackingEventResponse;
+import tesis.tesisenvios.entitites.ShipmentArchiveEntity;
+import tesis.tesisenvios.entitites.ShipmentEntity;
+import tesis.tesisenvios.entitites.TrackingEventEntity;
+import tesis.tesisenvios.exceptions.ExportBusyException;
+import tesis.tesisenvios.repositories.ShipmentArchiveRepository;
+import tesis.tesisenvios.repositories.ShipmentRepository;
+import tesis.tesisenvios.utils.EpochSeconds;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Exportación: filas por formato y el lugar de export.max-concurrent tomado y liberado por la misma llamada
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "export.max-concurrent=1")
+class ShipmentExportServiceTests {
+
+    @Autowired
+    private ShipmentExportService exportService;
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private ShipmentArchiveRepository archiveRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TrackingDictionary dictionary;
+
+    @Autowired
+    private RequestMappingHandlerAdapter handlerAdapter;
+
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private AsyncTaskExecutor applicationTaskExecutor;
+
+    @BeforeEach
+    void start() {
+        shipmentRepository.deleteAll();
+        archiveRepository.deleteAll();
+
+        ShipmentEntity withEvents = shipment("EXP-1");
+        for (int i = 0; i < 2; i++) {
+            withEvents.getTrackingEvents().add(new TrackingEventEntity(null, withEvents,
+                    EpochSeconds.of(LocalDateTime.now().minusHours(2 - i)),
+                    dictionary.code(TrackingDictionary.Kind.STATUS, "En tránsito"),
+                    dictionary.code(TrackingDictionary.Kind.DESCRIPTION, "En viaje, hacia destino"),
+                    TrackingDictionary.NONE, "EXP-EV-" + i, 0));
+        }
+        shipmentRepository.save(withEvents);
+        shipmentRepository.save(shipment("EXP-2"));
+    }
+
+    @Test
+    void streamingExportRunsOnApplicationTaskExecutor() {
+        // Con los pools de ExecutorsConfig Boot no lo crearía y el async de MVC usaría SimpleAsyncTaskExecutor
+        assertSame(applicationTaskExecutor, ReflectionTestUtils.getField(handlerAdapter, "taskExecutor"));
+    }
+
+    @Test
+    void csvCountsEventLinesAndNdjsonCountsShipments() throws IOException {
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        assertEquals(3, export(ShipmentExportService.Format.CSV, csv));
+        String[] lines = csv.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(4, lines.length);
+        assertTrue(lines[0].startsWith("shipment_id,"));
+        assertTrue(csv.toString(StandardCharsets.UTF_8).contains("\"En viaje, hacia destino\""));
+
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        assertEquals(2, export(ShipmentExportService.Format.NDJSON, ndjson));
+        lines = ndjson.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"orderCode\":\"EXP-1\""));
+        assertEquals(2, lines[0].split("\"eventDate\"", -1).length - 1);
+        assertTrue(lines[1].contains("\"trackingEvents\":[]"));
+    }
+
+    @Test
+    void archivedShipmentsInRangeAreExportedAfterActiveOnes() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        archive("EXP-ARC-1", "ANDREANI", now, List.of(
+                event(now.minusHours(1), "Entregado"),
+                event(now.minusHours(2), "En tránsito")));
+        // Creado antes del rango aunque haya terminado hoy
+        archive("EXP-ARC-OLD", "ANDREANI", now.minusDays(200), List.of(event(now.minusHours(1), "Entregado")));
+        archive("EXP-ARC-OCA", "OCA", now, List.of());
+
+        // 3 líneas de los activos, 2 eventos archivados y el archivado sin eventos
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        assertEquals(6, export(ShipmentExportService.Format.CSV, csv));
+        String[] lines = csv.toString(StandardCharsets.UTF_8).split("\n");
+        assertTrue(lines[4].contains("EXP-ARC-1") && lines[4].contains("En tránsito"));
+        assertTrue(lines[5].contains("EXP-ARC-1") && lines[5].contains("Entregado"));
+        assertTrue(lines[6].contains("EXP-ARC-OCA"));
+        assertFalse(csv.toString(StandardCharsets.UTF_8).contains("EXP-ARC-OLD"));
+
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        LocalDate today = LocalDate.now();
+        assertEquals(4, exportService.export(today, today, null, null,
+                ShipmentExportService.Format.NDJSON, false, ndjson));
+        lines = ndjson.toString(StandardCharsets.UTF_8).split("\n");
+        assertTrue(lines[2].contains("\"orderCode\":\"EXP-ARC-1\""));
+        assertEquals(2, lines[2].split("\"eventDate\"", -1).length - 1);
+        assertTrue(lines[3].contains("\"orderCode\":\"EXP-ARC-OCA\""));
+
+        // Filtro por proveedor también sobre el archivo
+        assertEquals(1, exportService.export(today, today, null, "OCA",
+                ShipmentExportService.Format.NDJSON, false, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void exportHoldsItsPlaceOnlyWhileWriting() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        OutputStream blocked = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                writing.countDown();
+                try {
+                    resume.await(20, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        CompletableFuture<Long> running = CompletableFuture.supplyAsync(() -> {
+            try {
+                return export(ShipmentExportService.Format.CSV, blocked);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(writing.await(20, TimeUnit.SECONDS));
+
+        assertTrue(exportService.isBusy());
+        assertThrows(ExportBusyException.class,
+                () -> export(ShipmentExportService.Format.CSV, new ByteArrayOutputStream()));
+
+        resume.countDown();
+        assertEquals(3, running.get(20, TimeUnit.SECONDS));
+        assertFalse(exportService.isBusy());
+
+        // Un cliente que corta la descarga también devuelve el lugar
+        OutputStream closed = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        assertThrows(IOException.class, () -> export(ShipmentExportService.Format.CSV, closed));
+        assertFalse(exportService.isBusy());
+    }
+
+    private long export(ShipmentExportService.Format format, OutputStream out) throws IOException {
+        LocalDate today = LocalDate.now();
+        return exportService.export(today, today, null, null, format, false, out);
+    }
+
+    private void archive(String orderCode, String provider, LocalDateTime createdAt,
+                         List<TrackingEventResponse> events) throws Exception {
+        ShipmentResponse response = new ShipmentResponse();
+        response.setId("id-" + orderCode);
+        response.setOrderCode(orderCode);
+        response.setTrackingNumber("AND-" + orderCode);
+        response.setProvider(provider);
+        response.setStatus(ShipmentStatus.DELIVERED.name());
+        response.setShippingAddress(new ShippingAddressResponse("Av. Colón", "100", null, "Córdoba", "Córdoba",
+                "5000", null));
+        response.setCreatedAt(createdAt);
+        response.setTrackingEvents(events);
+
+        LocalDateTime completedAt = LocalDateTime.now().minusMinutes(30);
+        archiveRepository.save(new ShipmentArchiveEntity(response.getId(), orderCode, response.getTrackingNumber(),
+                ShipmentStatus.DELIVERED, completedAt.getYear() * 100 + completedAt.getMonthValue(), completedAt,
+                LocalDateTime.now(), objectMapper.writeValueAsString(response)));
+    }
+
+    private static TrackingEventResponse event(LocalDateTime date, String status) {
+        return new TrackingEventResponse(date, status, null, null, null);
+    }
+
+    private static ShipmentEntity shipment(String orderCode) {
+        ShipmentEntity shipment = new ShipmentEntity();
+        shipment.setOrderCode(orderCode);
+        shipment.setTrackingNumber("AND-" + orderCode);
+        shipment.setProvider("ANDREANI");
+        shipment.setStatus(ShipmentStatus.IN_TRANSIT);
+        return shipment;
+    }
+}
@@ -0,0 +1,126 @@
+package tesis.tesisenvios.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import tesis.tesisenvios.TesisEnviosApplication;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.entitites.ShipmentEntity;
+import tesis.tesisenvios.repositories.ShipmentRepository;
+import tesis.tesisenvios.services.impl.ShipmentTrackingUpdater;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Dos contextos de la aplicación (dos "réplicas") sobre la misma base H2
+ * deben repartirse los envíos vencidos sin procesar ninguno dos veces.
+ */
+class ShipmentLeaseServiceTests {
+
+    private static final int SHIPMENTS = 60;
+
+    private ConfigurableApplicationContext nodeA;
+    private ConfigurableApplicationContext nodeB;
+
+    @BeforeEach
+    void startNodes() {
+        nodeA = startNode("node-a", "update");
+        nodeB = startNode("node-b", "none");
+    }
+
+    @AfterEach
+    void stopNodes() {
+        if (nodeB != null) nodeB.close();
+        if (nodeA != null) nodeA.close();
+    }
+
+    @Test
+    void replicasClaimDisjointBatches() throws Exception {
+        ShipmentRepository repository = nodeA.getBean(ShipmentRepository.class);
+        repository.deleteAll();
+        for (int i = 0; i < SHIPMENTS; i++) {
+            ShipmentEntity shipment = new ShipmentEntity();
+            shipment.setOrderCode("LEASE-" + i);
+            shipment.setTrackingNumber("AND" + i);
+            shipment.setStatus(ShipmentStatus.CREATED);
+            repository.save(shipment);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Set<String>> claimedByA = pool.submit(drain(nodeA));
+            Future<Set<String>> claimedByB = pool.submit(drain(nodeB));
+
+            Set<String> a = claimedByA.get();
+            Set<String> b = claimedByB.get();
+
+            Set<String> overlap = new HashSet<>(a);
+            overlap.retainAll(b);
+
+            assertTrue(overlap.isEmpty(), "Envíos reclamados por ambos nodos: " + overlap);
+            assertEquals(SHIPMENTS, a.size() + b.size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void expiredLeasesAreReclaimed() throws Exception {
+        ShipmentRepository repository = nodeA.getBean(ShipmentRepository.class);
+        repository.deleteAll();
+        ShipmentEntity shipment = new ShipmentEntity();
+        shipment.setOrderCode("LEASE-CRASH");
+        shipment.setTrackingNumber("AND-CRASH");
+        shipment.setStatus(ShipmentStatus.IN_TRANSIT);
+        repository.save(shipment);
+
+        // El nodo A reclama con un lease muy corto y "se cae" sin liberarlo
+        List<String> claimedByA = nodeA.getBean(ShipmentLeaseService.class)
+                .claimBatch(ShipmentTrackingUpdater.ACTIVE_STATUSES, 10, Duration.ofMillis(200));
+        assertEquals(1, claimedByA.size());
+
+        ShipmentLeaseService leaseB = nodeB.getBean(ShipmentLeaseService.class);
+        assertTrue(leaseB.claimBatch(ShipmentTrackingUpdater.ACTIVE_STATUSES, 10, Duration.ofMinutes(5)).isEmpty());
+
+        Thread.sleep(300);
+        assertEquals(claimedByA, leaseB.claimBatch(ShipmentTrackingUpdater.ACTIVE_STATUSES, 10, Duration.ofMinutes(5)));
+    }
+
+    private Callable<Set<String>> drain(ConfigurableApplicationContext node) {
+        ShipmentLeaseService leaseService = node.getBean(ShipmentLeaseService.class);
+        return () -> {
+            Set<String> claimed = new HashSet<>();
+            List<String> batch;
+            while (!(batch = leaseService.claimBatch(
+                    ShipmentTrackingUpdater.ACTIVE_STATUSES, 5, Duration.ofMinutes(5))).isEmpty()) {
+                claimed.addAll(batch);
+            }
+            return claimed;
+        };
+    }
+
+    private static ConfigurableApplicationContext startNode(String nodeId, String ddlAuto) {
+        return new SpringApplicationBuilder(TesisEnviosApplication.class)
+                .properties(
+                        "server.port=0",
+                        "cluster.node-id=" + nodeId,
+                        "spring.datasource.url=jdbc:h2:mem:lease-test;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.hibernate.ddl-auto=" + ddlAuto,
+                        "spring.jpa.show-sql=false",
+                        "tracking.sweep.initial-delay-ms=3600000",
+                        "rate-table.harvest-initial-delay-ms=3600000")
+                .run();
+    }
+}
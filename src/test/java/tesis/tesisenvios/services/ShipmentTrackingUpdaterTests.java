@@ -0,0 +1,108 @@
+package tesis.tesisenvios.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.dtos.TrackingEventResponse;
+import tesis.tesisenvios.entitites.ShipmentEntity;
+import tesis.tesisenvios.entitites.TrackingEventEntity;
+import tesis.tesisenvios.repositories.ShipmentRepository;
+import tesis.tesisenvios.repositories.TrackingEventRepository;
+import tesis.tesisenvios.services.impl.MockAndreaniService;
+import tesis.tesisenvios.services.impl.ShipmentTrackingUpdater;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Consultas repetidas del mismo tracking: los eventos ya guardados se reconocen por el id
+ * del proveedor y no se vuelven a insertar
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        // Un ciclo completo de entrega en menos de dos segundos reales
+        "andreani.mock.time-scale=172800",
+        "andreani.mock.seed=42"
+})
+class ShipmentTrackingUpdaterTests {
+
+    // CREADO, RETIRADO, EN_TRANSITO, SALIDA_REPARTO, ENTREGADO
+    private static final int DELIVERED_EVENTS = 5;
+
+    @Autowired
+    private ShipmentTrackingUpdater updater;
+
+    @Autowired
+    private MockAndreaniService mock;
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private TrackingEventRepository trackingEventRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void start() {
+        shipmentRepository.deleteAll();
+    }
+
+    @Test
+    void repeatedPollingInsertsNoDuplicateEvents() {
+        // Con la semilla 42 este tracking sigue el escenario de entrega directa
+        String trackingNumber = "AND-POLL-1";
+        ShipmentEntity shipment = new ShipmentEntity();
+        shipment.setOrderCode("POLL-1");
+        shipment.setTrackingNumber(trackingNumber);
+        shipment.setProvider("ANDREANI");
+        shipment.setStatus(ShipmentStatus.CREATED);
+        String shipmentId = shipmentRepository.save(shipment).getId();
+
+        // Mientras avanza el ciclo: cada consulta suma solo los eventos nuevos
+        await().atMost(Duration.ofSeconds(20)).until(() -> {
+            poll(shipmentId);
+            List<String> ids = providerEventIds(shipmentId);
+            assertEquals(ids.stream().distinct().count(), ids.size());
+            return ids.size() == DELIVERED_EVENTS;
+        });
+        assertEquals(ShipmentStatus.DELIVERED, shipmentRepository.findById(shipmentId).orElseThrow().getStatus());
+
+        // Ciclo terminado: las consultas siguientes no insertan nada
+        for (int i = 0; i < 5; i++) {
+            assertFalse(poll(shipmentId));
+        }
+        assertEquals(mock.getTrackingEvents(trackingNumber).stream()
+                        .map(TrackingEventResponse::getProviderEventId)
+                        .sorted()
+                        .toList(),
+                providerEventIds(shipmentId));
+    }
+
+    private boolean poll(String shipmentId) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                updater.updateShipmentTracking(shipmentRepository.findById(shipmentId).orElseThrow())));
+    }
+
+    private List<TrackingEventEntity> events(String shipmentId) {
+        return trackingEventRepository.findByShipmentIdOrderByEventEpochDesc(shipmentId);
+    }
+
+    private List<String> providerEventIds(String shipmentId) {
+        return events(shipmentId).stream()
+                .map(TrackingEventEntity::getProviderEventId)
+                .sorted()
+                .toList();
+    }
+}
@@ -0,0 +1,116 @@
+package tesis.tesisenvios.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.entitites.ShipmentEntity;
+import tesis.tesisenvios.events.ShipmentStatusChangedEvent;
+import tesis.tesisenvios.repositories.ShipmentRepository;
+import tesis.tesisenvios.services.impl.ShipmentTrackingUpdater;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Transiciones con UPDATE condicional sobre el estado leído: una copia vieja del envío
+ * no pisa la transición que otro proceso ya aplicó
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@RecordApplicationEvents
+class ShipmentTransitionTests {
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private ShipmentTrackingUpdater updater;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    private TransactionTemplate transaction;
+    private TransactionTemplate newTransaction;
+
+    @BeforeEach
+    void start() {
+        transaction = new TransactionTemplate(transactionManager);
+        newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        shipmentRepository.deleteAll();
+    }
+
+    @Test
+    void staleCopyDoesNotOverwriteConcurrentTransition() {
+        String id = shipment(ShipmentStatus.IN_TRANSIT).getId();
+        long version = shipmentRepository.findById(id).orElseThrow().getVersion();
+
+        transaction.executeWithoutResult(status -> {
+            ShipmentEntity stale = shipmentRepository.findById(id).orElseThrow();
+
+            // Otro proceso registra la entrega fallida y confirma mientras tanto
+            assertTrue(newTransaction.execute(other ->
+                    updater.transitionStatus(shipmentRepository.findById(id).orElseThrow(),
+                            ShipmentStatus.FAILED_DELIVERY)));
+
+            // IN_TRANSIT -> OUT_FOR_DELIVERY es válida desde lo leído; FAILED_DELIVERY -> OUT_FOR_DELIVERY
+            // también, pero el evento diría IN_TRANSIT: el UPDATE exige el estado leído y no aplica
+            assertFalse(updater.transitionStatus(stale, ShipmentStatus.OUT_FOR_DELIVERY));
+            assertEquals(ShipmentStatus.FAILED_DELIVERY, stale.getStatus());
+        });
+
+        ShipmentEntity current = shipmentRepository.findById(id).orElseThrow();
+        assertEquals(ShipmentStatus.FAILED_DELIVERY, current.getStatus());
+        assertEquals(version + 1, current.getVersion());
+        List<ShipmentStatusChangedEvent> published = published();
+        assertEquals(1, published.size());
+        assertEquals(ShipmentStatus.IN_TRANSIT, published.get(0).getFromStatus());
+        assertEquals(ShipmentStatus.FAILED_DELIVERY, published.get(0).getToStatus());
+    }
+
+    @Test
+    void refreshedCopyAppliesNextValidTransition() {
+        String id = shipment(ShipmentStatus.FAILED_DELIVERY).getId();
+
+        assertTrue(transaction.execute(status ->
+                updater.transitionStatus(shipmentRepository.findById(id).orElseThrow(), ShipmentStatus.OUT_FOR_DELIVERY)));
+        // Hacia atrás no: la tabla de transiciones lo rechaza sin tocar la base
+        assertFalse(transaction.execute(status ->
+                updater.transitionStatus(shipmentRepository.findById(id).orElseThrow(), ShipmentStatus.IN_TRANSIT)));
+        assertTrue(transaction.execute(status ->
+                updater.transitionStatus(shipmentRepository.findById(id).orElseThrow(), ShipmentStatus.DELIVERED)));
+
+        ShipmentEntity delivered = shipmentRepository.findById(id).orElseThrow();
+        assertEquals(ShipmentStatus.DELIVERED, delivered.getStatus());
+        assertNotNull(delivered.getActualDeliveryDate());
+        assertEquals(2, published().size());
+    }
+
+    private List<ShipmentStatusChangedEvent> published() {
+        return events.stream(ShipmentStatusChangedEvent.class).toList();
+    }
+
+    private ShipmentEntity shipment(ShipmentStatus status) {
+        ShipmentEntity shipment = new ShipmentEntity();
+        shipment.setOrderCode("TRANS-" + status);
+        shipment.setTrackingNumber("AND-TRANS-" + status);
+        shipment.setStatus(status);
+        return shipmentRepository.save(shipment);
+    }
+}
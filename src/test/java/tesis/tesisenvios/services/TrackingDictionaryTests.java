@@ -0,0 +1,116 @@
+package tesis.tesisenvios.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import tesis.tesisenvios.dtos.TrackingEventResponse;
+import tesis.tesisenvios.entitites.TrackingDictionaryEntity;
+import tesis.tesisenvios.entitites.TrackingEventEntity;
+import tesis.tesisenvios.repositories.TrackingDictionaryRepository;
+import tesis.tesisenvios.utils.EpochSeconds;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TrackingDictionaryTests {
+
+    @Autowired
+    private TrackingDictionary dictionary;
+
+    @Autowired
+    private TrackingDictionaryRepository repository;
+
+    @Test
+    void eachTermIsStoredOncePerKind() {
+        int status = dictionary.code(TrackingDictionary.Kind.STATUS, "En tránsito");
+        assertEquals(status, dictionary.code(TrackingDictionary.Kind.STATUS, new String("En tránsito")));
+        assertNotEquals(status, dictionary.code(TrackingDictionary.Kind.DESCRIPTION, "En tránsito"));
+
+        // Todos los eventos comparten la misma instancia del término
+        assertSame(dictionary.term(status), dictionary.term(status));
+        assertEquals("En tránsito", dictionary.term(status));
+
+        assertEquals(TrackingDictionary.NONE, dictionary.code(TrackingDictionary.Kind.LOCATION, null));
+        assertEquals(TrackingDictionary.NONE, dictionary.code(TrackingDictionary.Kind.LOCATION, ""));
+        assertNull(dictionary.term(TrackingDictionary.NONE));
+
+        String longTerm = "x".repeat(TrackingDictionary.MAX_TERM_LENGTH + 50);
+        int truncated = dictionary.code(TrackingDictionary.Kind.DESCRIPTION, longTerm);
+        assertEquals(TrackingDictionary.MAX_TERM_LENGTH, dictionary.term(truncated).length());
+        assertEquals(truncated, dictionary.code(TrackingDictionary.Kind.DESCRIPTION, longTerm));
+    }
+
+    @Test
+    void concurrentInsertsOfTheSameTermKeepOneRow() throws Exception {
+        String term = "Sucursal Villa María";
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return dictionary.code(TrackingDictionary.Kind.LOCATION, term);
+                }));
+            }
+            start.countDown();
+
+            Set<Integer> codes = new HashSet<>();
+            for (Future<Integer> result : results) {
+                codes.add(result.get());
+            }
+            assertEquals(1, codes.size(), "códigos distintos para el mismo término: " + codes);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long rows = repository.findAll().stream()
+                .filter(entity -> entity.getKind().equals("L") && entity.getTerm().equals(term))
+                .count();
+        assertEquals(1, rows);
+    }
+
+    @Test
+    void termAddedByAnotherReplicaIsResolved() {
+        TrackingDictionaryEntity entity = repository.save(new TrackingDictionaryEntity(null, "L", "Alta de otra réplica"));
+
+        assertEquals("Alta de otra réplica", dictionary.term(entity.getId()));
+        assertEquals(entity.getId(), dictionary.code(TrackingDictionary.Kind.LOCATION, "Alta de otra réplica"));
+    }
+
+    @Test
+    void eventIsMappedBackToItsTerms() {
+        LocalDateTime date = LocalDateTime.of(2025, 3, 10, 14, 30, 15);
+        TrackingEventEntity event = new TrackingEventEntity(1L, null, EpochSeconds.of(date),
+                dictionary.code(TrackingDictionary.Kind.STATUS, "Entregado"),
+                dictionary.code(TrackingDictionary.Kind.DESCRIPTION, "El envío fue entregado al destinatario"),
+                TrackingDictionary.NONE,
+                "EV-1", EpochSeconds.of(date.plusMinutes(5)));
+
+        TrackingEventResponse response = dictionary.toResponse(event);
+        assertEquals(date, response.getEventDate());
+        assertEquals("Entregado", response.getStatus());
+        assertEquals("El envío fue entregado al destinatario", response.getDescription());
+        assertNull(response.getLocation());
+        assertEquals("EV-1", response.getProviderEventId());
+
+        event.setEventEpoch(0);
+        assertNull(dictionary.toResponse(event).getEventDate());
+    }
+}
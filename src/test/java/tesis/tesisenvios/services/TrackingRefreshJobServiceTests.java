@@ -0,0 +1,172 @@
+package tesis.tesisenvios.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.dtos.TrackingRefreshJobResponse;
+import tesis.tesisenvios.dtos.TrackingRefreshJobStatus;
+import tesis.tesisenvios.dtos.TrackingRefreshRequest;
+import tesis.tesisenvios.entitites.ShipmentEntity;
+import tesis.tesisenvios.repositories.ShipmentRepository;
+import tesis.tesisenvios.repositories.TrackingRefreshJobRepository;
+import tesis.tesisenvios.services.impl.TrackingRefreshJobServiceImpl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cola de refrescos manuales: unificación de pedidos (también concurrentes), toma por un solo
+ * worker y progreso
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "tracking.sweep.batch-size=5",
+        "tracking.sweep.pause-ms=50",
+        "tracking.refresh-jobs.poll-ms=3600000",
+        "tracking.refresh-jobs.executor.pool-size=1"
+})
+class TrackingRefreshJobServiceTests {
+
+    private static final int SHIPMENTS = 12;
+
+    @Autowired
+    private TrackingRefreshJobServiceImpl jobService;
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private TrackingRefreshJobRepository jobRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void start() {
+        jobRepository.deleteAll();
+        shipmentRepository.deleteAll();
+
+        // H2 no tiene índices filtrados: el de V12 se emula con una columna calculada que es null
+        // para los trabajos terminados
+        jdbcTemplate.execute("ALTER TABLE tracking_refresh_jobs ADD COLUMN IF NOT EXISTS open_filter_key "
+                + "VARCHAR(512) GENERATED ALWAYS AS (CASE WHEN status IN ('QUEUED', 'RUNNING') THEN filter_key END)");
+        jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS uk_refresh_jobs_open_filter "
+                + "ON tracking_refresh_jobs (open_filter_key)");
+    }
+
+    @Test
+    void equivalentRequestsAreCoalesced() {
+        TrackingRefreshJobResponse first = jobService.enqueue(
+                new TrackingRefreshRequest(List.of("AND-2", "AND-1"), null));
+        TrackingRefreshJobResponse same = jobService.enqueue(
+                new TrackingRefreshRequest(List.of("AND-1", "AND-2"), null));
+        TrackingRefreshJobResponse other = jobService.enqueue(
+                new TrackingRefreshRequest(null, ShipmentStatus.IN_TRANSIT));
+
+        assertFalse(first.isCoalesced());
+        assertTrue(same.isCoalesced());
+        assertEquals(first.getJobId(), same.getJobId());
+        assertNotEquals(first.getJobId(), other.getJobId());
+        assertEquals(TrackingRefreshJobStatus.QUEUED, first.getStatus());
+    }
+
+    @Test
+    void concurrentEquivalentRequestsShareOneJob() throws Exception {
+        int requests = 8;
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(requests);
+        try {
+            List<Future<TrackingRefreshJobResponse>> results = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                results.add(pool.submit(() -> {
+                    go.await(5, TimeUnit.SECONDS);
+                    return jobService.enqueue(new TrackingRefreshRequest(null, ShipmentStatus.IN_TRANSIT));
+                }));
+            }
+            go.countDown();
+
+            List<TrackingRefreshJobResponse> responses = new ArrayList<>();
+            for (Future<TrackingRefreshJobResponse> result : results) {
+                responses.add(result.get(10, TimeUnit.SECONDS));
+            }
+
+            assertEquals(1, jobRepository.count());
+            String jobId = jobRepository.findAll().get(0).getId();
+            assertTrue(responses.stream().allMatch(response -> response.getJobId().equals(jobId)));
+            assertEquals(1, responses.stream().filter(response -> !response.isCoalesced()).count());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void finishedJobDoesNotBlockANewOne() {
+        String first = jobService.enqueue(new TrackingRefreshRequest(null, ShipmentStatus.CREATED)).getJobId();
+        jobService.processQueue();
+        awaitFinished(first);
+
+        TrackingRefreshJobResponse next = jobService.enqueue(new TrackingRefreshRequest(null, ShipmentStatus.CREATED));
+
+        assertFalse(next.isCoalesced());
+        assertNotEquals(first, next.getJobId());
+    }
+
+    @Test
+    void workerClaimsOneJobPerFreeThreadAndReportsProgress() {
+        List<String> trackingNumbers = new ArrayList<>();
+        for (int i = 0; i < SHIPMENTS; i++) {
+            ShipmentEntity shipment = new ShipmentEntity();
+            shipment.setOrderCode("JOB-" + i);
+            shipment.setTrackingNumber("AND-JOB-" + i);
+            shipment.setStatus(ShipmentStatus.IN_TRANSIT);
+            shipmentRepository.save(shipment);
+            trackingNumbers.add(shipment.getTrackingNumber());
+        }
+
+        String byNumbers = jobService.enqueue(new TrackingRefreshRequest(trackingNumbers, null)).getJobId();
+        String byStatus = jobService.enqueue(new TrackingRefreshRequest(null, ShipmentStatus.CREATED)).getJobId();
+
+        jobService.processQueue();
+        // Un solo hilo y ocupado: el segundo trabajo sigue en cola
+        jobService.processQueue();
+        assertEquals(TrackingRefreshJobStatus.RUNNING, jobService.getJob(byNumbers).getStatus());
+        assertEquals(TrackingRefreshJobStatus.QUEUED, jobService.getJob(byStatus).getStatus());
+
+        TrackingRefreshJobResponse done = awaitFinished(byNumbers);
+        assertEquals(TrackingRefreshJobStatus.COMPLETED, done.getStatus());
+        assertEquals(SHIPMENTS, done.getProcessed());
+        assertEquals(0, done.getFailed());
+
+        // Los lotes liberan su lease al terminar
+        for (ShipmentEntity shipment : shipmentRepository.findAll()) {
+            assertNull(shipment.getLeaseOwner(), shipment.getOrderCode());
+        }
+
+        jobService.processQueue();
+        assertEquals(TrackingRefreshJobStatus.COMPLETED, awaitFinished(byStatus).getStatus());
+    }
+
+    private TrackingRefreshJobResponse awaitFinished(String jobId) {
+        return await().atMost(Duration.ofSeconds(20))
+                .until(() -> jobService.getJob(jobId), job -> job.getFinishedAt() != null);
+    }
+}
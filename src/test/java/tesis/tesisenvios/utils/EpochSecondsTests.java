@@ -0,0 +1,37 @@
+package tesis.tesisenvios.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class EpochSecondsTests {
+
+    @Test
+    void roundTripsArgentinaLocalTime() {
+        LocalDateTime date = LocalDateTime.of(2025, 3, 10, 14, 30, 15);
+        long epoch = EpochSeconds.of(date);
+
+        // Argentina es UTC-3 todo el año
+        assertEquals(ZonedDateTime.parse("2025-03-10T17:30:15Z").toEpochSecond(), epoch);
+        assertEquals(date, EpochSeconds.toLocalDateTime(epoch));
+
+        LocalDateTime newYear = LocalDateTime.of(2024, 12, 31, 23, 59, 59);
+        assertEquals(newYear, EpochSeconds.toLocalDateTime(EpochSeconds.of(newYear)));
+    }
+
+    @Test
+    void zeroMeansNoDate() {
+        assertEquals(0L, EpochSeconds.of(null));
+        assertNull(EpochSeconds.toLocalDateTime(0L));
+    }
+
+    @Test
+    void subSecondPrecisionIsDropped() {
+        LocalDateTime date = LocalDateTime.of(2025, 3, 10, 14, 30, 15, 999_000_000);
+        assertEquals(date.withNano(0), EpochSeconds.toLocalDateTime(EpochSeconds.of(date)));
+    }
+}
@@ -0,0 +1,70 @@
+package tesis.tesisenvios.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GcraLimiterTests {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void admitsBurstThenAsksToWaitOneInterval() {
+        // 10 por segundo con ráfaga de 5: intervalo de 100 ms
+        GcraLimiter limiter = new GcraLimiter(10, 5, 100);
+        long now = SECOND;
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, limiter.tryAcquire("cliente", now), "pedido " + i + " de la ráfaga");
+        }
+        long wait = limiter.tryAcquire("cliente", now);
+        assertEquals(SECOND / 10, wait);
+
+        // Pasado ese tiempo entra exactamente un pedido más
+        assertEquals(0, limiter.tryAcquire("cliente", now + wait));
+        assertTrue(limiter.tryAcquire("cliente", now + wait) > 0);
+
+        // Otro cliente tiene su propio bucket
+        assertEquals(0, limiter.tryAcquire("otro", now));
+    }
+
+    @Test
+    void idleClientsAreEvictedAndFullMapSharesOverflowBucket() {
+        GcraLimiter limiter = new GcraLimiter(1, 1, 2);
+        long now = SECOND;
+
+        assertEquals(0, limiter.tryAcquire("a", now));
+        assertEquals(0, limiter.tryAcquire("b", now));
+        // Mapa lleno de clientes activos: los nuevos comparten un bucket en lugar de crecer sin tope
+        assertEquals(0, limiter.tryAcquire("c", now));
+        assertTrue(limiter.tryAcquire("d", now) > 0);
+        assertEquals(2, limiter.size());
+
+        // Pasada la ráfaga los clientes quedan inactivos y se liberan
+        assertEquals(2, limiter.evictIdle(now + 2 * SECOND));
+        assertEquals(0, limiter.size());
+    }
+
+    @Test
+    void refundGivesBackOnePermitButNeverMoreThanTheBurst() {
+        GcraLimiter limiter = new GcraLimiter(10, 2, 100);
+        long now = SECOND;
+
+        assertEquals(0, limiter.tryAcquire("cliente", now));
+        assertEquals(0, limiter.tryAcquire("cliente", now));
+        assertTrue(limiter.tryAcquire("cliente", now) > 0);
+
+        limiter.refund("cliente", now);
+        assertEquals(0, limiter.tryAcquire("cliente", now));
+        assertTrue(limiter.tryAcquire("cliente", now) > 0);
+
+        // Con la ráfaga completa la devolución no suma cupo extra
+        long later = now + 10 * SECOND;
+        limiter.refund("cliente", later);
+        limiter.refund("cliente", later);
+        assertEquals(0, limiter.tryAcquire("cliente", later));
+        assertEquals(0, limiter.tryAcquire("cliente", later));
+        assertTrue(limiter.tryAcquire("cliente", later) > 0);
+    }
+}
@@ -0,0 +1,95 @@
+package tesis.tesisenvios.utils;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import tesis.tesisenvios.dtos.ShippingAddressRequest;
+import tesis.tesisenvios.exceptions.InvalidAddressException;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LocalityIndexTests {
+
+    private static LocalityIndex index;
+
+    @BeforeAll
+    static void load() throws IOException {
+        index = LocalityIndex.load(new StringReader("""
+                # region;localidad;codigos;alias
+                AR-C;Ciudad Autónoma de Buenos Aires;1000-1499;CABA|Capital Federal
+                AR-X;Córdoba;5000
+                AR-X;Villa Carlos Paz;5152;Carlos Paz
+                AR-X;Villa Allende;5105
+                AR-B;Merlo;1722
+                AR-D;Merlo;5881
+                AR-M;San Martín;5570
+                AR-M;San Rafael;5600
+                """));
+    }
+
+    @Test
+    void canonicalizesAccentsTyposAndAliases() {
+        ShippingAddressRequest normalized = index.normalize(address("cordova", "CORDOBA", " 5000 "));
+        assertEquals("Córdoba", normalized.getCity());
+        assertEquals("Córdoba", normalized.getProvince());
+        assertEquals("5000", normalized.getPostalCode());
+        assertEquals("Av. Colón", normalized.getStreet());
+
+        assertEquals("Villa Carlos Paz", index.normalize(address("carlos paz", "Cordoba", "X5152ABC")).getCity());
+        assertEquals("Ciudad Autónoma de Buenos Aires",
+                index.normalize(address("Capital Federal", "Capital Federal", "C1425BDB")).getCity());
+        // Provincia con un error de tipeo
+        assertEquals("Mendoza", index.normalize(address("San Rafael", "Mendosa", "5600")).getProvince());
+    }
+
+    @Test
+    void keepsTheValidatedCpaAndQuotesWithItsPrefix() {
+        ShippingAddressRequest normalized = index.normalize(address("Córdoba", "Córdoba", "x5000-abc"));
+        assertEquals("X5000ABC", normalized.getPostalCode());
+        assertEquals("5000", AddressKeys.postalKey(normalized.getPostalCode()));
+
+        assertEquals("C1425BDB",
+                index.normalize(address("Capital Federal", "Capital Federal", "C1425BDB")).getPostalCode());
+        // Normalizar dos veces da lo mismo
+        assertEquals("X5000ABC", index.normalize(normalized).getPostalCode());
+    }
+
+    @Test
+    void sameNameInAnotherProvinceResolvesByProvince() {
+        assertEquals("Merlo", index.normalize(address("merlo", "San Luis", "5881")).getCity());
+        assertEquals("Merlo", index.normalize(address("Merlo", "Buenos Aires", "1722")).getCity());
+    }
+
+    @Test
+    void unknownLocalityIsKeptAsIs() {
+        ShippingAddressRequest normalized = index.normalize(address("  Unquillo ", "Córdoba", "5109"));
+        assertEquals("Unquillo", normalized.getCity());
+        assertEquals("5109", normalized.getPostalCode());
+    }
+
+    @Test
+    void typoIsCorrectedOnlyWhenPostalCodeAgrees() {
+        assertEquals("Villa Allende", index.normalize(address("villa alende", "Córdoba", "5105")).getCity());
+        // Código postal sin localidades cargadas: no contradice la corrección
+        assertEquals("Villa Allende", index.normalize(address("villa alende", "Córdoba", "5109")).getCity());
+        // 5152 es de Carlos Paz: no se convierte en otra localidad de la provincia
+        assertEquals("villa alende", index.normalize(address("villa alende", "Córdoba", "5152")).getCity());
+    }
+
+    @Test
+    void rejectsImpossibleCombinations() {
+        // CPA de Córdoba (X) con provincia Mendoza
+        assertThrows(InvalidAddressException.class, () -> index.normalize(address("Mendoza", "Mendoza", "X5000ABC")));
+        // Código postal conocido de otra provincia
+        assertThrows(InvalidAddressException.class, () -> index.normalize(address("Córdoba", "Córdoba", "1722")));
+        assertThrows(InvalidAddressException.class, () -> index.normalize(address("Córdoba", "Córdoba", "50")));
+        assertThrows(InvalidAddressException.class, () -> index.normalize(address("Córdoba", "Narnia", "5000")));
+    }
+
+    private static ShippingAddressRequest address(String city, String province, String postalCode) {
+        return new ShippingAddressRequest("Av. Colón", "1234", null, city, province, postalCode, null);
+    }
+}
@@ -0,0 +1,98 @@
+package tesis.tesisenvios.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import tesis.tesisenvios.dtos.ShipmentResponse;
+import tesis.tesisenvios.dtos.ShippingAddressResponse;
+import tesis.tesisenvios.dtos.TrackingEventResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Bytes en la red de un seguimiento típico (30 eventos) según la vista, con y sin gzip;
+ * solo las vistas reducidas omiten los null
+ */
+class ShipmentViewsTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final ObjectMapper compactMapper = ShipmentViews.compactMapper(objectMapper);
+
+    @Test
+    void summaryAndCompressionShrinkTrackingPayload() throws IOException {
+        byte[] full = objectMapper.writeValueAsBytes(shipment(30));
+        byte[] detail = compactMapper.writeValueAsBytes(ShipmentViews.detail(shipment(30)));
+        byte[] summary = compactMapper.writeValueAsBytes(ShipmentViews.summary(shipment(30)));
+
+        assertTrue(detail.length < full.length);
+        assertTrue(summary.length * 10 < full.length, "el resumen debería ser menos del 10% del completo");
+        assertTrue(gzip(full) * 3 < full.length, "el historial repetitivo debería comprimir más de 3x");
+    }
+
+    @Test
+    void onlyReducedViewsOmitNulls() {
+        JsonNode full = objectMapper.valueToTree(shipment(2));
+        assertTrue(full.has("actualDeliveryDate"));
+        assertTrue(full.get("actualDeliveryDate").isNull());
+
+        ObjectNode detail = ShipmentViews.compact(compactMapper, ShipmentViews.detail(shipment(2)), Set.of());
+        assertFalse(detail.has("actualDeliveryDate"));
+        assertFalse(detail.has("recipientEmail"));
+        assertEquals("Córdoba", detail.get("shippingAddress").get("city").asText());
+
+        ObjectNode filtered = ShipmentViews.compact(compactMapper, shipment(2),
+                Set.of("status", "actualDeliveryDate"));
+        assertEquals(1, filtered.size());
+    }
+
+    @Test
+    void detailDropsRecipientDataAndFieldsFilterKeepsOnlyRequested() {
+        ShipmentResponse detail = ShipmentViews.detail(shipment(2));
+        assertNull(detail.getRecipientEmail());
+        assertNull(detail.getShippingAddress().getStreet());
+        assertEquals("Córdoba", detail.getShippingAddress().getCity());
+
+        Set<String> fields = ShipmentViews.parseFields("status, trackingNumber,,desconocido");
+        var node = ShipmentViews.filter(objectMapper, shipment(2), fields);
+        assertEquals(2, node.size());
+        assertEquals("IN_TRANSIT", node.get("status").asText());
+    }
+
+    private static ShipmentResponse shipment(int events) {
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 8, 0);
+        List<TrackingEventResponse> history = new ArrayList<>();
+        for (int i = events - 1; i >= 0; i--) {
+            history.add(new TrackingEventResponse(base.plusHours(i), "En tránsito",
+                    "El envío se encuentra en viaje hacia la sucursal de destino",
+                    "Centro de Distribución Córdoba", "AND-" + i));
+        }
+
+        ShippingAddressResponse address = new ShippingAddressResponse("Av. Colón", "1234", "5B",
+                "Córdoba", "Córdoba", "X5000", "Timbre roto");
+        return new ShipmentResponse("6f1c2d9e-1b8a-4c55-9a57-5f6f3c1e2a10", "ORD-2025-000123", "360000012345678",
+                "ANDREANI", "STANDARD", "IN_TRANSIT", address, "Juana Pérez", "juana.perez@example.com",
+                new BigDecimal("8450.00"), base.plusDays(3), null, base, history);
+    }
+
+    private static int gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.size();
+    }
+}
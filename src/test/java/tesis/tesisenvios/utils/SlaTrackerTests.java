@@ -0,0 +1,84 @@
+package tesis.tesisenvios.utils;
+
+import org.junit.jupiter.api.Test;
+import tesis.tesisenvios.dtos.ShipmentStatus;
+import tesis.tesisenvios.dtos.SlaState;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlaTrackerTests {
+
+    private static final long HOUR = 3600;
+
+    // Fecha estimada: 10/03 al mediodía; el plazo vence al final de ese día
+    private static final LocalDateTime ETA = LocalDateTime.of(2025, 3, 10, 12, 0);
+    private static final long DEADLINE = EpochSeconds.of(LocalDateTime.of(2025, 3, 11, 0, 0));
+
+    @Test
+    void flagsAtRiskThenLateAsDeadlinesPass() {
+        SlaTracker tracker = new SlaTracker(24 * HOUR);
+        long now = DEADLINE - 48 * HOUR;
+
+        assertEquals(SlaState.ON_TRACK, tracker.track("s1", "ORD-1", "TN-1", ShipmentStatus.IN_TRANSIT, ETA, now));
+        assertEquals(0, tracker.advance(now + HOUR));
+        assertTrue(tracker.drainFlagged().isEmpty());
+
+        tracker.advance(DEADLINE - 24 * HOUR);
+        List<SlaTracker.Entry> flagged = tracker.drainFlagged();
+        assertEquals(1, flagged.size());
+        assertEquals(SlaState.AT_RISK, flagged.get(0).getState());
+        assertEquals(1, tracker.count(SlaState.AT_RISK));
+
+        tracker.advance(DEADLINE);
+        assertEquals(SlaState.LATE, tracker.drainFlagged().get(0).getState());
+        assertEquals(0, tracker.count(SlaState.AT_RISK));
+        assertEquals(1, tracker.count(SlaState.LATE));
+
+        // Ya atrasado: no queda ningún vencimiento pendiente
+        assertEquals(0, tracker.advance(DEADLINE + 48 * HOUR));
+    }
+
+    @Test
+    void outForDeliveryIsNotAtRiskButFailedDeliveryIs() {
+        SlaTracker tracker = new SlaTracker(24 * HOUR);
+        long now = DEADLINE - 48 * HOUR;
+
+        tracker.track("s1", "ORD-1", "TN-1", ShipmentStatus.IN_TRANSIT, ETA, now);
+        assertTrue(tracker.updateStatus("s1", ShipmentStatus.OUT_FOR_DELIVERY, now));
+
+        // El vencimiento de "en riesgo" quedó viejo y se descarta
+        tracker.advance(DEADLINE - HOUR);
+        assertTrue(tracker.drainFlagged().isEmpty());
+        assertEquals(0, tracker.count(SlaState.AT_RISK));
+
+        tracker.updateStatus("s1", ShipmentStatus.FAILED_DELIVERY, DEADLINE - HOUR);
+        assertEquals(SlaState.AT_RISK, tracker.drainFlagged().get(0).getState());
+
+        assertFalse(tracker.updateStatus("otro", ShipmentStatus.IN_TRANSIT, now));
+    }
+
+    @Test
+    void removedShipmentsLeaveNoStateAndListIsOrderedByDeadline() {
+        SlaTracker tracker = new SlaTracker(24 * HOUR);
+        long now = DEADLINE + HOUR;
+
+        tracker.track("s1", "ORD-1", "TN-1", ShipmentStatus.IN_TRANSIT, ETA, now);
+        tracker.track("s2", "ORD-2", "TN-2", ShipmentStatus.IN_TRANSIT, ETA.minusDays(2), now);
+        tracker.track("s3", "ORD-3", "TN-3", ShipmentStatus.IN_TRANSIT, ETA.plusDays(5), now);
+
+        List<SlaTracker.Entry> late = tracker.flagged(SlaState.LATE, 10);
+        assertEquals(List.of("ORD-2", "ORD-1"), late.stream().map(SlaTracker.Entry::getOrderCode).toList());
+
+        tracker.remove("s2");
+        tracker.remove("s3");
+        assertEquals(1, tracker.size());
+        assertEquals(1, tracker.count(SlaState.LATE));
+        assertEquals(0, tracker.count(SlaState.ON_TRACK));
+        assertEquals(0, tracker.advance(now + 30 * 24 * HOUR));
+    }
+}